@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The evaluation order of the subschemas of an {@code anyOf}, adapted to the subschemas matched
+ * by the validations using {@link ValidationContext#withAdaptiveOrdering()}: the most often
+ * matching subschemas are tried first, so that the first match stops the evaluation early.
+ *
+ * <p>
+ * The matches are counted with {@link LongAdder}s, the order is recomputed every
+ * {@value #REORDER_PERIOD} validations from the match rates, the older matches weighing half as
+ * much at each recomputation.
+ * </p>
+ */
+final class AdaptiveBranchOrder {
+
+  static final int REORDER_PERIOD = 1024;
+
+  private final Schema[] branches;
+
+  private final LongAdder[] matches;
+
+  /**
+   * The match counts at the previous recomputation.
+   */
+  private final long[] countedMatches;
+
+  private final double[] matchRates;
+
+  private volatile int[] order;
+
+  /**
+   * Incremented without synchronization, lost updates only delay the next recomputation.
+   */
+  private int validations;
+
+  AdaptiveBranchOrder(final Schema[] branches) {
+    this.branches = branches;
+    this.matches = new LongAdder[branches.length];
+    for (int i = 0; i < branches.length; ++i) {
+      matches[i] = new LongAdder();
+    }
+    this.countedMatches = new long[branches.length];
+    this.matchRates = new double[branches.length];
+    int[] declaredOrder = new int[branches.length];
+    Arrays.setAll(declaredOrder, i -> i);
+    this.order = declaredOrder;
+  }
+
+  Schema getBranch(final int branch) {
+    return branches[branch];
+  }
+
+  /**
+   * Returns the current evaluation order.
+   *
+   * @return the indexes of the subschemas, which must not be modified
+   */
+  int[] getOrder() {
+    return order;
+  }
+
+  void matched(final int branch) {
+    matches[branch].increment();
+  }
+
+  /**
+   * Called at the start of a validation, recomputes the order periodically.
+   */
+  void validationStarted() {
+    if (++validations % REORDER_PERIOD == 0) {
+      reorder();
+    }
+  }
+
+  private synchronized void reorder() {
+    for (int i = 0; i < branches.length; ++i) {
+      long count = matches[i].sum();
+      matchRates[i] = matchRates[i] / 2 + (count - countedMatches[i]);
+      countedMatches[i] = count;
+    }
+    // the sort is stable, subschemas with equal rates keep their declaration order
+    order = Arrays.stream(order).boxed()
+        .sorted((b1, b2) -> Double.compare(matchRates[b2], matchRates[b1]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+}
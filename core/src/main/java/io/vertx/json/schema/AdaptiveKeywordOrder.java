@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import java.util.Arrays;
+
+/**
+ * The evaluation order of the keywords of a schema node, adapted to the failure rate and the cost
+ * of the keywords measured by the validations using
+ * {@link ValidationContext#withAdaptiveOrdering()}: the keywords are ordered by increasing cost
+ * per rejection, so that the cheap keywords rejecting most subjects are evaluated first.
+ *
+ * <p>
+ * The failures are counted for every evaluation, the costs are measured on one validation out of
+ * {@value #SAMPLE_PERIOD}, and the order is recomputed every {@value #REORDER_PERIOD} validations,
+ * halving the statistics to follow the changes of the workload. The statistics are updated
+ * without synchronization by the concurrent validations: lost updates only delay the adaptation.
+ * </p>
+ */
+final class AdaptiveKeywordOrder {
+
+  static final int SAMPLE_PERIOD = 8;
+
+  static final int REORDER_PERIOD = 256;
+
+  private final long[] evaluations;
+
+  private final long[] failures;
+
+  private final long[] sampledNanos;
+
+  private final long[] samples;
+
+  private volatile int[] order;
+
+  private int validations;
+
+  /**
+   * Constructor.
+   *
+   * @param declaredOrder
+   *          the identifiers of the keywords present in the schema, in the order of the
+   *          non-adaptive validations
+   * @param keywordCount
+   *          the number of keyword identifiers of the schema type
+   */
+  AdaptiveKeywordOrder(final int[] declaredOrder, final int keywordCount) {
+    this.order = declaredOrder;
+    this.evaluations = new long[keywordCount];
+    this.failures = new long[keywordCount];
+    this.sampledNanos = new long[keywordCount];
+    this.samples = new long[keywordCount];
+  }
+
+  /**
+   * Returns the current evaluation order.
+   *
+   * @return the keyword identifiers, which must not be modified
+   */
+  int[] getOrder() {
+    return order;
+  }
+
+  /**
+   * Records the evaluation of a keyword.
+   *
+   * @param keyword
+   *          the keyword identifier
+   * @param nanos
+   *          the duration of the evaluation, or -1 if it was not measured
+   * @param failed
+   *          whether the subject was rejected by the keyword
+   */
+  void record(final int keyword, final long nanos, final boolean failed) {
+    ++evaluations[keyword];
+    if (failed) {
+      ++failures[keyword];
+    }
+    if (nanos >= 0) {
+      sampledNanos[keyword] += nanos;
+      ++samples[keyword];
+    }
+  }
+
+  /**
+   * Called at the start of a validation, recomputes the order periodically.
+   *
+   * @return whether the durations of the keywords of this validation must be measured
+   */
+  boolean startValidation() {
+    int count = ++validations;
+    if (count % REORDER_PERIOD == 0) {
+      reorder();
+    }
+    return count % SAMPLE_PERIOD == 0;
+  }
+
+  private double costPerRejection(final int keyword) {
+    // a keyword not measured yet is tried first, to measure it
+    double cost = samples[keyword] == 0 ? 0 : (double) sampledNanos[keyword] / samples[keyword];
+    double failureRate = (failures[keyword] + 1.0) / (evaluations[keyword] + 2.0);
+    return cost / failureRate;
+  }
+
+  private void reorder() {
+    int[] current = order;
+    double[] scores = new double[evaluations.length];
+    for (int keyword : current) {
+      scores[keyword] = costPerRejection(keyword);
+    }
+    // the sort is stable, keywords with equal scores keep their order
+    int[] reordered = Arrays.stream(current).boxed()
+        .sorted((k1, k2) -> Double.compare(scores[k1], scores[k2]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+    for (int keyword : current) {
+      evaluations[keyword] /= 2;
+      failures[keyword] /= 2;
+      if (samples[keyword] > 1) {
+        sampledNanos[keyword] /= 2;
+        samples[keyword] /= 2;
+      }
+    }
+    order = reordered;
+  }
+
+}
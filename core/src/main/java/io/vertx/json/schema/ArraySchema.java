@@ -16,9 +16,13 @@
 package io.vertx.json.schema;
 
 import io.vertx.core.json.JsonArray;
+import io.vertx.json.schema.events.SchemaEvents;
+import io.vertx.json.schema.internal.CompactCollections;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -112,22 +116,50 @@ public class ArraySchema extends Schema {
     return new Builder();
   }
 
-  private final Integer minItems;
+  private static final byte HAS_MIN_ITEMS = 1;
 
-  private final Integer maxItems;
+  private static final byte HAS_MAX_ITEMS = 2;
 
-  private final boolean uniqueItems;
+  private static final byte UNIQUE_ITEMS = 4;
 
-  private final Schema allItemSchema;
+  private static final byte ADDITIONAL_ITEMS = 8;
 
-  private final boolean additionalItems;
+  private static final byte REQUIRES_ARRAY = 16;
 
-  private final List<Schema> itemSchemas;
+  private static final int MIN_ITEMS_KEYWORD = 0;
+
+  private static final int MAX_ITEMS_KEYWORD = 1;
 
-  private final boolean requiresArray;
+  private static final int UNIQUE_ITEMS_KEYWORD = 2;
+
+  private static final int ITEMS_KEYWORD = 3;
+
+  /**
+   * The keywords evaluated by the validation of an array, in their default order, indexed by the
+   * {@code *_KEYWORD} identifiers. {@code items} also stands for {@code additionalItems}.
+   */
+  private static final String[] KEYWORDS = { "minItems", "maxItems", "uniqueItems", "items" };
+
+  private final int minItems;
+
+  private final int maxItems;
+
+  private final Schema allItemSchema;
+
+  private final List<Schema> itemSchemas;
 
   private final Schema schemaOfAdditionalItems;
 
+  /**
+   * The presence bits of the item count bounds and the boolean keywords.
+   */
+  private final byte flags;
+
+  /**
+   * Created by the first adaptive validation, see {@link ValidationContext#withAdaptiveOrdering()}.
+   */
+  private volatile AdaptiveKeywordOrder adaptiveOrder;
+
   /**
    * Constructor.
    *
@@ -136,21 +168,57 @@ public class ArraySchema extends Schema {
    */
   public ArraySchema(final Builder builder) {
     super(builder);
-    this.minItems = builder.minItems;
-    this.maxItems = builder.maxItems;
-    this.uniqueItems = builder.uniqueItems;
-    this.allItemSchema = builder.allItemSchema;
-    this.itemSchemas = builder.itemSchemas;
-    if (!builder.additionalItems && allItemSchema != null) {
-      additionalItems = true;
+    byte flags = 0;
+    if (builder.minItems != null) {
+      this.minItems = builder.minItems;
+      flags |= HAS_MIN_ITEMS;
+    } else {
+      this.minItems = 0;
+    }
+    if (builder.maxItems != null) {
+      this.maxItems = builder.maxItems;
+      flags |= HAS_MAX_ITEMS;
     } else {
-      additionalItems = builder.schemaOfAdditionalItems != null || builder.additionalItems;
+      this.maxItems = 0;
+    }
+    if (builder.uniqueItems) {
+      flags |= UNIQUE_ITEMS;
+    }
+    this.allItemSchema = builder.allItemSchema;
+    this.itemSchemas = builder.itemSchemas == null ? null
+        : CompactCollections.copyOf(builder.itemSchemas);
+    if ((!builder.additionalItems && allItemSchema != null)
+        || builder.schemaOfAdditionalItems != null || builder.additionalItems) {
+      flags |= ADDITIONAL_ITEMS;
     }
     this.schemaOfAdditionalItems = builder.schemaOfAdditionalItems;
     if (!(allItemSchema == null || itemSchemas == null)) {
       throw new SchemaException("cannot perform both tuple and list validation");
     }
-    this.requiresArray = builder.requiresArray;
+    if (builder.requiresArray) {
+      flags |= REQUIRES_ARRAY;
+    }
+    this.flags = flags;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (!super.equals(obj)) {
+      return false;
+    }
+    ArraySchema other = (ArraySchema) obj;
+    return flags == other.flags
+        && minItems == other.minItems
+        && maxItems == other.maxItems
+        && Objects.equals(allItemSchema, other.allItemSchema)
+        && Objects.equals(itemSchemas, other.itemSchemas)
+        && Objects.equals(schemaOfAdditionalItems, other.schemaOfAdditionalItems);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), flags, minItems, maxItems, allItemSchema, itemSchemas,
+        schemaOfAdditionalItems);
   }
 
   public Schema getAllItemSchema() {
@@ -162,20 +230,21 @@ public class ArraySchema extends Schema {
   }
 
   public Integer getMaxItems() {
-    return maxItems;
+    return (flags & HAS_MAX_ITEMS) == 0 ? null : maxItems;
   }
 
   public Integer getMinItems() {
-    return minItems;
+    return (flags & HAS_MIN_ITEMS) == 0 ? null : minItems;
   }
 
   public Schema getSchemaOfAdditionalItems() {
     return schemaOfAdditionalItems;
   }
 
-  private Optional<ValidationException> ifFails(final Schema schema, final Object input) {
+  private Optional<ValidationException> ifFails(final Schema schema, final Object input,
+      final ValidationContext context) {
     try {
-      schema.validate(input);
+      SubschemaValidation.validate(schema, input, context);
       return Optional.empty();
     } catch (ValidationException e) {
       return Optional.of(e);
@@ -183,64 +252,98 @@ public class ArraySchema extends Schema {
   }
 
   public boolean needsUniqueItems() {
-    return uniqueItems;
+    return (flags & UNIQUE_ITEMS) != 0;
   }
 
   public boolean permitsAdditionalItems() {
-    return additionalItems;
+    return (flags & ADDITIONAL_ITEMS) != 0;
   }
 
   public boolean requiresArray() {
-    return requiresArray;
+    return (flags & REQUIRES_ARRAY) != 0;
   }
 
-  private Optional<ValidationException> testItemCount(final JsonArray subject) {
-    int actualLength = subject.size();
-    if (minItems != null && actualLength < minItems) {
-      return Optional.of(new ValidationException(this, "expected minimum item count: " + minItems
-          + ", found: " + actualLength));
+  Optional<ValidationException> testItemCount(final int actualLength) {
+    if ((flags & HAS_MIN_ITEMS) != 0 && actualLength < minItems) {
+      return Optional.of(minItemsFailure(actualLength));
     }
-    if (maxItems != null && maxItems < actualLength) {
-      return Optional.of(new ValidationException(this, "expected maximum item count: " + minItems
-          + ", found: " + actualLength));
+    if ((flags & HAS_MAX_ITEMS) != 0 && maxItems < actualLength) {
+      return Optional.of(maxItemsFailure(actualLength));
     }
     return Optional.empty();
   }
 
-  private List<ValidationException> testItems(final JsonArray subject) {
+  private ValidationException maxItemsFailure(final int actualLength) {
+    return new ValidationException(this, "expected maximum item count: "
+        + getMinItems()
+        + ", found: " + actualLength, "maxItems");
+  }
+
+  private ValidationException minItemsFailure(final int actualLength) {
+    return new ValidationException(this, "expected minimum item count: " + minItems
+        + ", found: " + actualLength, "minItems");
+  }
+
+  /**
+   * Validates the items from {@code from} (inclusive) to {@code to} (exclusive) against
+   * {@code schema}.
+   */
+  private List<ValidationException> testItemRange(final JsonArray subject, final int from,
+      final int to, final Schema schema, final ValidationContext context) {
     List<ValidationException> rval = new ArrayList<>();
-    if (allItemSchema != null) {
-      for (int i = 0; i < subject.size(); ++i) {
-        int copyOfI = i; // i is not effectively final so we copy it
-        ifFails(allItemSchema, subject.getValue(i))
-            .map(exc -> exc.prepend(String.valueOf(copyOfI)))
-            .ifPresent(rval::add);
+    for (int i = from; i < to; ++i) {
+      int copyOfI = i; // i is not effectively final so we copy it
+      ifFails(schema == null ? itemSchemas.get(i) : schema, subject.getValue(i), context)
+          .map(exc -> exc.prepend(String.valueOf(copyOfI)))
+          .ifPresent(rval::add);
+      if (context.isFailFast() && !rval.isEmpty()) {
+        return rval;
       }
+    }
+    return rval;
+  }
+
+  private List<ValidationException> testItems(final JsonArray subject,
+      final ValidationContext context) {
+    List<ValidationException> rval = new ArrayList<>();
+    if (allItemSchema != null) {
+      context.keywordStarted(this, "items");
+      rval.addAll(context.keywordCompleted(this, "items",
+          testItemRange(subject, 0, subject.size(), allItemSchema, context)));
     } else if (itemSchemas != null) {
-      if (!additionalItems && subject.size() > itemSchemas.size()) {
-        rval.add(new ValidationException(this, String.format(
-            "expected: [%d] array items, found: [%d]",
-            itemSchemas.size(), subject.size())));
+      // the items inserted or removed by a patch move the following items to another schema
+      ValidationContext itemContext = context.isRestructured(subject) ? context.withoutChanges()
+          : context;
+      if (!permitsAdditionalItems()) {
+        context.keywordStarted(this, "additionalItems");
+        addFailure(rval, context.keywordCompleted(this, "additionalItems",
+            testTupleSize(subject.size()).orElse(null)), context);
       }
       int itemValidationUntil = Math.min(subject.size(), itemSchemas.size());
-      for (int i = 0; i < itemValidationUntil; ++i) {
-        int copyOfI = i; // i is not effectively final so we copy it
-        ifFails(itemSchemas.get(i), subject.getValue(i))
-            .map(exc -> exc.prepend(String.valueOf(copyOfI)))
-            .ifPresent(rval::add);
+      context.keywordStarted(this, "items");
+      rval.addAll(context.keywordCompleted(this, "items",
+          testItemRange(subject, 0, itemValidationUntil, null, itemContext)));
+      if (context.isFailFast() && !rval.isEmpty()) {
+        return rval;
       }
       if (schemaOfAdditionalItems != null) {
-        for (int i = itemValidationUntil; i < subject.size(); ++i) {
-          int copyOfI = i; // i is not effectively final so we copy it
-          ifFails(schemaOfAdditionalItems, subject.getValue(i))
-              .map(exc -> exc.prepend(String.valueOf(copyOfI)))
-              .ifPresent(rval::add);
-        }
+        context.keywordStarted(this, "additionalItems");
+        rval.addAll(context.keywordCompleted(this, "additionalItems", testItemRange(subject,
+            itemValidationUntil, subject.size(), schemaOfAdditionalItems, itemContext)));
       }
     }
     return rval;
   }
 
+  Optional<ValidationException> testTupleSize(final int actualLength) {
+    if (!permitsAdditionalItems() && actualLength > itemSchemas.size()) {
+      return Optional.of(new ValidationException(this, String.format(
+          "expected: [%d] array items, found: [%d]",
+          itemSchemas.size(), actualLength), "additionalItems"));
+    }
+    return Optional.empty();
+  }
+
   private Optional<ValidationException> testUniqueness(final JsonArray subject) {
     if (subject.size() == 0) {
       return Optional.empty();
@@ -250,7 +353,8 @@ public class ArraySchema extends Schema {
       Object item = subject.getValue(i);
       for (Object contained : uniqueItems) {
         if (ObjectComparator.deepEquals(contained, item)) {
-          return Optional.of(new ValidationException(this, "array items are not unique"));
+          return Optional.of(new ValidationException(this, "array items are not unique",
+              "uniqueItems"));
         }
       }
       uniqueItems.add(item);
@@ -258,22 +362,130 @@ public class ArraySchema extends Schema {
     return Optional.empty();
   }
 
+  private AdaptiveKeywordOrder adaptiveOrder() {
+    AdaptiveKeywordOrder order = adaptiveOrder;
+    if (order == null) {
+      // the volatile field publishes the order safely, the statistics of a concurrent first
+      // validation may be lost
+      int[] keywords = new int[KEYWORDS.length];
+      int count = 0;
+      for (int keyword = 0; keyword < KEYWORDS.length; ++keyword) {
+        if (hasKeyword(keyword)) {
+          keywords[count++] = keyword;
+        }
+      }
+      order = new AdaptiveKeywordOrder(Arrays.copyOf(keywords, count), KEYWORDS.length);
+      adaptiveOrder = order;
+    }
+    return order;
+  }
+
+  private boolean hasKeyword(final int keyword) {
+    switch (keyword) {
+      case MIN_ITEMS_KEYWORD:
+        return (flags & HAS_MIN_ITEMS) != 0;
+      case MAX_ITEMS_KEYWORD:
+        return (flags & HAS_MAX_ITEMS) != 0;
+      case UNIQUE_ITEMS_KEYWORD:
+        return needsUniqueItems();
+      default:
+        return allItemSchema != null || itemSchemas != null;
+    }
+  }
+
+  private List<ValidationException> testKeyword(final int keyword, final JsonArray subject,
+      final ValidationContext context) {
+    if (keyword == ITEMS_KEYWORD) {
+      // reports items and additionalItems to the keyword listener
+      return testItems(subject, context);
+    }
+    context.keywordStarted(this, KEYWORDS[keyword]);
+    int size = subject.size();
+    ValidationException failure;
+    switch (keyword) {
+      case MIN_ITEMS_KEYWORD:
+        failure = size < minItems ? minItemsFailure(size) : null;
+        break;
+      case MAX_ITEMS_KEYWORD:
+        failure = maxItems < size ? maxItemsFailure(size) : null;
+        break;
+      default:
+        failure = testUniqueness(subject).orElse(null);
+        break;
+    }
+    context.keywordCompleted(this, KEYWORDS[keyword], failure);
+    return failure == null ? Collections.emptyList() : Collections.singletonList(failure);
+  }
+
   @Override
   public void validate(final Object subject) {
-    List<ValidationException> failures = new ArrayList<>();
-    if (!(subject instanceof JsonArray)) {
-      if (requiresArray) {
-        throw new ValidationException(this, JsonArray.class, subject);
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    if (requiresArray()) {
+      context.keywordStarted(this, "type");
+      ValidationException failure = subject instanceof JsonArray ? null
+          : new ValidationException(this, JsonArray.class, subject);
+      if (context.keywordCompleted(this, "type", failure) != null) {
+        throw failure;
       }
-    } else {
+    }
+    if (subject instanceof JsonArray) {
       JsonArray arrSubject = (JsonArray) subject;
-      testItemCount(arrSubject).ifPresent(failures::add);
-      if (uniqueItems) {
-        testUniqueness(arrSubject).ifPresent(failures::add);
+      if (context.isAdaptiveOrdering()) {
+        validateAdaptively(arrSubject, context);
+        return;
+      }
+      List<ValidationException> failures = new ArrayList<>();
+      boolean minItemsFailed = false;
+      for (int keyword = 0; keyword < KEYWORDS.length; ++keyword) {
+        // like testItemCount, maxItems is not checked if minItems already failed
+        if (!hasKeyword(keyword) || keyword == MAX_ITEMS_KEYWORD && minItemsFailed) {
+          continue;
+        }
+        List<ValidationException> keywordFailures = testKeyword(keyword, arrSubject, context);
+        minItemsFailed |= keyword == MIN_ITEMS_KEYWORD && !keywordFailures.isEmpty();
+        if (context.isFailFast() && !keywordFailures.isEmpty()) {
+          throw keywordFailures.get(0);
+        }
+        failures.addAll(keywordFailures);
+      }
+      ValidationException.throwFor(this, failures);
+    }
+  }
+
+  /**
+   * Fail-fast validation evaluating the keywords in the adaptive order, see
+   * {@link ValidationContext#withAdaptiveOrdering()}.
+   */
+  private void validateAdaptively(final JsonArray subject, final ValidationContext context) {
+    AdaptiveKeywordOrder order = adaptiveOrder();
+    boolean measured = order.startValidation();
+    for (int keyword : order.getOrder()) {
+      long start = measured ? System.nanoTime() : 0L;
+      List<ValidationException> failures = testKeyword(keyword, subject, context);
+      order.record(keyword, measured ? System.nanoTime() - start : -1L, !failures.isEmpty());
+      if (!failures.isEmpty()) {
+        throw failures.get(0);
+      }
+    }
+  }
+
+
+  /**
+   * Adds {@code failure} to {@code failures} if it is not {@code null}, and throws it if the
+   * validation stops at the first violation.
+   */
+  private void addFailure(final List<ValidationException> failures,
+      final ValidationException failure, final ValidationContext context) {
+    if (failure != null) {
+      if (context.isFailFast()) {
+        throw failure;
       }
-      failures.addAll(testItems(arrSubject));
+      failures.add(failure);
     }
-    ValidationException.throwFor(this, failures);
   }
 
 }
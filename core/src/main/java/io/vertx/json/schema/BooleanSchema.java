@@ -15,6 +15,8 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.json.schema.events.SchemaEvents;
+
 /**
  * Boolean schema validator.
  */
@@ -44,8 +46,16 @@ public class BooleanSchema extends Schema {
 
   @Override
   public void validate(final Object subject) {
-    if (!(subject instanceof Boolean)) {
-      throw new ValidationException(this, Boolean.class, subject);
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    context.keywordStarted(this, "type");
+    ValidationException failure = subject instanceof Boolean ? null
+        : new ValidationException(this, Boolean.class, subject);
+    if (context.keywordCompleted(this, "type", failure) != null) {
+      throw failure;
     }
   }
 
@@ -15,6 +15,8 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.json.schema.events.SchemaEvents;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
@@ -130,6 +132,12 @@ public class CombinedSchema extends Schema {
 
   private final ValidationCriterion criterion;
 
+  /**
+   * Created by the first adaptive {@code anyOf} validation, see
+   * {@link ValidationContext#withAdaptiveOrdering()}.
+   */
+  private volatile AdaptiveBranchOrder branchOrder;
+
   /**
    * Constructor.
    *
@@ -142,6 +150,25 @@ public class CombinedSchema extends Schema {
     this.subschemas = Objects.requireNonNull(builder.subschemas, "subschemas cannot be null");
   }
 
+  /**
+   * Combined schemas are equal if they have the same criterion and equal subschemas in the same
+   * order.
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    if (!super.equals(obj)) {
+      return false;
+    }
+    CombinedSchema other = (CombinedSchema) obj;
+    return criterion == other.criterion
+        && new ArrayList<>(subschemas).equals(new ArrayList<>(other.subschemas));
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), criterion, new ArrayList<>(subschemas));
+  }
+
   public ValidationCriterion getCriterion() {
     return criterion;
   }
@@ -150,9 +177,66 @@ public class CombinedSchema extends Schema {
     return subschemas;
   }
 
-  private boolean succeeds(final Schema schema, final Object subject) {
+  private AdaptiveBranchOrder branchOrder() {
+    AdaptiveBranchOrder order = branchOrder;
+    if (order == null) {
+      // the volatile field publishes the order safely, the matches of a concurrent first
+      // validation may be lost
+      order = new AdaptiveBranchOrder(subschemas.toArray(new Schema[subschemas.size()]));
+      branchOrder = order;
+    }
+    return order;
+  }
+
+  /**
+   * Returns the keyword of the criterion, reported to the keyword listeners.
+   */
+  String keyword() {
+    if (criterion == ALL_CRITERION) {
+      return "allOf";
+    } else if (criterion == ANY_CRITERION) {
+      return "anyOf";
+    } else if (criterion == ONE_CRITERION) {
+      return "oneOf";
+    }
+    // a custom criterion
+    return "criterion";
+  }
+
+  /**
+   * Returns whether a subschema matches {@code subject}, stopping at the first match. The order of
+   * the subschemas does not change the outcome, it is adapted to the past matches if the context
+   * requests it.
+   */
+  private boolean matchesAny(final Object subject, final ValidationContext context) {
+    if (context.asFailFast().isAdaptiveOrdering()) {
+      AdaptiveBranchOrder order = branchOrder();
+      order.validationStarted();
+      for (int branch : order.getOrder()) {
+        if (succeeds(order.getBranch(branch), subject, context)) {
+          order.matched(branch);
+          return true;
+        }
+      }
+      return false;
+    }
+    for (Schema schema : subschemas) {
+      if (succeeds(schema, subject, context)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean succeeds(final Schema schema, final Object subject,
+      final ValidationContext context) {
     try {
-      schema.validate(subject);
+      // only the outcome matters, so the subschemas stop at their first violation. Unlike allOf,
+      // the other criteria may be met with failing subschemas, which must be fully revalidated
+      // after a patch
+      ValidationContext subschemaContext = criterion == ALL_CRITERION ? context
+          : context.withoutChanges();
+      SubschemaValidation.validate(schema, subject, subschemaContext.asFailFast());
       return true;
     } catch (ValidationException e) {
       return false;
@@ -161,13 +245,30 @@ public class CombinedSchema extends Schema {
 
   @Override
   public void validate(final Object subject) {
-    int matchingCount = (int) subschemas.stream()
-        .filter(schema -> succeeds(schema, subject))
-        .count();
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    String keyword = keyword();
+    context.keywordStarted(this, keyword);
+    int matchingCount;
+    if (criterion == ANY_CRITERION) {
+      // a single match decides, and the failure message does not depend on the matching count
+      matchingCount = matchesAny(subject, context) ? 1 : 0;
+    } else {
+      matchingCount = (int) subschemas.stream()
+          .filter(schema -> succeeds(schema, subject, context))
+          .count();
+    }
+    ValidationException failure = null;
     try {
       criterion.validate(subschemas.size(), matchingCount);
     } catch (ValidationException e) {
-      throw new ValidationException(this, e.getMessage());
+      failure = new ValidationException(this, e.getMessage(), keyword);
+    }
+    if (context.keywordCompleted(this, keyword, failure) != null) {
+      throw failure;
     }
   }
 
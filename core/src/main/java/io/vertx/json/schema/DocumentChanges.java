@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The modifications of a document by a patch, applied through this class so that they can be
+ * rolled back, and so that {@link SubschemaValidation} can tell the unchanged subdocuments apart.
+ * The subdocuments are identified by their map or list, see
+ * {@link SubschemaValidation#container(Object)}.
+ */
+final class DocumentChanges {
+
+  private static Set<Object> identitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  private static List<Object> listOf(final JsonArray array) {
+    @SuppressWarnings("unchecked")
+    List<Object> list = (List<Object>) array.getList();
+    return list;
+  }
+
+  private static Map<String, Object> mapOf(final JsonObject object) {
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map = (Map<String, Object>) object.getMap();
+    return map;
+  }
+
+  /**
+   * Puts back the removed entry {@code key} at {@code position} in the iteration order of
+   * {@code map}, by moving the entries following it after it.
+   */
+  private static void restore(final Map<String, Object> map, final String key,
+      final Object value, final int position) {
+    List<Map.Entry<String, Object>> following = new ArrayList<>();
+    Iterator<Map.Entry<String, Object>> entries = map.entrySet().iterator();
+    for (int i = 0; entries.hasNext(); ++i) {
+      Map.Entry<String, Object> entry = entries.next();
+      if (i >= position) {
+        following.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+        entries.remove();
+      }
+    }
+    map.put(key, value);
+    following.forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+  }
+
+  /**
+   * The objects and arrays containing a modification, directly or in a descendant.
+   */
+  private final Set<Object> changed = identitySet();
+
+  /**
+   * The arrays whose items were inserted or removed, moving the following items.
+   */
+  private final Set<Object> restructured = identitySet();
+
+  /**
+   * The objects and arrays added by the patch, whose descendants are all new.
+   */
+  private final Set<Object> added = identitySet();
+
+  private final Deque<Runnable> undoLog = new ArrayDeque<>();
+
+  private void added(final Object value) {
+    Object container = SubschemaValidation.container(value);
+    if (container != null) {
+      added.add(container);
+    }
+  }
+
+  /**
+   * Records that {@code value}, an object or an array, contains a modification.
+   *
+   * @param value
+   *          the modified object or array, or an ancestor of a modified value
+   */
+  void changed(final Object value) {
+    changed.add(SubschemaValidation.container(value));
+  }
+
+  void insert(final JsonArray array, final int index, final Object value) {
+    List<Object> list = listOf(array);
+    list.add(index, value);
+    undoLog.push(() -> list.remove(index));
+    changed.add(list);
+    restructured.add(list);
+    added(value);
+  }
+
+  boolean isAdded(final Object container) {
+    return added.contains(container);
+  }
+
+  boolean isChanged(final Object container) {
+    return changed.contains(container);
+  }
+
+  boolean isRestructured(final Object container) {
+    return restructured.contains(container);
+  }
+
+  void put(final JsonObject object, final String key, final Object value) {
+    Map<String, Object> map = mapOf(object);
+    if (map.containsKey(key)) {
+      Object previous = map.put(key, value);
+      // keeps the position of the key
+      undoLog.push(() -> map.put(key, previous));
+    } else {
+      map.put(key, value);
+      undoLog.push(() -> map.remove(key));
+    }
+    changed.add(map);
+    added(value);
+  }
+
+  void remove(final JsonArray array, final int index) {
+    List<Object> list = listOf(array);
+    Object previous = list.remove(index);
+    undoLog.push(() -> list.add(index, previous));
+    changed.add(list);
+    restructured.add(list);
+  }
+
+  void remove(final JsonObject object, final String key) {
+    Map<String, Object> map = mapOf(object);
+    // only the position is recorded, the rollback moves the following entries after the key
+    int position = 0;
+    for (String current : map.keySet()) {
+      if (current.equals(key)) {
+        break;
+      }
+      ++position;
+    }
+    Object previous = map.remove(key);
+    int removedPosition = position;
+    undoLog.push(() -> restore(map, key, previous, removedPosition));
+    changed.add(map);
+  }
+
+  /**
+   * Reverts the modifications, in reverse order.
+   */
+  void rollback() {
+    while (!undoLog.isEmpty()) {
+      undoLog.pop().run();
+    }
+  }
+
+  void set(final JsonArray array, final int index, final Object value) {
+    List<Object> list = listOf(array);
+    Object previous = list.set(index, value);
+    undoLog.push(() -> list.set(index, previous));
+    changed.add(list);
+    added(value);
+  }
+
+}
@@ -15,6 +15,8 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.json.schema.events.SchemaEvents;
+
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -59,19 +61,37 @@ public class EnumSchema extends Schema {
     possibleValues = Collections.unmodifiableSet(new HashSet<>(builder.possibleValues));
   }
 
+  @Override
+  public boolean equals(final Object obj) {
+    return super.equals(obj) && possibleValues.equals(((EnumSchema) obj).possibleValues);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * super.hashCode() + possibleValues.hashCode();
+  }
+
   public Set<Object> getPossibleValues() {
     return possibleValues;
   }
 
   @Override
   public void validate(final Object subject) {
-    possibleValues
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    context.keywordStarted(this, "enum");
+    boolean found = possibleValues
         .stream()
-        .filter(val -> ObjectComparator.deepEquals(val, subject))
-        .findAny()
-        .orElseThrow(
-            () -> new ValidationException(this, String.format("%s is not a valid enum value",
-                subject)));
+        .anyMatch(val -> ObjectComparator.deepEquals(val, subject));
+    ValidationException failure = found ? null
+        : new ValidationException(this, String.format("%s is not a valid enum value", subject),
+            "enum");
+    if (context.keywordCompleted(this, "enum", failure) != null) {
+      throw failure;
+    }
   }
 
 }
@@ -77,6 +77,16 @@ public interface FormatValidator {
     }
   }
 
+  /**
+   * Returns the name of the format handled by this validator, as accepted by
+   * {@link #forFormat(String)}. Custom implementations are not required to override it.
+   *
+   * @return the name of the format, or {@code "unnamed-format"} by default
+   */
+  default String formatName() {
+    return "unnamed-format";
+  }
+
   /**
    * Implementation-specific validation of {@code subject}. If a validation error occurs then
    * implementations should return a programmer-friendly error message as a String wrapped in an
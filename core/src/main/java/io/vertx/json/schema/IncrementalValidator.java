@@ -0,0 +1,412 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.events.SchemaEvents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Applies patches to documents which are valid against a schema, revalidating only the modified
+ * parts of the documents, so that the cost of the validation depends on the size of the patch
+ * rather than on the size of the document.
+ *
+ * <p>
+ * The patches are <a href="https://tools.ietf.org/html/rfc6902">JSON Patch</a> operation arrays
+ * or <a href="https://tools.ietf.org/html/rfc7396">JSON Merge Patch</a> documents, applied in
+ * place. The objects and arrays containing a modification are validated again, with all their
+ * keywords (like {@code required}, {@code minProperties}, {@code uniqueItems} or
+ * {@code dependencies}), but their unchanged children are skipped when the validation of the
+ * document before the patch implies their validity: the subschemas of {@code anyOf},
+ * {@code oneOf} and {@code not}, the schema dependencies and the positional {@code items} of the
+ * arrays whose items were inserted or removed are validated against the whole subdocument. A
+ * value added by the patch is validated entirely.
+ * </p>
+ *
+ * <p>
+ * The document must be valid against the schema before the patch, otherwise the violations out
+ * of the modified parts are not reported, and it must not be modified concurrently. If the patch
+ * cannot be applied or the patched document is invalid, the document is restored and the failure
+ * is thrown. This class is thread-safe.
+ * </p>
+ */
+public class IncrementalValidator {
+
+  /**
+   * Builder class for {@link IncrementalValidator}.
+   */
+  public static class Builder {
+
+    private Schema schema;
+
+    private ValidationContext context = ValidationContext.DEFAULT;
+
+    public IncrementalValidator build() {
+      return new IncrementalValidator(this);
+    }
+
+    /**
+     * Sets the options of the validations. Defaults to {@link ValidationContext#DEFAULT}.
+     *
+     * @param context
+     *          the validation options
+     * @return {@code this}
+     */
+    public Builder context(final ValidationContext context) {
+      this.context = context;
+      return this;
+    }
+
+    public Builder schema(final Schema schema) {
+      this.schema = schema;
+      return this;
+    }
+
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static Object copy(final Object value) {
+    if (value instanceof JsonObject) {
+      return ((JsonObject) value).copy();
+    } else if (value instanceof JsonArray) {
+      return ((JsonArray) value).copy();
+    }
+    return value;
+  }
+
+  private static String escape(final List<String> path, final int length) {
+    StringBuilder pointer = new StringBuilder();
+    for (int i = 0; i < length; ++i) {
+      pointer.append('/').append(path.get(i).replace("~", "~0").replace("/", "~1"));
+    }
+    return pointer.toString();
+  }
+
+  private static int index(final JsonArray array, final String token, final boolean insertion) {
+    int size = array.size();
+    if (insertion && "-".equals(token)) {
+      return size;
+    }
+    if (!token.matches("0|[1-9][0-9]{0,9}")) {
+      throw new IllegalArgumentException("invalid array index: " + token);
+    }
+    long index = Long.parseLong(token);
+    if (index > size || index == size && !insertion) {
+      throw new IllegalArgumentException("array index out of bounds: " + token);
+    }
+    return (int) index;
+  }
+
+  private static List<String> parsePointer(final String pointer) {
+    if (pointer.isEmpty()) {
+      return Collections.emptyList();
+    }
+    if (pointer.charAt(0) != '/') {
+      throw new IllegalArgumentException("invalid JSON pointer: " + pointer);
+    }
+    List<String> tokens = new ArrayList<>();
+    for (String token : pointer.substring(1).split("/", -1)) {
+      tokens.add(token.replace("~1", "/").replace("~0", "~"));
+    }
+    return tokens;
+  }
+
+  private static String requireString(final JsonObject operation, final String key) {
+    Object value = operation.getValue(key);
+    if (!(value instanceof String)) {
+      throw new IllegalArgumentException("missing \"" + key + "\" in patch operation "
+          + operation.encode());
+    }
+    return (String) value;
+  }
+
+  /**
+   * Returns a copy of a merge patch value, without the {@code null} properties of its objects,
+   * which only mean a removal in a merge patch.
+   */
+  private static Object withoutNulls(final Object value) {
+    if (value instanceof JsonObject) {
+      JsonObject object = (JsonObject) value;
+      JsonObject rval = new JsonObject();
+      for (String key : object.fieldNames()) {
+        Object property = object.getValue(key);
+        if (property != null) {
+          rval.put(key, withoutNulls(property));
+        }
+      }
+      return rval;
+    }
+    return copy(value);
+  }
+
+  private final Schema schema;
+
+  private final ValidationContext context;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the schema of the documents and the validation options
+   */
+  public IncrementalValidator(final Builder builder) {
+    this.schema = Objects.requireNonNull(builder.schema, "schema cannot be null");
+    this.context = Objects.requireNonNull(builder.context, "context cannot be null");
+  }
+
+  private Object add(final Object root, final List<String> path, final Object value,
+      final DocumentChanges changes) {
+    if (path.isEmpty()) {
+      return value;
+    }
+    Object parent = parent(root, path, changes);
+    String token = path.get(path.size() - 1);
+    if (parent instanceof JsonObject) {
+      changes.put((JsonObject) parent, token, value);
+    } else {
+      JsonArray array = (JsonArray) parent;
+      changes.insert(array, index(array, token, true), value);
+    }
+    return root;
+  }
+
+  /**
+   * Applies a JSON Merge Patch to {@code document} and validates the modified parts of the
+   * document.
+   *
+   * @param document
+   *          the document, valid against the schema, modified in place
+   * @param mergePatch
+   *          the merge patch
+   * @return the patched document, which is {@code document} unless the patch replaced it
+   * @throws ValidationException
+   *           if the patched document is invalid against the schema, in which case
+   *           {@code document} is restored
+   */
+  public Object applyMergePatch(final Object document, final Object mergePatch) {
+    DocumentChanges changes = new DocumentChanges();
+    try {
+      Object patched = mergePatch(document, mergePatch, changes);
+      validate(document, patched, changes);
+      return patched;
+    } catch (RuntimeException e) {
+      changes.rollback();
+      throw e;
+    }
+  }
+
+  /**
+   * Applies a JSON Patch to {@code document} and validates the modified parts of the document.
+   *
+   * @param document
+   *          the document, valid against the schema, modified in place
+   * @param patch
+   *          the array of patch operations
+   * @return the patched document, which is {@code document} unless the patch replaced it
+   * @throws ValidationException
+   *           if the patched document is invalid against the schema, in which case
+   *           {@code document} is restored
+   * @throws IllegalArgumentException
+   *           if an operation is malformed, refers to a missing value or if a {@code test}
+   *           operation fails, in which case {@code document} is restored
+   */
+  public Object applyPatch(final Object document, final JsonArray patch) {
+    Objects.requireNonNull(patch, "patch cannot be null");
+    DocumentChanges changes = new DocumentChanges();
+    try {
+      Object patched = document;
+      for (int i = 0; i < patch.size(); ++i) {
+        Object operation = patch.getValue(i);
+        if (!(operation instanceof JsonObject)) {
+          throw new IllegalArgumentException("patch operation " + i + " is not an object");
+        }
+        patched = applyOperation(patched, (JsonObject) operation, changes);
+      }
+      validate(document, patched, changes);
+      return patched;
+    } catch (RuntimeException e) {
+      changes.rollback();
+      throw e;
+    }
+  }
+
+  private Object applyOperation(final Object root, final JsonObject operation,
+      final DocumentChanges changes) {
+    String op = requireString(operation, "op");
+    List<String> path = parsePointer(requireString(operation, "path"));
+    switch (op) {
+      case "add":
+        return add(root, path, value(operation), changes);
+      case "remove":
+        return remove(root, path, changes);
+      case "replace":
+        return replace(root, path, value(operation), changes);
+      case "move": {
+        String from = requireString(operation, "from");
+        String to = requireString(operation, "path");
+        if (to.startsWith(from + "/")) {
+          throw new IllegalArgumentException("cannot move " + from + " into itself");
+        }
+        List<String> fromPath = parsePointer(from);
+        Object value = get(root, fromPath);
+        return add(remove(root, fromPath, changes), path, value, changes);
+      }
+      case "copy":
+        return add(root, path, copy(get(root, parsePointer(requireString(operation, "from")))),
+            changes);
+      case "test":
+        if (!ObjectComparator.deepEquals(get(root, path), operation.getValue("value"))) {
+          throw new IllegalArgumentException("test failed: " + operation.encode());
+        }
+        return root;
+      default:
+        throw new IllegalArgumentException("unsupported patch operation: " + op);
+    }
+  }
+
+  private Object child(final Object container, final List<String> path, final int index) {
+    String token = path.get(index);
+    if (container instanceof JsonObject) {
+      JsonObject object = (JsonObject) container;
+      if (!object.containsKey(token)) {
+        throw new IllegalArgumentException("no value at " + escape(path, index + 1));
+      }
+      return object.getValue(token);
+    } else if (container instanceof JsonArray) {
+      JsonArray array = (JsonArray) container;
+      return array.getValue(index(array, token, false));
+    }
+    throw new IllegalArgumentException("no value at " + escape(path, index + 1));
+  }
+
+  private Object get(final Object root, final List<String> path) {
+    Object value = root;
+    for (int i = 0; i < path.size(); ++i) {
+      value = child(value, path, i);
+    }
+    return value;
+  }
+
+  private Object mergePatch(final Object target, final Object patch,
+      final DocumentChanges changes) {
+    if (!(patch instanceof JsonObject) || !(target instanceof JsonObject)) {
+      return withoutNulls(patch);
+    }
+    JsonObject object = (JsonObject) target;
+    JsonObject patchObject = (JsonObject) patch;
+    changes.changed(object);
+    for (String key : patchObject.fieldNames()) {
+      Object value = patchObject.getValue(key);
+      Object current = object.getValue(key);
+      if (value == null) {
+        if (object.containsKey(key)) {
+          changes.remove(object, key);
+        }
+      } else if (value instanceof JsonObject && current instanceof JsonObject) {
+        mergePatch(current, value, changes);
+      } else {
+        changes.put(object, key, withoutNulls(value));
+      }
+    }
+    return object;
+  }
+
+  /**
+   * Returns the object or array containing the value at {@code path}, recording the objects and
+   * arrays on the way as changed.
+   */
+  private Object parent(final Object root, final List<String> path,
+      final DocumentChanges changes) {
+    Object parent = root;
+    for (int i = 0; i < path.size() - 1; ++i) {
+      if (!(parent instanceof JsonObject || parent instanceof JsonArray)) {
+        break;
+      }
+      changes.changed(parent);
+      parent = child(parent, path, i);
+    }
+    if (!(parent instanceof JsonObject || parent instanceof JsonArray)) {
+      throw new IllegalArgumentException("no object or array at "
+          + escape(path, path.size() - 1));
+    }
+    changes.changed(parent);
+    return parent;
+  }
+
+  private Object remove(final Object root, final List<String> path,
+      final DocumentChanges changes) {
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("the document cannot be removed");
+    }
+    Object parent = parent(root, path, changes);
+    String token = path.get(path.size() - 1);
+    if (parent instanceof JsonObject) {
+      JsonObject object = (JsonObject) parent;
+      if (!object.containsKey(token)) {
+        throw new IllegalArgumentException("no value at " + escape(path, path.size()));
+      }
+      changes.remove(object, token);
+    } else {
+      JsonArray array = (JsonArray) parent;
+      changes.remove(array, index(array, token, false));
+    }
+    return root;
+  }
+
+  private Object replace(final Object root, final List<String> path, final Object value,
+      final DocumentChanges changes) {
+    if (path.isEmpty()) {
+      return value;
+    }
+    Object parent = parent(root, path, changes);
+    String token = path.get(path.size() - 1);
+    if (parent instanceof JsonObject) {
+      JsonObject object = (JsonObject) parent;
+      if (!object.containsKey(token)) {
+        throw new IllegalArgumentException("no value at " + escape(path, path.size()));
+      }
+      changes.put(object, token, value);
+    } else {
+      JsonArray array = (JsonArray) parent;
+      changes.set(array, index(array, token, false), value);
+    }
+    return root;
+  }
+
+  private void validate(final Object document, final Object patched,
+      final DocumentChanges changes) {
+    // a replaced document is entirely new
+    SchemaEvents.validate(schema, patched,
+        patched == document ? context.withChanges(changes) : context);
+  }
+
+  private Object value(final JsonObject operation) {
+    if (!operation.containsKey("value")) {
+      throw new IllegalArgumentException("missing \"value\" in patch operation "
+          + operation.encode());
+    }
+    return copy(operation.getValue("value"));
+  }
+
+}
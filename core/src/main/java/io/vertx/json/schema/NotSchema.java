@@ -15,6 +15,8 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.json.schema.events.SchemaEvents;
+
 import java.util.Objects;
 
 /**
@@ -52,13 +54,40 @@ public class NotSchema extends Schema {
     this.mustNotMatch = Objects.requireNonNull(builder.mustNotMatch, "mustNotMatch cannot be null");
   }
 
+  @Override
+  public boolean equals(final Object obj) {
+    return super.equals(obj) && mustNotMatch.equals(((NotSchema) obj).mustNotMatch);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * super.hashCode() + mustNotMatch.hashCode();
+  }
+
+  public Schema getMustNotMatch() {
+    return mustNotMatch;
+  }
+
   @Override
   public void validate(final Object subject) {
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    context.keywordStarted(this, "not");
+    ValidationException failure = null;
     try {
-      mustNotMatch.validate(subject);
+      // the subschema failed before a patch, it is fully revalidated
+      SubschemaValidation.validate(mustNotMatch, subject,
+          context.withoutChanges().asFailFast());
+      failure = new ValidationException(this,
+          "subject must not be valid agains schema " + mustNotMatch, "not");
     } catch (ValidationException e) {
-      return;
+      // expected: the subject does not match
+    }
+    if (context.keywordCompleted(this, "not", failure) != null) {
+      throw failure;
     }
-    throw new ValidationException(this, "subject must not be valid agains schema " + mustNotMatch);
   }
 }
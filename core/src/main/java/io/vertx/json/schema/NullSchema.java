@@ -15,6 +15,7 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.json.schema.events.SchemaEvents;
 
 /**
  * {@code Null} schema validator.
@@ -44,9 +45,17 @@ public class NullSchema extends Schema {
 
   @Override
   public void validate(final Object subject) {
-    if (!(subject == null)) {
-      throw new ValidationException(this, "expected: null, found: "
-          + subject.getClass().getSimpleName());
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    context.keywordStarted(this, "type");
+    ValidationException failure = subject == null ? null
+        : new ValidationException(this, "expected: null, found: "
+            + subject.getClass().getSimpleName(), "type");
+    if (context.keywordCompleted(this, "type", failure) != null) {
+      throw failure;
     }
   }
 }
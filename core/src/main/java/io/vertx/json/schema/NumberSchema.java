@@ -15,7 +15,10 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.json.schema.events.SchemaEvents;
+
 import java.math.BigDecimal;
+import java.util.Objects;
 
 /**
  * Number schema validator.
@@ -87,19 +90,25 @@ public class NumberSchema extends Schema {
     return new Builder();
   }
 
-  private final boolean requiresNumber;
+  private static final byte REQUIRES_NUMBER = 1;
+
+  private static final byte REQUIRES_INTEGER = 2;
+
+  private static final byte EXCLUSIVE_MINIMUM = 4;
 
+  private static final byte EXCLUSIVE_MAXIMUM = 8;
+
+  /**
+   * The bounds are kept as parsed: the boxed values are shared with the schema JSON, and their
+   * type determines how they are printed in the failure messages.
+   */
   private final Number minimum;
 
   private final Number maximum;
 
   private final Number multipleOf;
 
-  private boolean exclusiveMinimum = false;
-
-  private boolean exclusiveMaximum = false;
-
-  private final boolean requiresInteger;
+  private final byte flags;
 
   public NumberSchema() {
     this(builder());
@@ -115,43 +124,98 @@ public class NumberSchema extends Schema {
     super(builder);
     this.minimum = builder.minimum;
     this.maximum = builder.maximum;
-    this.exclusiveMinimum = builder.exclusiveMinimum;
-    this.exclusiveMaximum = builder.exclusiveMaximum;
     this.multipleOf = builder.multipleOf;
-    this.requiresNumber = builder.requiresNumber;
-    this.requiresInteger = builder.requiresInteger;
+    byte flags = 0;
+    if (builder.requiresNumber) {
+      flags |= REQUIRES_NUMBER;
+    }
+    if (builder.requiresInteger) {
+      flags |= REQUIRES_INTEGER;
+    }
+    if (builder.exclusiveMinimum) {
+      flags |= EXCLUSIVE_MINIMUM;
+    }
+    if (builder.exclusiveMaximum) {
+      flags |= EXCLUSIVE_MAXIMUM;
+    }
+    this.flags = flags;
   }
 
-  private void checkMaximum(final double subject) {
+  @Override
+  public boolean equals(final Object obj) {
+    if (!super.equals(obj)) {
+      return false;
+    }
+    NumberSchema other = (NumberSchema) obj;
+    return flags == other.flags
+        && Objects.equals(minimum, other.minimum)
+        && Objects.equals(maximum, other.maximum)
+        && Objects.equals(multipleOf, other.multipleOf);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), flags, minimum, maximum, multipleOf);
+  }
+
+  private void checkMaximum(final double subject, final ValidationContext context) {
     if (maximum != null) {
-      if (exclusiveMaximum && maximum.doubleValue() <= subject) {
-        throw new ValidationException(this, subject + " is not lower than " + maximum);
+      context.keywordStarted(this, "maximum");
+      ValidationException failure = null;
+      if (isExclusiveMaximum() && maximum.doubleValue() <= subject) {
+        failure = new ValidationException(this, subject + " is not lower than " + maximum,
+            "maximum");
       } else if (maximum.doubleValue() < subject) {
-        throw new ValidationException(this, subject + " is not lower or equal to " + maximum);
+        failure = new ValidationException(this, subject + " is not lower or equal to " + maximum,
+            "maximum");
       }
+      throwIfFailed(context.keywordCompleted(this, "maximum", failure));
     }
   }
 
-  private void checkMinimum(final double subject) {
+  private void checkMinimum(final double subject, final ValidationContext context) {
     if (minimum != null) {
-      if (exclusiveMinimum && subject <= minimum.doubleValue()) {
-        throw new ValidationException(this, subject + " is not higher than " + minimum);
+      context.keywordStarted(this, "minimum");
+      ValidationException failure = null;
+      if (isExclusiveMinimum() && subject <= minimum.doubleValue()) {
+        failure = new ValidationException(this, subject + " is not higher than " + minimum,
+            "minimum");
       } else if (subject < minimum.doubleValue()) {
-        throw new ValidationException(this, subject + " is not higher or equal to " + minimum);
+        failure = new ValidationException(this, subject + " is not higher or equal to " + minimum,
+            "minimum");
       }
+      throwIfFailed(context.keywordCompleted(this, "minimum", failure));
     }
   }
 
-  private void checkMultipleOf(final double subject) {
+  private void checkMultipleOf(final double subject, final ValidationContext context) {
     if (multipleOf != null) {
+      context.keywordStarted(this, "multipleOf");
+      ValidationException failure = null;
       BigDecimal remainder = BigDecimal.valueOf(subject).remainder(
           BigDecimal.valueOf(multipleOf.doubleValue()));
       if (remainder.compareTo(BigDecimal.ZERO) != 0) {
-        throw new ValidationException(this, subject + " is not a multiple of " + multipleOf);
+        failure = new ValidationException(this, subject + " is not a multiple of " + multipleOf,
+            "multipleOf");
       }
+      throwIfFailed(context.keywordCompleted(this, "multipleOf", failure));
     }
   }
 
+  private void checkType(final Object subject, final ValidationContext context) {
+    if (!requiresNumber() && !(requiresInteger() && subject instanceof Number)) {
+      return;
+    }
+    context.keywordStarted(this, "type");
+    ValidationException failure = null;
+    if (!(subject instanceof Number)) {
+      failure = new ValidationException(this, Number.class, subject);
+    } else if (!(subject instanceof Integer || subject instanceof Long) && requiresInteger()) {
+      failure = new ValidationException(this, Integer.class, subject);
+    }
+    throwIfFailed(context.keywordCompleted(this, "type", failure));
+  }
+
   public Number getMaximum() {
     return maximum;
   }
@@ -165,31 +229,40 @@ public class NumberSchema extends Schema {
   }
 
   public boolean isExclusiveMaximum() {
-    return exclusiveMaximum;
+    return (flags & EXCLUSIVE_MAXIMUM) != 0;
   }
 
   public boolean isExclusiveMinimum() {
-    return exclusiveMinimum;
+    return (flags & EXCLUSIVE_MINIMUM) != 0;
   }
 
   public boolean requiresInteger() {
-    return requiresInteger;
+    return (flags & REQUIRES_INTEGER) != 0;
+  }
+
+  public boolean requiresNumber() {
+    return (flags & REQUIRES_NUMBER) != 0;
+  }
+
+  private void throwIfFailed(final ValidationException failure) {
+    if (failure != null) {
+      throw failure;
+    }
   }
 
   @Override
   public void validate(final Object subject) {
-    if (!(subject instanceof Number)) {
-      if (requiresNumber) {
-        throw new ValidationException(this, Number.class, subject);
-      }
-    } else {
-      if (!(subject instanceof Integer || subject instanceof Long) && requiresInteger) {
-        throw new ValidationException(this, Integer.class, subject);
-      }
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    checkType(subject, context);
+    if (subject instanceof Number) {
       double intSubject = ((Number) subject).doubleValue();
-      checkMinimum(intSubject);
-      checkMaximum(intSubject);
-      checkMultipleOf(intSubject);
+      checkMinimum(intSubject, context);
+      checkMaximum(intSubject, context);
+      checkMultipleOf(intSubject, context);
     }
   }
 
@@ -16,6 +16,9 @@
 package io.vertx.json.schema;
 
 import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.events.SchemaEventType;
+import io.vertx.json.schema.events.SchemaEvents;
+import io.vertx.json.schema.internal.CompactCollections;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -111,7 +114,8 @@ public class ObjectSchema extends Schema {
     }
 
     public Builder patternProperty(final String pattern, final Schema schema) {
-      return patternProperty(Pattern.compile(pattern), schema);
+      return patternProperty(SchemaEvents.trace(SchemaEventType.PATTERN_COMPILE, pattern, pattern,
+          () -> Pattern.compile(pattern)), schema);
     }
 
     /**
@@ -156,30 +160,64 @@ public class ObjectSchema extends Schema {
     return new Builder();
   }
 
+  private static final byte HAS_MIN_PROPERTIES = 1;
+
+  private static final byte HAS_MAX_PROPERTIES = 2;
+
+  private static final byte ADDITIONAL_PROPERTIES = 4;
+
+  private static final byte REQUIRES_OBJECT = 8;
+
+  private static final int PROPERTIES_KEYWORD = 0;
+
+  private static final int REQUIRED_KEYWORD = 1;
+
+  private static final int ADDITIONAL_PROPERTIES_KEYWORD = 2;
+
+  private static final int MIN_PROPERTIES_KEYWORD = 3;
+
+  private static final int MAX_PROPERTIES_KEYWORD = 4;
+
+  private static final int DEPENDENCIES_KEYWORD = 5;
+
+  /**
+   * The keywords evaluated by the validation of an object, in their default order, indexed by the
+   * {@code *_KEYWORD} identifiers.
+   */
+  private static final String[] KEYWORDS = { "properties", "required", "additionalProperties",
+      "minProperties", "maxProperties", "dependencies", "patternProperties" };
+
   private static <K, V> Map<K, V> copyMap(final Map<K, V> original) {
-    return Collections.unmodifiableMap(new HashMap<>(original));
+    return CompactCollections.copyOf(original,
+        large -> Collections.unmodifiableMap(new HashMap<>(large)));
   }
 
   private final Map<String, Schema> propertySchemas;
 
-  private final boolean additionalProperties;
-
   private final Schema schemaOfAdditionalProperties;
 
   private final List<String> requiredProperties;
 
-  private final Integer minProperties;
+  private final int minProperties;
 
-  private final Integer maxProperties;
+  private final int maxProperties;
 
   private final Map<String, Set<String>> propertyDependencies;
 
   private final Map<String, Schema> schemaDependencies;
 
-  private final boolean requiresObject;
-
   private final Map<Pattern, Schema> patternProperties;
 
+  /**
+   * The presence bits of the property count bounds and the boolean keywords.
+   */
+  private final byte flags;
+
+  /**
+   * Created by the first adaptive validation, see {@link ValidationContext#withAdaptiveOrdering()}.
+   */
+  private volatile AdaptiveKeywordOrder adaptiveOrder;
+
   /**
    * Constructor.
    *
@@ -188,35 +226,86 @@ public class ObjectSchema extends Schema {
    */
   public ObjectSchema(final Builder builder) {
     super(builder);
-    this.propertySchemas = builder.propertySchemas == null ? null
-        : Collections.unmodifiableMap(builder.propertySchemas);
-    this.additionalProperties = builder.additionalProperties;
+    this.propertySchemas = CompactCollections.copyOf(builder.propertySchemas,
+        Collections::unmodifiableMap);
     this.schemaOfAdditionalProperties = builder.schemaOfAdditionalProperties;
-    if (!additionalProperties && schemaOfAdditionalProperties != null) {
+    if (!builder.additionalProperties && schemaOfAdditionalProperties != null) {
       throw new SchemaException(
           "additionalProperties cannot be false if schemaOfAdditionalProperties is present");
     }
-    this.requiredProperties = Collections.unmodifiableList(new ArrayList<>(
-        builder.requiredProperties));
-    this.minProperties = builder.minProperties;
-    this.maxProperties = builder.maxProperties;
+    this.requiredProperties = CompactCollections.copyOf(builder.requiredProperties);
+    byte flags = 0;
+    if (builder.minProperties != null) {
+      this.minProperties = builder.minProperties;
+      flags |= HAS_MIN_PROPERTIES;
+    } else {
+      this.minProperties = 0;
+    }
+    if (builder.maxProperties != null) {
+      this.maxProperties = builder.maxProperties;
+      flags |= HAS_MAX_PROPERTIES;
+    } else {
+      this.maxProperties = 0;
+    }
+    if (builder.additionalProperties) {
+      flags |= ADDITIONAL_PROPERTIES;
+    }
+    if (builder.requiresObject) {
+      flags |= REQUIRES_OBJECT;
+    }
+    this.flags = flags;
     this.propertyDependencies = copyMap(builder.propertyDependencies);
     this.schemaDependencies = copyMap(builder.schemaDependencies);
-    this.requiresObject = builder.requiresObject;
     this.patternProperties = copyMap(builder.patternProperties);
   }
 
+  @Override
+  public boolean equals(final Object obj) {
+    if (!super.equals(obj)) {
+      return false;
+    }
+    ObjectSchema other = (ObjectSchema) obj;
+    return flags == other.flags
+        && minProperties == other.minProperties
+        && maxProperties == other.maxProperties
+        && propertySchemas.equals(other.propertySchemas)
+        && Objects.equals(schemaOfAdditionalProperties, other.schemaOfAdditionalProperties)
+        && requiredProperties.equals(other.requiredProperties)
+        && propertyDependencies.equals(other.propertyDependencies)
+        && schemaDependencies.equals(other.schemaDependencies)
+        && patternPropertiesBySource().equals(other.patternPropertiesBySource());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), flags, propertySchemas, schemaOfAdditionalProperties,
+        requiredProperties, minProperties, maxProperties, propertyDependencies,
+        schemaDependencies, patternPropertiesBySource());
+  }
+
+  /**
+   * {@link Pattern} has no value-based equality, the patterns are compared by their source.
+   */
+  private Map<String, Schema> patternPropertiesBySource() {
+    if (patternProperties.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, Schema> rval = new HashMap<>();
+    patternProperties.forEach((pattern, schema) -> rval.put(pattern.pattern(), schema));
+    return rval;
+  }
+
   private Stream<String> getAdditionalProperties(final JsonObject subject) {
     return subject.fieldNames().stream().filter(key -> !propertySchemas.containsKey(key))
           .filter(key -> !matchesAnyPattern(key));
   }
 
   public Integer getMaxProperties() {
-    return maxProperties;
+    return (flags & HAS_MAX_PROPERTIES) == 0 ? null : maxProperties;
   }
 
   public Integer getMinProperties() {
-    return minProperties;
+    return (flags & HAS_MIN_PROPERTIES) == 0 ? null : minProperties;
   }
 
   public Map<Pattern, Schema> getPatternProperties() {
@@ -243,15 +332,32 @@ public class ObjectSchema extends Schema {
     return schemaOfAdditionalProperties;
   }
 
-  private Optional<ValidationException> ifFails(final Schema schema, final Object input) {
+  private Optional<ValidationException> ifFails(final Schema schema, final Object input,
+      final ValidationContext context) {
     try {
-      schema.validate(input);
+      SubschemaValidation.validate(schema, input, context);
       return Optional.empty();
     } catch (ValidationException e) {
       return Optional.of(e);
     }
   }
 
+  /**
+   * Adds {@code newFailures} to {@code failures}, and throws the first failure if the validation
+   * stops at the first violation.
+   */
+  private void addFailures(final List<ValidationException> failures,
+      final List<ValidationException> newFailures, final ValidationContext context) {
+    if (context.isFailFast() && !newFailures.isEmpty()) {
+      throw newFailures.get(0);
+    }
+    failures.addAll(newFailures);
+  }
+
+  private long failureLimit(final ValidationContext context) {
+    return context.isFailFast() ? 1 : Long.MAX_VALUE;
+  }
+
   private boolean matchesAnyPattern(final String key) {
     return patternProperties.keySet().stream()
         .filter(pattern -> pattern.matcher(key).find())
@@ -260,18 +366,34 @@ public class ObjectSchema extends Schema {
   }
 
   public boolean permitsAdditionalProperties() {
-    return additionalProperties;
+    return (flags & ADDITIONAL_PROPERTIES) != 0;
   }
 
   public boolean requiresObject() {
-    return requiresObject;
+    return (flags & REQUIRES_OBJECT) != 0;
+  }
+
+  ValidationException extraneousKeyFailure(final String unneeded) {
+    return new ValidationException(this,
+        String.format("extraneous key [%s] is not permitted", unneeded), "additionalProperties");
+  }
+
+  ValidationException missingDependencyFailure(final String missingKey) {
+    return new ValidationException(this, String.format("property [%s] is required", missingKey),
+        "dependencies");
   }
 
-  private List<ValidationException> testAdditionalProperties(final JsonObject subject) {
-    if (!additionalProperties) {
+  ValidationException missingRequiredFailure(final String missingKey) {
+    return new ValidationException(this,
+        String.format("required key [%s] not found", missingKey), "required");
+  }
+
+  private List<ValidationException> testAdditionalProperties(final JsonObject subject,
+      final ValidationContext context) {
+    if (!permitsAdditionalProperties()) {
       return getAdditionalProperties(subject)
-          .map(unneeded -> String.format("extraneous key [%s] is not permitted", unneeded))
-          .map(msg -> new ValidationException(this, msg))
+          .map(this::extraneousKeyFailure)
+          .limit(failureLimit(context))
           .collect(Collectors.toList());
     } else if (schemaOfAdditionalProperties != null) {
       List<String> additionalPropNames = getAdditionalProperties(subject)
@@ -279,16 +401,20 @@ public class ObjectSchema extends Schema {
       List<ValidationException> rval = new ArrayList<ValidationException>();
       for (String propName : additionalPropNames) {
         Object propVal = subject.getValue(propName);
-        ifFails(schemaOfAdditionalProperties, propVal)
+        ifFails(schemaOfAdditionalProperties, propVal, context)
             .map(failure -> failure.prepend(propName, this))
             .ifPresent(rval::add);
+        if (context.isFailFast() && !rval.isEmpty()) {
+          break;
+        }
       }
       return rval;
     }
     return Collections.emptyList();
   }
 
-  private List<ValidationException> testPatternProperties(final JsonObject subject) {
+  private List<ValidationException> testPatternProperties(final JsonObject subject,
+      final ValidationContext context) {
     if (subject==null||subject.isEmpty()) {
       return Collections.emptyList();
     }
@@ -297,25 +423,32 @@ public class ObjectSchema extends Schema {
     for (Entry<Pattern, Schema> entry : patternProperties.entrySet()) {
       for (String propName : propNames) {
         if (entry.getKey().matcher(propName).find()) {
-          ifFails(entry.getValue(), subject.getValue(propName))
+          ifFails(entry.getValue(), subject.getValue(propName), context)
               .map(exc -> exc.prepend(propName))
               .ifPresent(rval::add);
+          if (context.isFailFast() && !rval.isEmpty()) {
+            return rval;
+          }
         }
       }
     }
     return rval;
   }
 
-  private List<ValidationException> testProperties(final JsonObject subject) {
+  private List<ValidationException> testProperties(final JsonObject subject,
+      final ValidationContext context) {
     if (propertySchemas != null) {
       List<ValidationException> rval = new ArrayList<>();
       for (Entry<String, Schema> entry : propertySchemas.entrySet()) {
         String key = entry.getKey();
         Object value = subject.getValue(key);
         if (value!=null) {
-          ifFails(entry.getValue(),value)
+          ifFails(entry.getValue(), value, context)
               .map(exc -> exc.prepend(key))
               .ifPresent(rval::add);
+          if (context.isFailFast() && !rval.isEmpty()) {
+            break;
+          }
         }
       }
       return rval;
@@ -323,68 +456,192 @@ public class ObjectSchema extends Schema {
     return Collections.emptyList();
   }
 
-  private List<ValidationException> testPropertyDependencies(final JsonObject subject) {
+  private List<ValidationException> testPropertyDependencies(final JsonObject subject,
+      final ValidationContext context) {
     return propertyDependencies.keySet().stream()
         .filter(subject::containsKey)
         .flatMap(ifPresent -> propertyDependencies.get(ifPresent).stream())
         .filter(mustBePresent -> !subject.containsKey(mustBePresent))
-        .map(missingKey -> String.format("property [%s] is required", missingKey))
-        .map(excMessage -> new ValidationException(this, excMessage))
+        .map(this::missingDependencyFailure)
+        .limit(failureLimit(context))
         .collect(Collectors.toList());
   }
 
-  private List<ValidationException> testRequiredProperties(final JsonObject subject) {
+  private List<ValidationException> testRequiredProperties(final JsonObject subject,
+      final ValidationContext context) {
     return requiredProperties.stream()
         .filter(key -> subject.getValue(key)==null)
-        .map(missingKey -> String.format("required key [%s] not found", missingKey))
-        .map(excMessage -> new ValidationException(this, excMessage))
+        .map(this::missingRequiredFailure)
+        .limit(failureLimit(context))
         .collect(Collectors.toList());
   }
 
-  private List<ValidationException> testSchemaDependencies(final JsonObject subject) {
+  private List<ValidationException> testSchemaDependencies(final JsonObject subject,
+      final ValidationContext context) {
     List<ValidationException> rval = new ArrayList<>();
     for (Map.Entry<String, Schema> schemaDep : schemaDependencies.entrySet()) {
       String propName = schemaDep.getKey();
       if (subject.containsKey(propName)) {
-        ifFails(schemaDep.getValue(), subject).ifPresent(rval::add);
+        // the property may have been added by a patch, the dependency is fully revalidated
+        ifFails(schemaDep.getValue(), subject, context.withoutChanges()).ifPresent(rval::add);
+        if (context.isFailFast() && !rval.isEmpty()) {
+          break;
+        }
       }
     }
     return rval;
   }
 
-  private List<ValidationException> testSize(final JsonObject subject) {
-    int actualSize = subject.size();
-    if (minProperties != null && actualSize < minProperties.intValue()) {
+  private List<ValidationException> testMaxProperties(final int actualSize) {
+    if (actualSize > maxProperties) {
       return Arrays
-          .asList(new ValidationException(this, String.format("minimum size: [%d], found: [%d]",
-              minProperties, actualSize)));
+          .asList(new ValidationException(this, String.format("maximum size: [%d], found: [%d]",
+              maxProperties, actualSize), "maxProperties"));
     }
-    if (maxProperties != null && actualSize > maxProperties.intValue()) {
+    return Collections.emptyList();
+  }
+
+  private List<ValidationException> testMinProperties(final int actualSize) {
+    if (actualSize < minProperties) {
       return Arrays
-          .asList(new ValidationException(this, String.format("maximum size: [%d], found: [%d]",
-              maxProperties, actualSize)));
+          .asList(new ValidationException(this, String.format("minimum size: [%d], found: [%d]",
+              minProperties, actualSize), "minProperties"));
+    }
+    return Collections.emptyList();
+  }
+
+  List<ValidationException> testSize(final int actualSize) {
+    if ((flags & HAS_MIN_PROPERTIES) != 0 && actualSize < minProperties) {
+      return testMinProperties(actualSize);
+    }
+    if ((flags & HAS_MAX_PROPERTIES) != 0 && actualSize > maxProperties) {
+      return testMaxProperties(actualSize);
     }
     return Collections.emptyList();
   }
 
+  private AdaptiveKeywordOrder adaptiveOrder() {
+    AdaptiveKeywordOrder order = adaptiveOrder;
+    if (order == null) {
+      // the volatile field publishes the order safely, the statistics of a concurrent first
+      // validation may be lost
+      int[] keywords = new int[KEYWORDS.length];
+      int count = 0;
+      for (int keyword = 0; keyword < KEYWORDS.length; ++keyword) {
+        if (hasKeyword(keyword)) {
+          keywords[count++] = keyword;
+        }
+      }
+      order = new AdaptiveKeywordOrder(Arrays.copyOf(keywords, count), KEYWORDS.length);
+      adaptiveOrder = order;
+    }
+    return order;
+  }
+
+  private boolean hasKeyword(final int keyword) {
+    switch (keyword) {
+      case PROPERTIES_KEYWORD:
+        return !propertySchemas.isEmpty();
+      case REQUIRED_KEYWORD:
+        return !requiredProperties.isEmpty();
+      case ADDITIONAL_PROPERTIES_KEYWORD:
+        return !permitsAdditionalProperties() || schemaOfAdditionalProperties != null;
+      case MIN_PROPERTIES_KEYWORD:
+        return (flags & HAS_MIN_PROPERTIES) != 0;
+      case MAX_PROPERTIES_KEYWORD:
+        return (flags & HAS_MAX_PROPERTIES) != 0;
+      case DEPENDENCIES_KEYWORD:
+        return !propertyDependencies.isEmpty() || !schemaDependencies.isEmpty();
+      default:
+        return !patternProperties.isEmpty();
+    }
+  }
+
+  private List<ValidationException> testKeyword(final int keyword, final JsonObject subject,
+      final ValidationContext context) {
+    context.keywordStarted(this, KEYWORDS[keyword]);
+    List<ValidationException> failures;
+    switch (keyword) {
+      case PROPERTIES_KEYWORD:
+        failures = testProperties(subject, context);
+        break;
+      case REQUIRED_KEYWORD:
+        failures = testRequiredProperties(subject, context);
+        break;
+      case ADDITIONAL_PROPERTIES_KEYWORD:
+        failures = testAdditionalProperties(subject, context);
+        break;
+      case MIN_PROPERTIES_KEYWORD:
+        failures = testMinProperties(subject.size());
+        break;
+      case MAX_PROPERTIES_KEYWORD:
+        failures = testMaxProperties(subject.size());
+        break;
+      case DEPENDENCIES_KEYWORD:
+        failures = new ArrayList<>(testPropertyDependencies(subject, context));
+        if (!context.isFailFast() || failures.isEmpty()) {
+          failures.addAll(testSchemaDependencies(subject, context));
+        }
+        break;
+      default:
+        failures = testPatternProperties(subject, context);
+        break;
+    }
+    return context.keywordCompleted(this, KEYWORDS[keyword], failures);
+  }
+
   @Override
   public void validate(final Object subject) {
-    if (!(subject instanceof JsonObject)) {
-      if (requiresObject) {
-        throw new ValidationException(this, JsonObject.class, subject);
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    if (requiresObject()) {
+      context.keywordStarted(this, "type");
+      ValidationException failure = subject instanceof JsonObject ? null
+          : new ValidationException(this, JsonObject.class, subject);
+      if (context.keywordCompleted(this, "type", failure) != null) {
+        throw failure;
       }
-    } else {
-      List<ValidationException> failures = new ArrayList<>();
+    }
+    if (subject instanceof JsonObject) {
       JsonObject objSubject = (JsonObject) subject;
-      failures.addAll(testProperties(objSubject));
-      failures.addAll(testRequiredProperties(objSubject));
-      failures.addAll(testAdditionalProperties(objSubject));
-      failures.addAll(testSize(objSubject));
-      failures.addAll(testPropertyDependencies(objSubject));
-      failures.addAll(testSchemaDependencies(objSubject));
-      failures.addAll(testPatternProperties(objSubject));
+      if (context.isAdaptiveOrdering()) {
+        validateAdaptively(objSubject, context);
+        return;
+      }
+      List<ValidationException> failures = new ArrayList<>();
+      boolean minPropertiesFailed = false;
+      for (int keyword = 0; keyword < KEYWORDS.length; ++keyword) {
+        // like testSize, maxProperties is not checked if minProperties already failed
+        if (!hasKeyword(keyword) || keyword == MAX_PROPERTIES_KEYWORD && minPropertiesFailed) {
+          continue;
+        }
+        List<ValidationException> keywordFailures = testKeyword(keyword, objSubject, context);
+        minPropertiesFailed |= keyword == MIN_PROPERTIES_KEYWORD && !keywordFailures.isEmpty();
+        addFailures(failures, keywordFailures, context);
+      }
       ValidationException.throwFor(this, failures);
     }
   }
 
+
+  /**
+   * Fail-fast validation evaluating the keywords in the adaptive order, see
+   * {@link ValidationContext#withAdaptiveOrdering()}.
+   */
+  private void validateAdaptively(final JsonObject subject, final ValidationContext context) {
+    AdaptiveKeywordOrder order = adaptiveOrder();
+    boolean measured = order.startValidation();
+    for (int keyword : order.getOrder()) {
+      long start = measured ? System.nanoTime() : 0L;
+      List<ValidationException> failures = testKeyword(keyword, subject, context);
+      order.record(keyword, measured ? System.nanoTime() - start : -1L, !failures.isEmpty());
+      if (!failures.isEmpty()) {
+        throw failures.get(0);
+      }
+    }
+  }
+
 }
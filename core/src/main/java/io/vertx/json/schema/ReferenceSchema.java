@@ -15,12 +15,20 @@
  */
 package io.vertx.json.schema;
 
+import java.util.Objects;
+import java.util.function.Supplier;
+
 import io.vertx.json.schema.loader.SchemaLoader;
 
 /**
  * This class is used by {@link SchemaLoader} to resolve JSON pointers
  * during the construction of the schema. This class has been made mutable to permit the loading of
  * recursive schemas.
+ *
+ * <p>
+ * The referred schema is either injected by {@link #setReferredSchema(Schema)}, or created on
+ * first use by the supplier passed to {@link #setReferredSchemaLoader(Supplier)}.
+ * </p>
  */
 public class ReferenceSchema extends Schema {
 
@@ -31,40 +39,122 @@ public class ReferenceSchema extends Schema {
 
     private ReferenceSchema retval;
 
+    private String refValue;
+
     /**
      * This method caches its result, so multiple invocations will return referentially the same
      * {@link ReferenceSchema} instance.
      */
     @Override
-    public ReferenceSchema build() {
+    public synchronized ReferenceSchema build() {
       if (retval == null) {
         retval = new ReferenceSchema(this);
       }
       return retval;
     }
 
+    /**
+     * Sets the location of the referred schema, returned by
+     * {@link ReferenceSchema#getReferenceValue()}.
+     *
+     * @param refValue
+     *          the resolved value of the {@code $ref} keyword
+     * @return {@code this}
+     */
+    public Builder refValue(final String refValue) {
+      this.refValue = refValue;
+      return this;
+    }
+
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
-  private Schema referredSchema;
+  private volatile Schema referredSchema;
+
+  private Supplier<Schema> referredSchemaLoader;
+
+  private final String refValue;
 
   public ReferenceSchema(final Builder builder) {
     super(builder);
+    this.refValue = builder.refValue;
+  }
+
+  /**
+   * Reference schemas are equal only to themselves: their referred schema may not be set yet, and
+   * it may contain the reference itself.
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    return this == obj;
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(this);
   }
 
   @Override
   public void validate(final Object subject) {
-    if (referredSchema == null) {
-      throw new IllegalStateException("referredSchema must be injected before validation");
-    }
-    referredSchema.validate(subject);
+    requireReferredSchema().validate(subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    requireReferredSchema().validate(subject, context);
   }
 
+  /**
+   * Returns the referred schema. If it is loaded lazily, then it is created by this call when it
+   * is called the first time.
+   *
+   * @return the referred schema, or {@code null} if it is not injected yet
+   */
   public Schema getReferredSchema() {
-    return referredSchema;
+    Schema rval = referredSchema;
+    if (rval == null) {
+      synchronized (this) {
+        rval = referredSchema;
+        if (rval == null && referredSchemaLoader != null) {
+          rval = Objects.requireNonNull(referredSchemaLoader.get(),
+              "referredSchemaLoader returned null");
+          referredSchema = rval;
+          referredSchemaLoader = null;
+        }
+      }
+    }
+    return rval;
+  }
+
+  /**
+   * Returns the location of the referred schema: the value of the {@code $ref} keyword resolved
+   * against the resolution scope, like {@code #/definitions/address}.
+   *
+   * @return the location, or {@code null} if it is not known
+   */
+  public String getReferenceValue() {
+    return refValue;
+  }
+
+  /**
+   * Returns {@code true} if the referred schema is already available, that is it was injected, or
+   * it was lazily loaded by a previous {@link #getReferredSchema()} call.
+   *
+   * @return {@code true} if the referred schema is available without loading it
+   */
+  public boolean isReferredSchemaLoaded() {
+    return referredSchema != null;
+  }
+
+  private Schema requireReferredSchema() {
+    Schema rval = getReferredSchema();
+    if (rval == null) {
+      throw new IllegalStateException("referredSchema must be injected before validation");
+    }
+    return rval;
   }
 
   /**
@@ -74,11 +164,28 @@ public class ReferenceSchema extends Schema {
    * @param referredSchema
    *          the referred schema
    */
-  public void setReferredSchema(final Schema referredSchema) {
-    if (this.referredSchema != null) {
+  public synchronized void setReferredSchema(final Schema referredSchema) {
+    if (this.referredSchema != null || referredSchemaLoader != null) {
       throw new IllegalStateException("referredSchema can be injected only once");
     }
     this.referredSchema = referredSchema;
   }
 
+  /**
+   * Sets the function creating the referred schema on its first use. The function is called at
+   * most once successfully, even if the schema is validated concurrently: the threads validating
+   * while it runs wait for its result. If it throws an exception, then the exception is propagated
+   * to the validating thread and the next use calls it again.
+   *
+   * @param referredSchemaLoader
+   *          the function creating the referred schema
+   */
+  public synchronized void setReferredSchemaLoader(final Supplier<Schema> referredSchemaLoader) {
+    if (this.referredSchema != null || this.referredSchemaLoader != null) {
+      throw new IllegalStateException("referredSchema can be injected only once");
+    }
+    this.referredSchemaLoader = Objects.requireNonNull(referredSchemaLoader,
+        "referredSchemaLoader cannot be null");
+  }
+
 }
@@ -15,7 +15,7 @@
  */
 package io.vertx.json.schema;
 
-import javax.annotation.Generated;
+import java.util.Arrays;
 
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.Shareable;
@@ -48,6 +48,8 @@ public abstract class Schema implements Shareable {
 
     private String id;
 
+    private JsonObject jsonSchema;
+
     public Builder title(final String title) {
       this.title = title;
       return this;
@@ -63,15 +65,33 @@ public abstract class Schema implements Shareable {
       return this;
     }
 
+    /**
+     * Sets the raw JSON representation of the schema, returned by {@link Schema#getJsonSchema()}.
+     *
+     * @param jsonSchema
+     *          the JSON the schema is loaded from
+     * @return {@code this}
+     */
+    public Builder jsonSchema(final JsonObject jsonSchema) {
+      this.jsonSchema = jsonSchema;
+      return this;
+    }
+
     public abstract Schema build();
 
   }
 
-  private final String title;
+  private static final int TITLE = 0;
 
-  private final String description;
+  private static final int DESCRIPTION = 1;
 
-  private final String id;
+  private static final int ID = 2;
+
+  /**
+   * The title, description and id of the schema, or {@code null} if none of them is set, which is
+   * the common case of the subschemas.
+   */
+  private final String[] annotations;
 
   /**
    * Constructor.
@@ -80,9 +100,16 @@ public abstract class Schema implements Shareable {
    *          the builder containing the optional title, description and id attributes of the schema
    */
   protected Schema(final Builder builder) {
-    this.title = builder.title;
-    this.description = builder.description;
-    this.id = builder.id;
+    this.jsonSchema = builder.jsonSchema;
+    if (builder.title == null && builder.description == null && builder.id == null) {
+      this.annotations = null;
+    } else {
+      this.annotations = new String[] {builder.title, builder.description, builder.id};
+    }
+  }
+
+  private String annotation(final int index) {
+    return annotations == null ? null : annotations[index];
   }
 
   /**
@@ -95,18 +122,28 @@ public abstract class Schema implements Shareable {
    */
   public abstract void validate(final Object subject);
 
+  /**
+   * Performs the schema validation with the given options. Subclasses validating subschemas
+   * override this method to pass {@code context} to them; by default it calls
+   * {@link #validate(Object)}.
+   *
+   * @param subject
+   *          the object to be validated
+   * @param context
+   *          the options of the validation
+   * @throws ValidationException
+   *           if the {@code subject} is invalid against this schema.
+   */
+  public void validate(final Object subject, final ValidationContext context) {
+    validate(subject);
+  }
+
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result = prime * result + ((description == null) ? 0 : description.hashCode());
-    result = prime * result + ((id == null) ? 0 : id.hashCode());
-    result = prime * result + ((title == null) ? 0 : title.hashCode());
-    return result;
+    return Arrays.hashCode(annotations);
   }
 
   @Override
-  @Generated(value = "eclipse")
   public boolean equals(final Object obj) {
     if (this == obj) {
       return true;
@@ -117,41 +154,30 @@ public abstract class Schema implements Shareable {
     if (getClass() != obj.getClass()) {
       return false;
     }
-    Schema other = (Schema) obj;
-    if (description == null) {
-      if (other.description != null) {
-        return false;
-      }
-    } else if (!description.equals(other.description)) {
-      return false;
-    }
-    if (id == null) {
-      if (other.id != null) {
-        return false;
-      }
-    } else if (!id.equals(other.id)) {
-      return false;
-    }
-    if (title == null) {
-      if (other.title != null) {
-        return false;
-      }
-    } else if (!title.equals(other.title)) {
-      return false;
-    }
-    return true;
+    return Arrays.equals(annotations, ((Schema) obj).annotations);
+  }
+
+  /**
+   * Returns the JSON representation of this schema: its raw JSON if it is retained, otherwise a
+   * representation regenerated by {@link SchemaJsonWriter}.
+   *
+   * @return the JSON representation, which must not be modified if it is the raw JSON
+   */
+  public JsonObject toJson() {
+    JsonObject rval = jsonSchema;
+    return rval == null ? SchemaJsonWriter.write(this) : rval;
   }
 
   public String getTitle() {
-    return title;
+    return annotation(TITLE);
   }
 
   public String getDescription() {
-    return description;
+    return annotation(DESCRIPTION);
   }
 
   public String getId() {
-    return id;
+    return annotation(ID);
   }
 
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.internal.ObjectSizeEstimator;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * The estimated heap retained by a schema graph, broken down by node type.
+ *
+ * <p>
+ * The nodes are walked like {@link SchemaLocations}, through the schema API: the lazily loaded
+ * referred schemas which are not loaded yet are not measured. The size of each node, without its
+ * subschemas, is estimated by {@link ObjectSizeEstimator}. Each object is counted once, for the
+ * first node reaching it: the objects shared by several nodes, like interned strings, are counted
+ * for one of them. The raw JSON representations set by {@link Schema#setJsonSchema(JsonObject)}
+ * are reported separately, without the objects they share with the nodes. The format validators
+ * and the combined schema criteria are shared by all schemas and are not counted.
+ * </p>
+ */
+public class SchemaFootprint {
+
+  /**
+   * Measures the schema graph reachable from {@code root}, including the referred schemas.
+   *
+   * @param root
+   *          the root schema
+   * @return the footprint report
+   */
+  public static SchemaFootprint of(final Schema root) {
+    Objects.requireNonNull(root, "root cannot be null");
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Map<String, Long> nodeCounts = new TreeMap<>();
+    Map<String, Long> nodeBytes = new TreeMap<>();
+    Deque<JsonObject> rawJsons = new ArrayDeque<>();
+    for (Schema schema : SchemaLocations.of(root).getNodes()) {
+      JsonObject rawJson = schema.getJsonSchema();
+      if (rawJson != null) {
+        rawJsons.add(rawJson);
+      }
+      Predicate<Object> boundary = object -> object instanceof Schema || object == rawJson
+          || object instanceof FormatValidator
+          || object instanceof CombinedSchema.ValidationCriterion;
+      String type = schema.getClass().getSimpleName();
+      nodeCounts.merge(type, 1L, Long::sum);
+      nodeBytes.merge(type, ObjectSizeEstimator.retainedSize(schema, boundary, visited),
+          Long::sum);
+    }
+    long rawJsonBytes = 0;
+    for (JsonObject rawJson : rawJsons) {
+      rawJsonBytes += ObjectSizeEstimator.retainedSize(rawJson, object -> false, visited);
+    }
+    return new SchemaFootprint(nodeCounts, nodeBytes, rawJsonBytes);
+  }
+
+  private final Map<String, Long> nodeCounts;
+
+  private final Map<String, Long> nodeBytes;
+
+  private final long rawJsonBytes;
+
+  SchemaFootprint(final Map<String, Long> nodeCounts, final Map<String, Long> nodeBytes,
+      final long rawJsonBytes) {
+    this.nodeCounts = Collections.unmodifiableMap(new TreeMap<>(nodeCounts));
+    this.nodeBytes = Collections.unmodifiableMap(new TreeMap<>(nodeBytes));
+    this.rawJsonBytes = rawJsonBytes;
+  }
+
+  /**
+   * Returns the estimated heap retained by the nodes, including their annotations, bounds and
+   * property tables, but not their raw JSON.
+   *
+   * @return the size in bytes
+   */
+  public long getNodeBytes() {
+    return nodeBytes.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * Returns the estimated heap retained by the nodes of each type.
+   *
+   * @return the sizes in bytes, keyed by the simple class name of the nodes
+   */
+  public Map<String, Long> getNodeBytesByType() {
+    return nodeBytes;
+  }
+
+  /**
+   * Returns the number of distinct nodes.
+   *
+   * @return the number of nodes
+   */
+  public long getNodeCount() {
+    return nodeCounts.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * Returns the number of distinct nodes of each type.
+   *
+   * @return the node counts, keyed by the simple class name of the nodes
+   */
+  public Map<String, Long> getNodeCountByType() {
+    return nodeCounts;
+  }
+
+  /**
+   * Returns the estimated heap retained only by the raw JSON representations of the nodes.
+   *
+   * @return the size in bytes
+   */
+  public long getRawJsonBytes() {
+    return rawJsonBytes;
+  }
+
+  /**
+   * Returns the estimated heap retained by the schema graph.
+   *
+   * @return the size in bytes
+   */
+  public long getRetainedBytes() {
+    return getNodeBytes() + rawJsonBytes;
+  }
+
+  /**
+   * Returns a multi-line report of the retained sizes, the largest node type first.
+   */
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder(String.format(
+        "retained: %d bytes, nodes: %d (%d bytes), raw JSON: %d bytes", getRetainedBytes(),
+        getNodeCount(), getNodeBytes(), rawJsonBytes));
+    nodeBytes.entrySet().stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+        .forEach(entry -> report.append(String.format("%n  %s: %d nodes, %d bytes",
+            entry.getKey(), nodeCounts.get(entry.getKey()), entry.getValue())));
+    return report.toString();
+  }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Generates the JSON representation of a schema graph, used when the raw JSON is not retained.
+ *
+ * <p>
+ * The generated JSON is equivalent to the loaded one for validation, but it is not identical to
+ * it: the keywords are normalized, {@code id}s are omitted, and each {@link ReferenceSchema} is
+ * written as a local {@code $ref} to an entry of the {@code definitions} of the root, named
+ * {@code ref<n>}, so that shared and cyclic references are preserved. The lazily loaded referred
+ * schemas are loaded by the generation. Format validators are written by their
+ * {@link FormatValidator#formatName() name}.
+ * </p>
+ */
+public final class SchemaJsonWriter {
+
+  /**
+   * Generates the JSON representation of {@code schema}.
+   *
+   * @param schema
+   *          the root of the schema graph
+   * @return a new JSON object, which can be loaded by the schema loader
+   * @throws IllegalArgumentException
+   *           if the graph contains a schema type or a combined schema criterion which has no
+   *           JSON representation
+   */
+  public static JsonObject write(final Schema schema) {
+    return new SchemaJsonWriter().writeRoot(Objects.requireNonNull(schema,
+        "schema cannot be null"));
+  }
+
+  private final Map<ReferenceSchema, String> referenceNames = new IdentityHashMap<>();
+
+  private final Deque<ReferenceSchema> pendingReferences = new ArrayDeque<>();
+
+  private SchemaJsonWriter() {
+  }
+
+  private String criterionKeyword(final CombinedSchema schema) {
+    if (schema.getCriterion() == CombinedSchema.ALL_CRITERION) {
+      return "allOf";
+    } else if (schema.getCriterion() == CombinedSchema.ANY_CRITERION) {
+      return "anyOf";
+    } else if (schema.getCriterion() == CombinedSchema.ONE_CRITERION) {
+      return "oneOf";
+    }
+    throw new IllegalArgumentException("unsupported combined schema criterion");
+  }
+
+  private JsonObject toJson(final Schema schema) {
+    JsonObject json = new JsonObject();
+    if (schema.getTitle() != null) {
+      json.put("title", schema.getTitle());
+    }
+    if (schema.getDescription() != null) {
+      json.put("description", schema.getDescription());
+    }
+    if (schema instanceof ObjectSchema) {
+      writeObjectSchema((ObjectSchema) schema, json);
+    } else if (schema instanceof StringSchema) {
+      writeStringSchema((StringSchema) schema, json);
+    } else if (schema instanceof NumberSchema) {
+      writeNumberSchema((NumberSchema) schema, json);
+    } else if (schema instanceof ArraySchema) {
+      writeArraySchema((ArraySchema) schema, json);
+    } else if (schema instanceof ReferenceSchema) {
+      json.put("$ref", "#/definitions/" + referenceName((ReferenceSchema) schema));
+    } else if (schema instanceof CombinedSchema) {
+      JsonArray subschemas = new JsonArray();
+      ((CombinedSchema) schema).getSubschemas().forEach(subschema -> subschemas.add(
+          toJson(subschema)));
+      json.put(criterionKeyword((CombinedSchema) schema), subschemas);
+    } else if (schema instanceof EnumSchema) {
+      writeEnumSchema((EnumSchema) schema, json);
+    } else if (schema instanceof NotSchema) {
+      json.put("not", toJson(((NotSchema) schema).getMustNotMatch()));
+    } else if (schema instanceof BooleanSchema) {
+      json.put("type", "boolean");
+    } else if (schema instanceof NullSchema) {
+      json.put("type", "null");
+    } else if (!(schema instanceof EmptySchema)) {
+      throw new IllegalArgumentException("unsupported schema type: "
+          + schema.getClass().getName());
+    }
+    return json;
+  }
+
+  private String referenceName(final ReferenceSchema reference) {
+    String name = referenceNames.get(reference);
+    if (name == null) {
+      name = "ref" + referenceNames.size();
+      referenceNames.put(reference, name);
+      pendingReferences.add(reference);
+    }
+    return name;
+  }
+
+  private void writeArraySchema(final ArraySchema schema, final JsonObject json) {
+    if (schema.requiresArray()) {
+      json.put("type", "array");
+    }
+    if (schema.getMinItems() != null) {
+      json.put("minItems", schema.getMinItems());
+    }
+    if (schema.getMaxItems() != null) {
+      json.put("maxItems", schema.getMaxItems());
+    }
+    if (schema.needsUniqueItems()) {
+      json.put("uniqueItems", true);
+    }
+    if (schema.getAllItemSchema() != null) {
+      json.put("items", toJson(schema.getAllItemSchema()));
+    } else if (schema.getItemSchemas() != null) {
+      JsonArray items = new JsonArray();
+      schema.getItemSchemas().forEach(item -> items.add(toJson(item)));
+      json.put("items", items);
+    }
+    if (!schema.permitsAdditionalItems()) {
+      json.put("additionalItems", false);
+    } else if (schema.getSchemaOfAdditionalItems() != null) {
+      json.put("additionalItems", toJson(schema.getSchemaOfAdditionalItems()));
+    }
+  }
+
+  private void writeEnumSchema(final EnumSchema schema, final JsonObject json) {
+    JsonArray possibleValues = new JsonArray();
+    for (Object value : schema.getPossibleValues()) {
+      if (value == null) {
+        possibleValues.addNull();
+      } else if (value instanceof JsonObject) {
+        possibleValues.add(((JsonObject) value).copy());
+      } else if (value instanceof JsonArray) {
+        possibleValues.add(((JsonArray) value).copy());
+      } else {
+        possibleValues.add(value);
+      }
+    }
+    json.put("enum", possibleValues);
+  }
+
+  private void writeNumberSchema(final NumberSchema schema, final JsonObject json) {
+    if (schema.requiresInteger()) {
+      json.put("type", "integer");
+    } else if (schema.requiresNumber()) {
+      json.put("type", "number");
+    }
+    if (schema.getMinimum() != null) {
+      json.put("minimum", schema.getMinimum());
+      if (schema.isExclusiveMinimum()) {
+        json.put("exclusiveMinimum", true);
+      }
+    }
+    if (schema.getMaximum() != null) {
+      json.put("maximum", schema.getMaximum());
+      if (schema.isExclusiveMaximum()) {
+        json.put("exclusiveMaximum", true);
+      }
+    }
+    if (schema.getMultipleOf() != null) {
+      json.put("multipleOf", schema.getMultipleOf());
+    }
+  }
+
+  private void writeObjectSchema(final ObjectSchema schema, final JsonObject json) {
+    if (schema.requiresObject()) {
+      json.put("type", "object");
+    }
+    if (!schema.getPropertySchemas().isEmpty()) {
+      JsonObject properties = new JsonObject();
+      schema.getPropertySchemas().forEach((name, property) -> properties.put(name,
+          toJson(property)));
+      json.put("properties", properties);
+    }
+    if (!schema.getRequiredProperties().isEmpty()) {
+      json.put("required", new JsonArray(schema.getRequiredProperties()).copy());
+    }
+    if (schema.getMinProperties() != null) {
+      json.put("minProperties", schema.getMinProperties());
+    }
+    if (schema.getMaxProperties() != null) {
+      json.put("maxProperties", schema.getMaxProperties());
+    }
+    JsonObject dependencies = new JsonObject();
+    for (Map.Entry<String, Set<String>> dependency : schema.getPropertyDependencies().entrySet()) {
+      JsonArray mustBePresent = new JsonArray();
+      dependency.getValue().forEach(mustBePresent::add);
+      dependencies.put(dependency.getKey(), mustBePresent);
+    }
+    schema.getSchemaDependencies().forEach((ifPresent, dependency) -> dependencies.put(ifPresent,
+        toJson(dependency)));
+    if (!dependencies.isEmpty()) {
+      json.put("dependencies", dependencies);
+    }
+    if (!schema.getPatternProperties().isEmpty()) {
+      JsonObject patternProperties = new JsonObject();
+      schema.getPatternProperties().forEach((pattern, property) -> patternProperties.put(
+          pattern.pattern(), toJson(property)));
+      json.put("patternProperties", patternProperties);
+    }
+    if (!schema.permitsAdditionalProperties()) {
+      json.put("additionalProperties", false);
+    } else if (schema.getSchemaOfAdditionalProperties() != null) {
+      json.put("additionalProperties", toJson(schema.getSchemaOfAdditionalProperties()));
+    }
+  }
+
+  private JsonObject writeRoot(final Schema schema) {
+    JsonObject root = toJson(schema);
+    JsonObject definitions = new JsonObject();
+    while (!pendingReferences.isEmpty()) {
+      ReferenceSchema reference = pendingReferences.poll();
+      Schema referredSchema = reference.getReferredSchema();
+      if (referredSchema == null) {
+        throw new IllegalArgumentException("the referred schema of a reference is not set");
+      }
+      definitions.put(referenceNames.get(reference), toJson(referredSchema));
+    }
+    if (!definitions.isEmpty()) {
+      root.put("definitions", definitions);
+    }
+    return root;
+  }
+
+  private void writeStringSchema(final StringSchema schema, final JsonObject json) {
+    if (schema.requiresString()) {
+      json.put("type", "string");
+    }
+    if (schema.getMinLength() != null) {
+      json.put("minLength", schema.getMinLength());
+    }
+    if (schema.getMaxLength() != null) {
+      json.put("maxLength", schema.getMaxLength());
+    }
+    if (schema.getPattern() != null) {
+      json.put("pattern", schema.getPattern().pattern());
+    }
+    if (schema.getFormatValidator() != FormatValidator.NONE) {
+      json.put("format", schema.getFormatValidator().formatName());
+    }
+  }
+
+}
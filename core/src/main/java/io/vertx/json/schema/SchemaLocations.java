@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The JSON pointers locating the nodes of a schema graph in the schema document, like
+ * {@code #/properties/address/properties/zip}.
+ *
+ * <p>
+ * The graph is walked breadth-first from the root, so a node reachable from several locations
+ * (a node shared by the {@link io.vertx.json.schema.loader.SchemaInterner}, or a subschema of a
+ * referred schema) is located at its shortest path. The schemas referred by a
+ * {@link ReferenceSchema} are located at its {@link ReferenceSchema#getReferenceValue() reference
+ * value} if it is known. The lazily loaded referred schemas which are not loaded yet are not
+ * walked, so they have no location.
+ * </p>
+ */
+public final class SchemaLocations {
+
+  /**
+   * Locates the nodes reachable from {@code root}.
+   *
+   * @param root
+   *          the root schema, located at {@code #}
+   * @return the locations
+   */
+  public static SchemaLocations of(final Schema root) {
+    return new SchemaLocations(Objects.requireNonNull(root, "root cannot be null"));
+  }
+
+  private static String escape(final String fragment) {
+    return fragment.replace("~", "~0").replace("/", "~1");
+  }
+
+  private final Map<Schema, String> pointers = new IdentityHashMap<>();
+
+  private final Deque<Schema> pending = new ArrayDeque<>();
+
+  private final List<Schema> nodes = new ArrayList<>();
+
+  private SchemaLocations(final Schema root) {
+    visit(root, "#");
+    while (!pending.isEmpty()) {
+      Schema schema = pending.poll();
+      String pointer = pointers.get(schema);
+      if (schema instanceof ObjectSchema) {
+        visitObjectSchema((ObjectSchema) schema, pointer);
+      } else if (schema instanceof ArraySchema) {
+        visitArraySchema((ArraySchema) schema, pointer);
+      } else if (schema instanceof CombinedSchema) {
+        CombinedSchema combinedSchema = (CombinedSchema) schema;
+        String keyword = combinedSchema.keyword();
+        int index = 0;
+        for (Schema subschema : combinedSchema.getSubschemas()) {
+          visit(subschema, pointer + "/" + keyword + "/" + index++);
+        }
+      } else if (schema instanceof NotSchema) {
+        visit(((NotSchema) schema).getMustNotMatch(), pointer + "/not");
+      } else if (schema instanceof ReferenceSchema) {
+        ReferenceSchema reference = (ReferenceSchema) schema;
+        if (reference.isReferredSchemaLoaded()) {
+          visit(reference.getReferredSchema(), reference.getReferenceValue() == null
+              ? pointer + "/$ref" : reference.getReferenceValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the locations of all walked nodes.
+   *
+   * @return the JSON pointers, keyed by node identity
+   */
+  public Map<Schema, String> getPointers() {
+    return Collections.unmodifiableMap(pointers);
+  }
+
+  /**
+   * Returns the walked nodes, in the order of the walk, the root first.
+   */
+  List<Schema> getNodes() {
+    return Collections.unmodifiableList(nodes);
+  }
+
+  /**
+   * Returns the location of {@code schema}.
+   *
+   * @param schema
+   *          a node of the graph
+   * @return the JSON pointer, or {@code null} if the node was not reached
+   */
+  public String getPointer(final Schema schema) {
+    return pointers.get(schema);
+  }
+
+  private void visit(final Schema schema, final String pointer) {
+    if (schema != null && !pointers.containsKey(schema)) {
+      pointers.put(schema, pointer);
+      nodes.add(schema);
+      pending.add(schema);
+    }
+  }
+
+  private void visitArraySchema(final ArraySchema schema, final String pointer) {
+    visit(schema.getAllItemSchema(), pointer + "/items");
+    List<Schema> itemSchemas = schema.getItemSchemas();
+    if (itemSchemas != null) {
+      for (int i = 0; i < itemSchemas.size(); ++i) {
+        visit(itemSchemas.get(i), pointer + "/items/" + i);
+      }
+    }
+    visit(schema.getSchemaOfAdditionalItems(), pointer + "/additionalItems");
+  }
+
+  private void visitObjectSchema(final ObjectSchema schema, final String pointer) {
+    schema.getPropertySchemas().forEach((name, property) -> visit(property,
+        pointer + "/properties/" + escape(name)));
+    schema.getPatternProperties().forEach((pattern, property) -> visit(property,
+        pointer + "/patternProperties/" + escape(pattern.pattern())));
+    schema.getSchemaDependencies().forEach((name, dependency) -> visit(dependency,
+        pointer + "/dependencies/" + escape(name)));
+    visit(schema.getSchemaOfAdditionalProperties(), pointer + "/additionalProperties");
+  }
+
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Validates JSON documents read from a Jackson {@link JsonParser} token stream against a loaded
+ * {@link Schema}, without building a {@link JsonObject} / {@link JsonArray} tree of the document.
+ *
+ * <p>
+ * {@link ObjectSchema} and {@link ArraySchema} nodes are driven token by token, so the memory used
+ * by the validation is proportional to the nesting depth of the document (plus the set of seen
+ * keys of an object, if its schema has {@code required} properties or property dependencies).
+ * Scalars are validated by the schema they belong to as soon as they are read. Keywords which need
+ * a view of a whole subtree ({@code uniqueItems}, schema dependencies, {@code enum},
+ * {@code allOf} / {@code anyOf} / {@code oneOf} and {@code not}) make the validator fall back to
+ * buffering only the subtree in question and validating it with {@link Schema#validate(Object)}.
+ * </p>
+ *
+ * <p>
+ * The reported {@link ValidationException}s are the same as the ones reported by
+ * {@link Schema#validate(Object)} for the equivalent tree, except that the causing exceptions of an
+ * object or array are listed in document order. This class is thread-safe.
+ * </p>
+ *
+ * <p>
+ * Request bodies held as a Vert.x {@link Buffer} can be validated with {@link #validate(Buffer)} or
+ * {@link #isValid(Buffer)}, and decoded in the same pass with {@link #validateAndDecode(Buffer)}.
+ * </p>
+ */
+public class StreamingValidator {
+
+  private static JsonParser createParser(final Buffer buffer) throws IOException {
+    ByteBuf byteBuf = buffer.getByteBuf();
+    if (byteBuf.hasArray()) {
+      return jsonFactory().createParser(byteBuf.array(),
+          byteBuf.arrayOffset() + byteBuf.readerIndex(), byteBuf.readableBytes());
+    }
+    return jsonFactory().createParser((InputStream) new ByteBufInputStream(byteBuf));
+  }
+
+  private static JsonFactory jsonFactory() {
+    return Json.mapper.getFactory();
+  }
+
+  private final Schema schema;
+
+  /**
+   * Constructor.
+   *
+   * @param schema
+   *          the schema to validate the documents against
+   */
+  public StreamingValidator(final Schema schema) {
+    this.schema = Objects.requireNonNull(schema, "schema cannot be null");
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Validates the complete JSON document contained by {@code data}.
+   *
+   * @param data
+   *          the UTF-8 encoded JSON document
+   * @throws ValidationException
+   *           if the document is invalid against the schema
+   * @throws DecodeException
+   *           if {@code data} is not a well-formed JSON document
+   */
+  public void validate(final byte[] data) {
+    validate(data, 0, data.length);
+  }
+
+  /**
+   * Validates the complete JSON document contained by the {@code [offset, offset + length)} range of
+   * {@code data}.
+   *
+   * @param data
+   *          the array holding the UTF-8 encoded JSON document
+   * @param offset
+   *          the index of the first byte of the document
+   * @param length
+   *          the length of the document in bytes
+   * @throws ValidationException
+   *           if the document is invalid against the schema
+   * @throws DecodeException
+   *           if the range is not a well-formed JSON document
+   */
+  public void validate(final byte[] data, final int offset, final int length) {
+    try (JsonParser parser = jsonFactory().createParser(data, offset, length)) {
+      validateDocument(parser, false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Validates the complete JSON document read from {@code input}. The stream is not closed.
+   *
+   * @param input
+   *          the stream to read the JSON document from
+   * @throws ValidationException
+   *           if the document is invalid against the schema
+   * @throws DecodeException
+   *           if the stream does not contain a well-formed JSON document
+   */
+  public void validate(final InputStream input) {
+    try (JsonParser parser = jsonFactory().createParser(input)) {
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      validateDocument(parser, false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Validates the complete JSON document contained by {@code json}.
+   *
+   * @param json
+   *          the JSON document
+   * @throws ValidationException
+   *           if the document is invalid against the schema
+   * @throws DecodeException
+   *           if {@code json} is not a well-formed JSON document
+   */
+  public void validate(final String json) {
+    try (JsonParser parser = jsonFactory().createParser(json)) {
+      validateDocument(parser, false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Validates the complete, UTF-8 encoded JSON document held by {@code buffer}. The bytes are parsed
+   * in place, without copying them into an intermediate {@code String}.
+   *
+   * @param buffer
+   *          the buffer holding the JSON document, for example an HTTP request body
+   * @throws ValidationException
+   *           if the document is invalid against the schema
+   * @throws DecodeException
+   *           if the buffer does not contain a well-formed JSON document
+   */
+  public void validate(final Buffer buffer) {
+    try (JsonParser parser = createParser(buffer)) {
+      validateDocument(parser, false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Checks if the JSON document held by {@code buffer} is well-formed and valid against the schema.
+   *
+   * @param buffer
+   *          the buffer holding the UTF-8 encoded JSON document
+   * @return {@code true} if the document is valid, {@code false} if it is either malformed or
+   *         invalid
+   */
+  public boolean isValid(final Buffer buffer) {
+    try {
+      validate(buffer);
+      return true;
+    } catch (ValidationException | DecodeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Validates the JSON object held by {@code buffer} and decodes it in the same pass. This can be
+   * used instead of {@code new JsonObject(buffer.toString())} followed by a
+   * {@link Schema#validate(Object)} call. The decoded object is returned only if it is valid.
+   *
+   * @param buffer
+   *          the buffer holding the UTF-8 encoded JSON object
+   * @return the decoded object
+   * @throws ValidationException
+   *           if the document is invalid against the schema
+   * @throws DecodeException
+   *           if the buffer does not contain a well-formed JSON object
+   */
+  public JsonObject validateAndDecode(final Buffer buffer) {
+    try (JsonParser parser = createParser(buffer)) {
+      return (JsonObject) validateDocument(parser, true);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Validates the JSON value starting at the current token of {@code parser}. If the parser is not
+   * positioned at a token yet, then it is advanced to the first one. After the method returns, the
+   * parser is positioned at the last token of the validated value (similarly to
+   * {@code ObjectMapper#readValue(JsonParser, Class)}), so a sequence of concatenated values can be
+   * validated by calling {@link JsonParser#nextToken()} between the invocations.
+   *
+   * @param parser
+   *          the token stream
+   * @throws ValidationException
+   *           if the value is invalid against the schema
+   * @throws DecodeException
+   *           if the token stream is not well-formed, or it contains no more values
+   */
+  public void validate(final JsonParser parser) {
+    validate(parser, false);
+  }
+
+  private Object validate(final JsonParser parser, final boolean decodeObject) {
+    try {
+      if (!parser.hasCurrentToken() && parser.nextToken() == null) {
+        throw new DecodeException("Failed to decode: no JSON value found");
+      }
+      if (decodeObject && parser.getCurrentToken() != JsonToken.START_OBJECT) {
+        throw new DecodeException("Failed to decode: the JSON value is not an object");
+      }
+      return validateValue(schema, parser, decodeObject);
+    } catch (JsonParseException e) {
+      throw new DecodeException("Failed to decode:" + e.getMessage());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Object validateDocument(final JsonParser parser, final boolean decodeObject)
+      throws IOException {
+    Object value = validate(parser, decodeObject);
+    try {
+      if (parser.nextToken() != null) {
+        throw new DecodeException("Failed to decode: unexpected content after the JSON value");
+      }
+    } catch (JsonParseException e) {
+      throw new DecodeException("Failed to decode:" + e.getMessage());
+    }
+    return value;
+  }
+
+  /**
+   * Validates the value starting at the current token of {@code parser} against {@code schema}.
+   *
+   * @return the decoded value if {@code capture} is {@code true}, otherwise {@code null}
+   */
+  private Object validateValue(final Schema schema, final JsonParser parser,
+      final boolean capture) throws IOException {
+    Schema target = schema;
+    while (target instanceof ReferenceSchema
+        && ((ReferenceSchema) target).getReferredSchema() != null) {
+      target = ((ReferenceSchema) target).getReferredSchema();
+    }
+    JsonToken token = parser.getCurrentToken();
+    if (token.isScalarValue()) {
+      Object value = readScalar(parser);
+      target.validate(value, ValidationContext.DEFAULT);
+      return value;
+    } else if (target instanceof EmptySchema) {
+      return skip(parser, capture);
+    } else if (target instanceof ObjectSchema && token == JsonToken.START_OBJECT
+        && ((ObjectSchema) target).getSchemaDependencies().isEmpty()) {
+      return validateObject((ObjectSchema) target, parser, capture);
+    } else if (target instanceof ArraySchema && token == JsonToken.START_ARRAY
+        && !((ArraySchema) target).needsUniqueItems()) {
+      return validateArray((ArraySchema) target, parser, capture);
+    } else if (!capture && (target instanceof StringSchema || target instanceof NumberSchema
+        || target instanceof BooleanSchema || target instanceof NullSchema)) {
+      // these schemas only inspect the type of a container value
+      parser.skipChildren();
+      target.validate(token == JsonToken.START_OBJECT ? new JsonObject() : new JsonArray(),
+          ValidationContext.DEFAULT);
+      return null;
+    }
+    Object value = readTree(parser);
+    target.validate(value, ValidationContext.DEFAULT);
+    return value;
+  }
+
+  private Object validateArray(final ArraySchema schema, final JsonParser parser,
+      final boolean capture) throws IOException {
+    List<ValidationException> itemFailures = new ArrayList<>();
+    Schema allItemSchema = schema.getAllItemSchema();
+    List<Schema> itemSchemas = schema.getItemSchemas();
+    List<Object> items = capture ? new ArrayList<>() : null;
+    int index = 0;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      boolean capturing = capture && itemFailures.isEmpty();
+      Schema itemSchema;
+      if (allItemSchema != null) {
+        itemSchema = allItemSchema;
+      } else if (itemSchemas != null) {
+        itemSchema = index < itemSchemas.size() ? itemSchemas.get(index)
+            : schema.getSchemaOfAdditionalItems();
+      } else {
+        itemSchema = null;
+      }
+      Object item = null;
+      if (itemSchema == null) {
+        item = skip(parser, capturing);
+      } else {
+        try {
+          item = validateValue(itemSchema, parser, capturing);
+        } catch (ValidationException e) {
+          itemFailures.add(e.prepend(String.valueOf(index)));
+        }
+      }
+      if (capturing) {
+        items.add(item);
+      }
+      ++index;
+    }
+    List<ValidationException> failures = new ArrayList<>();
+    schema.testItemCount(index).ifPresent(failures::add);
+    if (allItemSchema == null && itemSchemas != null) {
+      schema.testTupleSize(index).ifPresent(failures::add);
+    }
+    failures.addAll(itemFailures);
+    ValidationException.throwFor(schema, failures);
+    return capture ? new JsonArray(items) : null;
+  }
+
+  private Object validateObject(final ObjectSchema schema, final JsonParser parser,
+      final boolean capture) throws IOException {
+    Map<String, Schema> propertySchemas = schema.getPropertySchemas();
+    Map<Pattern, Schema> patternProperties = schema.getPatternProperties();
+    Schema schemaOfAdditionalProperties = schema.getSchemaOfAdditionalProperties();
+    List<String> requiredProperties = schema.getRequiredProperties();
+    Map<String, Set<String>> propertyDependencies = schema.getPropertyDependencies();
+    Set<String> nonNullKeys = requiredProperties.isEmpty() ? null : new HashSet<>();
+    Set<String> presentKeys = propertyDependencies.isEmpty() ? null : new HashSet<>();
+    List<ValidationException> propertyFailures = new ArrayList<>();
+    List<ValidationException> additionalFailures = new ArrayList<>();
+    List<ValidationException> patternFailures = new ArrayList<>();
+    List<Schema> matchingPatternSchemas = new ArrayList<>();
+    Map<String, Object> properties = capture ? new LinkedHashMap<>() : null;
+    int size = 0;
+    while (parser.nextToken() != JsonToken.END_OBJECT) {
+      // capturing stops at the first failure, since the decoded value won't be returned anyway
+      boolean capturing = capture && propertyFailures.isEmpty() && additionalFailures.isEmpty()
+          && patternFailures.isEmpty();
+      String key = parser.getCurrentName();
+      JsonToken valueToken = parser.nextToken();
+      ++size;
+      boolean isNull = valueToken == JsonToken.VALUE_NULL;
+      if (presentKeys != null) {
+        presentKeys.add(key);
+      }
+      if (nonNullKeys != null && !isNull) {
+        nonNullKeys.add(key);
+      }
+      Schema propertySchema = propertySchemas.get(key);
+      matchingPatternSchemas.clear();
+      for (Entry<Pattern, Schema> entry : patternProperties.entrySet()) {
+        if (entry.getKey().matcher(key).find()) {
+          matchingPatternSchemas.add(entry.getValue());
+        }
+      }
+      boolean isAdditional = propertySchema == null && matchingPatternSchemas.isEmpty();
+      if (isAdditional && !schema.permitsAdditionalProperties()) {
+        additionalFailures.add(schema.extraneousKeyFailure(key));
+        parser.skipChildren();
+        continue;
+      }
+      // property values being null are not validated against the property schema
+      Schema applicablePropertySchema = isNull ? null : propertySchema;
+      Schema applicableAdditionalSchema = isAdditional ? schemaOfAdditionalProperties : null;
+      int applicableCount = matchingPatternSchemas.size()
+          + (applicablePropertySchema == null ? 0 : 1)
+          + (applicableAdditionalSchema == null ? 0 : 1);
+      Object value = null;
+      if (applicableCount == 0) {
+        value = skip(parser, capturing);
+      } else if (applicableCount == 1) {
+        try {
+          if (applicablePropertySchema != null) {
+            value = validateValue(applicablePropertySchema, parser, capturing);
+          } else if (applicableAdditionalSchema != null) {
+            value = validateValue(applicableAdditionalSchema, parser, capturing);
+          } else {
+            value = validateValue(matchingPatternSchemas.get(0), parser, capturing);
+          }
+        } catch (ValidationException e) {
+          if (applicablePropertySchema != null) {
+            propertyFailures.add(e.prepend(key));
+          } else if (applicableAdditionalSchema != null) {
+            additionalFailures.add(e.prepend(key, schema));
+          } else {
+            patternFailures.add(e.prepend(key));
+          }
+        }
+      } else {
+        // more than one schema applies to the value, it is buffered and validated by each of them
+        value = readTree(parser);
+        if (applicablePropertySchema != null) {
+          try {
+            applicablePropertySchema.validate(value, ValidationContext.DEFAULT);
+          } catch (ValidationException e) {
+            propertyFailures.add(e.prepend(key));
+          }
+        }
+        for (Schema patternSchema : matchingPatternSchemas) {
+          try {
+            patternSchema.validate(value, ValidationContext.DEFAULT);
+          } catch (ValidationException e) {
+            patternFailures.add(e.prepend(key));
+          }
+        }
+      }
+      if (capturing) {
+        properties.put(key, value);
+      }
+    }
+    List<ValidationException> failures = new ArrayList<>(propertyFailures);
+    if (nonNullKeys != null) {
+      for (String requiredKey : requiredProperties) {
+        if (!nonNullKeys.contains(requiredKey)) {
+          failures.add(schema.missingRequiredFailure(requiredKey));
+        }
+      }
+    }
+    failures.addAll(additionalFailures);
+    failures.addAll(schema.testSize(size));
+    if (presentKeys != null) {
+      for (Entry<String, Set<String>> dependency : propertyDependencies.entrySet()) {
+        if (presentKeys.contains(dependency.getKey())) {
+          for (String mustBePresent : dependency.getValue()) {
+            if (!presentKeys.contains(mustBePresent)) {
+              failures.add(schema.missingDependencyFailure(mustBePresent));
+            }
+          }
+        }
+      }
+    }
+    failures.addAll(patternFailures);
+    ValidationException.throwFor(schema, failures);
+    return capture ? new JsonObject(properties) : null;
+  }
+
+  /**
+   * Skips the value starting at the current token of {@code parser}, or buffers it if
+   * {@code capture} is {@code true}.
+   */
+  private Object skip(final JsonParser parser, final boolean capture) throws IOException {
+    if (capture) {
+      return readTree(parser);
+    }
+    parser.skipChildren();
+    return null;
+  }
+
+  /**
+   * Reads the scalar value at the current token of {@code parser}, using the same Java types as the
+   * ones used by {@link JsonObject} for decoded documents.
+   */
+  private Object readScalar(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        return parser.getNumberValue();
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        return parser.getEmbeddedObject();
+    }
+  }
+
+  /**
+   * Buffers the value starting at the current token of {@code parser}.
+   */
+  private Object readTree(final JsonParser parser) throws IOException {
+    JsonToken token = parser.getCurrentToken();
+    if (token == JsonToken.START_OBJECT) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      while (parser.nextToken() != JsonToken.END_OBJECT) {
+        String key = parser.getCurrentName();
+        parser.nextToken();
+        map.put(key, readTree(parser));
+      }
+      return new JsonObject(map);
+    } else if (token == JsonToken.START_ARRAY) {
+      List<Object> list = new ArrayList<>();
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        list.add(readTree(parser));
+      }
+      return new JsonArray(list);
+    }
+    return readScalar(parser);
+  }
+
+}
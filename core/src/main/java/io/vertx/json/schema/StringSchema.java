@@ -15,9 +15,11 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.json.schema.events.SchemaEventType;
+import io.vertx.json.schema.events.SchemaEvents;
+
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Pattern;
@@ -89,16 +91,42 @@ public class StringSchema extends Schema {
     return new Builder();
   }
 
-  private final Integer minLength;
+  private static final byte HAS_MIN_LENGTH = 1;
 
-  private final Integer maxLength;
+  private static final byte HAS_MAX_LENGTH = 2;
 
-  private final Pattern pattern;
+  private static final byte REQUIRES_STRING = 4;
+
+  private static final int MIN_LENGTH_KEYWORD = 0;
+
+  private static final int MAX_LENGTH_KEYWORD = 1;
+
+  private static final int PATTERN_KEYWORD = 2;
+
+  /**
+   * The keywords evaluated by the validation of a string, in their default order, indexed by the
+   * {@code *_KEYWORD} identifiers.
+   */
+  private static final String[] KEYWORDS = { "minLength", "maxLength", "pattern", "format" };
+
+  private final int minLength;
 
-  private final boolean requiresString;
+  private final int maxLength;
+
+  private final Pattern pattern;
 
   private final FormatValidator formatValidator;
 
+  /**
+   * The presence bits of the length bounds and the {@link #REQUIRES_STRING} flag.
+   */
+  private final byte flags;
+
+  /**
+   * Created by the first adaptive validation, see {@link ValidationContext#withAdaptiveOrdering()}.
+   */
+  private volatile AdaptiveKeywordOrder adaptiveOrder;
+
   public StringSchema() {
     this(builder());
   }
@@ -111,9 +139,20 @@ public class StringSchema extends Schema {
    */
   public StringSchema(final Builder builder) {
     super(builder);
-    this.minLength = builder.minLength;
-    this.maxLength = builder.maxLength;
-    this.requiresString = builder.requiresString;
+    byte flags = builder.requiresString ? REQUIRES_STRING : 0;
+    if (builder.minLength != null) {
+      this.minLength = builder.minLength;
+      flags |= HAS_MIN_LENGTH;
+    } else {
+      this.minLength = 0;
+    }
+    if (builder.maxLength != null) {
+      this.maxLength = builder.maxLength;
+      flags |= HAS_MAX_LENGTH;
+    } else {
+      this.maxLength = 0;
+    }
+    this.flags = flags;
     if (builder.pattern != null) {
     	this.pattern = parsePattern(builder.pattern);    	
     } else {
@@ -121,64 +160,205 @@ public class StringSchema extends Schema {
     }
     this.formatValidator = builder.formatValidator;
   }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (!super.equals(obj)) {
+      return false;
+    }
+    StringSchema other = (StringSchema) obj;
+    return flags == other.flags
+        && minLength == other.minLength
+        && maxLength == other.maxLength
+        && Objects.equals(patternSource(), other.patternSource())
+        && Objects.equals(formatValidator, other.formatValidator);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), flags, minLength, maxLength, patternSource(),
+        formatValidator);
+  }
+
+  /**
+   * {@link Pattern} has no value-based equality, the patterns are compared by their source.
+   */
+  private String patternSource() {
+    return pattern == null ? null : pattern.pattern();
+  }
   private static Pattern parsePattern(String pattern){
   	try{
-  		return Pattern.compile(pattern);
+  		return SchemaEvents.trace(SchemaEventType.PATTERN_COMPILE, pattern, pattern,
+  		    () -> Pattern.compile(pattern));
   	}catch(PatternSyntaxException e){
   		return null;
   	}
   }
 
+  public FormatValidator getFormatValidator() {
+    return formatValidator;
+  }
+
   public Integer getMaxLength() {
-    return maxLength;
+    return (flags & HAS_MAX_LENGTH) == 0 ? null : maxLength;
   }
 
   public Integer getMinLength() {
-    return minLength;
+    return (flags & HAS_MIN_LENGTH) == 0 ? null : minLength;
   }
 
   public Pattern getPattern() {
     return pattern;
   }
 
-  private List<ValidationException> testLength(final String subject) {
+  public boolean requiresString() {
+    return (flags & REQUIRES_STRING) != 0;
+  }
+
+  private ValidationException testFormat(final String subject) {
+    return formatValidator.validate(subject)
+        .map(failure -> new ValidationException(this, failure, "format"))
+        .orElse(null);
+  }
+
+  private ValidationException testMaxLength(final String subject) {
     int actualLength = subject.length();
-    List<ValidationException> rval = new ArrayList<>();
-    if (minLength != null && actualLength < minLength.intValue()) {
-      rval.add(new ValidationException(this, "expected minLength: " + minLength + ", actual: "
-          + actualLength));
+    if (actualLength > maxLength) {
+      return new ValidationException(this, "expected maxLength: " + maxLength + ", actual: "
+          + actualLength, "maxLength");
     }
-    if (maxLength != null && actualLength > maxLength.intValue()) {
-      rval.add(new ValidationException(this, "expected maxLength: " + maxLength + ", actual: "
-          + actualLength));
+    return null;
+  }
+
+  private ValidationException testMinLength(final String subject) {
+    int actualLength = subject.length();
+    if (actualLength < minLength) {
+      return new ValidationException(this, "expected minLength: " + minLength + ", actual: "
+          + actualLength, "minLength");
     }
-    return rval;
+    return null;
   }
 
-  private List<ValidationException> testPattern(final String subject) {
-    if (pattern != null && !pattern.matcher(subject).find()) {
-      return Arrays.asList(new ValidationException(this, String.format(
+  private ValidationException testPattern(final String subject) {
+    if (!pattern.matcher(subject).find()) {
+      return new ValidationException(this, String.format(
           "string [%s] does not match pattern %s",
-          subject, pattern.pattern())));
+          subject, pattern.pattern()), "pattern");
+    }
+    return null;
+  }
+
+  private AdaptiveKeywordOrder adaptiveOrder() {
+    AdaptiveKeywordOrder order = adaptiveOrder;
+    if (order == null) {
+      // the volatile field publishes the order safely, the statistics of a concurrent first
+      // validation may be lost
+      int[] keywords = new int[KEYWORDS.length];
+      int count = 0;
+      for (int keyword = 0; keyword < KEYWORDS.length; ++keyword) {
+        if (hasKeyword(keyword)) {
+          keywords[count++] = keyword;
+        }
+      }
+      order = new AdaptiveKeywordOrder(Arrays.copyOf(keywords, count), KEYWORDS.length);
+      adaptiveOrder = order;
     }
-    return Collections.emptyList();
+    return order;
+  }
+
+  private boolean hasKeyword(final int keyword) {
+    switch (keyword) {
+      case MIN_LENGTH_KEYWORD:
+        return (flags & HAS_MIN_LENGTH) != 0;
+      case MAX_LENGTH_KEYWORD:
+        return (flags & HAS_MAX_LENGTH) != 0;
+      case PATTERN_KEYWORD:
+        return pattern != null;
+      default:
+        return formatValidator != FormatValidator.NONE;
+    }
+  }
+
+  private ValidationException testKeyword(final int keyword, final String subject,
+      final ValidationContext context) {
+    context.keywordStarted(this, KEYWORDS[keyword]);
+    ValidationException failure;
+    switch (keyword) {
+      case MIN_LENGTH_KEYWORD:
+        failure = testMinLength(subject);
+        break;
+      case MAX_LENGTH_KEYWORD:
+        failure = testMaxLength(subject);
+        break;
+      case PATTERN_KEYWORD:
+        failure = testPattern(subject);
+        break;
+      default:
+        failure = testFormat(subject);
+        break;
+    }
+    return context.keywordCompleted(this, KEYWORDS[keyword], failure);
   }
 
   @Override
   public void validate(final Object subject) {
-    if (!(subject instanceof String)) {
-      if (requiresString) {
-        throw new ValidationException(this, String.class, subject);
+    SchemaEvents.validate(this, subject, ValidationContext.DEFAULT);
+  }
+
+  @Override
+  public void validate(final Object subject, final ValidationContext context) {
+    if (requiresString()) {
+      context.keywordStarted(this, "type");
+      ValidationException failure = subject instanceof String ? null
+          : new ValidationException(this, String.class, subject);
+      if (context.keywordCompleted(this, "type", failure) != null) {
+        throw failure;
       }
-    } else {
+    }
+    if (subject instanceof String) {
       String stringSubject = (String) subject;
+      if (context.isAdaptiveOrdering()) {
+        validateAdaptively(stringSubject, context);
+        return;
+      }
       List<ValidationException> rval = new ArrayList<>();
-      rval.addAll(testLength(stringSubject));
-      rval.addAll(testPattern(stringSubject));
-      formatValidator.validate(stringSubject)
-          .map(failure -> new ValidationException(this, failure))
-          .ifPresent(rval::add);
+      for (int keyword = 0; keyword < KEYWORDS.length; ++keyword) {
+        if (hasKeyword(keyword)) {
+          addFailure(rval, testKeyword(keyword, stringSubject, context), context);
+        }
+      }
       ValidationException.throwFor(this, rval);
     }
   }
+
+  /**
+   * Fail-fast validation evaluating the keywords in the adaptive order, see
+   * {@link ValidationContext#withAdaptiveOrdering()}.
+   */
+  private void validateAdaptively(final String subject, final ValidationContext context) {
+    AdaptiveKeywordOrder order = adaptiveOrder();
+    boolean measured = order.startValidation();
+    for (int keyword : order.getOrder()) {
+      long start = measured ? System.nanoTime() : 0L;
+      ValidationException failure = testKeyword(keyword, subject, context);
+      order.record(keyword, measured ? System.nanoTime() - start : -1L, failure != null);
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  /**
+   * Adds {@code failure} to {@code failures} if it is not {@code null}, and throws it if the
+   * validation stops at the first violation.
+   */
+  private void addFailure(final List<ValidationException> failures,
+      final ValidationException failure, final ValidationContext context) {
+    if (failure != null) {
+      if (context.isFailFast()) {
+        throw failure;
+      }
+      failures.add(failure);
+    }
+  }
 }
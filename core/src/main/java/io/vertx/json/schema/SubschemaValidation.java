@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The validation of a subdocument against a subschema, by the schemas applying subschemas. It
+ * skips the subdocuments left unchanged by a patch (see {@link IncrementalValidator}) and reuses
+ * the results of the memo (see {@link ValidationContext#withMemo(int)}).
+ */
+final class SubschemaValidation {
+
+  /**
+   * Returns the identity of a subdocument: the map of a {@link JsonObject} or the list of a
+   * {@link JsonArray}, which are shared by the instances wrapping the same nested value.
+   *
+   * @param subject
+   *          the subdocument
+   * @return the container, or {@code null} if {@code subject} is a scalar
+   */
+  static Object container(final Object subject) {
+    if (subject instanceof JsonObject) {
+      return ((JsonObject) subject).getMap();
+    } else if (subject instanceof JsonArray) {
+      return ((JsonArray) subject).getList();
+    }
+    return null;
+  }
+
+  /**
+   * Validates {@code subject} against the subschema {@code schema}.
+   *
+   * @param schema
+   *          the subschema
+   * @param subject
+   *          the subdocument
+   * @param context
+   *          the validation options
+   * @throws ValidationException
+   *           if {@code subject} is invalid against {@code schema}
+   */
+  static void validate(final Schema schema, final Object subject,
+      final ValidationContext context) {
+    Object container = container(subject);
+    // the scalar values are cheaper to validate than to look up
+    if (container == null) {
+      schema.validate(subject, context);
+      return;
+    }
+    ValidationContext subjectContext = context;
+    DocumentChanges changes = context.getChanges();
+    if (changes != null) {
+      if (changes.isAdded(container)) {
+        subjectContext = context.withoutChanges();
+      } else if (!changes.isChanged(container)) {
+        // unchanged since the validation of the document before the patch
+        return;
+      }
+    }
+    ValidationMemo memo = subjectContext.getMemo();
+    if (memo == null) {
+      schema.validate(subject, subjectContext);
+    } else {
+      memo.validate(schema, subject, container, subjectContext);
+    }
+  }
+
+  private SubschemaValidation() {
+  }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Options of a single {@link Schema#validate(Object, ValidationContext)} call, passed down to the
+ * subschemas taking part in the validation.
+ */
+public class ValidationContext {
+
+  /**
+   * Listener notified of the evaluation of the keywords of the schemas taking part in a
+   * validation, see {@link ValidationContext#withKeywordListener(KeywordListener)}.
+   *
+   * <p>
+   * The evaluations of the keywords applying subschemas, like {@code properties}, enclose the
+   * evaluations of the keywords of the subschemas. The listener is called by the validating
+   * thread, and it is shared by the concurrent validations using the same context.
+   * </p>
+   */
+  public interface KeywordListener {
+
+    /**
+     * Called when the evaluation of {@code keyword} completes.
+     *
+     * @param schema
+     *          the schema containing the keyword
+     * @param keyword
+     *          the evaluated keyword
+     * @param failure
+     *          the first violation found by the evaluation, or {@code null} if it passed
+     */
+    void keywordCompleted(Schema schema, String keyword, ValidationException failure);
+
+    /**
+     * Called before the evaluation of {@code keyword}.
+     *
+     * @param schema
+     *          the schema containing the keyword
+     * @param keyword
+     *          the evaluated keyword
+     */
+    void keywordStarted(Schema schema, String keyword);
+
+  }
+
+  /**
+   * Collects every violation of the subject, like {@link Schema#validate(Object)}.
+   */
+  public static final ValidationContext DEFAULT = new ValidationContext(false, false, null, 0, null);
+
+  /**
+   * Stops at the first violation. The thrown {@link ValidationException} has no causing
+   * exceptions, it describes only the first violation found.
+   */
+  public static final ValidationContext FAIL_FAST = DEFAULT.failFastContext;
+
+  private final boolean failFast;
+
+  private final boolean adaptiveOrdering;
+
+  private final KeywordListener keywordListener;
+
+  private final int memoCapacity;
+
+  /**
+   * The memo of the single validation using this context, {@code null} if there is no memo. The
+   * fail-fast variant has its own memo, since its results differ.
+   */
+  private final ValidationMemo memo;
+
+  /**
+   * The modifications of the document by a patch, {@code null} if the whole document is
+   * validated, see {@link IncrementalValidator}.
+   */
+  private final DocumentChanges changes;
+
+  private final ValidationContext failFastContext;
+
+  /**
+   * The variant of this context validating the whole subdocuments.
+   */
+  private final ValidationContext fullContext;
+
+  private ValidationContext(final boolean failFast, final boolean adaptiveOrdering,
+      final KeywordListener keywordListener, final int memoCapacity,
+      final DocumentChanges changes) {
+    this.failFast = failFast;
+    this.adaptiveOrdering = adaptiveOrdering;
+    this.keywordListener = keywordListener;
+    this.memoCapacity = memoCapacity;
+    this.memo = memoCapacity == 0 ? null : new ValidationMemo(memoCapacity);
+    this.changes = changes;
+    this.failFastContext = failFast ? this
+        : new ValidationContext(true, adaptiveOrdering, keywordListener, memoCapacity, changes);
+    this.fullContext = changes == null ? this
+        : new ValidationContext(failFast, adaptiveOrdering, keywordListener, memoCapacity, null);
+  }
+
+  /**
+   * Returns the context stopping at the first violation, used by the schemas which are only
+   * interested in the validity of their subschemas, like {@code anyOf}. The keyword listener and
+   * the adaptive ordering are kept.
+   *
+   * @return the fail-fast variant of this context, or {@code this} if it is already fail-fast
+   */
+  public ValidationContext asFailFast() {
+    return failFastContext;
+  }
+
+  DocumentChanges getChanges() {
+    return changes;
+  }
+
+  public KeywordListener getKeywordListener() {
+    return keywordListener;
+  }
+
+  ValidationMemo getMemo() {
+    return memo;
+  }
+
+  /**
+   * Returns whether the schemas evaluate their keywords in the adaptive order, see
+   * {@link #withAdaptiveOrdering()}.
+   *
+   * @return {@code true} if the adaptive ordering is requested and the validation is fail-fast
+   */
+  public boolean isAdaptiveOrdering() {
+    return adaptiveOrdering && failFast;
+  }
+
+  public boolean isFailFast() {
+    return failFast;
+  }
+
+  /**
+   * Returns whether items were inserted in or removed from {@code array} by the patch being
+   * validated.
+   */
+  boolean isRestructured(final JsonArray array) {
+    return changes != null && changes.isRestructured(array.getList());
+  }
+
+  ValidationException keywordCompleted(final Schema schema, final String keyword,
+      final ValidationException failure) {
+    if (keywordListener != null) {
+      keywordListener.keywordCompleted(schema, keyword, failure);
+    }
+    return failure;
+  }
+
+  List<ValidationException> keywordCompleted(final Schema schema, final String keyword,
+      final List<ValidationException> failures) {
+    if (keywordListener != null) {
+      keywordListener.keywordCompleted(schema, keyword, failures.isEmpty() ? null
+          : failures.get(0));
+    }
+    return failures;
+  }
+
+  void keywordStarted(final Schema schema, final String keyword) {
+    if (keywordListener != null) {
+      keywordListener.keywordStarted(schema, keyword);
+    }
+  }
+
+  /**
+   * Returns a context with the same options as this one, where the schema nodes evaluate their
+   * keywords in an order adapted to the past validations: the keywords which are cheap and often
+   * reject the subjects, like {@code required} or {@code maxProperties}, are evaluated before
+   * the expensive ones, like {@code properties}. A different keyword may therefore report the
+   * first violation of an invalid subject, but the validity of the subjects does not change.
+   *
+   * <p>
+   * The keyword order only matters when the validation stops at the first violation, the
+   * collecting validations keep the order of the keywords; the fail-fast validations of the
+   * subschemas applied by {@code anyOf}, {@code oneOf} and {@code not} are adaptive in both cases.
+   * The {@code anyOf} schemas also try first their subschemas which matched most often, which
+   * does not change their outcome.
+   * </p>
+   *
+   * @return the new context
+   */
+  public ValidationContext withAdaptiveOrdering() {
+    return new ValidationContext(failFast, true, keywordListener, memoCapacity, changes);
+  }
+
+  /**
+   * Returns a context with the same options as this one, notifying {@code keywordListener} of the
+   * keyword evaluations. Validations without a listener do not pay for the notifications.
+   *
+   * @param keywordListener
+   *          the listener
+   * @return the new context
+   */
+  public ValidationContext withKeywordListener(final KeywordListener keywordListener) {
+    return new ValidationContext(failFast, adaptiveOrdering,
+        Objects.requireNonNull(keywordListener, "keywordListener cannot be null"), memoCapacity,
+        changes);
+  }
+
+  /**
+   * Returns a context with the same options as this one, for a single validation reusing the
+   * results of the subschemas which validate the same {@link io.vertx.core.json.JsonObject} or
+   * {@link io.vertx.core.json.JsonArray} instance more than once, like the documents
+   * referencing a shared lookup table many times, or the recursive schemas applying several
+   * {@code $ref} to the same subtree.
+   *
+   * <p>
+   * The results are keyed by the identity of the subschema and of the subject, therefore the
+   * returned context must only be used for one validation, by one thread, of a document which is
+   * not modified during the validation. At most {@code capacity} results are kept, the newer
+   * results replacing the older ones, so that the memory used does not depend on the size of the
+   * document. The reused results are not reported to the keyword listener.
+   * </p>
+   *
+   * @param capacity
+   *          the maximum number of results kept, rounded up to a power of two, at most 2^20
+   * @return the new context
+   * @throws IllegalArgumentException
+   *           if {@code capacity} is not positive
+   */
+  public ValidationContext withMemo(final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive, found: " + capacity);
+    }
+    return new ValidationContext(failFast, adaptiveOrdering, keywordListener, capacity, changes);
+  }
+
+  /**
+   * Returns a context with the same options as this one, validating only the subdocuments
+   * modified by a patch.
+   *
+   * @param changes
+   *          the modifications of the document
+   * @return the new context
+   */
+  ValidationContext withChanges(final DocumentChanges changes) {
+    return new ValidationContext(failFast, adaptiveOrdering, keywordListener, memoCapacity,
+        changes);
+  }
+
+  /**
+   * Returns the variant of this context validating the whole subdocuments, used when the result
+   * of the validation before the patch does not tell the result of a subschema, like the
+   * subschemas of {@code anyOf} which may have failed.
+   *
+   * @return the context validating the whole subdocuments, or {@code this} if it already does
+   */
+  ValidationContext withoutChanges() {
+    return fullContext;
+  }
+
+}
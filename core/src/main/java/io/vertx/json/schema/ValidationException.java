@@ -59,6 +59,8 @@ public class ValidationException extends RuntimeException {
 
   private final StringBuilder pointerToViolation;
 
+  private final String keyword;
+
   private final transient Schema violatedSchema;
 
   private final List<ValidationException> causingExceptions;
@@ -88,16 +90,33 @@ public class ValidationException extends RuntimeException {
    */
   public ValidationException(final Schema violatedSchema, final Class<?> expectedType,
       final Object actualValue) {
+    this(violatedSchema, expectedType, actualValue, "type");
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param violatedSchema
+   *          the schema instance which detected the schema violation
+   * @param expectedType
+   *          the expected type
+   * @param actualValue
+   *          the violating value
+   * @param keyword
+   *          the keyword whose evaluation failed
+   */
+  public ValidationException(final Schema violatedSchema, final Class<?> expectedType,
+      final Object actualValue, final String keyword) {
     this(violatedSchema, new StringBuilder("#"),
         "expected type: " + expectedType.getSimpleName() + ", found: "
             + (actualValue == null ? "null" : actualValue.getClass().getSimpleName()),
-        Collections.emptyList());
+        keyword, Collections.emptyList());
   }
 
   private ValidationException(final Schema rootFailingSchema,
       final List<ValidationException> causingExceptions) {
     this(rootFailingSchema, new StringBuilder("#"),
-        causingExceptions.size() + " schema violations found",
+        causingExceptions.size() + " schema violations found", null,
         causingExceptions);
   }
 
@@ -110,7 +129,28 @@ public class ValidationException extends RuntimeException {
    *          the readable exception message
    */
   public ValidationException(final Schema violatedSchema, final String message) {
-    this(violatedSchema, new StringBuilder("#"), message, Collections.emptyList());
+    this(violatedSchema, message, (String) null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param violatedSchema
+   *          the schema instance which detected the schema violation
+   * @param message
+   *          the readable exception message
+   * @param keyword
+   *          the keyword whose evaluation failed, or {@code null} if it is not known
+   */
+  public ValidationException(final Schema violatedSchema, final String message,
+      final String keyword) {
+    this(violatedSchema, new StringBuilder("#"), message, keyword, Collections.emptyList());
+  }
+
+  ValidationException(final Schema violatedSchema, final StringBuilder pointerToViolation,
+      final String message,
+      final List<ValidationException> causingExceptions) {
+    this(violatedSchema, pointerToViolation, message, null, causingExceptions);
   }
 
   /***
@@ -122,16 +162,19 @@ public class ValidationException extends RuntimeException {
    *          a JSON pointer denoting the part of the document which violates the schema
    * @param message
    *          the readable exception message
+   * @param keyword
+   *          the keyword whose evaluation failed, or {@code null} if it is not known
    * @param causingExceptions
    *          a (possibly empty) list of validation failures. It is used if multiple schema
    *          violations are found by violatedSchema
    */
   ValidationException(final Schema violatedSchema, final StringBuilder pointerToViolation,
-      final String message,
+      final String message, final String keyword,
       final List<ValidationException> causingExceptions) {
     super(message);
     this.violatedSchema = violatedSchema;
     this.pointerToViolation = pointerToViolation;
+    this.keyword = keyword;
     this.causingExceptions = Collections.unmodifiableList(causingExceptions);
   }
 
@@ -143,14 +186,27 @@ public class ValidationException extends RuntimeException {
    */
   @Deprecated
   public ValidationException(final String message) {
-    this((Schema) null, new StringBuilder("#"), message, Collections.emptyList());
+    this((Schema) null, new StringBuilder("#"), message, null, Collections.emptyList());
   }
 
   private ValidationException(final StringBuilder pointerToViolation,
       final Schema violatedSchema,
       final String message,
+      final String keyword,
       final List<ValidationException> causingExceptions) {
-    this(violatedSchema, pointerToViolation, message, causingExceptions);
+    this(violatedSchema, pointerToViolation, message, keyword, causingExceptions);
+  }
+
+  /**
+   * Returns a copy of this exception and its causing exceptions, since {@link #prepend(String)}
+   * modifies the pointer of the exception it is called on.
+   */
+  ValidationException copy() {
+    List<ValidationException> copiedCausingExceptions = causingExceptions.stream()
+        .map(ValidationException::copy)
+        .collect(Collectors.toList());
+    return new ValidationException(new StringBuilder(pointerToViolation), violatedSchema,
+        super.getMessage(), keyword, copiedCausingExceptions);
   }
 
   private String escapeFragment(final String fragment) {
@@ -161,6 +217,16 @@ public class ValidationException extends RuntimeException {
     return causingExceptions;
   }
 
+  /**
+   * Returns the keyword whose evaluation failed, like {@code "minLength"}.
+   *
+   * @return the keyword, or {@code null} if it is not known, which is the case of the exceptions
+   *         having {@link #getCausingExceptions() causing exceptions}
+   */
+  public String getKeyword() {
+    return keyword;
+  }
+
   @Override
   public String getMessage() {
     return getPointerToViolation() + ": " + super.getMessage();
@@ -211,7 +277,7 @@ public class ValidationException extends RuntimeException {
     List<ValidationException> prependedCausingExceptions = causingExceptions.stream()
         .map(exc -> exc.prepend(escapedFragment))
         .collect(Collectors.toList());
-    return new ValidationException(newPointer, violatedSchema, super.getMessage(),
+    return new ValidationException(newPointer, violatedSchema, super.getMessage(), keyword,
         prependedCausingExceptions);
   }
 
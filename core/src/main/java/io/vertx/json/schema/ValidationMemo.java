@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The results of the subschema validations of a single validation, keyed by the identity of the
+ * schema and of the map or list underlying the validated {@link JsonObject} or {@link JsonArray},
+ * see {@link ValidationContext#withMemo(int)}. The wrappers themselves cannot be the keys, since
+ * the nested values of a decoded document are wrapped again each time they are read.
+ *
+ * <p>
+ * The table is direct-mapped: it has a fixed number of slots, and a result replaces the result
+ * of another key in the same slot, so its size does not depend on the size of the documents.
+ * </p>
+ */
+final class ValidationMemo {
+
+  /**
+   * The result of the successful validations.
+   */
+  private static final Object VALID = new Object();
+
+  private static final int MAX_CAPACITY = 1 << 20;
+
+  private final int mask;
+
+  private Schema[] schemas;
+
+  /**
+   * The maps and lists underlying the validated subjects.
+   */
+  private Object[] containers;
+
+  private Object[] results;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity
+   *          the maximum number of results, rounded up to a power of two, at most 2^20
+   */
+  ValidationMemo(final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive, found: " + capacity);
+    }
+    this.mask = Integer.highestOneBit(Math.min(capacity, MAX_CAPACITY) * 2 - 1) - 1;
+  }
+
+  private int slot(final Schema schema, final Object container) {
+    int hash = System.identityHashCode(schema) * 31 + System.identityHashCode(container);
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private void store(final int slot, final Schema schema, final Object container,
+      final Object result) {
+    if (schemas == null) {
+      // allocated by the first result, most validations do not validate a subject twice
+      schemas = new Schema[mask + 1];
+      containers = new Object[mask + 1];
+      results = new Object[mask + 1];
+    }
+    schemas[slot] = schema;
+    containers[slot] = container;
+    results[slot] = result;
+  }
+
+  /**
+   * Validates {@code subject} against the subschema {@code schema}, reusing the result of an
+   * earlier validation of the same subject.
+   *
+   * @param schema
+   *          the subschema
+   * @param subject
+   *          the {@link JsonObject} or {@link JsonArray} to be validated
+   * @param container
+   *          the identity of {@code subject}, see {@link SubschemaValidation#container(Object)}
+   * @param context
+   *          the validation options
+   * @throws ValidationException
+   *           if {@code subject} is invalid against {@code schema}
+   */
+  void validate(final Schema schema, final Object subject, final Object container,
+      final ValidationContext context) {
+    int slot = slot(schema, container);
+    if (schemas != null && schemas[slot] == schema && containers[slot] == container) {
+      Object result = results[slot];
+      if (result == VALID) {
+        return;
+      }
+      // the callers prepend their location to the thrown exception
+      throw ((ValidationException) result).copy();
+    }
+    try {
+      schema.validate(subject, context);
+    } catch (ValidationException e) {
+      store(slot, schema, container, e.copy());
+      throw e;
+    }
+    store(slot, schema, container, VALID);
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.eventbus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validation counters of a single event-bus address, updated by a
+ * {@link SchemaValidationInterceptor}. The counters can be read concurrently with the validations.
+ */
+public class AddressMetrics {
+
+  private final LongAdder validated = new LongAdder();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final LongAdder validationNanos = new LongAdder();
+
+  /**
+   * Returns the average time spent validating a message.
+   *
+   * @param unit
+   *          the unit of the returned value
+   * @return the average validation time, or 0 if no message was validated yet
+   */
+  public double getAverageValidationTime(final TimeUnit unit) {
+    long count = validated.sum();
+    if (count == 0) {
+      return 0;
+    }
+    return (double) unit.convert(validationNanos.sum(), TimeUnit.NANOSECONDS) / count;
+  }
+
+  /**
+   * Returns the number of messages rejected because their body was invalid.
+   *
+   * @return the number of rejected messages
+   */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Returns the total time spent validating messages.
+   *
+   * @param unit
+   *          the unit of the returned value
+   * @return the total validation time
+   */
+  public long getTotalValidationTime(final TimeUnit unit) {
+    return unit.convert(validationNanos.sum(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the number of validated messages, including the rejected ones.
+   *
+   * @return the number of validated messages
+   */
+  public long getValidatedCount() {
+    return validated.sum();
+  }
+
+  void record(final long elapsedNanos, final boolean valid) {
+    validated.increment();
+    validationNanos.add(elapsedNanos);
+    if (!valid) {
+      rejected.increment();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("validated: %d, rejected: %d, total time: %d ms", getValidatedCount(),
+        getRejectedCount(), getTotalValidationTime(TimeUnit.MILLISECONDS));
+  }
+
+}
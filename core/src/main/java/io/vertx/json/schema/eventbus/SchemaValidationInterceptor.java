@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.eventbus;
+
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.SendContext;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.ValidationContext;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.events.SchemaEvents;
+import io.vertx.json.schema.metrics.MeteredValidator;
+import io.vertx.json.schema.metrics.ValidationMetrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An event-bus interceptor validating the bodies of the messages sent or published to the
+ * configured addresses, before they are delivered.
+ *
+ * <p>
+ * Messages sent to an address without a schema are passed through. Invalid messages are not
+ * delivered: if the sender expects a reply, then the message is failed with
+ * {@link Builder#failureCode(int)} and the message of the {@link ValidationException}, and the
+ * {@link Builder#rejectionHandler(Handler)} is notified in all cases. By default the validation
+ * stops at the first violation (see {@link ValidationContext#FAIL_FAST}).
+ * </p>
+ *
+ * <p>
+ * Usage: {@code eventBus.addInterceptor(interceptor)}, or {@link #install(EventBus)}.
+ * </p>
+ */
+@SuppressWarnings("rawtypes")
+public class SchemaValidationInterceptor implements Handler<SendContext> {
+
+  /**
+   * Builder class for {@link SchemaValidationInterceptor}.
+   */
+  public static class Builder {
+
+    private final Map<String, Schema> addressSchemas = new HashMap<>();
+
+    private ValidationContext context = ValidationContext.FAIL_FAST;
+
+    private int failureCode = DEFAULT_FAILURE_CODE;
+
+    private Handler<RejectedMessage> rejectionHandler;
+
+    private ValidationMetrics validationMetrics;
+
+    /**
+     * Sets the schema validating the message bodies sent to {@code address}.
+     *
+     * @param address
+     *          the event-bus address
+     * @param schema
+     *          the schema of the message bodies
+     * @return {@code this}
+     */
+    public Builder addressSchema(final String address, final Schema schema) {
+      addressSchemas.put(Objects.requireNonNull(address, "address cannot be null"),
+          Objects.requireNonNull(schema, "schema cannot be null"));
+      return this;
+    }
+
+    public SchemaValidationInterceptor build() {
+      return new SchemaValidationInterceptor(this);
+    }
+
+    /**
+     * Sets the options of the validations. Defaults to {@link ValidationContext#FAIL_FAST}.
+     *
+     * @param context
+     *          the validation options
+     * @return {@code this}
+     */
+    public Builder context(final ValidationContext context) {
+      this.context = context;
+      return this;
+    }
+
+    /**
+     * Sets the failure code of the replies to the rejected messages. Defaults to 400.
+     *
+     * @param failureCode
+     *          the failure code
+     * @return {@code this}
+     */
+    public Builder failureCode(final int failureCode) {
+      this.failureCode = failureCode;
+      return this;
+    }
+
+    public Builder rejectionHandler(final Handler<RejectedMessage> rejectionHandler) {
+      this.rejectionHandler = rejectionHandler;
+      return this;
+    }
+
+    /**
+     * Sets the metrics the validations are reported to, in addition to the {@link AddressMetrics},
+     * using the addresses as schema names. By default the validations are not reported.
+     *
+     * @param validationMetrics
+     *          the metrics, possibly shared with other validators
+     * @return {@code this}
+     */
+    public Builder validationMetrics(final ValidationMetrics validationMetrics) {
+      this.validationMetrics = validationMetrics;
+      return this;
+    }
+
+  }
+
+  /**
+   * A message which was not delivered because its body is invalid.
+   */
+  public static class RejectedMessage {
+
+    private final Message<?> message;
+
+    private final ValidationException failure;
+
+    RejectedMessage(final Message<?> message, final ValidationException failure) {
+      this.message = message;
+      this.failure = failure;
+    }
+
+    public ValidationException getFailure() {
+      return failure;
+    }
+
+    public Message<?> getMessage() {
+      return message;
+    }
+
+  }
+
+  private static final int DEFAULT_FAILURE_CODE = 400;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Map<String, Schema> addressSchemas;
+
+  private final Map<String, AddressMetrics> metrics;
+
+  private final Map<String, MeteredValidator> meteredValidators;
+
+  private final ValidationContext context;
+
+  private final int failureCode;
+
+  private final Handler<RejectedMessage> rejectionHandler;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the schemas of the addresses and the configuration
+   */
+  public SchemaValidationInterceptor(final Builder builder) {
+    this.addressSchemas = Collections.unmodifiableMap(new HashMap<>(builder.addressSchemas));
+    Map<String, AddressMetrics> addressMetrics = new HashMap<>();
+    addressSchemas.keySet().forEach(address -> addressMetrics.put(address, new AddressMetrics()));
+    this.metrics = Collections.unmodifiableMap(addressMetrics);
+    this.context = Objects.requireNonNull(builder.context, "context cannot be null");
+    this.failureCode = builder.failureCode;
+    this.rejectionHandler = builder.rejectionHandler;
+    Map<String, MeteredValidator> validators = new HashMap<>();
+    if (builder.validationMetrics != null) {
+      addressSchemas.forEach((address, schema) -> validators.put(address, MeteredValidator
+          .builder()
+          .schemaName(address)
+          .schema(schema)
+          .metrics(builder.validationMetrics)
+          .context(context)
+          .build()));
+    }
+    this.meteredValidators = validators;
+  }
+
+  public Map<String, Schema> getAddressSchemas() {
+    return addressSchemas;
+  }
+
+  /**
+   * Returns the validation counters of an address.
+   *
+   * @param address
+   *          the event-bus address
+   * @return the counters, or an empty optional if the address has no schema
+   */
+  public Optional<AddressMetrics> getMetrics(final String address) {
+    return Optional.ofNullable(metrics.get(address));
+  }
+
+  /**
+   * Returns the validation counters of all addresses having a schema.
+   *
+   * @return the counters, keyed by address
+   */
+  public Map<String, AddressMetrics> getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void handle(final SendContext sendContext) {
+    Message<?> message = sendContext.message();
+    Schema schema = addressSchemas.get(message.address());
+    if (schema == null) {
+      sendContext.next();
+      return;
+    }
+    MeteredValidator meteredValidator = meteredValidators.get(message.address());
+    long start = System.nanoTime();
+    try {
+      if (meteredValidator == null) {
+        SchemaEvents.validate(schema, message.body(), context);
+      } else {
+        meteredValidator.validate(message.body());
+      }
+    } catch (ValidationException e) {
+      metrics.get(message.address()).record(System.nanoTime() - start, false);
+      reject(message, e);
+      return;
+    }
+    metrics.get(message.address()).record(System.nanoTime() - start, true);
+    sendContext.next();
+  }
+
+  /**
+   * Registers this interceptor on {@code eventBus}.
+   *
+   * @param eventBus
+   *          the event bus
+   * @return {@code this}
+   */
+  public SchemaValidationInterceptor install(final EventBus eventBus) {
+    eventBus.addInterceptor(this);
+    return this;
+  }
+
+  private void reject(final Message<?> message, final ValidationException failure) {
+    if (message.replyAddress() != null) {
+      message.fail(failureCode, failure.getMessage());
+    }
+    if (rejectionHandler != null) {
+      rejectionHandler.handle(new RejectedMessage(message, failure));
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.events;
+
+import io.vertx.json.schema.ValidationException;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emits the traced operations as Java Flight Recorder events. Loaded reflectively by
+ * {@link SchemaEvents#enableFlightRecorder()}, since it cannot be linked without the
+ * {@code jdk.jfr} API.
+ */
+class FlightRecorderListener implements SchemaEventListener {
+
+  @Category({ "Vert.x", "JSON Schema" })
+  @StackTrace(false)
+  abstract static class SchemaEvent extends Event {
+
+    @Label("Target")
+    @Description("The schema id, URL or regular expression")
+    String target;
+
+    @Label("Payload Size")
+    @Description("The size of the processed string, buffer or byte array, -1 if not known")
+    @DataAmount
+    long payloadSize;
+
+    @Label("Outcome")
+    @Description("success, invalid or error")
+    String outcome;
+
+    @Label("Message")
+    String message;
+
+  }
+
+  @Name("io.vertx.json.schema.Load")
+  @Label("Schema Load")
+  static class LoadEvent extends SchemaEvent {
+  }
+
+  @Name("io.vertx.json.schema.ReferenceFetch")
+  @Label("Schema Reference Fetch")
+  static class ReferenceFetchEvent extends SchemaEvent {
+  }
+
+  @Name("io.vertx.json.schema.PatternCompile")
+  @Label("Schema Pattern Compile")
+  static class PatternCompileEvent extends SchemaEvent {
+  }
+
+  @Name("io.vertx.json.schema.Validation")
+  @Label("Schema Validation")
+  @StackTrace(true)
+  static class ValidationEvent extends SchemaEvent {
+  }
+
+  @Override
+  public void completed(final Object handle, final SchemaEventType type, final String target,
+      final Object payload, final long durationNanos, final Throwable failure) {
+    SchemaEvent event = (SchemaEvent) handle;
+    event.end();
+    if (!event.shouldCommit()) {
+      return;
+    }
+    event.target = target;
+    event.payloadSize = SchemaEvents.payloadSize(payload);
+    if (failure == null) {
+      event.outcome = "success";
+    } else {
+      event.outcome = failure instanceof ValidationException ? "invalid" : "error";
+      event.message = failure.getMessage();
+    }
+    event.commit();
+  }
+
+  @Override
+  public Object started(final SchemaEventType type) {
+    SchemaEvent event;
+    switch (type) {
+      case LOAD:
+        event = new LoadEvent();
+        break;
+      case REFERENCE_FETCH:
+        event = new ReferenceFetchEvent();
+        break;
+      case PATTERN_COMPILE:
+        event = new PatternCompileEvent();
+        break;
+      default:
+        event = new ValidationEvent();
+        break;
+    }
+    event.begin();
+    return event;
+  }
+
+}
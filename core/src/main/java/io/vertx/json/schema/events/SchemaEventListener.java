@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.events;
+
+/**
+ * Receives the traced operations of the schema loading and validation, see
+ * {@link SchemaEvents#setListener(SchemaEventListener)}.
+ *
+ * <p>
+ * The listener is called by the threads running the operations, concurrently.
+ * </p>
+ */
+public interface SchemaEventListener {
+
+  /**
+   * Called when a traced operation completes.
+   *
+   * @param handle
+   *          the object returned by {@link #started(SchemaEventType)} for this operation
+   * @param type
+   *          the type of the operation
+   * @param target
+   *          the schema id, URL or regular expression the operation applies to, possibly
+   *          {@code null}, see {@link SchemaEventType}
+   * @param payload
+   *          the processed JSON, string or bytes, whose size is returned by
+   *          {@link SchemaEvents#payloadSize(Object)} if it is known
+   * @param durationNanos
+   *          the duration of the operation
+   * @param failure
+   *          the exception thrown by the operation, or {@code null} if it succeeded. A failed
+   *          validation throws a {@link io.vertx.json.schema.ValidationException}
+   */
+  void completed(Object handle, SchemaEventType type, String target, Object payload,
+      long durationNanos, Throwable failure);
+
+  /**
+   * Called when a traced operation starts.
+   *
+   * @param type
+   *          the type of the operation
+   * @return an object passed to {@link #completed}, possibly {@code null}
+   */
+  Object started(SchemaEventType type);
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.events;
+
+/**
+ * The operations traced by {@link SchemaEvents}.
+ */
+public enum SchemaEventType {
+
+  /**
+   * The loading of a schema document by {@code SchemaLoader#load()}. The target is the id of the
+   * document, the payload is its JSON.
+   */
+  LOAD,
+
+  /**
+   * The fetching of a remote document referenced by {@code $ref}. The target is its URL, the
+   * payload is the fetched JSON.
+   */
+  REFERENCE_FETCH,
+
+  /**
+   * The compilation of a {@code pattern} or {@code patternProperties} regular expression. The
+   * target and the payload are the regular expression.
+   */
+  PATTERN_COMPILE,
+
+  /**
+   * The validation of a subject against a root schema. The target is the id of the schema, the
+   * payload is the subject.
+   */
+  VALIDATION
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.events;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.ValidationContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Traces the loading of the schemas, the fetching of the remote references, the compilation of
+ * the regular expressions and the validations against root schemas, to correlate them with the
+ * other events of a production profiler.
+ *
+ * <p>
+ * The tracing is disabled by default: the traced code then only reads a volatile field. It is
+ * enabled by {@link #setListener(SchemaEventListener)}, or by
+ * {@link #enableFlightRecorder()} which emits Java Flight Recorder events, named
+ * {@code io.vertx.json.schema.*}. The Flight Recorder events can also be enabled at startup with
+ * the {@code -Dio.vertx.json.schema.jfr=true} system property.
+ * </p>
+ *
+ * <p>
+ * The root validations are the {@link Schema#validate(Object)} calls, and the validations of the
+ * library entry points like {@link io.vertx.json.schema.metrics.MeteredValidator}; the
+ * validations of the subschemas are not traced.
+ * </p>
+ */
+public final class SchemaEvents {
+
+  /**
+   * The system property enabling the Flight Recorder events when set to {@code true}.
+   */
+  public static final String FLIGHT_RECORDER_PROPERTY = "io.vertx.json.schema.jfr";
+
+  private static final String FLIGHT_RECORDER_LISTENER =
+      "io.vertx.json.schema.events.FlightRecorderListener";
+
+  private static volatile SchemaEventListener listener;
+
+  static {
+    if (Boolean.getBoolean(FLIGHT_RECORDER_PROPERTY)) {
+      enableFlightRecorder();
+    }
+  }
+
+  /**
+   * Disables the tracing.
+   */
+  public static void disable() {
+    listener = null;
+  }
+
+  /**
+   * Emits Java Flight Recorder events, if the {@code jdk.jfr} API is available, which is the case
+   * of Java 11 and later, and of the OpenJDK 8 builds from update 272. The events are recorded if
+   * they are enabled in the recording settings, which is the default.
+   *
+   * @return {@code true} if the Flight Recorder events are enabled, {@code false} if the API is
+   *         not available
+   */
+  public static boolean enableFlightRecorder() {
+    try {
+      Class.forName("jdk.jfr.FlightRecorder");
+      // loaded reflectively, since it cannot be linked without the API
+      listener = (SchemaEventListener) Class.forName(FLIGHT_RECORDER_LISTENER)
+          .getDeclaredConstructor().newInstance();
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the listener of the traced operations.
+   *
+   * @return the listener, or {@code null} if the tracing is disabled
+   */
+  public static SchemaEventListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Returns the size of a payload passed to {@link SchemaEventListener#completed}: the length of
+   * a string, a buffer or a byte array. The size of a JSON value is not known, since encoding it
+   * would cost as much as its validation.
+   *
+   * @param payload
+   *          the payload
+   * @return the size in bytes or characters, or -1 if it is not known
+   */
+  public static long payloadSize(final Object payload) {
+    if (payload instanceof String) {
+      return ((String) payload).length();
+    } else if (payload instanceof Buffer) {
+      return ((Buffer) payload).length();
+    } else if (payload instanceof byte[]) {
+      return ((byte[]) payload).length;
+    }
+    return -1;
+  }
+
+  /**
+   * Sets the listener of the traced operations, replacing the previous one.
+   *
+   * @param listener
+   *          the listener, or {@code null} to disable the tracing
+   */
+  public static void setListener(final SchemaEventListener listener) {
+    SchemaEvents.listener = listener;
+  }
+
+  /**
+   * Runs a traced operation.
+   *
+   * @param type
+   *          the type of the operation
+   * @param target
+   *          the schema id, URL or regular expression the operation applies to
+   * @param payload
+   *          the processed JSON or string, or {@code null} to use the result of the operation
+   * @param operation
+   *          the operation
+   * @return the result of the operation
+   */
+  public static <T> T trace(final SchemaEventType type, final String target, final Object payload,
+      final Supplier<T> operation) {
+    SchemaEventListener current = listener;
+    if (current == null) {
+      return operation.get();
+    }
+    Object handle = current.started(type);
+    long start = System.nanoTime();
+    T result;
+    try {
+      result = operation.get();
+    } catch (RuntimeException | Error e) {
+      current.completed(handle, type, target, payload, System.nanoTime() - start, e);
+      throw e;
+    }
+    current.completed(handle, type, target, payload == null ? result : payload,
+        System.nanoTime() - start, null);
+    return result;
+  }
+
+  /**
+   * Validates {@code subject} against the root schema {@code schema}, emitting a
+   * {@link SchemaEventType#VALIDATION} event if the tracing is enabled.
+   *
+   * @param schema
+   *          the root schema
+   * @param subject
+   *          the object to be validated
+   * @param context
+   *          the validation options
+   * @throws io.vertx.json.schema.ValidationException
+   *           if the {@code subject} is invalid against the schema
+   */
+  public static void validate(final Schema schema, final Object subject,
+      final ValidationContext context) {
+    SchemaEventListener current = listener;
+    if (current == null) {
+      schema.validate(subject, context);
+      return;
+    }
+    Object handle = current.started(SchemaEventType.VALIDATION);
+    long start = System.nanoTime();
+    try {
+      schema.validate(subject, context);
+    } catch (RuntimeException | Error e) {
+      current.completed(handle, SchemaEventType.VALIDATION, schema.getId(), subject,
+          System.nanoTime() - start, e);
+      throw e;
+    }
+    current.completed(handle, SchemaEventType.VALIDATION, schema.getId(), subject,
+        System.nanoTime() - start, null);
+  }
+
+  private SchemaEvents() {
+  }
+
+}
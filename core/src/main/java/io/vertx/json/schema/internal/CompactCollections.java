@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-only copies of collections, sized for the few entries of a typical schema node: empty
+ * collections are shared, single elements use the singleton collections and small maps are stored
+ * in two arrays instead of a hash table. The copies keep the iteration order of the originals.
+ */
+public final class CompactCollections {
+
+  /**
+   * A read-only map of at most {@link #ARRAY_MAP_MAX_SIZE} entries, looked up by linear search.
+   */
+  private static final class ArrayMap<K, V> extends AbstractMap<K, V> {
+
+    private final Object[] keys;
+
+    private final Object[] values;
+
+    ArrayMap(final Map<? extends K, ? extends V> original) {
+      keys = new Object[original.size()];
+      values = new Object[keys.length];
+      int i = 0;
+      for (Map.Entry<? extends K, ? extends V> entry : original.entrySet()) {
+        keys[i] = entry.getKey();
+        values[i++] = entry.getValue();
+      }
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return new AbstractSet<Map.Entry<K, V>>() {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          return new Iterator<Map.Entry<K, V>>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+              return next < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map.Entry<K, V> next() {
+              if (next == keys.length) {
+                throw new NoSuchElementException();
+              }
+              int i = next++;
+              return new AbstractMap.SimpleImmutableEntry<>((K) keys[i], (V) values[i]);
+            }
+
+          };
+        }
+
+        @Override
+        public int size() {
+          return keys.length;
+        }
+
+      };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+      for (int i = 0; i < keys.length; ++i) {
+        action.accept((K) keys[i], (V) values[i]);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+      int i = indexOf(key);
+      return i < 0 ? null : (V) values[i];
+    }
+
+    private int indexOf(final Object key) {
+      for (int i = 0; i < keys.length; ++i) {
+        if (Objects.equals(keys[i], key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+  }
+
+  /**
+   * The maximum size of the maps stored in arrays. Larger maps are looked up in hash tables.
+   */
+  public static final int ARRAY_MAP_MAX_SIZE = 8;
+
+  /**
+   * Returns a read-only copy of {@code original}.
+   *
+   * @param original
+   *          the list to copy
+   * @return the shared empty list, a singleton list or an exactly sized list
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> List<E> copyOf(final List<? extends E> original) {
+    switch (original.size()) {
+      case 0:
+        return Collections.emptyList();
+      case 1:
+        return Collections.singletonList(original.get(0));
+      default:
+        return Collections.unmodifiableList(Arrays.asList((E[]) original.toArray()));
+    }
+  }
+
+  /**
+   * Returns a read-only copy of {@code original}.
+   *
+   * @param original
+   *          the map to copy
+   * @param largeMapCopier
+   *          creates the read-only copies of the maps having more than
+   *          {@link #ARRAY_MAP_MAX_SIZE} entries
+   * @return the shared empty map, a singleton map, an array-based map or the large map copy
+   */
+  public static <K, V> Map<K, V> copyOf(final Map<K, V> original,
+      final UnaryOperator<Map<K, V>> largeMapCopier) {
+    int size = original.size();
+    if (size == 0) {
+      return Collections.emptyMap();
+    } else if (size == 1) {
+      Map.Entry<K, V> entry = original.entrySet().iterator().next();
+      return Collections.singletonMap(entry.getKey(), entry.getValue());
+    } else if (size <= ARRAY_MAP_MAX_SIZE) {
+      return new ArrayMap<>(original);
+    }
+    return largeMapCopier.apply(original);
+  }
+
+  private CompactCollections() {
+  }
+
+}
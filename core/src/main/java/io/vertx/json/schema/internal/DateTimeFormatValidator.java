@@ -36,6 +36,11 @@ public class DateTimeFormatValidator implements FormatValidator {
     return rval;
   }
 
+  @Override
+  public String formatName() {
+    return "date-time";
+  }
+
   @Override
   public Optional<String> validate(final String subject) {
     try {
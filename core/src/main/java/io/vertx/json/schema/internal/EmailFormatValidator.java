@@ -25,6 +25,11 @@ import io.vertx.json.schema.FormatValidator;
  */
 public class EmailFormatValidator implements FormatValidator {
 
+  @Override
+  public String formatName() {
+    return "email";
+  }
+
   @Override
   public Optional<String> validate(final String subject) {
     if (EmailValidator.getInstance(false, true).isValid(subject)) {
@@ -26,6 +26,11 @@ import com.google.common.net.InternetDomainName;
  */
 public class HostnameFormatValidator implements FormatValidator {
 
+  @Override
+  public String formatName() {
+    return "hostname";
+  }
+
   @Override
   public Optional<String> validate(final String subject) {
     try {
@@ -26,6 +26,11 @@ public class IPV4Validator extends IPAddressValidator implements FormatValidator
 
   private static final int IPV4_LENGTH = 4;
 
+  @Override
+  public String formatName() {
+    return "ipv4";
+  }
+
   @Override
   public Optional<String> validate(final String subject) {
     return checkIpAddress(subject, IPV4_LENGTH, "[%s] is not a valid ipv4 address");
@@ -26,6 +26,11 @@ public class IPV6Validator extends IPAddressValidator implements FormatValidator
 
   private static final int IPV6_LENGTH = 16;
 
+  @Override
+  public String formatName() {
+    return "ipv6";
+  }
+
   @Override
   public Optional<String> validate(final String subject) {
     return checkIpAddress(subject, IPV6_LENGTH, "[%s] is not a valid ipv6 address");
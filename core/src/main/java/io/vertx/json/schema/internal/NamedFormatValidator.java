@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.internal;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import io.vertx.json.schema.FormatValidator;
+
+/**
+ * A format validator registered under a name which it does not return from
+ * {@link #formatName()}, typically a lambda passed to
+ * {@link io.vertx.json.schema.loader.SchemaLoader.SchemaLoaderBuilder#addFormatValidator(String,
+ * FormatValidator)}. It keeps the name of the {@code format} keyword, so that the schema can be
+ * written back to JSON.
+ */
+public class NamedFormatValidator implements FormatValidator {
+
+  private final String formatName;
+
+  private final FormatValidator delegate;
+
+  /**
+   * Constructor.
+   *
+   * @param formatName
+   *          the value of the {@code format} keyword
+   * @param delegate
+   *          the validator performing the validation
+   */
+  public NamedFormatValidator(final String formatName, final FormatValidator delegate) {
+    this.formatName = Objects.requireNonNull(formatName, "formatName cannot be null");
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+  }
+
+  /**
+   * The validators are equal if they have the same name and delegate, so that the equal string
+   * schemas using them are still equal.
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    if (!(obj instanceof NamedFormatValidator)) {
+      return false;
+    }
+    NamedFormatValidator other = (NamedFormatValidator) obj;
+    return formatName.equals(other.formatName) && delegate.equals(other.delegate);
+  }
+
+  @Override
+  public String formatName() {
+    return formatName;
+  }
+
+  public FormatValidator getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(formatName, delegate);
+  }
+
+  @Override
+  public Optional<String> validate(final String subject) {
+    return delegate.validate(subject);
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.internal;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Estimates the heap occupied by object graphs, assuming the layout of a 64-bit HotSpot JVM with
+ * compressed references: 12-byte object headers, 16-byte array headers, 4-byte references and
+ * 8-byte alignment.
+ *
+ * <p>
+ * The fields are read by reflection. The reference fields of classes which are not accessible (for
+ * example JDK internals on Java 9 or later) are not followed, so the estimate of such objects is
+ * their shallow size.
+ * </p>
+ */
+public final class ObjectSizeEstimator {
+
+  /**
+   * The shallow size and the reference fields of a class.
+   */
+  private static class ClassLayout {
+
+    private final long shallowSize;
+
+    private final List<Field> referenceFields;
+
+    ClassLayout(final long shallowSize, final List<Field> referenceFields) {
+      this.shallowSize = shallowSize;
+      this.referenceFields = referenceFields;
+    }
+
+  }
+
+  private static final int OBJECT_HEADER = 12;
+
+  private static final int ARRAY_HEADER = 16;
+
+  private static final int REFERENCE = 4;
+
+  private static final Map<Class<?>, ClassLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+  private static long align(final long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private static ClassLayout layout(final Class<?> type) {
+    return LAYOUTS.computeIfAbsent(type, ObjectSizeEstimator::computeLayout);
+  }
+
+  private static ClassLayout computeLayout(final Class<?> type) {
+    long size = OBJECT_HEADER;
+    List<Field> referenceFields = new ArrayList<>();
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      List<Field> declaredReferences = new ArrayList<>();
+      boolean accessible = true;
+      for (Field field : current.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        size += primitiveSize(field.getType());
+        if (!field.getType().isPrimitive()) {
+          declaredReferences.add(field);
+        }
+      }
+      try {
+        for (Field field : declaredReferences) {
+          field.setAccessible(true);
+        }
+      } catch (RuntimeException e) {
+        accessible = false;
+      }
+      if (accessible) {
+        referenceFields.addAll(declaredReferences);
+      }
+    }
+    return new ClassLayout(align(size), Collections.unmodifiableList(referenceFields));
+  }
+
+  private static int primitiveSize(final Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else if (type == byte.class || type == boolean.class) {
+      return 1;
+    }
+    return REFERENCE;
+  }
+
+  /**
+   * Returns the estimated size of {@code root} and of the objects reachable from it, not counting
+   * the objects matched by {@code boundary} and the objects reachable only through them. The root
+   * itself is always counted.
+   *
+   * @param root
+   *          the root of the object graph
+   * @param boundary
+   *          matches the objects which are not owned by the graph, like shared instances
+   * @return the estimated size in bytes
+   */
+  public static long retainedSize(final Object root, final Predicate<Object> boundary) {
+    return retainedSize(root, boundary, Collections.newSetFromMap(new IdentityHashMap<>()));
+  }
+
+  /**
+   * Returns the estimated size of {@code root} and of the objects reachable from it, not counting
+   * the objects matched by {@code boundary} and the objects which are already in {@code visited}.
+   * Measuring several graphs with the same {@code visited} set counts their shared objects once.
+   *
+   * @param root
+   *          the root of the object graph
+   * @param boundary
+   *          matches the objects which are not owned by the graph, like shared instances
+   * @param visited
+   *          the identity set of the objects counted so far, updated by this call
+   * @return the estimated size in bytes, or 0 if {@code root} is already visited
+   */
+  public static long retainedSize(final Object root, final Predicate<Object> boundary,
+      final Set<Object> visited) {
+    if (!visited.add(root)) {
+      return 0;
+    }
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.push(root);
+    long size = 0;
+    while (!pending.isEmpty()) {
+      Object current = pending.pop();
+      Class<?> type = current.getClass();
+      if (type.isArray()) {
+        Class<?> componentType = type.getComponentType();
+        int length = Array.getLength(current);
+        size += align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+        if (!componentType.isPrimitive()) {
+          for (Object element : (Object[]) current) {
+            visit(element, boundary, visited, pending);
+          }
+        }
+        continue;
+      }
+      ClassLayout layout = layout(type);
+      size += layout.shallowSize;
+      for (Field field : layout.referenceFields) {
+        try {
+          visit(field.get(current), boundary, visited, pending);
+        } catch (IllegalAccessException e) {
+          // not followed
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the estimated size of {@code object} itself, without the objects it refers to.
+   *
+   * @param object
+   *          the object
+   * @return the estimated size in bytes
+   */
+  public static long shallowSize(final Object object) {
+    Class<?> type = object.getClass();
+    if (type.isArray()) {
+      return align(ARRAY_HEADER
+          + (long) Array.getLength(object) * primitiveSize(type.getComponentType()));
+    }
+    return layout(type).shallowSize;
+  }
+
+  private static void visit(final Object object, final Predicate<Object> boundary,
+      final Set<Object> visited, final Deque<Object> pending) {
+    if (object == null || object instanceof Class || boundary.test(object)) {
+      return;
+    }
+    if (visited.add(object)) {
+      pending.push(object);
+    }
+  }
+
+  private ObjectSizeEstimator() {
+  }
+
+}
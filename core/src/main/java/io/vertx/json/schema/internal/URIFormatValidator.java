@@ -26,6 +26,11 @@ import io.vertx.json.schema.FormatValidator;
  */
 public class URIFormatValidator implements FormatValidator {
 
+  @Override
+  public String formatName() {
+    return "uri";
+  }
+
   @Override
   public Optional<String> validate(final String subject) {
     try {
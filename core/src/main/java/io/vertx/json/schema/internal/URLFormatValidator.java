@@ -26,6 +26,11 @@ import io.vertx.json.schema.FormatValidator;
  */
 public class URLFormatValidator implements FormatValidator {
 
+  @Override
+  public String formatName() {
+    return "url";
+  }
+
   @Override
   public Optional<String> validate(final String subject) {
     try {
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Non-blocking variant of {@link SchemaClient}, used by
+ * {@link SchemaLoader#loadAsync(io.vertx.core.json.JsonObject, AsyncSchemaClient)}.
+ */
+@FunctionalInterface
+public interface AsyncSchemaClient {
+
+  /**
+   * Fetches the remote content (response body) of the URL without blocking the calling thread. In
+   * the case of a HTTP URL, implementations are expected send HTTP GET requests and the response is
+   * expected to be represented in UTF-8 character set.
+   *
+   * @param url
+   *          the URL of the remote resource, without fragment
+   * @return the future completed with the response body, or failed if the resource cannot be
+   *         fetched
+   */
+  Future<Buffer> get(String url);
+
+}
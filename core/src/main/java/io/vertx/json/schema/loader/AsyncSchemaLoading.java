@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.loader.internal.ReferenceScanner;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single {@link SchemaLoader#loadAsync(JsonObject, AsyncSchemaClient)} operation.
+ *
+ * <p>
+ * The remote documents are fetched with an {@link AsyncSchemaClient} before the synchronous loader
+ * runs, so the loader only reads documents which are already in memory. The URLs are collected by
+ * a {@link ReferenceScanner} from the root schema and from each fetched document, and they are
+ * fetched concurrently. If the loader still needs a document which was not prefetched, then the
+ * loading is aborted, the document is fetched and the loading is restarted.
+ * </p>
+ */
+class AsyncSchemaLoading {
+
+  /**
+   * Thrown by the prefetched {@link SchemaClient} if the loader needs a document which is not
+   * fetched yet.
+   */
+  private static class MissingDocumentException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String url;
+
+    MissingDocumentException(final String url) {
+      super("document is not fetched yet: " + url, null, false, false);
+      this.url = url;
+    }
+
+  }
+
+  private static String missingUrl(final Throwable failure) {
+    for (Throwable t = failure; t != null; t = t.getCause()) {
+      if (t instanceof MissingDocumentException) {
+        return ((MissingDocumentException) t).url;
+      }
+    }
+    return null;
+  }
+
+  private final JsonObject schemaJson;
+
+  private final AsyncSchemaClient client;
+
+  private final Future<Schema> result = Future.future();
+
+  private final Map<String, byte[]> documents = new HashMap<>();
+
+  private final Map<String, Throwable> fetchFailures = new HashMap<>();
+
+  private final Set<String> requested = new HashSet<>();
+
+  private int pending;
+
+  AsyncSchemaLoading(final JsonObject schemaJson, final AsyncSchemaClient client) {
+    this.schemaJson = schemaJson;
+    this.client = client;
+  }
+
+  private void fetchAll(final Set<String> urls) {
+    // counts the iteration itself, so that synchronously completed fetches don't trigger loading
+    ++pending;
+    for (String url : urls) {
+      if (requested.add(url)) {
+        ++pending;
+        client.get(url).setHandler(response -> onFetched(url, response));
+      }
+    }
+    onFetchFinished();
+  }
+
+  private synchronized void onFetched(final String url, final AsyncResult<Buffer> response) {
+    if (response.succeeded()) {
+      byte[] document = response.result().getBytes();
+      documents.put(url, document);
+      try {
+        fetchAll(ReferenceScanner.scan(
+            new JsonObject(new String(document, StandardCharsets.UTF_8)), new URI(url)));
+      } catch (Exception e) {
+        // the loader reports the malformed document if it is actually used
+      }
+    } else {
+      fetchFailures.put(url, response.cause());
+    }
+    onFetchFinished();
+  }
+
+  private void onFetchFinished() {
+    if (--pending == 0) {
+      tryLoad();
+    }
+  }
+
+  private InputStream openDocument(final String url) {
+    byte[] document = documents.get(url);
+    if (document == null) {
+      throw new MissingDocumentException(url);
+    }
+    return new ByteArrayInputStream(document);
+  }
+
+  synchronized Future<Schema> start() {
+    fetchAll(ReferenceScanner.scan(schemaJson, null));
+    return result;
+  }
+
+  private void tryLoad() {
+    if (result.isComplete()) {
+      return;
+    }
+    Schema schema;
+    try {
+      schema = SchemaLoader.load(schemaJson, this::openDocument);
+    } catch (RuntimeException e) {
+      String missingUrl = missingUrl(e);
+      if (missingUrl == null) {
+        result.fail(e);
+      } else if (fetchFailures.containsKey(missingUrl)) {
+        result.fail(new SchemaException("failed to fetch " + missingUrl,
+            fetchFailures.get(missingUrl)));
+      } else {
+        fetchAll(Collections.singleton(missingUrl));
+      }
+      return;
+    }
+    result.complete(schema);
+  }
+
+}
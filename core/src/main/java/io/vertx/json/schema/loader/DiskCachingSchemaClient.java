@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.json.schema.loader.internal.DefaultSchemaClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link SchemaClient} storing the fetched HTTP documents in a local directory, so that they
+ * survive restarts.
+ *
+ * <p>
+ * Each document is stored with its {@code ETag} and {@code Last-Modified} response headers. A
+ * cached document is served without any request while it is fresh: for the {@code max-age} of its
+ * {@code Cache-Control} header, or for {@link Builder#maxAge(long, TimeUnit)} if the response had
+ * no {@code max-age}. A stale document is revalidated with a conditional GET, and it is served
+ * again if the server responds with {@code 304 Not Modified}. If the revalidation fails, then the
+ * stale document is served, so that loading does not depend on the availability of the schema
+ * host once the document is cached.
+ * </p>
+ *
+ * <p>
+ * URLs other than {@code http} and {@code https} are passed to a {@link DefaultSchemaClient}
+ * without caching. Instances are thread-safe, and several processes may share the cache directory.
+ * </p>
+ */
+public class DiskCachingSchemaClient implements SchemaClient {
+
+  /**
+   * Builder class for {@link DiskCachingSchemaClient}.
+   */
+  public static class Builder {
+
+    private Path cacheDirectory;
+
+    private long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+
+    private int timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+    public DiskCachingSchemaClient build() {
+      return new DiskCachingSchemaClient(this);
+    }
+
+    /**
+     * Sets the directory of the cached documents. It is created if it does not exist.
+     *
+     * @param cacheDirectory
+     *          the cache directory
+     * @return {@code this}
+     */
+    public Builder cacheDirectory(final Path cacheDirectory) {
+      this.cacheDirectory = cacheDirectory;
+      return this;
+    }
+
+    /**
+     * Sets how long a cached document is fresh if its response had no {@code Cache-Control:
+     * max-age} header. Defaults to 10 minutes.
+     *
+     * @param maxAge
+     *          the freshness lifetime
+     * @param unit
+     *          the unit of {@code maxAge}
+     * @return {@code this}
+     */
+    public Builder maxAge(final long maxAge, final TimeUnit unit) {
+      this.maxAgeMillis = unit.toMillis(maxAge);
+      return this;
+    }
+
+    /**
+     * Sets the connect and read timeout of the HTTP requests. Defaults to 30 seconds.
+     *
+     * @param timeout
+     *          the timeout
+     * @param unit
+     *          the unit of {@code timeout}
+     * @return {@code this}
+     */
+    public Builder timeout(final long timeout, final TimeUnit unit) {
+      this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+      return this;
+    }
+
+  }
+
+  /**
+   * The metadata of a cached document.
+   */
+  private static class Entry {
+
+    private String etag;
+
+    private String lastModified;
+
+    private long expiresAt;
+
+  }
+
+  private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final int DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+  private static final Pattern MAX_AGE = Pattern.compile("max-age\\s*=\\s*(\\d+)");
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static byte[] readFully(final InputStream input) throws IOException {
+    ByteArrayOutputStream rval = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      rval.write(buffer, 0, read);
+    }
+    return rval.toByteArray();
+  }
+
+  private final Path cacheDirectory;
+
+  private final long maxAgeMillis;
+
+  private final int timeoutMillis;
+
+  private final SchemaClient fallbackClient = new DefaultSchemaClient();
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the cache directory and the configuration of the client
+   */
+  public DiskCachingSchemaClient(final Builder builder) {
+    this.cacheDirectory = Objects.requireNonNull(builder.cacheDirectory,
+        "cacheDirectory cannot be null");
+    this.maxAgeMillis = builder.maxAgeMillis;
+    this.timeoutMillis = builder.timeoutMillis;
+  }
+
+  private String cacheKey(final String url) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(url.getBytes(StandardCharsets.UTF_8));
+      StringBuilder rval = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        rval.append(String.format("%02x", b));
+      }
+      return rval.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private long expiresAt(final HttpURLConnection connection, final long now) {
+    String cacheControl = connection.getHeaderField("Cache-Control");
+    if (cacheControl != null) {
+      if (cacheControl.contains("no-cache") || cacheControl.contains("no-store")) {
+        return now;
+      }
+      Matcher matcher = MAX_AGE.matcher(cacheControl);
+      if (matcher.find()) {
+        return now + TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+      }
+    }
+    return now + maxAgeMillis;
+  }
+
+  private InputStream fetch(final String url, final Path bodyFile, final Path metaFile,
+      final Entry cached) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    try {
+      connection.setConnectTimeout(timeoutMillis);
+      connection.setReadTimeout(timeoutMillis);
+      if (cached != null) {
+        if (cached.etag != null) {
+          connection.setRequestProperty("If-None-Match", cached.etag);
+        }
+        if (cached.lastModified != null) {
+          connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+        }
+      }
+      int status = connection.getResponseCode();
+      long now = System.currentTimeMillis();
+      if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+        cached.expiresAt = expiresAt(connection, now);
+        writeEntry(metaFile, url, cached);
+        return Files.newInputStream(bodyFile);
+      } else if (status != HttpURLConnection.HTTP_OK) {
+        throw new IOException(String.format("failed to fetch %s: HTTP %d", url, status));
+      }
+      byte[] body;
+      try (InputStream input = connection.getInputStream()) {
+        body = readFully(input);
+      }
+      Entry entry = new Entry();
+      entry.etag = connection.getHeaderField("ETag");
+      entry.lastModified = connection.getHeaderField("Last-Modified");
+      entry.expiresAt = expiresAt(connection, now);
+      writeAtomically(bodyFile, body);
+      writeEntry(metaFile, url, entry);
+      return new ByteArrayInputStream(body);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Override
+  public InputStream get(final String url) {
+    if (!url.startsWith("http://") && !url.startsWith("https://")) {
+      return fallbackClient.get(url);
+    }
+    try {
+      Files.createDirectories(cacheDirectory);
+      String key = cacheKey(url);
+      Path bodyFile = cacheDirectory.resolve(key + ".json");
+      Path metaFile = cacheDirectory.resolve(key + ".properties");
+      Entry cached = Files.exists(bodyFile) ? readEntry(metaFile, url) : null;
+      if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+        return Files.newInputStream(bodyFile);
+      }
+      try {
+        return fetch(url, bodyFile, metaFile, cached);
+      } catch (IOException e) {
+        if (cached != null) {
+          // the stale document is better than failing to load the schema
+          return Files.newInputStream(bodyFile);
+        }
+        throw e;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Entry readEntry(final Path metaFile, final String url) {
+    Properties properties = new Properties();
+    try (InputStream input = Files.newInputStream(metaFile)) {
+      properties.load(input);
+    } catch (IOException e) {
+      return null;
+    }
+    if (!url.equals(properties.getProperty("url"))) {
+      return null;
+    }
+    Entry rval = new Entry();
+    rval.etag = properties.getProperty("etag");
+    rval.lastModified = properties.getProperty("lastModified");
+    try {
+      rval.expiresAt = Long.parseLong(properties.getProperty("expiresAt", "0"));
+    } catch (NumberFormatException e) {
+      rval.expiresAt = 0;
+    }
+    return rval;
+  }
+
+  private void writeAtomically(final Path file, final byte[] content) throws IOException {
+    Path tempFile = Files.createTempFile(cacheDirectory, file.getFileName().toString(), ".tmp");
+    try {
+      Files.write(tempFile, content);
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private void writeEntry(final Path metaFile, final String url, final Entry entry)
+      throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("url", url);
+    if (entry.etag != null) {
+      properties.setProperty("etag", entry.etag);
+    }
+    if (entry.lastModified != null) {
+      properties.setProperty("lastModified", entry.lastModified);
+    }
+    properties.setProperty("expiresAt", Long.toString(entry.expiresAt));
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    try (OutputStream output = content) {
+      properties.store(output, null);
+    }
+    writeAtomically(metaFile, content.toByteArray());
+  }
+
+}
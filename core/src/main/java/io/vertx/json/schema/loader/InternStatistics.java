@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+/**
+ * The number of duplicate subschemas replaced by a {@link SchemaInterner}, and the estimated heap
+ * they would occupy.
+ */
+public class InternStatistics {
+
+  /**
+   * No duplicates.
+   */
+  public static final InternStatistics EMPTY = new InternStatistics(0, 0);
+
+  private final long duplicateCount;
+
+  private final long savedBytes;
+
+  /**
+   * Constructor.
+   *
+   * @param duplicateCount
+   *          the number of replaced subschemas
+   * @param savedBytes
+   *          the estimated size of the replaced subschemas
+   */
+  public InternStatistics(final long duplicateCount, final long savedBytes) {
+    this.duplicateCount = duplicateCount;
+    this.savedBytes = savedBytes;
+  }
+
+  public long getDuplicateCount() {
+    return duplicateCount;
+  }
+
+  /**
+   * Returns the estimated heap occupied by the replaced subschemas, not counting their own
+   * subschemas, which are interned separately.
+   *
+   * @return the estimated size in bytes
+   */
+  public long getSavedBytes() {
+    return savedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("duplicates: %d, saved: %d bytes", duplicateCount, savedBytes);
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaJsonWriter;
+
+/**
+ * Controls which loaded schemas keep their raw JSON representation, returned by
+ * {@link Schema#getJsonSchema()}.
+ *
+ * <p>
+ * The raw JSON keeps the whole parsed document reachable, which often takes more heap than the
+ * schema itself. Without it, {@link Schema#toJson()} regenerates an equivalent representation with
+ * {@link SchemaJsonWriter} on demand.
+ * </p>
+ */
+public enum RawJsonRetention {
+
+  /**
+   * No schema keeps its raw JSON.
+   */
+  NONE,
+
+  /**
+   * Only the root schema keeps its raw JSON, that is the whole loaded document.
+   */
+  ROOT,
+
+  /**
+   * Every schema keeps the JSON object it was loaded from. The subschemas keeping their raw JSON
+   * are not interned by a {@link SchemaInterner}.
+   */
+  ALL
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.loader.internal.DefaultSchemaClient;
+import io.vertx.json.schema.loader.internal.JSONPointer;
+import io.vertx.json.schema.loader.internal.ReferenceScanner;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches the remote documents referenced by a schema concurrently, before the schema is loaded.
+ *
+ * <p>
+ * Without prefetching, {@link SchemaLoader} discovers and fetches the remote documents one at a
+ * time while it walks the schema, so the loading time is the sum of the round-trips. The
+ * prefetcher scans the schema JSON for {@code $ref} values resolved against their {@code id}
+ * scopes, fetches the distinct documents with at most {@link Builder#parallelism(int)} concurrent
+ * requests, and scans each fetched document transitively. The documents are put in a
+ * {@link SchemaDocumentCache}, from which the loader builds the schema without further requests.
+ * </p>
+ *
+ * <p>
+ * Failed fetches are not reported by the prefetcher: the loader requests the document again if it
+ * actually needs it, and reports the failure then.
+ * </p>
+ */
+public class ReferencePrefetcher {
+
+  /**
+   * Builder class for {@link ReferencePrefetcher}.
+   */
+  public static class Builder {
+
+    private SchemaClient httpClient = new DefaultSchemaClient();
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private ExecutorService executor;
+
+    private SchemaDocumentCache documentCache;
+
+    public ReferencePrefetcher build() {
+      return new ReferencePrefetcher(this);
+    }
+
+    /**
+     * Sets the cache receiving the prefetched documents. Documents which are already cached are
+     * not fetched again. If it is not set, then each prefetch uses a new unbounded cache.
+     *
+     * @param documentCache
+     *          the document cache
+     * @return {@code this}
+     */
+    public Builder documentCache(final SchemaDocumentCache documentCache) {
+      this.documentCache = documentCache;
+      return this;
+    }
+
+    /**
+     * Sets the executor running the fetches. The number of concurrent fetches is limited by
+     * {@link #parallelism(int)} regardless of the executor, so on Java 21 or later a virtual
+     * thread per task executor can be used. If it is not set, then a fixed thread pool is created
+     * (and shut down) for each prefetch.
+     *
+     * @param executor
+     *          the executor. It is not shut down by the prefetcher
+     * @return {@code this}
+     */
+    public Builder executor(final ExecutorService executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    public Builder httpClient(final SchemaClient httpClient) {
+      this.httpClient = httpClient;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of concurrent fetches. Defaults to 8.
+     *
+     * @param parallelism
+     *          the maximum number of concurrent fetches
+     * @return {@code this}
+     */
+    public Builder parallelism(final int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+  }
+
+  /**
+   * A fetched document and its URL.
+   */
+  private static class FetchedDocument {
+
+    private final String url;
+
+    private final JsonObject document;
+
+    FetchedDocument(final String url, final JsonObject document) {
+      this.url = url;
+      this.document = document;
+    }
+
+  }
+
+  private static final int DEFAULT_PARALLELISM = 8;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final SchemaClient httpClient;
+
+  private final int parallelism;
+
+  private final ExecutorService executor;
+
+  private final SchemaDocumentCache documentCache;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the client and the configuration of the prefetcher
+   */
+  public ReferencePrefetcher(final Builder builder) {
+    this.httpClient = Objects.requireNonNull(builder.httpClient, "httpClient cannot be null");
+    if (builder.parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    this.parallelism = builder.parallelism;
+    this.executor = builder.executor;
+    this.documentCache = builder.documentCache;
+  }
+
+  private void enqueue(final Collection<String> urls, final SchemaDocumentCache cache,
+      final Set<String> seen, final Deque<String> queue) {
+    for (String url : urls) {
+      if (seen.add(url) && !cache.getIfPresent(url).isPresent()) {
+        queue.add(url);
+      }
+    }
+  }
+
+  /**
+   * Prefetches the remote documents referenced by {@code schemaJson}, then loads the schema.
+   *
+   * @param schemaJson
+   *          the JSON representation of the schema.
+   * @return the schema validator object
+   */
+  public Schema load(final JsonObject schemaJson) {
+    return SchemaLoader.builder()
+        .schemaJson(schemaJson)
+        .httpClient(httpClient)
+        .documentCache(prefetch(schemaJson))
+        .rawJsonRetention(RawJsonRetention.ROOT)
+        .build()
+        .load().build();
+  }
+
+  /**
+   * Fetches the remote documents referenced by {@code schemaJson}, directly or transitively.
+   *
+   * @param schemaJson
+   *          the JSON representation of the schema.
+   * @return the cache containing the fetched documents, to be passed to
+   *         {@link SchemaLoader.SchemaLoaderBuilder#documentCache(SchemaDocumentCache)}
+   */
+  public SchemaDocumentCache prefetch(final JsonObject schemaJson) {
+    SchemaDocumentCache cache = documentCache == null ? new SchemaDocumentCache() : documentCache;
+    Set<String> seen = new HashSet<>();
+    Deque<String> queue = new ArrayDeque<>();
+    enqueue(ReferenceScanner.scan(schemaJson, null), cache, seen, queue);
+    if (queue.isEmpty()) {
+      return cache;
+    }
+    ExecutorService usedExecutor = executor == null ? Executors.newFixedThreadPool(parallelism)
+        : executor;
+    try {
+      CompletionService<FetchedDocument> completionService =
+          new ExecutorCompletionService<>(usedExecutor);
+      int inFlight = 0;
+      while (!queue.isEmpty() || inFlight > 0) {
+        while (inFlight < parallelism && !queue.isEmpty()) {
+          String url = queue.poll();
+          completionService.submit(() -> new FetchedDocument(url,
+              JSONPointer.executeWith(httpClient, url)));
+          ++inFlight;
+        }
+        Future<FetchedDocument> completed = completionService.take();
+        --inFlight;
+        FetchedDocument fetched;
+        try {
+          fetched = completed.get();
+        } catch (ExecutionException e) {
+          continue;
+        }
+        cache.put(fetched.url, fetched.document);
+        try {
+          enqueue(ReferenceScanner.scan(fetched.document, new URI(fetched.url)), cache, seen,
+              queue);
+        } catch (URISyntaxException e) {
+          // the loader reports the malformed URL if it is actually used
+        }
+      }
+      return cache;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while prefetching remote documents", e);
+    } finally {
+      if (executor == null) {
+        usedExecutor.shutdownNow();
+      }
+    }
+  }
+
+}
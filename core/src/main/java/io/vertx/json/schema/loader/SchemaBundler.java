@@ -0,0 +1,499 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.loader.internal.CompiledJSONPointer;
+import io.vertx.json.schema.loader.internal.DefaultSchemaClient;
+import io.vertx.json.schema.loader.internal.JSONPointer;
+import io.vertx.json.schema.loader.internal.ReferenceResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Creates self-contained schema documents by inlining the remote documents referenced by a schema.
+ *
+ * <p>
+ * Each remote document is fetched once with the configured {@link SchemaClient}, and it is copied
+ * under the {@code definitions} of the bundle with a generated key. Every {@code $ref} of the
+ * subschemas of the bundle is rewritten to a pointer within the bundle, and their {@code id}
+ * keywords are removed, since they would change the resolution scope of the rewritten pointers.
+ * The references to subschemas identified by an {@code id} are resolved locally, like
+ * {@link SchemaLoader} does, and the values of the data keywords like {@code enum} and
+ * {@code default} are copied unchanged. The bundle can be loaded by {@link SchemaLoader} without
+ * any network access.
+ * </p>
+ *
+ * <p>
+ * Only fragments which are JSON pointers are supported. The {@link #verify(JsonObject, JsonObject,
+ * Iterable)} method checks that a bundle validates sample documents identically to the original
+ * schema.
+ * </p>
+ *
+ * <p>
+ * Command-line usage: {@code SchemaBundler <input schema file> <output bundle file>}.
+ * </p>
+ */
+public class SchemaBundler {
+
+  /**
+   * Builder class for {@link SchemaBundler}.
+   */
+  public static class Builder {
+
+    private SchemaClient httpClient = new DefaultSchemaClient();
+
+    private SchemaDocumentCache documentCache;
+
+    public SchemaBundler build() {
+      return new SchemaBundler(this);
+    }
+
+    /**
+     * Sets the cache of the remote documents. If it is not set, then each bundling uses a new
+     * cache.
+     *
+     * @param documentCache
+     *          the document cache
+     * @return {@code this}
+     */
+    public Builder documentCache(final SchemaDocumentCache documentCache) {
+      this.documentCache = documentCache;
+      return this;
+    }
+
+    public Builder httpClient(final SchemaClient httpClient) {
+      this.httpClient = httpClient;
+      return this;
+    }
+
+  }
+
+  /**
+   * A document of the bundle: the root schema, or an embedded remote document.
+   */
+  private static class BundledDocument {
+
+    private final JsonObject document;
+
+    private final URI scope;
+
+    private final String pointerPrefix;
+
+    /**
+     * The pointers within the bundle of the subschemas of the document having an {@code id}, keyed
+     * by their resolved {@code id}.
+     */
+    private final Map<String, String> identifiedPointers = new HashMap<>();
+
+    private final Map<String, JsonObject> identifiedSchemas = new HashMap<>();
+
+    BundledDocument(final JsonObject document, final URI scope, final String pointerPrefix) {
+      this.document = document;
+      this.scope = scope;
+      this.pointerPrefix = pointerPrefix;
+      indexIds(document, scope, pointerPrefix);
+    }
+
+    private void indexIds(final JsonObject schema, final URI scope, final String pointer) {
+      URI schemaScope = scope;
+      Object id = schema.getValue("id");
+      if (id instanceof String) {
+        schemaScope = ReferenceResolver.resolve(scope, (String) id);
+        String key = schemaScope.toString();
+        if (!identifiedPointers.containsKey(key)) {
+          identifiedPointers.put(key, pointer);
+          identifiedSchemas.put(key, schema);
+        }
+      }
+      URI subschemaScope = schemaScope;
+      forEachSubschema(schema, pointer,
+          (subschema, subschemaPointer) -> indexIds(subschema, subschemaScope, subschemaPointer));
+    }
+
+  }
+
+  /**
+   * A subschema whose references are not rewritten yet.
+   */
+  private static class PendingSchema {
+
+    private final JsonObject schema;
+
+    private final URI scope;
+
+    private final BundledDocument document;
+
+    PendingSchema(final JsonObject schema, final URI scope, final BundledDocument document) {
+      this.schema = schema;
+      this.scope = scope;
+      this.document = document;
+    }
+
+  }
+
+  /**
+   * The state of a single {@link SchemaBundler#bundle(JsonObject)} call.
+   */
+  private class Bundling {
+
+    private final SchemaDocumentCache cache = documentCache == null ? new SchemaDocumentCache()
+        : documentCache;
+
+    /**
+     * The original definitions of the root schema.
+     */
+    private final JsonObject definitions;
+
+    /**
+     * The embedded documents, kept apart from {@link #definitions} until all references are
+     * rewritten, so that they are not rewritten as parts of the root schema.
+     */
+    private final JsonObject embedded = new JsonObject();
+
+    private final Map<String, BundledDocument> documents = new HashMap<>();
+
+    private final Deque<PendingSchema> pending = new ArrayDeque<>();
+
+    /**
+     * The maps of the rewritten subschemas, each subschema is rewritten once even if it is both
+     * nested in its document and referenced by a pointer.
+     */
+    private final Set<Object> rewritten = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private int nextKeyIndex;
+
+    Bundling(final JsonObject definitions) {
+      this.definitions = definitions;
+    }
+
+    private void add(final BundledDocument document) {
+      pending.add(new PendingSchema(document.document, document.scope, document));
+    }
+
+    private BundledDocument embed(final String documentUrl) {
+      BundledDocument document = documents.get(documentUrl);
+      if (document != null) {
+        return document;
+      }
+      String key;
+      do {
+        key = BUNDLED_KEY_PREFIX + nextKeyIndex++;
+      } while (definitions.containsKey(key) || embedded.containsKey(key));
+      JsonObject json = cache.get(documentUrl,
+          url -> JSONPointer.executeWith(httpClient, url)).copy();
+      embedded.put(key, json);
+      document = new BundledDocument(json, toURI(documentUrl), "#/definitions/" + key);
+      documents.put(documentUrl, document);
+      add(document);
+      return document;
+    }
+
+    /**
+     * Rewrites the subschema pointed by {@code fragment} in {@code base}, since the pointer may
+     * lead out of the schema keywords walked by {@link #rewriteSchema}.
+     */
+    private void pointed(final JsonObject base, final String fragment, final URI scope,
+        final BundledDocument document) {
+      if (!fragmentPath(fragment).isEmpty()) {
+        pending.add(new PendingSchema(CompiledJSONPointer.compile(fragment).evaluate(base), scope,
+            document));
+      }
+    }
+
+    /**
+     * Returns the pointer within the bundle of {@code absoluteRef}, resolved like
+     * {@link SchemaLoader} does: the subschemas identified by an {@code id} of the referencing
+     * document are looked up before the remote documents.
+     */
+    private String rewrite(final String absoluteRef, final URI scope,
+        final BundledDocument document) {
+      String identified = document.identifiedPointers.get(absoluteRef);
+      if (identified != null) {
+        return identified;
+      }
+      if (absoluteRef.startsWith("#")) {
+        String rval = document.pointerPrefix + fragmentPath(absoluteRef);
+        pointed(document.document, absoluteRef, scope, document);
+        return rval;
+      }
+      int poundIdx = absoluteRef.indexOf('#');
+      String documentUrl = poundIdx == -1 ? absoluteRef : absoluteRef.substring(0, poundIdx);
+      String fragment = poundIdx == -1 ? "" : absoluteRef.substring(poundIdx);
+      String path = fragmentPath(fragment);
+      identified = document.identifiedPointers.get(documentUrl);
+      if (identified != null) {
+        pointed(document.identifiedSchemas.get(documentUrl), fragment, toURI(documentUrl),
+            document);
+        return identified + path;
+      }
+      BundledDocument embeddedDocument = embed(documentUrl);
+      pointed(embeddedDocument.document, fragment, embeddedDocument.scope, embeddedDocument);
+      return embeddedDocument.pointerPrefix + path;
+    }
+
+    private void rewriteAll() {
+      while (!pending.isEmpty()) {
+        PendingSchema schema = pending.poll();
+        rewriteSchema(schema.schema, schema.scope, schema.document);
+      }
+    }
+
+    private void rewriteSchema(final JsonObject schema, final URI scope,
+        final BundledDocument document) {
+      if (!rewritten.add(schema.getMap())) {
+        return;
+      }
+      URI schemaScope = scope;
+      Object id = schema.getValue("id");
+      if (id instanceof String) {
+        schemaScope = ReferenceResolver.resolve(scope, (String) id);
+        schema.remove("id");
+      }
+      Object ref = schema.getValue("$ref");
+      if (ref instanceof String) {
+        String absoluteRef = ReferenceResolver.resolve(schemaScope, (String) ref).toString();
+        schema.put("$ref", rewrite(absoluteRef, schemaScope, document));
+      }
+      URI subschemaScope = schemaScope;
+      forEachSubschema(schema, "",
+          (subschema, pointer) -> rewriteSchema(subschema, subschemaScope, document));
+    }
+
+  }
+
+  private static final String BUNDLED_KEY_PREFIX = "bundled-";
+
+  /**
+   * The keywords whose value is an object of subschemas.
+   */
+  private static final String[] SCHEMA_MAP_KEYWORDS = { "definitions", "properties",
+      "patternProperties", "dependencies" };
+
+  /**
+   * The keywords whose value is a subschema, or an array of subschemas.
+   */
+  private static final String[] SCHEMA_KEYWORDS = { "additionalProperties", "items",
+      "additionalItems", "not", "allOf", "anyOf", "oneOf" };
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static String escape(final String segment) {
+    return segment.replace("~", "~0").replace("/", "~1");
+  }
+
+  /**
+   * Calls {@code action} with the direct subschemas of {@code schema} and their pointers, built
+   * from the pointer of {@code schema}. The values of the other keywords, like {@code enum} and
+   * {@code default}, are instance data and are not walked.
+   */
+  private static void forEachSubschema(final JsonObject schema, final String pointer,
+      final BiConsumer<JsonObject, String> action) {
+    for (String keyword : SCHEMA_MAP_KEYWORDS) {
+      Object value = schema.getValue(keyword);
+      if (value instanceof JsonObject) {
+        JsonObject subschemas = (JsonObject) value;
+        for (String name : subschemas.fieldNames()) {
+          // the property dependencies are arrays of names
+          Object subschema = subschemas.getValue(name);
+          if (subschema instanceof JsonObject) {
+            action.accept((JsonObject) subschema, pointer + "/" + keyword + "/" + escape(name));
+          }
+        }
+      }
+    }
+    for (String keyword : SCHEMA_KEYWORDS) {
+      Object value = schema.getValue(keyword);
+      if (value instanceof JsonObject) {
+        action.accept((JsonObject) value, pointer + "/" + keyword);
+      } else if (value instanceof JsonArray) {
+        JsonArray subschemas = (JsonArray) value;
+        for (int i = 0; i < subschemas.size(); ++i) {
+          Object subschema = subschemas.getValue(i);
+          if (subschema instanceof JsonObject) {
+            action.accept((JsonObject) subschema, pointer + "/" + keyword + "/" + i);
+          }
+        }
+      }
+    }
+  }
+
+  private static String fragmentPath(final String fragment) {
+    if (fragment.isEmpty() || "#".equals(fragment)) {
+      return "";
+    } else if (fragment.startsWith("#/")) {
+      return fragment.substring(1);
+    }
+    throw new SchemaException(String.format("unsupported fragment [%s]: only JSON pointers can be"
+        + " bundled", fragment));
+  }
+
+  /**
+   * Bundles the schema of a file, using a {@link DefaultSchemaClient}.
+   *
+   * @param args
+   *          the path of the input schema file and the path of the output bundle file
+   * @throws IOException
+   *           if the files cannot be read or written
+   */
+  public static void main(final String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("usage: SchemaBundler <input schema file> <output bundle file>");
+      System.exit(1);
+    }
+    JsonObject schema = new JsonObject(new String(Files.readAllBytes(Paths.get(args[0])),
+        StandardCharsets.UTF_8));
+    JsonObject bundle = builder().build().bundle(schema);
+    Files.write(Paths.get(args[1]), bundle.encodePrettily().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void collectViolations(final ValidationException exception,
+      final List<String> violations) {
+    if (exception.getCausingExceptions().isEmpty()) {
+      violations.add(exception.getMessage());
+    } else {
+      for (ValidationException cause : exception.getCausingExceptions()) {
+        collectViolations(cause, violations);
+      }
+    }
+  }
+
+  private static String outcome(final Schema schema, final Object sample) {
+    try {
+      schema.validate(sample);
+      return "valid";
+    } catch (ValidationException e) {
+      List<String> violations = new ArrayList<>();
+      collectViolations(e, violations);
+      return violations.stream().sorted().collect(Collectors.joining(", "));
+    }
+  }
+
+  private static URI toURI(final String uri) {
+    try {
+      return new URI(uri);
+    } catch (URISyntaxException e) {
+      throw new SchemaException("invalid URI: " + uri, e);
+    }
+  }
+
+  private final SchemaClient httpClient;
+
+  private final SchemaDocumentCache documentCache;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the client and the configuration of the bundler
+   */
+  public SchemaBundler(final Builder builder) {
+    this.httpClient = Objects.requireNonNull(builder.httpClient, "httpClient cannot be null");
+    this.documentCache = builder.documentCache;
+  }
+
+  /**
+   * Creates a self-contained bundle of {@code schemaJson}. The parameter is not modified.
+   *
+   * @param schemaJson
+   *          the JSON representation of the schema
+   * @return the bundle
+   * @throws SchemaException
+   *           if a remote document cannot be bundled
+   * @throws UncheckedIOException
+   *           if a remote document cannot be fetched
+   */
+  public JsonObject bundle(final JsonObject schemaJson) {
+    JsonObject bundle = schemaJson.copy();
+    Object definitions = bundle.getValue("definitions");
+    if (definitions == null) {
+      definitions = new JsonObject();
+    } else if (!(definitions instanceof JsonObject)) {
+      throw new SchemaException("definitions", JsonObject.class, definitions);
+    }
+    Bundling bundling = new Bundling((JsonObject) definitions);
+    BundledDocument root = new BundledDocument(bundle, null, "#");
+    Object rootId = bundle.getValue("id");
+    if (rootId instanceof String) {
+      String rootUrl = (String) rootId;
+      int poundIdx = rootUrl.indexOf('#');
+      bundling.documents.put(poundIdx == -1 ? rootUrl : rootUrl.substring(0, poundIdx), root);
+    }
+    bundling.add(root);
+    bundling.rewriteAll();
+    if (!bundling.embedded.isEmpty()) {
+      ((JsonObject) definitions).mergeIn(bundling.embedded);
+      bundle.put("definitions", definitions);
+    }
+    return bundle;
+  }
+
+  /**
+   * Checks that {@code bundle} validates the samples identically to {@code schemaJson}. The
+   * original schema is loaded with the client of this bundler, while the bundle is loaded with a
+   * client which fails for any request.
+   *
+   * @param schemaJson
+   *          the JSON representation of the original schema
+   * @param bundle
+   *          the bundle created from {@code schemaJson}
+   * @param samples
+   *          the documents to be validated
+   * @return the descriptions of the samples validated differently, empty if the bundle is
+   *         equivalent to the original schema for all samples
+   */
+  public List<String> verify(final JsonObject schemaJson, final JsonObject bundle,
+      final Iterable<?> samples) {
+    Schema original = SchemaLoader.load(schemaJson, httpClient);
+    Schema bundled = SchemaLoader.load(bundle, url -> {
+      throw new SchemaException("bundle is not self-contained, it references " + url);
+    });
+    List<String> rval = new ArrayList<>();
+    for (Object sample : samples) {
+      String expected = outcome(original, sample);
+      String actual = outcome(bundled, sample);
+      if (!expected.equals(actual)) {
+        rval.add(String.format("%s: expected [%s], bundle: [%s]", sample, expected, actual));
+      }
+    }
+    return rval;
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.json.schema.Schema;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The schemas loaded by {@link SchemaCatalogLoader}, keyed by the URIs of their documents.
+ */
+public class SchemaCatalog {
+
+  /**
+   * The outcome of loading a single schema document of the catalog.
+   */
+  public static class LoadResult {
+
+    private final URI uri;
+
+    private final Schema schema;
+
+    private final RuntimeException failure;
+
+    private final long loadNanos;
+
+    private final InternStatistics internStatistics;
+
+    LoadResult(final URI uri, final Schema schema, final RuntimeException failure,
+        final long loadNanos, final InternStatistics internStatistics) {
+      this.uri = uri;
+      this.schema = schema;
+      this.failure = failure;
+      this.loadNanos = loadNanos;
+      this.internStatistics = internStatistics == null ? InternStatistics.EMPTY
+          : internStatistics;
+    }
+
+    /**
+     * Returns the exception thrown while reading, parsing or loading the document.
+     *
+     * @return the failure, or an empty optional if the schema is loaded
+     */
+    public Optional<RuntimeException> getFailure() {
+      return Optional.ofNullable(failure);
+    }
+
+    /**
+     * Returns the duplicate subschemas of the document replaced by the interner of the catalog.
+     *
+     * @return the statistics, or {@link InternStatistics#EMPTY} if no interner is set or the
+     *         document failed to load
+     */
+    public InternStatistics getInternStatistics() {
+      return internStatistics;
+    }
+
+    /**
+     * Returns the time spent reading, parsing and loading the document, including the loading of
+     * the schemas it refers to, unless they were loaded by another document of the catalog.
+     *
+     * @param unit
+     *          the unit of the returned value
+     * @return the load time
+     */
+    public long getLoadTime(final TimeUnit unit) {
+      return unit.convert(loadNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Optional<Schema> getSchema() {
+      return Optional.ofNullable(schema);
+    }
+
+    public URI getUri() {
+      return uri;
+    }
+
+    public boolean isLoaded() {
+      return failure == null;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %s in %d ms", uri, failure == null ? "loaded" : failure,
+          getLoadTime(TimeUnit.MILLISECONDS));
+    }
+
+  }
+
+  private final Map<URI, LoadResult> results;
+
+  private final long elapsedNanos;
+
+  SchemaCatalog(final Map<URI, LoadResult> results, final long elapsedNanos) {
+    this.results = Collections.unmodifiableMap(new LinkedHashMap<>(results));
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Returns the wall-clock time of loading the whole catalog.
+   *
+   * @param unit
+   *          the unit of the returned value
+   * @return the elapsed time
+   */
+  public long getElapsedTime(final TimeUnit unit) {
+    return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the results of the documents which failed to load.
+   *
+   * @return the failed results, in the order of the documents
+   */
+  public List<LoadResult> getFailures() {
+    return results.values().stream()
+        .filter(result -> !result.isLoaded())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the results of all documents of the catalog.
+   *
+   * @return the results keyed by document URI, in the order of the documents
+   */
+  public Map<URI, LoadResult> getResults() {
+    return results;
+  }
+
+  /**
+   * Returns the schema loaded from a document.
+   *
+   * @param uri
+   *          the URI of the document
+   * @return the schema, or an empty optional if the document is not in the catalog or it failed
+   *         to load
+   */
+  public Optional<Schema> getSchema(final URI uri) {
+    LoadResult result = results.get(SchemaCatalogLoader.normalize(
+        Objects.requireNonNull(uri, "uri cannot be null")));
+    return result == null ? Optional.empty() : result.getSchema();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("schemas: %d, failures: %d, elapsed time: %d ms", results.size(),
+        getFailures().size(), getElapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+}
@@ -0,0 +1,509 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.FormatValidator;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.loader.internal.DefaultSchemaClient;
+import io.vertx.json.schema.loader.internal.JSONPointer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads a catalog of schema documents in parallel on a {@link ForkJoinPool}.
+ *
+ * <p>
+ * The documents are read and parsed in parallel, then each of them is loaded by its own
+ * {@link SchemaLoader} in parallel. The loaders share the referenced schemas and a
+ * {@link SchemaDocumentCache} containing the documents of the catalog, so a {@code $ref} pointing
+ * to another document of the catalog (or to a part of it) is neither fetched nor loaded twice: a
+ * reference to a whole catalog document refers to the very {@link Schema} instance returned by
+ * {@link SchemaCatalog#getSchema(URI)}.
+ * </p>
+ *
+ * <p>
+ * The documents are identified by URIs, which are the initial resolution scopes of their
+ * {@code $ref}s. A failure to read, parse or load a document is reported in its
+ * {@link SchemaCatalog.LoadResult} and does not stop the loading of the other documents. The
+ * schemas referring to a failed document throw a {@link SchemaException} when they use it for
+ * validation.
+ * </p>
+ */
+public class SchemaCatalogLoader {
+
+  /**
+   * Builder class for {@link SchemaCatalogLoader}.
+   */
+  public static class Builder {
+
+    private SchemaClient httpClient = new DefaultSchemaClient();
+
+    private SchemaDocumentCache documentCache;
+
+    private ForkJoinPool pool;
+
+    private boolean lazyReferences;
+
+    private SchemaInterner interner;
+
+    private boolean retainAnnotations = true;
+
+    private RawJsonRetention rawJsonRetention = RawJsonRetention.ROOT;
+
+    private final Map<String, FormatValidator> formatValidators = new LinkedHashMap<>();
+
+    public Builder addFormatValidator(final String formatName,
+        final FormatValidator formatValidator) {
+      formatValidators.put(Objects.requireNonNull(formatName, "formatName cannot be null"),
+          Objects.requireNonNull(formatValidator, "formatValidator cannot be null"));
+      return this;
+    }
+
+    public SchemaCatalogLoader build() {
+      return new SchemaCatalogLoader(this);
+    }
+
+    /**
+     * Sets the cache of the documents referenced by the catalog. The documents of the catalog are
+     * put in this cache too. If it is not set, then each catalog is loaded with a new unbounded
+     * cache.
+     *
+     * @param documentCache
+     *          the document cache
+     * @return {@code this}
+     */
+    public Builder documentCache(final SchemaDocumentCache documentCache) {
+      this.documentCache = documentCache;
+      return this;
+    }
+
+    public Builder httpClient(final SchemaClient httpClient) {
+      this.httpClient = httpClient;
+      return this;
+    }
+
+    /**
+     * Sets the interner shared by the loaders of the documents, so that the structurally equal
+     * subschemas of the whole catalog share a single instance. By default the subschemas are not
+     * interned.
+     *
+     * @param interner
+     *          the interner
+     * @return {@code this}
+     */
+    public Builder interner(final SchemaInterner interner) {
+      this.interner = interner;
+      return this;
+    }
+
+    /**
+     * Sets if the schemas referred by {@code $ref} are loaded on their first use, see
+     * {@link SchemaLoader.SchemaLoaderBuilder#lazyReferences(boolean)}. Defaults to {@code false}.
+     *
+     * @param lazyReferences
+     *          {@code true} to load the referred schemas lazily
+     * @return {@code this}
+     */
+    public Builder lazyReferences(final boolean lazyReferences) {
+      this.lazyReferences = lazyReferences;
+      return this;
+    }
+
+    /**
+     * Sets if the annotations of the schemas are kept, see
+     * {@link SchemaLoader.SchemaLoaderBuilder#retainAnnotations(boolean)}. Defaults to
+     * {@code true}.
+     *
+     * @param retainAnnotations
+     *          {@code false} to drop the annotations
+     * @return {@code this}
+     */
+    public Builder retainAnnotations(final boolean retainAnnotations) {
+      this.retainAnnotations = retainAnnotations;
+      return this;
+    }
+
+    /**
+     * Sets which schemas keep their raw JSON representation. Defaults to
+     * {@link RawJsonRetention#ROOT}, keeping the parsed documents.
+     *
+     * @param rawJsonRetention
+     *          the retention policy
+     * @return {@code this}
+     */
+    public Builder rawJsonRetention(final RawJsonRetention rawJsonRetention) {
+      this.rawJsonRetention = rawJsonRetention;
+      return this;
+    }
+
+    /**
+     * Sets the pool running the loading. Defaults to {@link ForkJoinPool#commonPool()}.
+     *
+     * @param pool
+     *          the fork/join pool. It is not shut down by the loader
+     * @return {@code this}
+     */
+    public Builder pool(final ForkJoinPool pool) {
+      this.pool = pool;
+      return this;
+    }
+
+  }
+
+  /**
+   * Runs an action for each index of a range, splitting the range until single indexes.
+   */
+  private static class IndexRangeAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+
+    private final int to;
+
+    private final IntConsumer action;
+
+    IndexRangeAction(final int from, final int to, final IntConsumer action) {
+      this.from = from;
+      this.to = to;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        action.accept(from);
+      } else if (to > from) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new IndexRangeAction(from, middle, action),
+            new IndexRangeAction(middle, to, action));
+      }
+    }
+
+  }
+
+  private static final String CLASSPATH_SCHEME = "classpath";
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns {@code uri} in the form produced by {@link URI#resolve(String)}, for example
+   * {@code file:/a.json} instead of {@code file:///a.json}, so that it matches the resolved
+   * {@code $ref}s.
+   */
+  static URI normalize(final URI uri) {
+    if (uri.isOpaque() || uri.getRawAuthority() != null) {
+      return uri;
+    }
+    try {
+      return new URI(uri.getScheme(), null, uri.getPath(), uri.getQuery(), uri.getFragment());
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static JsonObject readFile(final Path file) {
+    try {
+      return new JsonObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private final SchemaClient httpClient;
+
+  private final SchemaDocumentCache documentCache;
+
+  private final ForkJoinPool pool;
+
+  private final boolean lazyReferences;
+
+  private final SchemaInterner interner;
+
+  private final boolean retainAnnotations;
+
+  private final RawJsonRetention rawJsonRetention;
+
+  private final Map<String, FormatValidator> formatValidators;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the configuration of the loader
+   */
+  public SchemaCatalogLoader(final Builder builder) {
+    this.httpClient = Objects.requireNonNull(builder.httpClient, "httpClient cannot be null");
+    this.documentCache = builder.documentCache;
+    this.pool = builder.pool == null ? ForkJoinPool.commonPool() : builder.pool;
+    this.lazyReferences = builder.lazyReferences;
+    this.interner = builder.interner;
+    this.retainAnnotations = builder.retainAnnotations;
+    this.rawJsonRetention = Objects.requireNonNull(builder.rawJsonRetention,
+        "rawJsonRetention cannot be null");
+    this.formatValidators = Collections.unmodifiableMap(
+        new LinkedHashMap<>(builder.formatValidators));
+  }
+
+  private void forEachInParallel(final int count, final IntConsumer action) {
+    pool.invoke(new IndexRangeAction(0, count, action));
+  }
+
+  /**
+   * Loads the schemas of an already parsed catalog.
+   *
+   * @param documents
+   *          the schema documents keyed by their URIs
+   * @return the loaded catalog
+   */
+  public SchemaCatalog load(final Map<URI, JsonObject> documents) {
+    Objects.requireNonNull(documents, "documents cannot be null");
+    Map<URI, Supplier<JsonObject>> sources = new LinkedHashMap<>();
+    documents.forEach((uri, document) -> {
+      Objects.requireNonNull(document, "document cannot be null");
+      sources.put(uri, () -> document);
+    });
+    return loadSources(sources, httpClient);
+  }
+
+  /**
+   * Loads the {@code .json} resources found under {@code prefix} on the class path of
+   * {@code classLoader}, in directories and in jar files. The documents are identified by
+   * {@code classpath:/<resource name>} URIs, and the loader fetches the {@code classpath:}
+   * references which are not in the catalog from {@code classLoader}.
+   *
+   * @param classLoader
+   *          the class loader providing the resources
+   * @param prefix
+   *          the resource name prefix, like {@code schemas/v1}
+   * @return the loaded catalog
+   */
+  public SchemaCatalog loadClasspath(final ClassLoader classLoader, final String prefix) {
+    Objects.requireNonNull(classLoader, "classLoader cannot be null");
+    String normalizedPrefix = Objects.requireNonNull(prefix, "prefix cannot be null")
+        .replaceAll("^/+|/+$", "");
+    SchemaClient client = url -> {
+      if (!url.startsWith(CLASSPATH_SCHEME + ":")) {
+        return httpClient.get(url);
+      }
+      String resourceName = URI.create(url).getPath().substring(1);
+      InputStream resource = classLoader.getResourceAsStream(resourceName);
+      if (resource == null) {
+        throw new UncheckedIOException(new IOException("resource not found: " + resourceName));
+      }
+      return resource;
+    };
+    Map<URI, Supplier<JsonObject>> sources = new LinkedHashMap<>();
+    try {
+      Enumeration<URL> roots = classLoader.getResources(normalizedPrefix);
+      while (roots.hasMoreElements()) {
+        for (String resourceName : listJsonResources(roots.nextElement(), normalizedPrefix)) {
+          URI uri = URI.create(CLASSPATH_SCHEME + ":/" + resourceName);
+          sources.putIfAbsent(uri, () -> JSONPointer.executeWith(client, uri.toString()));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return loadSources(sources, client);
+  }
+
+  /**
+   * Loads the {@code .json} resources found under {@code prefix} on the class path of the class
+   * loader of this class.
+   *
+   * @param prefix
+   *          the resource name prefix, like {@code schemas/v1}
+   * @return the loaded catalog
+   * @see #loadClasspath(ClassLoader, String)
+   */
+  public SchemaCatalog loadClasspath(final String prefix) {
+    return loadClasspath(SchemaCatalogLoader.class.getClassLoader(), prefix);
+  }
+
+  /**
+   * Loads the {@code .json} files of a directory and its subdirectories. The documents are
+   * identified by their {@code file:} URIs.
+   *
+   * @param directory
+   *          the catalog directory
+   * @return the loaded catalog
+   */
+  public SchemaCatalog loadDirectory(final Path directory) {
+    Map<URI, Supplier<JsonObject>> sources = new LinkedHashMap<>();
+    for (Path file : listJsonFiles(Objects.requireNonNull(directory, "directory cannot be null"))) {
+      sources.put(normalize(file.toAbsolutePath().toUri()), () -> readFile(file));
+    }
+    return loadSources(sources, httpClient);
+  }
+
+  private List<Path> listJsonFiles(final Path directory) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files
+          .filter(file -> file.getFileName().toString().endsWith(".json"))
+          .filter(Files::isRegularFile)
+          .sorted()
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private List<String> listJsonResources(final URL root, final String prefix) throws IOException {
+    URI rootUri;
+    try {
+      rootUri = root.toURI();
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+    Path rootPath;
+    if ("jar".equals(rootUri.getScheme())) {
+      FileSystem jarFileSystem;
+      try {
+        jarFileSystem = FileSystems.newFileSystem(rootUri, Collections.emptyMap());
+      } catch (FileSystemAlreadyExistsException e) {
+        jarFileSystem = FileSystems.getFileSystem(rootUri);
+      }
+      rootPath = jarFileSystem.getPath(prefix.isEmpty() ? "/" : "/" + prefix);
+    } else {
+      rootPath = Paths.get(rootUri);
+    }
+    List<String> resourceNames = new ArrayList<>();
+    for (Path file : listJsonFiles(rootPath)) {
+      String relativeName = rootPath.relativize(file).toString().replace('\\', '/');
+      resourceNames.add(prefix.isEmpty() ? relativeName : prefix + "/" + relativeName);
+    }
+    return resourceNames;
+  }
+
+  private SchemaCatalog loadSources(final Map<URI, Supplier<JsonObject>> sources,
+      final SchemaClient client) {
+    long start = System.nanoTime();
+    List<URI> uris = sources.keySet().stream()
+        .map(SchemaCatalogLoader::normalize)
+        .collect(Collectors.toList());
+    List<Supplier<JsonObject>> readers = new ArrayList<>(sources.values());
+    int count = uris.size();
+    JsonObject[] documents = new JsonObject[count];
+    Schema[] schemas = new Schema[count];
+    RuntimeException[] failures = new RuntimeException[count];
+    long[] loadNanos = new long[count];
+    InternStatistics[] internStatistics = new InternStatistics[count];
+
+    forEachInParallel(count, i -> {
+      long readStart = System.nanoTime();
+      try {
+        documents[i] = readers.get(i).get();
+      } catch (RuntimeException e) {
+        failures[i] = e;
+      }
+      loadNanos[i] = System.nanoTime() - readStart;
+    });
+
+    // every document is registered before the loading starts, so the references to it are not
+    // loaded again by the referring documents
+    SchemaDocumentCache cache = documentCache == null ? new SchemaDocumentCache() : documentCache;
+    Map<String, ReferenceSchema.Builder> pointerSchemas = new ConcurrentHashMap<>();
+    URI[] scopes = new URI[count];
+    ReferenceSchema.Builder[] documentReferences = new ReferenceSchema.Builder[count];
+    for (int i = 0; i < count; ++i) {
+      if (documents[i] == null) {
+        continue;
+      }
+      URI scope = uris.get(i);
+      Object id = documents[i].getValue("id");
+      if (id instanceof String) {
+        scope = scope.resolve((String) id);
+      }
+      scopes[i] = scope;
+      documentReferences[i] = ReferenceSchema.builder().refValue(uris.get(i).toString());
+      for (URI key : new URI[] {uris.get(i), SchemaLoader.withoutFragment(scope.toString())}) {
+        pointerSchemas.putIfAbsent(key.toString(), documentReferences[i]);
+        cache.put(key.toString(), documents[i]);
+      }
+    }
+
+    forEachInParallel(count, i -> {
+      if (documents[i] == null) {
+        return;
+      }
+      long loadStart = System.nanoTime();
+      try {
+        SchemaLoader.SchemaLoaderBuilder loaderBuilder = SchemaLoader.builder()
+            .schemaJson(documents[i])
+            .resolutionScope(scopes[i])
+            .httpClient(client)
+            .documentCache(cache)
+            .lazyReferences(lazyReferences)
+            .interner(interner)
+            .retainAnnotations(retainAnnotations)
+            .rawJsonRetention(rawJsonRetention)
+            .pointerSchemas(pointerSchemas);
+        formatValidators.forEach(loaderBuilder::addFormatValidator);
+        SchemaLoader loader = loaderBuilder.build();
+        schemas[i] = loader.load().build();
+        internStatistics[i] = loader.getInternStatistics();
+        documentReferences[i].build().setReferredSchema(schemas[i]);
+      } catch (RuntimeException e) {
+        failures[i] = e;
+        URI uri = uris.get(i);
+        documentReferences[i].build().setReferredSchemaLoader(() -> {
+          throw new SchemaException("referred schema " + uri + " failed to load", e);
+        });
+      }
+      loadNanos[i] += System.nanoTime() - loadStart;
+    });
+
+    Map<URI, SchemaCatalog.LoadResult> results = new LinkedHashMap<>();
+    for (int i = 0; i < count; ++i) {
+      results.put(uris.get(i), new SchemaCatalog.LoadResult(uris.get(i), schemas[i], failures[i],
+          loadNanos[i], internStatistics[i]));
+    }
+    return new SchemaCatalog(results, System.nanoTime() - start);
+  }
+
+}
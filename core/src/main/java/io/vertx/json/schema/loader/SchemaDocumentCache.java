@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the remote schema documents fetched by {@link SchemaLoader}, keyed by their URL without
+ * fragment, so that a document referenced by many JSON pointers is fetched and parsed only once.
+ *
+ * <p>
+ * By default each top-level load uses its own unbounded cache, which is discarded when the load
+ * completes. An instance created by {@link #builder()} can be shared by several loaders with
+ * {@link SchemaLoader.SchemaLoaderBuilder#documentCache(SchemaDocumentCache)}, optionally bounded
+ * by size and by time-to-live. Concurrent requests of the same document are fetched only once.
+ * The cached documents are shared, so they must not be modified.
+ * </p>
+ */
+public class SchemaDocumentCache {
+
+  /**
+   * Builder class for {@link SchemaDocumentCache}.
+   */
+  public static class Builder {
+
+    private long maximumSize = -1;
+
+    private long expireAfterWriteNanos = -1;
+
+    public SchemaDocumentCache build() {
+      return new SchemaDocumentCache(this);
+    }
+
+    /**
+     * Sets the time after which the cached documents are fetched again. By default the documents
+     * don't expire.
+     *
+     * @param duration
+     *          the time-to-live of the cached documents
+     * @param unit
+     *          the unit of {@code duration}
+     * @return {@code this}
+     */
+    public Builder expireAfterWrite(final long duration, final TimeUnit unit) {
+      this.expireAfterWriteNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of cached documents. By default the cache is unbounded.
+     *
+     * @param maximumSize
+     *          the maximum number of documents
+     * @return {@code this}
+     */
+    public Builder maximumSize(final long maximumSize) {
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Cache<String, JsonObject> documents;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the bounds of the cache
+   */
+  public SchemaDocumentCache(final Builder builder) {
+    CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
+    if (builder.maximumSize >= 0) {
+      cacheBuilder.maximumSize(builder.maximumSize);
+    }
+    if (builder.expireAfterWriteNanos >= 0) {
+      cacheBuilder.expireAfterWrite(builder.expireAfterWriteNanos, TimeUnit.NANOSECONDS);
+    }
+    this.documents = cacheBuilder.build();
+  }
+
+  /**
+   * Creates an unbounded cache.
+   */
+  public SchemaDocumentCache() {
+    this(builder());
+  }
+
+  /**
+   * Returns the cached document of {@code documentUrl}, or fetches it with {@code fetcher} if it is
+   * not cached.
+   *
+   * @param documentUrl
+   *          the URL of the document, without fragment
+   * @param fetcher
+   *          fetches and parses the document
+   * @return the document
+   */
+  public JsonObject get(final String documentUrl, final Function<String, JsonObject> fetcher) {
+    Objects.requireNonNull(documentUrl, "documentUrl cannot be null");
+    try {
+      return documents.get(documentUrl, () -> fetcher.apply(documentUrl));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new UncheckedExecutionException(e.getCause());
+    }
+  }
+
+  /**
+   * Returns the cached document of {@code documentUrl}, without fetching it.
+   *
+   * @param documentUrl
+   *          the URL of the document, without fragment
+   * @return the cached document, or an empty optional if it is not cached
+   */
+  public Optional<JsonObject> getIfPresent(final String documentUrl) {
+    return Optional.ofNullable(documents.getIfPresent(documentUrl));
+  }
+
+  /**
+   * Discards all cached documents.
+   */
+  public void invalidateAll() {
+    documents.invalidateAll();
+  }
+
+  /**
+   * Caches a document, replacing the previously cached document of the same URL.
+   *
+   * @param documentUrl
+   *          the URL of the document, without fragment
+   * @param document
+   *          the document
+   */
+  public void put(final String documentUrl, final JsonObject document) {
+    documents.put(Objects.requireNonNull(documentUrl, "documentUrl cannot be null"),
+        Objects.requireNonNull(document, "document cannot be null"));
+  }
+
+  /**
+   * Returns the approximate number of cached documents.
+   *
+   * @return the number of cached documents
+   */
+  public long size() {
+    return documents.size();
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.json.schema.CombinedSchema;
+import io.vertx.json.schema.FormatValidator;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.internal.ObjectSizeEstimator;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Replaces structurally equal schemas by a single canonical instance (hash-consing).
+ *
+ * <p>
+ * Passed to {@link SchemaLoader.SchemaLoaderBuilder#interner(SchemaInterner)}, it is applied to
+ * each subschema as soon as it is built. The subschemas are built bottom-up, so the children of a
+ * subschema are already canonical when it is interned, and {@link Schema#equals(Object)} compares
+ * them by identity. Reference
+ * schemas are equal only to themselves, so the subschemas containing a {@code $ref} are shared
+ * only if they refer to the same {@link ReferenceSchema} instance. The root schema and the
+ * schemas having a raw JSON representation are not interned.
+ * </p>
+ *
+ * <p>
+ * The interner keeps its canonical schemas reachable. It is thread-safe, and it can be shared by
+ * loaders to share the subschemas between schemas.
+ * </p>
+ */
+public class SchemaInterner {
+
+  private static final LongConsumer IGNORED = savedBytes -> {
+  };
+
+  /**
+   * Returns the estimated heap occupied by {@code schema}, not counting its subschemas and the
+   * shared format validators and criteria.
+   */
+  static long estimateOwnSize(final Schema schema) {
+    return ObjectSizeEstimator.retainedSize(schema, object -> object instanceof Schema
+        || object instanceof FormatValidator
+        || object instanceof CombinedSchema.ValidationCriterion);
+  }
+
+  private final ConcurrentMap<Schema, Schema> canonicalSchemas = new ConcurrentHashMap<>();
+
+  private final LongAdder duplicateCount = new LongAdder();
+
+  private final LongAdder savedBytes = new LongAdder();
+
+  /**
+   * Returns the number of distinct schemas kept by this interner.
+   *
+   * @return the number of canonical schemas
+   */
+  public int getCanonicalCount() {
+    return canonicalSchemas.size();
+  }
+
+  /**
+   * Returns the duplicates replaced by this interner since its creation.
+   *
+   * @return the statistics of all loads using this interner
+   */
+  public InternStatistics getStatistics() {
+    return new InternStatistics(duplicateCount.sum(), savedBytes.sum());
+  }
+
+  /**
+   * Returns the canonical instance of {@code schema}.
+   *
+   * @param schema
+   *          the schema to intern
+   * @return the first interned schema equal to {@code schema}, or {@code schema} itself
+   */
+  public Schema intern(final Schema schema) {
+    return intern(schema, IGNORED);
+  }
+
+  /**
+   * Returns the canonical instance of {@code schema}, passing the estimated size of
+   * {@code schema} to {@code duplicateListener} if it is replaced.
+   */
+  Schema intern(final Schema schema, final LongConsumer duplicateListener) {
+    Objects.requireNonNull(schema, "schema cannot be null");
+    if (schema instanceof ReferenceSchema || schema.getJsonSchema() != null) {
+      return schema;
+    }
+    Schema canonical = canonicalSchemas.putIfAbsent(schema, schema);
+    if (canonical == null || canonical == schema) {
+      return schema;
+    }
+    long size = estimateOwnSize(schema);
+    duplicateCount.increment();
+    savedBytes.add(size);
+    duplicateListener.accept(size);
+    return canonical;
+  }
+
+}
@@ -20,18 +20,19 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.ArraySchema;
@@ -44,26 +45,32 @@ import io.vertx.json.schema.NotSchema;
 import io.vertx.json.schema.NullSchema;
 import io.vertx.json.schema.NumberSchema;
 import io.vertx.json.schema.ObjectSchema;
-import io.vertx.json.schema.ObjectSchema.Builder;
 import io.vertx.json.schema.ReferenceSchema;
 import io.vertx.json.schema.Schema;
 import io.vertx.json.schema.SchemaException;
 import io.vertx.json.schema.StringSchema;
+import io.vertx.json.schema.events.SchemaEventType;
+import io.vertx.json.schema.events.SchemaEvents;
 import io.vertx.json.schema.internal.DateTimeFormatValidator;
 import io.vertx.json.schema.internal.EmailFormatValidator;
 import io.vertx.json.schema.internal.HostnameFormatValidator;
 import io.vertx.json.schema.internal.IPV4Validator;
 import io.vertx.json.schema.internal.IPV6Validator;
+import io.vertx.json.schema.internal.NamedFormatValidator;
 import io.vertx.json.schema.internal.URIFormatValidator;
 import io.vertx.json.schema.internal.URLFormatValidator;
 import io.vertx.json.schema.loader.internal.DefaultSchemaClient;
 import io.vertx.json.schema.loader.internal.JSONPointer;
-import io.vertx.json.schema.loader.internal.JSONPointer.QueryResult;
-import io.vertx.json.schema.loader.internal.ReferenceResolver;
-import io.vertx.json.schema.loader.internal.TypeBasedMultiplexer;
+import io.vertx.json.schema.loader.internal.SchemaDocumentIndex;
 
 /**
  * Loads a JSON schema's JSON representation into schema validator instances.
+ *
+ * <p>
+ * A loading is a single recursive descent over the schema documents: the configuration of the
+ * loader is shared by all subschemas, and the resolution scope changed by the {@code id} keywords
+ * is tracked on an explicit stack instead of creating a loader for each subschema.
+ * </p>
  */
 public class SchemaLoader {
 
@@ -89,22 +96,25 @@ public class SchemaLoader {
 
     Map<String, ReferenceSchema.Builder> pointerSchemas = new HashMap<>();
 
+    SchemaDocumentCache documentCache;
+
     URI id;
 
-    Map<String, FormatValidator> formatValidators = new HashMap<>();
+    boolean lazyReferences;
 
-    {
-      formatValidators.put("date-time", new DateTimeFormatValidator());
-      formatValidators.put("uri", new URIFormatValidator());
-      formatValidators.put("url", new URLFormatValidator());
-      formatValidators.put("email", new EmailFormatValidator());
-      formatValidators.put("ipv4", new IPV4Validator());
-      formatValidators.put("ipv6", new IPV6Validator());
-      formatValidators.put("hostname", new HostnameFormatValidator());
-    }
+    SchemaInterner interner;
+
+    boolean retainAnnotations = true;
+
+    RawJsonRetention rawJsonRetention = RawJsonRetention.NONE;
+
+    Map<String, FormatValidator> formatValidators = DEFAULT_FORMAT_VALIDATORS;
 
     public SchemaLoaderBuilder addFormatValidator(final String formatName,
         final FormatValidator formatValidator) {
+      if (formatValidators == DEFAULT_FORMAT_VALIDATORS) {
+        formatValidators = new HashMap<>(DEFAULT_FORMAT_VALIDATORS);
+      }
       formatValidators.put(formatName, formatValidator);
       return this;
     }
@@ -113,6 +123,19 @@ public class SchemaLoader {
       return new SchemaLoader(this);
     }
 
+    /**
+     * Sets the cache of the remote documents. If it is not set, then a new unbounded cache is used
+     * for each top-level load.
+     *
+     * @param documentCache
+     *          the document cache, possibly shared with other loaders
+     * @return {@code this}
+     */
+    public SchemaLoaderBuilder documentCache(final SchemaDocumentCache documentCache) {
+      this.documentCache = documentCache;
+      return this;
+    }
+
     public JsonObject getRootSchemaJson() {
       return rootSchemaJson == null ? schemaJson : rootSchemaJson;
     }
@@ -138,6 +161,68 @@ public class SchemaLoader {
       }
     }
 
+    /**
+     * Sets if the schemas referred by {@code $ref} are loaded on their first use instead of during
+     * {@link SchemaLoader#load()}. Defaults to {@code false}.
+     *
+     * <p>
+     * In lazy mode the referred schemas which are never used for validation are neither fetched
+     * nor built, so large schema documents load faster and retain less memory. The loading
+     * failures of a referred schema, like a missing document or an invalid pointer, are thrown
+     * by the first validation using it.
+     * </p>
+     *
+     * @param lazyReferences
+     *          {@code true} to load the referred schemas lazily
+     * @return {@code this}
+     */
+    public SchemaLoaderBuilder lazyReferences(final boolean lazyReferences) {
+      this.lazyReferences = lazyReferences;
+      return this;
+    }
+
+    /**
+     * Sets the interner replacing the structurally equal subschemas by a single instance. By
+     * default the subschemas are not interned.
+     *
+     * @param interner
+     *          the interner, possibly shared with other loaders
+     * @return {@code this}
+     * @see SchemaLoader#getInternStatistics()
+     */
+    public SchemaLoaderBuilder interner(final SchemaInterner interner) {
+      this.interner = interner;
+      return this;
+    }
+
+    /**
+     * Sets if the {@code id}, {@code title} and {@code description} keywords are kept in the
+     * loaded schemas. Defaults to {@code true}. Dropping them saves memory when the schemas are
+     * only used for validation: the resolution scopes set by {@code id} are applied in both cases.
+     *
+     * @param retainAnnotations
+     *          {@code false} to drop the annotations
+     * @return {@code this}
+     */
+    public SchemaLoaderBuilder retainAnnotations(final boolean retainAnnotations) {
+      this.retainAnnotations = retainAnnotations;
+      return this;
+    }
+
+    /**
+     * Sets which loaded schemas keep their raw JSON representation. Defaults to
+     * {@link RawJsonRetention#NONE}, except for {@link SchemaLoader#load(JsonObject)} which retains
+     * the root document.
+     *
+     * @param rawJsonRetention
+     *          the retention policy
+     * @return {@code this}
+     */
+    public SchemaLoaderBuilder rawJsonRetention(final RawJsonRetention rawJsonRetention) {
+      this.rawJsonRetention = rawJsonRetention;
+      return this;
+    }
+
     public SchemaLoaderBuilder resolutionScope(final URI id) {
       this.id = id;
       return this;
@@ -158,37 +243,59 @@ public class SchemaLoader {
       return this;
     }
 
-    SchemaLoaderBuilder formatValidators(final Map<String, FormatValidator> formatValidators) {
-      this.formatValidators = formatValidators;
-      return this;
-    }
-
   }
 
-  private static final List<String> ARRAY_SCHEMA_PROPS = Arrays.asList("items", "additionalItems",
-      "minItems",
-      "maxItems",
-      "uniqueItems");
+  private static final String[] ARRAY_SCHEMA_PROPS = {"items", "additionalItems", "minItems",
+      "maxItems", "uniqueItems"};
+
+  private static final List<Class<?>> ARRAY_OR_STRING = Arrays.asList(JsonArray.class,
+      String.class);
+
+  private static final List<Class<?>> BOOLEAN_OR_OBJECT = Arrays.asList(Boolean.class,
+      JsonObject.class);
 
   private static final Map<String, CombinedSchemaProvider> COMB_SCHEMA_PROVIDERS = new HashMap<>(3);
 
-  private static final List<String> NUMBER_SCHEMA_PROPS = Arrays.asList("minimum", "maximum",
-      "minimumExclusive", "maximumExclusive", "multipleOf");
+  private static final String[] COMBINED_SCHEMA_PROPS = {"allOf", "anyOf", "oneOf"};
+
+  /**
+   * The built-in format validators. They are stateless, so the loaders share them.
+   */
+  private static final Map<String, FormatValidator> DEFAULT_FORMAT_VALIDATORS;
+
+  /**
+   * Read-only, replaces the subschemas of the multiple-type schemas, which have no other keyword.
+   */
+  private static final JsonObject EMPTY_SCHEMA_JSON = new JsonObject();
+
+  private static final int INITIAL_SCOPE_DEPTH = 8;
+
+  private static final String[] NUMBER_SCHEMA_PROPS = {"minimum", "maximum",
+      "minimumExclusive", "maximumExclusive", "multipleOf"};
 
-  private static final List<String> OBJECT_SCHEMA_PROPS = Arrays.asList("properties", "required",
-      "minProperties",
-      "maxProperties",
-      "dependencies",
-      "patternProperties",
-      "additionalProperties");
+  private static final List<Class<?>> OBJECT_OR_ARRAY = Arrays.asList(JsonObject.class,
+      JsonArray.class);
 
-  private static final List<String> STRING_SCHEMA_PROPS = Arrays.asList("minLength", "maxLength",
-      "pattern", "format");
+  private static final String[] OBJECT_SCHEMA_PROPS = {"properties", "required",
+      "minProperties", "maxProperties", "dependencies", "patternProperties",
+      "additionalProperties"};
+
+  private static final String[] STRING_SCHEMA_PROPS = {"minLength", "maxLength", "pattern",
+      "format"};
 
   static {
     COMB_SCHEMA_PROVIDERS.put("allOf", CombinedSchema::allOf);
     COMB_SCHEMA_PROVIDERS.put("anyOf", CombinedSchema::anyOf);
     COMB_SCHEMA_PROVIDERS.put("oneOf", CombinedSchema::oneOf);
+    Map<String, FormatValidator> formatValidators = new HashMap<>();
+    formatValidators.put("date-time", new DateTimeFormatValidator());
+    formatValidators.put("uri", new URIFormatValidator());
+    formatValidators.put("url", new URLFormatValidator());
+    formatValidators.put("email", new EmailFormatValidator());
+    formatValidators.put("ipv4", new IPV4Validator());
+    formatValidators.put("ipv6", new IPV6Validator());
+    formatValidators.put("hostname", new HostnameFormatValidator());
+    DEFAULT_FORMAT_VALIDATORS = Collections.unmodifiableMap(formatValidators);
   }
 
   public static SchemaLoaderBuilder builder() {
@@ -220,8 +327,48 @@ public class SchemaLoader {
     SchemaLoader loader = builder()
         .schemaJson(schemaJson)
         .httpClient(httpClient)
+        .rawJsonRetention(RawJsonRetention.ROOT)
         .build();
-    return loader.load().build().setJsonSchema(schemaJson);
+    return loader.load().build();
+  }
+
+  /**
+   * Loads a JSON schema without blocking the calling thread, fetching the remote JSON references
+   * with a {@link VertxSchemaClient}. The client is closed when the loading completes.
+   *
+   * @param vertx
+   *          the Vert.x instance used for fetching the remote documents
+   * @param schemaJson
+   *          the JSON representation of the schema.
+   * @return the future completed with the schema validator object
+   */
+  public static Future<Schema> loadAsync(final Vertx vertx, final JsonObject schemaJson) {
+    VertxSchemaClient client = new VertxSchemaClient(vertx);
+    Future<Schema> rval = Future.future();
+    loadAsync(schemaJson, client).setHandler(result -> {
+      client.close();
+      rval.completer().handle(result);
+    });
+    return rval;
+  }
+
+  /**
+   * Creates Schema instance from its JSON representation without blocking the calling thread. All
+   * remote documents referenced by the schema are fetched with {@code httpClient} before the
+   * schema is built, therefore this method can be called from an event-loop thread.
+   *
+   * @param schemaJson
+   *          the JSON representation of the schema.
+   * @param httpClient
+   *          the asynchronous client to be used for resolving remote JSON references.
+   * @return the future completed with the created schema, or failed with the
+   *         {@link SchemaException} raised by the loading
+   */
+  public static Future<Schema> loadAsync(final JsonObject schemaJson,
+      final AsyncSchemaClient httpClient) {
+    Objects.requireNonNull(schemaJson, "schemaJson cannot be null");
+    Objects.requireNonNull(httpClient, "httpClient cannot be null");
+    return new AsyncSchemaLoading(schemaJson, httpClient).start();
   }
 
   /**
@@ -248,16 +395,32 @@ public class SchemaLoader {
 
   private final SchemaClient httpClient;
 
-  private URI id = null;
+  private final URI id;
 
   private final Map<String, ReferenceSchema.Builder> pointerSchemas;
 
+  private final Map<JsonObject, SchemaDocumentIndex> documentIndexes = new IdentityHashMap<>();
+
   private final JsonObject rootSchemaJson;
 
   private final JsonObject schemaJson;
 
   private final Map<String, FormatValidator> formatValidators;
 
+  private final SchemaDocumentCache documentCache;
+
+  private final boolean lazyReferences;
+
+  private final SchemaInterner interner;
+
+  private final boolean retainAnnotations;
+
+  private final RawJsonRetention rawJsonRetention;
+
+  private long internedDuplicateCount;
+
+  private long internSavedBytes;
+
   /**
    * Constructor.
    *
@@ -286,6 +449,13 @@ public class SchemaLoader {
         "pointerSchemas cannot be null");
     this.formatValidators = Objects.requireNonNull(builder.formatValidators,
         "formatValidators cannot be null");
+    this.documentCache = builder.documentCache == null ? new SchemaDocumentCache()
+        : builder.documentCache;
+    this.lazyReferences = builder.lazyReferences;
+    this.interner = builder.interner;
+    this.retainAnnotations = builder.retainAnnotations;
+    this.rawJsonRetention = Objects.requireNonNull(builder.rawJsonRetention,
+        "rawJsonRetention cannot be null");
   }
 
   /**
@@ -304,161 +474,6 @@ public class SchemaLoader {
         .pointerSchemas(pointerSchemas));
   }
 
-  private void addDependencies(final Builder builder, final JsonObject deps) {
-    deps.fieldNames().stream()
-        .forEach(ifPresent -> addDependency(builder, ifPresent, deps.getValue(ifPresent)));
-  }
-
-  private void addDependency(final Builder builder, final String ifPresent, final Object deps) {
-    typeMultiplexer(deps)
-        .ifObject().then(obj -> {
-          builder.schemaDependency(ifPresent, loadChild(obj).build());
-        })
-        .ifIs(JsonArray.class).then(propNames -> {
-          IntStream.range(0, propNames.size())
-              .mapToObj(i -> propNames.getString(i))
-              .forEach(dependency -> builder.propertyDependency(ifPresent, dependency));
-        }).requireAny();
-  }
-
-  private void addFormatValidator(final StringSchema.Builder builder, final String formatName) {
-    getFormatValidator(formatName).ifPresent(builder::formatValidator);
-  }
-
-  private void addPropertySchemaDefinition(final String keyOfObj, final Object definition,
-      final ObjectSchema.Builder builder) {
-    typeMultiplexer(definition)
-        .ifObject()
-        .then(obj -> {
-          builder.addPropertySchema(keyOfObj, loadChild(obj).build());
-        })
-        .requireAny();
-  }
-
-  private CombinedSchema.Builder buildAnyOfSchemaForMultipleTypes() {
-    JsonArray subtypeJsons = schemaJson.getJsonArray("type");
-    Map<String, Object> dummyJson = new HashMap<String, Object>();
-    Collection<Schema> subschemas = new ArrayList<Schema>(subtypeJsons.size());
-    for (int i = 0; i < subtypeJsons.size(); ++i) {
-      Object subtypeJson = subtypeJsons.getValue(i);
-      dummyJson.put("type", subtypeJson);
-      JsonObject child = new JsonObject(dummyJson);
-      subschemas.add(loadChild(child).build());
-    }
-    return CombinedSchema.anyOf(subschemas);
-  }
-
-  private ArraySchema.Builder buildArraySchema() {
-    ArraySchema.Builder builder = ArraySchema.builder();
-    ifPresent("minItems", Integer.class, builder::minItems);
-    ifPresent("maxItems", Integer.class, builder::maxItems);
-    ifPresent("uniqueItems", Boolean.class, builder::uniqueItems);
-    if (schemaJson.containsKey("additionalItems")) {
-      typeMultiplexer("additionalItems", schemaJson.getValue("additionalItems"))
-          .ifIs(Boolean.class).then(builder::additionalItems)
-          .ifObject().then(jsonObj -> builder.schemaOfAdditionalItems(loadChild(jsonObj).build()))
-          .requireAny();
-    }
-    if (schemaJson.containsKey("items")) {
-      typeMultiplexer("items", schemaJson.getValue("items"))
-          .ifObject().then(itemSchema -> builder.allItemSchema(loadChild(itemSchema).build()))
-          .ifIs(JsonArray.class).then(arr -> buildTupleSchema(builder, arr))
-          .requireAny();
-    }
-    return builder;
-  }
-
-  private EnumSchema.Builder buildEnumSchema() {
-    Set<Object> possibleValues = new HashSet<>();
-    JsonArray arr = schemaJson.getJsonArray("enum");
-    IntStream.range(0, arr.size())
-        .mapToObj(arr::getValue)
-        .forEach(possibleValues::add);
-    return EnumSchema.builder().possibleValues(possibleValues);
-  }
-
-  private NotSchema.Builder buildNotSchema() {
-    Schema mustNotMatch = loadChild(schemaJson.getJsonObject("not")).build();
-    return NotSchema.builder().mustNotMatch(mustNotMatch);
-  }
-
-  private NumberSchema.Builder buildNumberSchema() {
-    NumberSchema.Builder builder = NumberSchema.builder();
-    ifPresent("minimum", Number.class, builder::minimum);
-    ifPresent("maximum", Number.class, builder::maximum);
-    ifPresent("multipleOf", Number.class, builder::multipleOf);
-    ifPresent("exclusiveMinimum", Boolean.class, builder::exclusiveMinimum);
-    ifPresent("exclusiveMaximum", Boolean.class, builder::exclusiveMaximum);
-    return builder;
-  }
-
-  private ObjectSchema.Builder buildObjectSchema() {
-    ObjectSchema.Builder builder = ObjectSchema.builder();
-    ifPresent("minProperties", Integer.class, builder::minProperties);
-    ifPresent("maxProperties", Integer.class, builder::maxProperties);
-    if (schemaJson.containsKey("properties")) {
-      typeMultiplexer(schemaJson.getValue("properties"))
-          .ifObject().then(propertyDefs -> {
-            populatePropertySchemas(propertyDefs, builder);
-          }).requireAny();
-    }
-    if (schemaJson.containsKey("additionalProperties")) {
-      typeMultiplexer("additionalProperties", schemaJson.getValue("additionalProperties"))
-          .ifIs(Boolean.class).then(builder::additionalProperties)
-          .ifObject().then(def -> builder.schemaOfAdditionalProperties(loadChild(def).build()))
-          .requireAny();
-    }
-    if (schemaJson.containsKey("required")) {
-      JsonArray requiredJson = schemaJson.getJsonArray("required");
-      IntStream.range(0, requiredJson.size())
-          .mapToObj(requiredJson::getString)
-          .forEach(builder::addRequiredProperty);
-    }
-    if (schemaJson.containsKey("patternProperties")) {
-      JsonObject patternPropsJson = schemaJson.getJsonObject("patternProperties");
-      for (String pattern : patternPropsJson.fieldNames()) {
-        builder.patternProperty(pattern, loadChild(patternPropsJson.getJsonObject(pattern))
-            .build());
-      }
-    }
-    ifPresent("dependencies", JsonObject.class, deps -> addDependencies(builder, deps));
-    return builder;
-  }
-
-  private Schema.Builder buildSchemaWithoutExplicitType() {
-    if (schemaJson==null||schemaJson.isEmpty()) {
-      return EmptySchema.builder();
-    }
-    if (schemaJson.containsKey("$ref")) {
-      return lookupReference(schemaJson.getString("$ref"), schemaJson);
-    }
-    Schema.Builder rval = sniffSchemaByProps();
-    if (rval != null) {
-      return rval;
-    }
-    if (schemaJson.containsKey("not")) {
-      return buildNotSchema();
-    }
-    return EmptySchema.builder();
-  }
-
-  private StringSchema.Builder buildStringSchema() {
-    StringSchema.Builder builder = StringSchema.builder();
-    ifPresent("minLength", Integer.class, builder::minLength);
-    ifPresent("maxLength", Integer.class, builder::maxLength);
-    ifPresent("pattern", String.class, builder::pattern);
-    ifPresent("format", String.class, format -> addFormatValidator(builder, format));
-    return builder;
-  }
-
-  private void buildTupleSchema(final ArraySchema.Builder builder, final JsonArray itemSchema) {
-    for (int i = 0; i < itemSchema.size(); ++i) {
-      typeMultiplexer(itemSchema.getValue(i))
-          .ifObject().then(schema -> builder.addItemSchema(loadChild(schema).build()))
-          .requireAny();
-    }
-  }
-
   /**
    * Underscore-like extend function. Merges the properties of {@code additional} and
    * {@code original}. Neither {@code additional} nor {@code original} will be modified, but the
@@ -482,16 +497,15 @@ public class SchemaLoader {
     return Optional.ofNullable(formatValidators.get(format));
   }
 
-  private <E> void ifPresent(final String key, final Class<E> expectedType,
-      final Consumer<E> consumer) {
-    if (schemaJson.containsKey(key)) {
-      @SuppressWarnings("unchecked")
-      E value = (E) schemaJson.getValue(key);
-      try {
-        consumer.accept(value);
-      } catch (ClassCastException e) {
-        throw new SchemaException(key, expectedType, value);
-      }
+  /**
+   * Returns the duplicate subschemas replaced by the interner during the loads of this loader,
+   * including the lazy loads of the referred schemas performed so far.
+   *
+   * @return the statistics, or {@link InternStatistics#EMPTY} if no interner is set
+   */
+  public InternStatistics getInternStatistics() {
+    synchronized (pointerSchemas) {
+      return new InternStatistics(internedDuplicateCount, internSavedBytes);
     }
   }
 
@@ -503,184 +517,562 @@ public class SchemaLoader {
    *         instance to be used for validation
    */
   public Schema.Builder load() {
-    Schema.Builder builder;
-    if (schemaJson.containsKey("enum")) {
-      builder = buildEnumSchema();
-    } else {
-      builder = tryCombinedSchema();
-      if (builder == null) {
-        if (!schemaJson.containsKey("type")) {
-          builder = buildSchemaWithoutExplicitType();
-        } else {
-          builder = loadForType(schemaJson.getValue("type"));
-        }
-      }
+    return SchemaEvents.trace(SchemaEventType.LOAD, id == null ? null : id.toString(), schemaJson,
+        this::loadBuilder);
+  }
+
+  private Schema.Builder loadBuilder() {
+    Schema.Builder builder = new Descent(rootSchemaJson, id).loadSchema(schemaJson);
+    if (rawJsonRetention != RawJsonRetention.NONE
+        && !(builder instanceof ReferenceSchema.Builder)) {
+      builder.jsonSchema(schemaJson);
     }
-    ifPresent("id", String.class, builder::id);
-    ifPresent("title", String.class, builder::title);
-    ifPresent("description", String.class, builder::description);
     return builder;
   }
 
-  private Schema.Builder loadChild(final JsonObject childJson) {
-    return selfBuilder().schemaJson(childJson).build().load();
+  private SchemaDocumentIndex documentIndex(final JsonObject document) {
+    SchemaDocumentIndex index;
+    synchronized (pointerSchemas) {
+      index = documentIndexes.get(document);
+    }
+    if (index != null) {
+      return index;
+    }
+    // built outside the lock, the concurrent lazy loads may build the same index
+    SchemaDocumentIndex built = new SchemaDocumentIndex(document);
+    synchronized (pointerSchemas) {
+      index = documentIndexes.putIfAbsent(document, built);
+    }
+    return index == null ? built : index;
   }
 
-  private Schema.Builder loadForExplicitType(final String typeString) {
-    try {
-      switch (typeString) {
-      	case "color":
-      	case "date":
-        case "string":
-          return buildStringSchema();
-        case "long":
-        case "integer":
-          return buildNumberSchema().requiresInteger(true);
-        case "number":
-          return buildNumberSchema();
-        case "boolean":
-          return BooleanSchema.builder();
-        case "null":
-          return NullSchema.builder();
-        case "array":
-          return buildArraySchema();
-        case "object":
-          return buildObjectSchema();
-        default:
-          throw new SchemaException(String.format("unknown type: [%s]", typeString));
-      }
-    }catch(NullPointerException e){
-      throw new SchemaException("Invalid schema",e);
+  /**
+   * Registers the reference builder of {@code absPointerString}, unless a builder is already
+   * registered. The map of the builders, the document indexes and the intern statistics are shared
+   * by the lazy loads, and possibly by concurrent loaders (see {@link SchemaCatalogLoader}): they
+   * are guarded by the lock of the map, which is held only to read or publish them.
+   *
+   * @return the registered builder
+   */
+  private ReferenceSchema.Builder register(final String absPointerString,
+      final ReferenceSchema.Builder refBuilder) {
+    synchronized (pointerSchemas) {
+      ReferenceSchema.Builder registered = pointerSchemas.putIfAbsent(absPointerString,
+          refBuilder);
+      return registered == null ? refBuilder : registered;
     }
   }
 
-  private Schema.Builder loadForType(final Object type) {
-    if (type instanceof JsonArray) {
-      return buildAnyOfSchemaForMultipleTypes();
-    } else if (type instanceof String) {
-      return loadForExplicitType((String) type);
-    } else {
-      throw new SchemaException("type", Arrays.asList(JsonArray.class, String.class), type);
+  /**
+   * Rerurns a shallow copy of the {@code original} object, but it does not copy the {@code $ref}
+   * key, in case it is present in {@code original}.
+   */
+  JsonObject withoutRef(final JsonObject original) {
+    if (original==null||original.isEmpty()) {
+      return original;
+    }
+    JsonObject rval = new JsonObject();
+    for (String name : original.fieldNames()) {
+      if (!"$ref".equals(name)) {
+        rval.put(name, original.getValue(name));
+      }
     }
+    return rval;
   }
 
   /**
-   * Returns a schema builder instance after looking up the JSON pointer.
+   * A recursive descent over a schema document. The configuration and the referenced schemas are
+   * shared through the enclosing loader, the descent only tracks the resolution scopes changed by
+   * the {@code id} keywords on a stack, and the document containing the current subschema. A
+   * descent is used by a single thread.
    */
-  private Schema.Builder lookupReference(final String relPointerString, final JsonObject ctx) {
-    String absPointerString = ReferenceResolver.resolve(id, relPointerString).toString();
-    if (pointerSchemas.containsKey(absPointerString)) {
-      return pointerSchemas.get(absPointerString);
-    }
-    boolean isExternal = !absPointerString.startsWith("#");
-    JSONPointer pointer = isExternal
-        ? JSONPointer.forURL(httpClient, absPointerString)
-        : JSONPointer.forDocument(rootSchemaJson, absPointerString);
-    ReferenceSchema.Builder refBuilder = ReferenceSchema.builder();
-    pointerSchemas.put(absPointerString, refBuilder);
-    QueryResult result = pointer.query();
-    JsonObject resultObject = extend(withoutRef(ctx), result.getQueryResult());
-    SchemaLoader childLoader =
-            selfBuilder().resolutionScope(isExternal ? withoutFragment(absPointerString) : id)
-            .schemaJson(resultObject)
-            .rootSchemaJson(result.getContainingDocument()).build();
-    Schema referredSchema = childLoader.load().build();
-    refBuilder.build().setReferredSchema(referredSchema);
-    return refBuilder;
-  }
+  private final class Descent {
+
+    private JsonObject document;
+
+    private URI[] scopes = new URI[INITIAL_SCOPE_DEPTH];
 
-  private void populatePropertySchemas(final JsonObject propertyDefs,
-      final ObjectSchema.Builder builder) {
-    if (propertyDefs==null||propertyDefs.isEmpty()) {
-      return;
+    private int depth;
+
+    Descent(final JsonObject document, final URI scope) {
+      this.document = document;
+      this.scopes[0] = scope;
     }
-    propertyDefs.fieldNames().forEach(key -> {
-      addPropertySchemaDefinition(key, propertyDefs.getValue(key), builder);
-    });
-  }
 
-  private boolean schemaHasAnyOf(final Collection<String> propNames) {
-    return propNames.stream().filter(schemaJson::containsKey).findAny().isPresent();
-  }
+    private void addDependencies(final ObjectSchema.Builder builder, final JsonObject deps) {
+      for (String ifPresent : deps.fieldNames()) {
+        Object dependency = deps.getValue(ifPresent);
+        if (dependency instanceof JsonObject) {
+          builder.schemaDependency(ifPresent, loadChild(ifPresent, dependency));
+        } else if (dependency instanceof JsonArray) {
+          JsonArray propNames = (JsonArray) dependency;
+          for (int i = 0; i < propNames.size(); ++i) {
+            builder.propertyDependency(ifPresent, propNames.getString(i));
+          }
+        } else {
+          throw new SchemaException(ifPresent, OBJECT_OR_ARRAY, dependency);
+        }
+      }
+    }
 
-  private SchemaLoaderBuilder selfBuilder() {
-    SchemaLoaderBuilder rval = builder().resolutionScope(id).schemaJson(schemaJson)
-        .rootSchemaJson(rootSchemaJson)
-        .pointerSchemas(pointerSchemas)
-        .httpClient(httpClient)
-        .formatValidators(this.formatValidators);
-    return rval;
-  }
+    private CombinedSchema.Builder buildAnyOfSchemaForMultipleTypes(final JsonArray types) {
+      Collection<Schema> subschemas = new ArrayList<Schema>(types.size());
+      for (int i = 0; i < types.size(); ++i) {
+        // the subschemas of the types have no other keywords than their type
+        subschemas.add(intern(loadForType(EMPTY_SCHEMA_JSON, types.getValue(i)).build()));
+      }
+      return CombinedSchema.anyOf(subschemas);
+    }
 
-  private Schema.Builder sniffSchemaByProps() {
-    if (schemaHasAnyOf(ARRAY_SCHEMA_PROPS)) {
-      return buildArraySchema().requiresArray(false);
-    } else if (schemaHasAnyOf(OBJECT_SCHEMA_PROPS)) {
-      return buildObjectSchema().requiresObject(false);
-    } else if (schemaHasAnyOf(NUMBER_SCHEMA_PROPS)) {
-      return buildNumberSchema().requiresNumber(false);
-    } else if (schemaHasAnyOf(STRING_SCHEMA_PROPS)) {
-      return buildStringSchema().requiresString(false);
-    }
-    return null;
-  }
+    private ArraySchema.Builder buildArraySchema(final JsonObject json) {
+      ArraySchema.Builder builder = ArraySchema.builder();
+      builder.minItems(integerValue(json, "minItems"));
+      builder.maxItems(integerValue(json, "maxItems"));
+      Boolean uniqueItems = booleanValue(json, "uniqueItems");
+      if (uniqueItems != null) {
+        builder.uniqueItems(uniqueItems);
+      }
+      Object additionalItems = json.getValue("additionalItems");
+      if (additionalItems instanceof Boolean) {
+        builder.additionalItems((Boolean) additionalItems);
+      } else if (additionalItems instanceof JsonObject) {
+        builder.schemaOfAdditionalItems(loadChild("additionalItems", additionalItems));
+      } else if (additionalItems != null || json.containsKey("additionalItems")) {
+        throw new SchemaException("additionalItems", BOOLEAN_OR_OBJECT, additionalItems);
+      }
+      Object items = json.getValue("items");
+      if (items instanceof JsonObject) {
+        builder.allItemSchema(loadChild("items", items));
+      } else if (items instanceof JsonArray) {
+        JsonArray itemSchemas = (JsonArray) items;
+        for (int i = 0; i < itemSchemas.size(); ++i) {
+          builder.addItemSchema(loadChild("items", itemSchemas.getValue(i)));
+        }
+      } else if (items != null || json.containsKey("items")) {
+        throw new SchemaException("items", OBJECT_OR_ARRAY, items);
+      }
+      return builder;
+    }
 
-  private CombinedSchema.Builder tryCombinedSchema() {
-    List<String> presentKeys = COMB_SCHEMA_PROVIDERS.keySet().stream()
-        .filter(schemaJson::containsKey)
-        .collect(Collectors.toList());
-    if (presentKeys.size() > 1) {
-      throw new SchemaException(String.format(
-          "expected at most 1 of 'allOf', 'anyOf', 'oneOf', %d found", presentKeys.size()));
-    } else if (presentKeys.size() == 1) {
-      String key = presentKeys.get(0);
-      JsonArray subschemaDefs = schemaJson.getJsonArray(key);
-      Collection<Schema> subschemas = IntStream.range(0, subschemaDefs.size())
-          .mapToObj(subschemaDefs::getJsonObject)
-          .map(this::loadChild)
-          .map(Schema.Builder::build)
-          .collect(Collectors.toList());
-      CombinedSchema.Builder combinedSchema = COMB_SCHEMA_PROVIDERS.get(key).apply(
-          subschemas);
+    private EnumSchema.Builder buildEnumSchema(final JsonObject json) {
+      JsonArray arr = arrayValue(json, "enum");
+      Set<Object> possibleValues = new HashSet<>();
+      for (int i = 0; i < arr.size(); ++i) {
+        possibleValues.add(arr.getValue(i));
+      }
+      return EnumSchema.builder().possibleValues(possibleValues);
+    }
+
+    private NotSchema.Builder buildNotSchema(final JsonObject json) {
+      return NotSchema.builder().mustNotMatch(loadChild("not", json.getValue("not")));
+    }
+
+    private NumberSchema.Builder buildNumberSchema(final JsonObject json) {
+      NumberSchema.Builder builder = NumberSchema.builder();
+      builder.minimum(numberValue(json, "minimum"));
+      builder.maximum(numberValue(json, "maximum"));
+      builder.multipleOf(numberValue(json, "multipleOf"));
+      Boolean exclusiveMinimum = booleanValue(json, "exclusiveMinimum");
+      if (exclusiveMinimum != null) {
+        builder.exclusiveMinimum(exclusiveMinimum);
+      }
+      Boolean exclusiveMaximum = booleanValue(json, "exclusiveMaximum");
+      if (exclusiveMaximum != null) {
+        builder.exclusiveMaximum(exclusiveMaximum);
+      }
+      return builder;
+    }
+
+    private ObjectSchema.Builder buildObjectSchema(final JsonObject json) {
+      ObjectSchema.Builder builder = ObjectSchema.builder();
+      builder.minProperties(integerValue(json, "minProperties"));
+      builder.maxProperties(integerValue(json, "maxProperties"));
+      JsonObject properties = objectValue(json, "properties");
+      if (properties != null) {
+        for (String key : properties.fieldNames()) {
+          builder.addPropertySchema(key, loadChild(key, properties.getValue(key)));
+        }
+      }
+      Object additionalProperties = json.getValue("additionalProperties");
+      if (additionalProperties instanceof Boolean) {
+        builder.additionalProperties((Boolean) additionalProperties);
+      } else if (additionalProperties instanceof JsonObject) {
+        builder.schemaOfAdditionalProperties(
+            loadChild("additionalProperties", additionalProperties));
+      } else if (additionalProperties != null || json.containsKey("additionalProperties")) {
+        throw new SchemaException("additionalProperties", BOOLEAN_OR_OBJECT,
+            additionalProperties);
+      }
+      JsonArray required = arrayValue(json, "required");
+      if (required != null) {
+        for (int i = 0; i < required.size(); ++i) {
+          builder.addRequiredProperty(required.getString(i));
+        }
+      }
+      JsonObject patternProperties = objectValue(json, "patternProperties");
+      if (patternProperties != null) {
+        for (String pattern : patternProperties.fieldNames()) {
+          builder.patternProperty(pattern, loadChild(pattern, patternProperties.getValue(pattern)));
+        }
+      }
+      JsonObject dependencies = objectValue(json, "dependencies");
+      if (dependencies != null) {
+        addDependencies(builder, dependencies);
+      }
+      return builder;
+    }
+
+    private Schema.Builder buildSchemaWithoutExplicitType(final JsonObject json) {
+      if (json.isEmpty()) {
+        return EmptySchema.builder();
+      }
+      if (json.containsKey("$ref")) {
+        return lookupReference(json);
+      }
+      Schema.Builder rval = sniffSchemaByProps(json);
+      if (rval != null) {
+        return rval;
+      }
+      if (json.containsKey("not")) {
+        return buildNotSchema(json);
+      }
+      return EmptySchema.builder();
+    }
+
+    private StringSchema.Builder buildStringSchema(final JsonObject json) {
+      StringSchema.Builder builder = StringSchema.builder();
+      builder.minLength(integerValue(json, "minLength"));
+      builder.maxLength(integerValue(json, "maxLength"));
+      builder.pattern(stringValue(json, "pattern"));
+      String format = stringValue(json, "format");
+      if (format != null) {
+        FormatValidator formatValidator = formatValidators.get(format);
+        if (formatValidator != null) {
+          if (!format.equals(formatValidator.formatName())) {
+            formatValidator = new NamedFormatValidator(format, formatValidator);
+          }
+          builder.formatValidator(formatValidator);
+        }
+      }
+      return builder;
+    }
+
+    /**
+     * Loads a subschema, within the resolution scope set by its {@code id}.
+     */
+    private Schema loadChild(final String key, final Object childJson) {
+      if (!(childJson instanceof JsonObject)) {
+        throw new SchemaException(key, JsonObject.class, childJson);
+      }
+      JsonObject json = (JsonObject) childJson;
+      Object childId = json.getValue("id");
+      if (!(childId instanceof String)) {
+        return intern(loadSchema(json).build());
+      }
+      pushScope(resolve((String) childId));
+      try {
+        return intern(loadSchema(json).build());
+      } finally {
+        popScope();
+      }
+    }
+
+    private Schema intern(final Schema schema) {
+      if (interner == null) {
+        return schema;
+      }
+      return interner.intern(schema, savedBytes -> {
+        synchronized (pointerSchemas) {
+          ++internedDuplicateCount;
+          internSavedBytes += savedBytes;
+        }
+      });
+    }
+
+    private Schema.Builder loadForExplicitType(final JsonObject json, final String typeString) {
+      try {
+        switch (typeString) {
+          case "color":
+          case "date":
+          case "string":
+            return buildStringSchema(json);
+          case "long":
+          case "integer":
+            return buildNumberSchema(json).requiresInteger(true);
+          case "number":
+            return buildNumberSchema(json);
+          case "boolean":
+            return BooleanSchema.builder();
+          case "null":
+            return NullSchema.builder();
+          case "array":
+            return buildArraySchema(json);
+          case "object":
+            return buildObjectSchema(json);
+          default:
+            throw new SchemaException(String.format("unknown type: [%s]", typeString));
+        }
+      } catch (NullPointerException e) {
+        throw new SchemaException("Invalid schema", e);
+      }
+    }
+
+    private Schema.Builder loadForType(final JsonObject json, final Object type) {
+      if (type instanceof JsonArray) {
+        return buildAnyOfSchemaForMultipleTypes((JsonArray) type);
+      } else if (type instanceof String) {
+        return loadForExplicitType(json, (String) type);
+      } else {
+        throw new SchemaException("type", ARRAY_OR_STRING, type);
+      }
+    }
+
+    /**
+     * Loads a schema in the current resolution scope. Its {@code id} is applied by the caller.
+     */
+    Schema.Builder loadSchema(final JsonObject json) {
+      Schema.Builder builder;
+      if (json.containsKey("enum")) {
+        builder = buildEnumSchema(json);
+      } else {
+        builder = tryCombinedSchema(json);
+        if (builder == null) {
+          if (!json.containsKey("type")) {
+            builder = buildSchemaWithoutExplicitType(json);
+          } else {
+            builder = loadForType(json, json.getValue("type"));
+          }
+        }
+      }
+      // the annotations are type-checked even if they are not retained
+      String schemaId = stringValue(json, "id");
+      String title = stringValue(json, "title");
+      String description = stringValue(json, "description");
+      if (retainAnnotations) {
+        builder.id(schemaId).title(title).description(description);
+      }
+      // the reference builders are shared by every $ref to the same pointer
+      if (rawJsonRetention == RawJsonRetention.ALL
+          && !(builder instanceof ReferenceSchema.Builder)) {
+        builder.jsonSchema(json);
+      }
+      return builder;
+    }
+
+    /**
+     * Returns a schema builder instance after looking up the JSON pointer.
+     */
+    private Schema.Builder lookupReference(final JsonObject ctx) {
+      Object ref = ctx.getValue("$ref");
+      if (!(ref instanceof String)) {
+        throw new SchemaException("$ref", String.class, ref);
+      }
+      String resolved = resolve((String) ref).toString();
+      // an empty fragment refers to the whole document, which is registered without it
+      String absPointerString = resolved.length() > 1 && resolved.endsWith("#")
+          ? resolved.substring(0, resolved.length() - 1) : resolved;
+      ReferenceSchema.Builder refBuilder;
+      synchronized (pointerSchemas) {
+        refBuilder = pointerSchemas.get(absPointerString);
+      }
+      if (refBuilder != null) {
+        return refBuilder;
+      }
+      refBuilder = ReferenceSchema.builder().refValue(absPointerString);
+      if (lazyReferences) {
+        JsonObject lazyDocument = document;
+        URI lazyScope = scopes[depth];
+        // loaded under the lock of the reference only, and set before the reference is published
+        refBuilder.build().setReferredSchemaLoader(() -> new Descent(lazyDocument, lazyScope)
+            .loadReferredSchema(absPointerString, ctx));
+        return register(absPointerString, refBuilder);
+      }
+      ReferenceSchema.Builder registered = register(absPointerString, refBuilder);
+      if (registered == refBuilder) {
+        Schema referredSchema;
+        try {
+          referredSchema = loadReferredSchema(absPointerString, ctx);
+        } catch (RuntimeException e) {
+          // the reference may already be shared with other documents, which fail on validation
+          refBuilder.build().setReferredSchemaLoader(() -> {
+            throw new SchemaException(
+                "referred schema " + absPointerString + " failed to load", e);
+          });
+          throw e;
+        }
+        refBuilder.build().setReferredSchema(referredSchema);
+      }
+      return registered;
+    }
+
+    private Schema loadReferredSchema(final String absPointerString, final JsonObject ctx) {
+      boolean isExternal = !absPointerString.startsWith("#");
+      int poundIdx = absPointerString.indexOf('#');
+      String fragment = poundIdx == -1 ? "" : absPointerString.substring(poundIdx);
+      SchemaDocumentIndex rootIndex = documentIndex(document);
+      JsonObject containingDocument;
+      JsonObject queryResult;
+      Optional<JsonObject> identified = rootIndex.getById(absPointerString);
+      if (identified.isPresent()) {
+        // plain name fragment, or a URL identifying a subschema of this document
+        containingDocument = isExternal ? identified.get() : document;
+        queryResult = identified.get();
+      } else if (!isExternal) {
+        containingDocument = document;
+        queryResult = rootIndex.lookup(fragment);
+      } else {
+        String documentUrl = poundIdx == -1 ? absPointerString
+            : absPointerString.substring(0, poundIdx);
+        containingDocument = rootIndex.getById(documentUrl)
+            .orElseGet(() -> documentCache.get(documentUrl,
+                url -> JSONPointer.executeWith(httpClient, url)));
+        queryResult = documentIndex(containingDocument).lookup(fragment);
+      }
+      // a plain {"$ref": ...} object has nothing to merge into the referred schema
+      JsonObject resultObject = ctx.size() == 1 ? queryResult
+          : extend(withoutRef(ctx), queryResult);
+      URI referredScope = isExternal ? withoutFragment(absPointerString) : scopes[depth];
+      if (referredScope == null) {
+        Object referredId = resultObject.getValue("id");
+        if (referredId instanceof String) {
+          referredScope = URI.create((String) referredId);
+        }
+      }
+      JsonObject previousDocument = document;
+      document = containingDocument;
+      pushScope(referredScope);
+      try {
+        return intern(loadSchema(resultObject).build());
+      } finally {
+        popScope();
+        document = previousDocument;
+      }
+    }
+
+    private void popScope() {
+      scopes[depth--] = null;
+    }
+
+    private void pushScope(final URI scope) {
+      if (++depth == scopes.length) {
+        scopes = Arrays.copyOf(scopes, depth * 2);
+      }
+      scopes[depth] = scope;
+    }
+
+    /**
+     * Resolves an {@code id} or {@code $ref} against the current resolution scope.
+     */
+    private URI resolve(final String segment) {
+      URI scope = scopes[depth];
+      return scope == null ? URI.create(segment) : scope.resolve(segment);
+    }
+
+    private Schema.Builder sniffSchemaByProps(final JsonObject json) {
+      if (hasAnyOf(json, ARRAY_SCHEMA_PROPS)) {
+        return buildArraySchema(json).requiresArray(false);
+      } else if (hasAnyOf(json, OBJECT_SCHEMA_PROPS)) {
+        return buildObjectSchema(json).requiresObject(false);
+      } else if (hasAnyOf(json, NUMBER_SCHEMA_PROPS)) {
+        return buildNumberSchema(json).requiresNumber(false);
+      } else if (hasAnyOf(json, STRING_SCHEMA_PROPS)) {
+        return buildStringSchema(json).requiresString(false);
+      }
+      return null;
+    }
+
+    private CombinedSchema.Builder tryCombinedSchema(final JsonObject json) {
+      String key = null;
+      int presentKeyCount = 0;
+      for (String candidate : COMBINED_SCHEMA_PROPS) {
+        if (json.containsKey(candidate)) {
+          key = candidate;
+          ++presentKeyCount;
+        }
+      }
+      if (presentKeyCount > 1) {
+        throw new SchemaException(String.format(
+            "expected at most 1 of 'allOf', 'anyOf', 'oneOf', %d found", presentKeyCount));
+      } else if (key == null) {
+        return null;
+      }
+      JsonArray subschemaDefs = arrayValue(json, key);
+      Collection<Schema> subschemas = new ArrayList<>(subschemaDefs.size());
+      for (int i = 0; i < subschemaDefs.size(); ++i) {
+        subschemas.add(loadChild(key, subschemaDefs.getValue(i)));
+      }
+      CombinedSchema.Builder combinedSchema = COMB_SCHEMA_PROVIDERS.get(key).apply(subschemas);
       Schema.Builder baseSchema;
-      if (schemaJson.containsKey("type")) {
-        baseSchema = loadForType(schemaJson.getValue("type"));
+      if (json.containsKey("type")) {
+        baseSchema = loadForType(json, json.getValue("type"));
       } else {
-        baseSchema = sniffSchemaByProps();
+        baseSchema = sniffSchemaByProps(json);
       }
       if (baseSchema == null) {
         return combinedSchema;
       } else {
-        return CombinedSchema.allOf(Arrays.asList(baseSchema.build(), combinedSchema.build()));
+        return CombinedSchema.allOf(Arrays.asList(intern(baseSchema.build()),
+            intern(combinedSchema.build())));
       }
-    } else {
-      return null;
     }
+
   }
 
-  private TypeBasedMultiplexer typeMultiplexer(final Object obj) {
-    return typeMultiplexer(null, obj);
+  private static JsonArray arrayValue(final JsonObject json, final String key) {
+    Object value = json.getValue(key);
+    if (value == null || value instanceof JsonArray) {
+      return (JsonArray) value;
+    }
+    throw new SchemaException(key, JsonArray.class, value);
   }
 
-  private TypeBasedMultiplexer typeMultiplexer(final String keyOfObj, final Object obj) {
-    TypeBasedMultiplexer multiplexer = new TypeBasedMultiplexer(keyOfObj, obj, id);
-    multiplexer.addResolutionScopeChangeListener(scope -> {
-      this.id = scope;
-    });
-    return multiplexer;
+  private static Boolean booleanValue(final JsonObject json, final String key) {
+    Object value = json.getValue(key);
+    if (value == null || value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    throw new SchemaException(key, Boolean.class, value);
   }
 
-  /**
-   * Rerurns a shallow copy of the {@code original} object, but it does not copy the {@code $ref}
-   * key, in case it is present in {@code original}.
-   */
-  JsonObject withoutRef(final JsonObject original) {
-    if (original==null||original.isEmpty()) {
-      return original;
+  private static boolean hasAnyOf(final JsonObject json, final String[] keys) {
+    for (String key : keys) {
+      if (json.containsKey(key)) {
+        return true;
+      }
     }
-    JsonObject rval = new JsonObject();
-    original.fieldNames().stream().filter(name -> !"$ref".equals(name))
-        .forEach(name -> rval.put(name, original.getValue(name)));
-    return rval;
+    return false;
+  }
+
+  private static Integer integerValue(final JsonObject json, final String key) {
+    Object value = json.getValue(key);
+    if (value == null || value instanceof Integer) {
+      return (Integer) value;
+    }
+    throw new SchemaException(key, Integer.class, value);
+  }
+
+  private static Number numberValue(final JsonObject json, final String key) {
+    Object value = json.getValue(key);
+    if (value == null || value instanceof Number) {
+      return (Number) value;
+    }
+    throw new SchemaException(key, Number.class, value);
+  }
+
+  private static JsonObject objectValue(final JsonObject json, final String key) {
+    Object value = json.getValue(key);
+    if (value == null || value instanceof JsonObject) {
+      return (JsonObject) value;
+    }
+    throw new SchemaException(key, JsonObject.class, value);
   }
+
+  private static String stringValue(final JsonObject json, final String key) {
+    Object value = json.getValue(key);
+    if (value == null || value instanceof String) {
+      return (String) value;
+    }
+    throw new SchemaException(key, String.class, value);
+  }
+
 }
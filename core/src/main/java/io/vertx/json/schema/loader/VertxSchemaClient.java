@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * {@link AsyncSchemaClient} implementation fetching {@code http} and {@code https} URLs with the
+ * Vert.x {@link HttpClient} and reading {@code file} URLs with the Vert.x file system. Redirects
+ * are followed up to 5 times.
+ *
+ * <p>
+ * The HTTP clients are created lazily, and they are released by {@link #close()}.
+ * </p>
+ */
+public class VertxSchemaClient implements AsyncSchemaClient, AutoCloseable {
+
+  private static final int MAX_REDIRECTS = 5;
+
+  private static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+  private final Vertx vertx;
+
+  private HttpClient httpClient;
+
+  private HttpClient httpsClient;
+
+  /**
+   * Constructor.
+   *
+   * @param vertx
+   *          the Vert.x instance creating the HTTP clients
+   */
+  public VertxSchemaClient(final Vertx vertx) {
+    this.vertx = Objects.requireNonNull(vertx, "vertx cannot be null");
+  }
+
+  /**
+   * Closes the HTTP clients created by this instance.
+   */
+  @Override
+  public synchronized void close() {
+    if (httpClient != null) {
+      httpClient.close();
+      httpClient = null;
+    }
+    if (httpsClient != null) {
+      httpsClient.close();
+      httpsClient = null;
+    }
+  }
+
+  private void fetch(final URI uri, final int redirectsLeft, final Future<Buffer> result) {
+    HttpClientRequest request = httpClient("https".equalsIgnoreCase(uri.getScheme()))
+        .getAbs(uri.toString(), response -> {
+          int status = response.statusCode();
+          String location = response.getHeader("Location");
+          if (status >= 300 && status < 400 && location != null) {
+            if (redirectsLeft == 0) {
+              result.fail("too many redirects when fetching " + uri);
+            } else {
+              fetch(uri.resolve(location), redirectsLeft - 1, result);
+            }
+          } else if (status != 200) {
+            result.fail(String.format("failed to fetch %s: HTTP %d %s", uri, status,
+                response.statusMessage()));
+          } else {
+            response.exceptionHandler(result::fail);
+            response.bodyHandler(result::complete);
+          }
+        });
+    request.exceptionHandler(result::fail);
+    request.setTimeout(DEFAULT_TIMEOUT_MILLIS);
+    request.end();
+  }
+
+  @Override
+  public Future<Buffer> get(final String url) {
+    Future<Buffer> result = Future.future();
+    URI uri;
+    try {
+      uri = new URI(url);
+    } catch (URISyntaxException e) {
+      result.fail(e);
+      return result;
+    }
+    String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase();
+    switch (scheme) {
+      case "http":
+      case "https":
+        fetch(uri, MAX_REDIRECTS, result);
+        break;
+      case "file":
+        vertx.fileSystem().readFile(Paths.get(uri).toString(), result.completer());
+        break;
+      default:
+        result.fail("unsupported URL scheme: " + url);
+    }
+    return result;
+  }
+
+  private synchronized HttpClient httpClient(final boolean ssl) {
+    if (ssl) {
+      if (httpsClient == null) {
+        httpsClient = vertx.createHttpClient(new HttpClientOptions().setSsl(true));
+      }
+      return httpsClient;
+    }
+    if (httpClient == null) {
+      httpClient = vertx.createHttpClient();
+    }
+    return httpClient;
+  }
+
+}
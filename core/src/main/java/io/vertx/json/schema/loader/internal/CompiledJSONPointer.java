@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader.internal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.SchemaException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A JSON pointer fragment parsed into its unescaped segments, so that it can be evaluated against
+ * any number of documents without parsing it again. The evaluation takes time proportional to the
+ * number of segments.
+ *
+ * <p>
+ * The instances are immutable. {@link #compile(String)} keeps the recently compiled pointers, since
+ * the same pointers are usually resolved by many loadings.
+ * </p>
+ */
+public final class CompiledJSONPointer {
+
+  private static final int CACHE_SIZE = 1024;
+
+  private static final Cache<String, CompiledJSONPointer> CACHE = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_SIZE)
+      .build();
+
+  /**
+   * Returns the compiled form of a fragment.
+   *
+   * @param fragment
+   *          the fragment, either empty or starting with {@code '#'}
+   * @return the compiled pointer
+   * @throws IllegalArgumentException
+   *           if {@code fragment} is not empty and does not start with {@code '#'}
+   */
+  public static CompiledJSONPointer compile(final String fragment) {
+    Objects.requireNonNull(fragment, "fragment cannot be null");
+    CompiledJSONPointer rval = CACHE.getIfPresent(fragment);
+    if (rval == null) {
+      rval = new CompiledJSONPointer(fragment);
+      CACHE.put(fragment, rval);
+    }
+    return rval;
+  }
+
+  private static String unescape(final String segment) {
+    if (segment.indexOf('~') == -1 && segment.indexOf('%') == -1) {
+      return segment;
+    }
+    return segment.replace("~1", "/").replace("~0", "~").replace("%25", "%");
+  }
+
+  private final String fragment;
+
+  private final String[] segments;
+
+  private CompiledJSONPointer(final String fragment) {
+    this.fragment = fragment;
+    if (fragment.isEmpty()) {
+      this.segments = new String[0];
+      return;
+    }
+    String[] path = fragment.split("/");
+    if (path.length == 0 || !path[0].startsWith("#")) {
+      throw new IllegalArgumentException("JSON pointers must start with a '#'");
+    }
+    this.segments = new String[path.length - 1];
+    for (int i = 1; i < path.length; ++i) {
+      segments[i - 1] = unescape(path[i]);
+    }
+  }
+
+  /**
+   * Evaluates this pointer against {@code document}.
+   *
+   * @param document
+   *          the document to be queried
+   * @return the JSON object pointed by this pointer
+   * @throws SchemaException
+   *           if a segment of the pointer is not found, or it does not point to a JSON object. The
+   *           message of the exception does not contain the document.
+   */
+  public JsonObject evaluate(final JsonObject document) {
+    Object current = document;
+    for (String segment : segments) {
+      if (current instanceof JsonObject) {
+        JsonObject object = (JsonObject) current;
+        if (!object.containsKey(segment)) {
+          throw notFound(segment);
+        }
+        current = object.getValue(segment);
+      } else if (current instanceof JsonArray) {
+        JsonArray array = (JsonArray) current;
+        int index;
+        try {
+          index = Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+          throw notFound(segment);
+        }
+        if (index < 0 || index >= array.size()) {
+          throw notFound(segment);
+        }
+        current = array.getValue(index);
+      } else {
+        throw notFound(segment);
+      }
+    }
+    if (!(current instanceof JsonObject)) {
+      throw new SchemaException(String.format(
+          "failed to resolve JSON pointer [%s]. It points to a %s instead of a JSON object",
+          fragment, current == null ? "null" : current.getClass().getSimpleName()));
+    }
+    return (JsonObject) current;
+  }
+
+  public String getFragment() {
+    return fragment;
+  }
+
+  /**
+   * Returns the unescaped segments of the pointer.
+   *
+   * @return the segments
+   */
+  public List<String> getSegments() {
+    return Collections.unmodifiableList(Arrays.asList(segments));
+  }
+
+  private SchemaException notFound(final String segment) {
+    return new SchemaException(String.format(
+        "failed to resolve JSON pointer [%s]. Segment [%s] not found", fragment, segment));
+  }
+
+  @Override
+  public String toString() {
+    return fragment;
+  }
+
+}
@@ -15,10 +15,11 @@
  */
 package io.vertx.json.schema.loader.internal;
 
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.loader.SchemaClient;
 import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.events.SchemaEventType;
+import io.vertx.json.schema.events.SchemaEvents;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -77,7 +78,23 @@ public class JSONPointer {
 
   }
 
-  private static JsonObject executeWith(final SchemaClient client, final String url) {
+  /**
+   * Fetches and parses a remote document.
+   *
+   * @param client
+   *          the client implementation to be used for obtaining the remote raw JSON schema
+   * @param url
+   *          the URL of the document, without fragment
+   * @return the parsed document
+   * @throws SchemaException
+   *           if the response is not a JSON object
+   */
+  public static JsonObject executeWith(final SchemaClient client, final String url) {
+    return SchemaEvents.trace(SchemaEventType.REFERENCE_FETCH, url, null,
+        () -> fetch(client, url));
+  }
+
+  private static JsonObject fetch(final SchemaClient client, final String url) {
     String resp = null;
     BufferedReader buffReader = null;
     InputStreamReader reader = null;
@@ -158,32 +175,7 @@ public class JSONPointer {
    */
   public QueryResult query() {
     JsonObject document = documentProvider.get();
-    if (fragment.isEmpty()) {
-      return new QueryResult(document, document);
-    }
-    String[] path = fragment.split("/");
-    if ((path[0] == null) || !path[0].startsWith("#")) {
-      throw new IllegalArgumentException("JSON pointers must start with a '#'");
-    }
-    Object current = document;
-    for (int i = 1; i < path.length; ++i) {
-      String segment = unescape(path[i]);
-      if (current instanceof JsonObject) {
-        if (!((JsonObject) current).containsKey(segment)) {
-          throw new SchemaException(String.format(
-              "failed to resolve JSON pointer [%s]. Segment [%s] not found in %s", fragment,
-              segment, document.toString()));
-        }
-        current = ((JsonObject) current).getValue(segment);
-      } else if (current instanceof JsonArray) {
-        current = ((JsonArray) current).getValue(Integer.parseInt(segment));
-      }
-    }
-    return new QueryResult(document, (JsonObject) current);
-  }
-
-  private String unescape(final String segment) {
-    return segment.replace("~1", "/").replace("~0", "~").replace("%25", "%");
+    return new QueryResult(document, CompiledJSONPointer.compile(fragment).evaluate(document));
   }
 
 }
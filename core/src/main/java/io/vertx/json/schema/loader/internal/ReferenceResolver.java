@@ -21,8 +21,7 @@ import java.net.URISyntaxException;
 /**
  * Resolves an {@code id} or {@code ref} against a parent scope.
  *
- * Used by TypeBasedMultiplexer (for handling <code>id</code>s) and by SchemaLoader (for handling
- * <code>ref</code>s).
+ * Used by SchemaLoader (for handling <code>id</code>s and <code>ref</code>s).
  */
 public final class ReferenceResolver {
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader.internal;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.net.URI;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the URLs of the remote documents referenced by a schema document, so that they can be
+ * fetched before the document is loaded.
+ *
+ * <p>
+ * The scan is a cheap approximation of the resolution performed by the schema loader: every
+ * {@code $ref} string is resolved against the {@code id} scopes of its enclosing objects, and the
+ * absolute results are returned without their fragments. It may return URLs which are never
+ * dereferenced by the loader (for example if a property is called {@code $ref}), and it may miss
+ * URLs which the loader resolves differently, so callers should treat its result as a hint.
+ * </p>
+ */
+public final class ReferenceScanner {
+
+  /**
+   * Returns the fragment-less absolute URLs referenced by {@code document}.
+   *
+   * @param document
+   *          the schema document
+   * @param scope
+   *          the resolution scope of the document, may be {@code null}
+   * @return the referenced document URLs, in the order of their first occurrence
+   */
+  public static Set<String> scan(final JsonObject document, final URI scope) {
+    Set<String> rval = new LinkedHashSet<>();
+    scanValue(document, scope, rval);
+    return rval;
+  }
+
+  private static void scanValue(final Object value, final URI scope, final Set<String> urls) {
+    if (value instanceof JsonObject) {
+      scanObject((JsonObject) value, scope, urls);
+    } else if (value instanceof JsonArray) {
+      for (Object item : (JsonArray) value) {
+        scanValue(item, scope, urls);
+      }
+    }
+  }
+
+  private static void scanObject(final JsonObject object, final URI scope,
+      final Set<String> urls) {
+    URI objectScope = scope;
+    try {
+      Object id = object.getValue("id");
+      if (id instanceof String) {
+        objectScope = ReferenceResolver.resolve(scope, (String) id);
+      }
+      Object ref = object.getValue("$ref");
+      if (ref instanceof String) {
+        URI resolved = ReferenceResolver.resolve(objectScope, (String) ref);
+        if (resolved.isAbsolute()) {
+          String url = resolved.toString();
+          int poundIdx = url.indexOf('#');
+          urls.add(poundIdx == -1 ? url : url.substring(0, poundIdx));
+        }
+      }
+    } catch (RuntimeException e) {
+      // malformed URIs are reported by the loader
+    }
+    for (String key : object.fieldNames()) {
+      scanValue(object.getValue(key), objectScope, urls);
+    }
+  }
+
+  private ReferenceScanner() {
+  }
+
+}
@@ -19,8 +19,7 @@ import java.net.URI;
 import java.util.function.Consumer;
 
 /**
- * Event handler interface used by {@link TypeBasedMultiplexer} to notify client(s) (which is
- * currently a schema loader instance) about resolution scope changes.
+ * Event handler interface to notify client(s) about resolution scope changes.
  */
 @FunctionalInterface
 public interface ResolutionScopeChangeListener extends Consumer<URI> {
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader.internal;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.SchemaException;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Index of the subschemas of a schema document which are commonly referenced: the entries of its
+ * top-level {@code definitions}, and the subschemas having an {@code id}. The index is built by a
+ * single pass over the document, and it is valid as long as the document is not modified, so the
+ * loader builds it once per document and loading.
+ *
+ * <p>
+ * The {@code id}s are resolved against the {@code id}s of their enclosing subschemas only, so the
+ * ids of a document without an absolute root id are indexed as relative URIs.
+ * </p>
+ */
+public final class SchemaDocumentIndex {
+
+  private static String escape(final String segment) {
+    if (segment.indexOf('~') == -1 && segment.indexOf('/') == -1) {
+      return segment;
+    }
+    return segment.replace("~", "~0").replace("/", "~1");
+  }
+
+  private final JsonObject document;
+
+  private final Map<String, JsonObject> definitions = new HashMap<>();
+
+  private final Map<String, JsonObject> ids = new HashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param document
+   *          the schema document to be indexed
+   */
+  public SchemaDocumentIndex(final JsonObject document) {
+    this.document = Objects.requireNonNull(document, "document cannot be null");
+    Object definitionsJson = document.getValue("definitions");
+    if (definitionsJson instanceof JsonObject) {
+      JsonObject defs = (JsonObject) definitionsJson;
+      for (String name : defs.fieldNames()) {
+        Object definition = defs.getValue(name);
+        if (definition instanceof JsonObject) {
+          definitions.put("#/definitions/" + escape(name), (JsonObject) definition);
+        }
+      }
+    }
+    indexIds(document, null);
+  }
+
+  /**
+   * Returns the subschema identified by {@code uri}.
+   *
+   * @param uri
+   *          the resolved URI, with or without fragment
+   * @return the subschema whose resolved {@code id} is {@code uri}, or an empty optional
+   */
+  public Optional<JsonObject> getById(final String uri) {
+    return Optional.ofNullable(ids.get(uri));
+  }
+
+  public JsonObject getDocument() {
+    return document;
+  }
+
+  private void indexIds(final Object value, final URI scope) {
+    if (value instanceof JsonObject) {
+      JsonObject object = (JsonObject) value;
+      URI objectScope = scope;
+      Object id = object.getValue("id");
+      if (id instanceof String) {
+        try {
+          objectScope = scope == null ? URI.create((String) id) : scope.resolve((String) id);
+          ids.putIfAbsent(objectScope.toString(), object);
+        } catch (RuntimeException e) {
+          // malformed ids are reported by the loader
+        }
+      }
+      for (String key : object.fieldNames()) {
+        if (!"enum".equals(key)) {
+          indexIds(object.getValue(key), objectScope);
+        }
+      }
+    } else if (value instanceof JsonArray) {
+      for (Object item : (JsonArray) value) {
+        indexIds(item, scope);
+      }
+    }
+  }
+
+  /**
+   * Evaluates a JSON pointer fragment against the document. The top-level definitions are looked
+   * up in the index, other pointers are evaluated by their {@link CompiledJSONPointer}.
+   *
+   * @param fragment
+   *          the fragment, either empty or starting with {@code '#'}
+   * @return the JSON object pointed by {@code fragment}
+   * @throws SchemaException
+   *           if the pointer can not be resolved
+   */
+  public JsonObject lookup(final String fragment) {
+    JsonObject definition = definitions.get(fragment);
+    if (definition != null) {
+      return definition;
+    }
+    return CompiledJSONPointer.compile(fragment).evaluate(document);
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.ValidationException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default {@link ValidationMetrics}, keeping striped counters in memory for each schema name.
+ *
+ * <p>
+ * For each schema name it counts the validations, the failed validations, the violations by
+ * keyword, and optionally the evaluations by keyword, and it keeps a {@link LatencyHistogram} of
+ * the validations. The counters are read by {@link #snapshot()}.
+ * </p>
+ */
+public class InMemoryValidationMetrics implements ValidationMetrics {
+
+  /**
+   * The counters of a single schema name.
+   */
+  private static class SchemaCounters {
+
+    private final LongAdder failures = new LongAdder();
+
+    private final ConcurrentMap<String, LongAdder> violationsByKeyword = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> evaluationsByKeyword = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+  }
+
+  /**
+   * The keyword of the violations without a known keyword.
+   */
+  static final String UNKNOWN_KEYWORD = "unknown";
+
+  private static void increment(final ConcurrentMap<String, LongAdder> counters,
+      final String key) {
+    LongAdder counter = counters.get(key);
+    if (counter == null) {
+      counter = counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+    counter.increment();
+  }
+
+  private static Map<String, Long> sums(final Map<String, LongAdder> counters) {
+    Map<String, Long> rval = new TreeMap<>();
+    counters.forEach((key, counter) -> rval.put(key, counter.sum()));
+    return Collections.unmodifiableMap(rval);
+  }
+
+  private final ConcurrentMap<String, SchemaCounters> counters = new ConcurrentHashMap<>();
+
+  private final boolean keywordMetricsEnabled;
+
+  /**
+   * Creates an instance without keyword evaluation counts.
+   */
+  public InMemoryValidationMetrics() {
+    this(false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param keywordMetricsEnabled
+   *          {@code true} to count the evaluations by keyword
+   */
+  public InMemoryValidationMetrics(final boolean keywordMetricsEnabled) {
+    this.keywordMetricsEnabled = keywordMetricsEnabled;
+  }
+
+  private void countViolations(final SchemaCounters schemaCounters,
+      final ValidationException failure) {
+    if (failure.getCausingExceptions().isEmpty()) {
+      String keyword = failure.getKeyword();
+      increment(schemaCounters.violationsByKeyword, keyword == null ? UNKNOWN_KEYWORD : keyword);
+    } else {
+      failure.getCausingExceptions().forEach(cause -> countViolations(schemaCounters, cause));
+    }
+  }
+
+  private SchemaCounters countersOf(final String schemaName) {
+    SchemaCounters rval = counters.get(schemaName);
+    if (rval == null) {
+      rval = counters.computeIfAbsent(schemaName, name -> new SchemaCounters());
+    }
+    return rval;
+  }
+
+  @Override
+  public boolean isKeywordMetricsEnabled() {
+    return keywordMetricsEnabled;
+  }
+
+  @Override
+  public void keywordEvaluated(final String schemaName, final String keyword) {
+    increment(countersOf(schemaName).evaluationsByKeyword, keyword);
+  }
+
+  /**
+   * Discards the counters of all schema names.
+   */
+  public void reset() {
+    counters.clear();
+  }
+
+  /**
+   * Copies the current counters. The validations running concurrently may be partially included.
+   *
+   * @return the counters, keyed and sorted by schema name
+   */
+  public Map<String, SchemaMetricsSnapshot> snapshot() {
+    Map<String, SchemaMetricsSnapshot> rval = new TreeMap<>();
+    counters.forEach((schemaName, schemaCounters) -> {
+      LatencyHistogram.Snapshot latency = schemaCounters.latency.snapshot();
+      rval.put(schemaName, new SchemaMetricsSnapshot(schemaName,
+          latency.getCount(),
+          schemaCounters.failures.sum(),
+          sums(schemaCounters.violationsByKeyword),
+          sums(schemaCounters.evaluationsByKeyword),
+          latency));
+    });
+    return Collections.unmodifiableMap(rval);
+  }
+
+  /**
+   * Returns the JSON representation of a {@link #snapshot()}.
+   *
+   * @return a new JSON object, keyed by schema name
+   */
+  public JsonObject snapshotJson() {
+    JsonObject rval = new JsonObject();
+    snapshot().forEach((schemaName, snapshot) -> rval.put(schemaName, snapshot.toJson()));
+    return rval;
+  }
+
+  @Override
+  public void validationCompleted(final String schemaName, final long elapsedNanos,
+      final ValidationException failure) {
+    SchemaCounters schemaCounters = countersOf(schemaName);
+    // the validations are counted by the histogram
+    schemaCounters.latency.record(elapsedNanos);
+    if (failure != null) {
+      schemaCounters.failures.increment();
+      countViolations(schemaCounters, failure);
+    }
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the evaluations of a keyword of a schema node, part of a {@link ValidationProfile}.
+ *
+ * <p>
+ * The self cost excludes the cost of the keywords of the subschemas evaluated by the keyword, like
+ * the properties validated by {@code properties}. The total cost includes them, but it counts a
+ * recursive evaluation of the same keyword of the same node only once.
+ * </p>
+ */
+public class KeywordCost {
+
+  private final Schema schema;
+
+  private final String pointer;
+
+  private final String keyword;
+
+  private final long evaluationCount;
+
+  private final long failureCount;
+
+  private final long selfNanos;
+
+  private final long totalNanos;
+
+  private final long selfBytes;
+
+  private final long totalBytes;
+
+  KeywordCost(final Schema schema, final String pointer, final String keyword,
+      final long evaluationCount, final long failureCount, final long selfNanos,
+      final long totalNanos, final long selfBytes, final long totalBytes) {
+    this.schema = schema;
+    this.pointer = pointer;
+    this.keyword = keyword;
+    this.evaluationCount = evaluationCount;
+    this.failureCount = failureCount;
+    this.selfNanos = selfNanos;
+    this.totalNanos = totalNanos;
+    this.selfBytes = selfBytes;
+    this.totalBytes = totalBytes;
+  }
+
+  public long getEvaluationCount() {
+    return evaluationCount;
+  }
+
+  public long getFailureCount() {
+    return failureCount;
+  }
+
+  public String getKeyword() {
+    return keyword;
+  }
+
+  /**
+   * Returns the location of the schema node in the schema document, see
+   * {@link io.vertx.json.schema.SchemaLocations}.
+   *
+   * @return the JSON pointer, or {@code null} if the node is not reachable from the root
+   */
+  public String getPointer() {
+    return pointer;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns the bytes allocated by the evaluations, excluding the subschemas.
+   *
+   * @return the allocated bytes, or 0 if the allocations are not measured
+   */
+  public long getSelfBytes() {
+    return selfBytes;
+  }
+
+  public long getSelfTime(final TimeUnit unit) {
+    return unit.convert(selfNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the bytes allocated by the evaluations, including the subschemas.
+   *
+   * @return the allocated bytes, or 0 if the allocations are not measured
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public long getTotalTime(final TimeUnit unit) {
+    return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the JSON representation of this cost, with durations in microseconds.
+   *
+   * @return a new JSON object
+   */
+  public JsonObject toJson() {
+    return new JsonObject()
+        .put("pointer", pointer)
+        .put("keyword", keyword)
+        .put("evaluations", evaluationCount)
+        .put("failures", failureCount)
+        .put("selfMicros", getSelfTime(TimeUnit.MICROSECONDS))
+        .put("totalMicros", getTotalTime(TimeUnit.MICROSECONDS))
+        .put("selfBytes", selfBytes)
+        .put("totalBytes", totalBytes);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %s: evaluations: %d, self: %d us, total: %d us, self allocated: %d B",
+        pointer, keyword, evaluationCount, getSelfTime(TimeUnit.MICROSECONDS),
+        getTotalTime(TimeUnit.MICROSECONDS), selfBytes);
+  }
+
+}
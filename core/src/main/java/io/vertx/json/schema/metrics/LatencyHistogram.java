@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of durations with power-of-two buckets: bucket {@code i} counts the
+ * durations from <code>2<sup>i-1</sup></code> to <code>2<sup>i</sup> - 1</code> nanoseconds, so
+ * the percentiles are accurate within a factor of two.
+ */
+public class LatencyHistogram {
+
+  /**
+   * An immutable copy of the counts of a {@link LatencyHistogram}.
+   */
+  public static class Snapshot {
+
+    private final long[] bucketCounts;
+
+    private final long count;
+
+    private final long totalNanos;
+
+    private final long maxNanos;
+
+    Snapshot(final long[] bucketCounts, final long totalNanos, final long maxNanos) {
+      this.bucketCounts = bucketCounts;
+      this.count = Arrays.stream(bucketCounts).sum();
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Returns the counts of the buckets, see {@link LatencyHistogram}.
+     *
+     * @return a copy of the counts, indexed by bucket
+     */
+    public long[] getBucketCounts() {
+      return bucketCounts.clone();
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMax(final TimeUnit unit) {
+      return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the average duration.
+     *
+     * @param unit
+     *          the unit of the returned value
+     * @return the average duration, or 0 if no duration was recorded
+     */
+    public double getMean(final TimeUnit unit) {
+      if (count == 0) {
+        return 0;
+      }
+      return (double) totalNanos / count / TimeUnit.NANOSECONDS.convert(1, unit);
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the {@code quantile} of the durations,
+     * bounded by the maximum duration.
+     *
+     * @param quantile
+     *          the quantile, between 0 and 1, like 0.99
+     * @param unit
+     *          the unit of the returned value
+     * @return the duration, or 0 if no duration was recorded
+     */
+    public long getPercentile(final double quantile, final TimeUnit unit) {
+      if (quantile < 0 || quantile > 1) {
+        throw new IllegalArgumentException("quantile must be between 0 and 1, was " + quantile);
+      }
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < bucketCounts.length; ++i) {
+        seen += bucketCounts[i];
+        if (seen >= rank) {
+          return unit.convert(Math.min(upperBound(i), maxNanos), TimeUnit.NANOSECONDS);
+        }
+      }
+      return 0;
+    }
+
+    public long getTotal(final TimeUnit unit) {
+      return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the JSON representation of this snapshot, with durations in microseconds.
+     *
+     * @return a new JSON object
+     */
+    public JsonObject toJson() {
+      JsonArray buckets = new JsonArray();
+      Arrays.stream(bucketCounts).forEach(buckets::add);
+      return new JsonObject()
+          .put("count", count)
+          .put("totalMicros", getTotal(TimeUnit.MICROSECONDS))
+          .put("maxMicros", getMax(TimeUnit.MICROSECONDS))
+          .put("p50Micros", getPercentile(0.5, TimeUnit.MICROSECONDS))
+          .put("p99Micros", getPercentile(0.99, TimeUnit.MICROSECONDS))
+          .put("buckets", buckets);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count: %d, mean: %.1f us, p99: %d us, max: %d us", count,
+          getMean(TimeUnit.MICROSECONDS), getPercentile(0.99, TimeUnit.MICROSECONDS),
+          getMax(TimeUnit.MICROSECONDS));
+    }
+
+  }
+
+  /**
+   * The number of buckets, the last one counts the durations longer than 2<sup>46</sup>
+   * nanoseconds, about 20 hours.
+   */
+  static final int BUCKET_COUNT = 48;
+
+  static int bucketIndex(final long nanos) {
+    return Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+  }
+
+  private static long upperBound(final int bucketIndex) {
+    return bucketIndex == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucketIndex) - 1;
+  }
+
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+  private final LongAdder totalNanos = new LongAdder();
+
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Constructor.
+   */
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos
+   *          the duration in nanoseconds
+   */
+  public void record(final long nanos) {
+    buckets[bucketIndex(nanos)].increment();
+    totalNanos.add(nanos);
+    // the maximum rarely changes, so it is read before being written
+    long max = maxNanos.get();
+    while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+      max = maxNanos.get();
+    }
+  }
+
+  /**
+   * Copies the current counts. The recordings running concurrently may be partially included.
+   *
+   * @return the snapshot
+   */
+  public Snapshot snapshot() {
+    long[] bucketCounts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      bucketCounts[i] = buckets[i].sum();
+    }
+    return new Snapshot(bucketCounts, totalNanos.sum(), maxNanos.get());
+  }
+
+}
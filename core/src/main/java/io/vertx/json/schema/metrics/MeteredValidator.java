@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.ValidationContext;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.events.SchemaEvents;
+
+import java.util.Objects;
+
+/**
+ * Validates subjects against a named schema, reporting the validations to a
+ * {@link ValidationMetrics}.
+ */
+public class MeteredValidator {
+
+  /**
+   * Builder class for {@link MeteredValidator}.
+   */
+  public static class Builder {
+
+    private String schemaName;
+
+    private Schema schema;
+
+    private ValidationMetrics metrics;
+
+    private ValidationContext context = ValidationContext.DEFAULT;
+
+    public MeteredValidator build() {
+      return new MeteredValidator(this);
+    }
+
+    /**
+     * Sets the options of the validations. Defaults to {@link ValidationContext#DEFAULT}. The
+     * keyword listener of {@code context} is replaced if the keyword metrics are enabled.
+     *
+     * @param context
+     *          the validation options
+     * @return {@code this}
+     */
+    public Builder context(final ValidationContext context) {
+      this.context = context;
+      return this;
+    }
+
+    public Builder metrics(final ValidationMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    public Builder schema(final Schema schema) {
+      this.schema = schema;
+      return this;
+    }
+
+    public Builder schemaName(final String schemaName) {
+      this.schemaName = schemaName;
+      return this;
+    }
+
+  }
+
+  /**
+   * Reports the keyword evaluations of a single schema name.
+   */
+  private static class KeywordReporter implements ValidationContext.KeywordListener {
+
+    private final String schemaName;
+
+    private final ValidationMetrics metrics;
+
+    KeywordReporter(final String schemaName, final ValidationMetrics metrics) {
+      this.schemaName = schemaName;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void keywordCompleted(final Schema schema, final String keyword,
+        final ValidationException failure) {
+    }
+
+    @Override
+    public void keywordStarted(final Schema schema, final String keyword) {
+      metrics.keywordEvaluated(schemaName, keyword);
+    }
+
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final String schemaName;
+
+  private final Schema schema;
+
+  private final ValidationMetrics metrics;
+
+  private final ValidationContext context;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the schema, its name and the metrics
+   */
+  public MeteredValidator(final Builder builder) {
+    this.schemaName = Objects.requireNonNull(builder.schemaName, "schemaName cannot be null");
+    this.schema = Objects.requireNonNull(builder.schema, "schema cannot be null");
+    this.metrics = Objects.requireNonNull(builder.metrics, "metrics cannot be null");
+    ValidationContext context = Objects.requireNonNull(builder.context,
+        "context cannot be null");
+    this.context = metrics.isKeywordMetricsEnabled()
+        ? context.withKeywordListener(new KeywordReporter(schemaName, metrics))
+        : context;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  /**
+   * Validates {@code subject} and reports the validation to the metrics.
+   *
+   * @param subject
+   *          the object to be validated
+   * @throws ValidationException
+   *           if the {@code subject} is invalid against the schema
+   */
+  public void validate(final Object subject) {
+    long start = System.nanoTime();
+    try {
+      SchemaEvents.validate(schema, subject, context);
+    } catch (ValidationException e) {
+      metrics.validationCompleted(schemaName, System.nanoTime() - start, e);
+      throw e;
+    }
+    metrics.validationCompleted(schemaName, System.nanoTime() - start, null);
+  }
+
+}
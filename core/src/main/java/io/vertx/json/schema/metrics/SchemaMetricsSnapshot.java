@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Map;
+
+/**
+ * The counters of a single schema name, copied by {@link InMemoryValidationMetrics#snapshot()}.
+ */
+public class SchemaMetricsSnapshot {
+
+  private final String schemaName;
+
+  private final long validationCount;
+
+  private final long failureCount;
+
+  private final Map<String, Long> violationCounts;
+
+  private final Map<String, Long> keywordEvaluationCounts;
+
+  private final LatencyHistogram.Snapshot latency;
+
+  SchemaMetricsSnapshot(final String schemaName, final long validationCount,
+      final long failureCount, final Map<String, Long> violationCounts,
+      final Map<String, Long> keywordEvaluationCounts, final LatencyHistogram.Snapshot latency) {
+    this.schemaName = schemaName;
+    this.validationCount = validationCount;
+    this.failureCount = failureCount;
+    this.violationCounts = violationCounts;
+    this.keywordEvaluationCounts = keywordEvaluationCounts;
+    this.latency = latency;
+  }
+
+  public long getFailureCount() {
+    return failureCount;
+  }
+
+  /**
+   * Returns the number of evaluations of each keyword.
+   *
+   * @return the counts keyed by keyword, empty if the keyword metrics are not enabled
+   */
+  public Map<String, Long> getKeywordEvaluationCounts() {
+    return keywordEvaluationCounts;
+  }
+
+  public LatencyHistogram.Snapshot getLatency() {
+    return latency;
+  }
+
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  public long getValidationCount() {
+    return validationCount;
+  }
+
+  /**
+   * Returns the number of violations of each keyword. A failed validation may count several
+   * violations, unless it stops at the first one.
+   *
+   * @return the counts keyed by keyword
+   */
+  public Map<String, Long> getViolationCounts() {
+    return violationCounts;
+  }
+
+  /**
+   * Returns the JSON representation of this snapshot.
+   *
+   * @return a new JSON object
+   */
+  public JsonObject toJson() {
+    JsonObject violations = new JsonObject();
+    violationCounts.forEach(violations::put);
+    JsonObject evaluations = new JsonObject();
+    keywordEvaluationCounts.forEach(evaluations::put);
+    return new JsonObject()
+        .put("validations", validationCount)
+        .put("failures", failureCount)
+        .put("violations", violations)
+        .put("keywordEvaluations", evaluations)
+        .put("latency", latency.toJson());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: validations: %d, failures: %d, violations: %s, latency: [%s]",
+        schemaName, validationCount, failureCount, violationCounts, latency);
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.json.schema.ValidationException;
+
+/**
+ * Receives the validation events of the {@link MeteredValidator}s, keyed by the names of the
+ * validated schemas, for example the tenants owning them.
+ *
+ * <p>
+ * The methods are called by the validating threads, concurrently, so implementations must be
+ * thread-safe and cheap: striped counters like {@link java.util.concurrent.atomic.LongAdder} are
+ * recommended. {@link InMemoryValidationMetrics} is the default implementation.
+ * </p>
+ */
+public interface ValidationMetrics {
+
+  /**
+   * Returns if the keyword evaluations are reported to {@link #keywordEvaluated(String, String)}.
+   * Reporting them costs an additional call per evaluated keyword. Defaults to {@code false}.
+   *
+   * @return {@code true} to receive the keyword evaluations
+   */
+  default boolean isKeywordMetricsEnabled() {
+    return false;
+  }
+
+  /**
+   * Called before the evaluation of a keyword, if {@link #isKeywordMetricsEnabled()}.
+   *
+   * @param schemaName
+   *          the name of the validated schema
+   * @param keyword
+   *          the evaluated keyword, like {@code "properties"}
+   */
+  default void keywordEvaluated(final String schemaName, final String keyword) {
+  }
+
+  /**
+   * Called after the validation of a subject.
+   *
+   * @param schemaName
+   *          the name of the validated schema
+   * @param elapsedNanos
+   *          the duration of the validation
+   * @param failure
+   *          the thrown exception, or {@code null} if the subject is valid
+   */
+  void validationCompleted(String schemaName, long elapsedNanos, ValidationException failure);
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The report of a {@link ValidationProfiler}: the cost of each (schema node, keyword) pair
+ * evaluated by the profiled validations, sorted by decreasing self time.
+ */
+public class ValidationProfile {
+
+  private static final int REPORTED_ENTRY_COUNT = 20;
+
+  private final List<KeywordCost> costs;
+
+  private final long validationCount;
+
+  private final long profiledCount;
+
+  private final long profiledNanos;
+
+  ValidationProfile(final List<KeywordCost> costs, final long validationCount,
+      final long profiledCount, final long profiledNanos) {
+    this.costs = Collections.unmodifiableList(costs);
+    this.validationCount = validationCount;
+    this.profiledCount = profiledCount;
+    this.profiledNanos = profiledNanos;
+  }
+
+  /**
+   * Returns the cost of each evaluated (schema node, keyword) pair.
+   *
+   * @return the costs, sorted by decreasing self time
+   */
+  public List<KeywordCost> getCosts() {
+    return costs;
+  }
+
+  /**
+   * Returns the number of profiled validations, which is lower than the number of validations if
+   * they are sampled.
+   *
+   * @return the number of profiled validations
+   */
+  public long getProfiledCount() {
+    return profiledCount;
+  }
+
+  /**
+   * Returns the duration of the profiled validations, excluding the profiling overhead.
+   *
+   * @param unit
+   *          the unit of the returned value
+   * @return the total duration
+   */
+  public long getProfiledTime(final TimeUnit unit) {
+    return unit.convert(profiledNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public long getValidationCount() {
+    return validationCount;
+  }
+
+  /**
+   * Returns the JSON representation of this profile.
+   *
+   * @return a new JSON object
+   */
+  public JsonObject toJson() {
+    JsonArray costArray = new JsonArray();
+    costs.forEach(cost -> costArray.add(cost.toJson()));
+    return new JsonObject()
+        .put("validations", validationCount)
+        .put("profiled", profiledCount)
+        .put("profiledMicros", getProfiledTime(TimeUnit.MICROSECONDS))
+        .put("costs", costArray);
+  }
+
+  /**
+   * Returns a table of the 20 most expensive (schema node, keyword) pairs.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(String.format(
+        "profiled %d of %d validations, %d us%n", profiledCount, validationCount,
+        getProfiledTime(TimeUnit.MICROSECONDS)));
+    sb.append(String.format("%10s %10s %12s %8s  %s%n", "self us", "total us", "self bytes",
+        "evals", "location"));
+    costs.stream().limit(REPORTED_ENTRY_COUNT).forEach(cost -> sb.append(String.format(
+        "%10d %10d %12d %8d  %s %s%n", cost.getSelfTime(TimeUnit.MICROSECONDS),
+        cost.getTotalTime(TimeUnit.MICROSECONDS), cost.getSelfBytes(),
+        cost.getEvaluationCount(), cost.getPointer(), cost.getKeyword())));
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaLocations;
+import io.vertx.json.schema.ValidationContext;
+import io.vertx.json.schema.ValidationException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validates subjects against a schema and attributes the wall time and the allocated bytes of a
+ * sampled fraction of the validations to each evaluated (schema node, keyword) pair, to find the
+ * expensive parts of a schema, like a {@code patternProperties} regular expression or a wide
+ * {@code anyOf}.
+ *
+ * <p>
+ * The profiled validations notify a {@link ValidationContext.KeywordListener} of each keyword
+ * evaluation, which makes them several times slower; the other validations run without
+ * listener. The time and the allocations of the profiler itself are excluded from the costs.
+ * The allocations are measured with the per-thread allocation counter of the HotSpot JVM, they are
+ * reported as 0 on other JVMs.
+ * </p>
+ *
+ * <p>
+ * The profiler can be used concurrently. The costs accumulate until {@link #reset()}, and
+ * {@link #report()} returns them sorted by decreasing self time.
+ * </p>
+ */
+public class ValidationProfiler {
+
+  /**
+   * Builder class for {@link ValidationProfiler}.
+   */
+  public static class Builder {
+
+    private Schema schema;
+
+    private ValidationContext context = ValidationContext.DEFAULT;
+
+    private double sampleRate = 1;
+
+    private boolean measureAllocations = true;
+
+    public ValidationProfiler build() {
+      return new ValidationProfiler(this);
+    }
+
+    /**
+     * Sets the options of the validations. Defaults to {@link ValidationContext#DEFAULT}. The
+     * keyword listener of {@code context} is replaced in the profiled validations.
+     *
+     * @param context
+     *          the validation options
+     * @return {@code this}
+     */
+    public Builder context(final ValidationContext context) {
+      this.context = context;
+      return this;
+    }
+
+    /**
+     * Sets if the allocated bytes are measured. Defaults to {@code true}. Measuring them roughly
+     * doubles the profiling overhead.
+     *
+     * @param measureAllocations
+     *          {@code false} to measure only the wall time
+     * @return {@code this}
+     */
+    public Builder measureAllocations(final boolean measureAllocations) {
+      this.measureAllocations = measureAllocations;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of the validations which are profiled. Defaults to 1, profiling every
+     * validation, which is suitable for tests.
+     *
+     * @param sampleRate
+     *          the fraction, greater than 0 and at most 1, like 0.01 for production traffic
+     * @return {@code this}
+     */
+    public Builder sampleRate(final double sampleRate) {
+      this.sampleRate = sampleRate;
+      return this;
+    }
+
+    public Builder schema(final Schema schema) {
+      this.schema = schema;
+      return this;
+    }
+
+  }
+
+  /**
+   * Identifies a (schema node, keyword) pair. The nodes are compared by identity, since equal
+   * nodes at different locations are profiled separately.
+   */
+  private static final class CostKey {
+
+    private final Schema schema;
+
+    private final String keyword;
+
+    CostKey(final Schema schema, final String keyword) {
+      this.schema = schema;
+      this.keyword = keyword;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof CostKey)) {
+        return false;
+      }
+      CostKey other = (CostKey) obj;
+      return schema == other.schema && keyword.equals(other.keyword);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(schema) + keyword.hashCode();
+    }
+
+  }
+
+  /**
+   * The accumulated cost of a (schema node, keyword) pair.
+   */
+  private static final class CostCounters {
+
+    private final LongAdder evaluations = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder selfNanos = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAdder selfBytes = new LongAdder();
+
+    private final LongAdder totalBytes = new LongAdder();
+
+  }
+
+  /**
+   * Records the keyword evaluations of a single validation, on the validating thread.
+   *
+   * <p>
+   * The clocks are adjusted by subtracting the time and the allocations of the bookkeeping done
+   * so far, so that the bookkeeping is not attributed to the enclosing keywords.
+   * </p>
+   */
+  private final class Recorder implements ValidationContext.KeywordListener {
+
+    private final long threadId = Thread.currentThread().getId();
+
+    private Schema[] schemas = new Schema[INITIAL_DEPTH];
+
+    private String[] keywords = new String[INITIAL_DEPTH];
+
+    private long[] startNanos = new long[INITIAL_DEPTH];
+
+    private long[] startBytes = new long[INITIAL_DEPTH];
+
+    private long[] childNanos = new long[INITIAL_DEPTH];
+
+    private long[] childBytes = new long[INITIAL_DEPTH];
+
+    private int depth;
+
+    private long overheadNanos;
+
+    private long overheadBytes;
+
+    private long allocatedBytes() {
+      return allocationCounter == null ? 0 : allocationCounter.getThreadAllocatedBytes(threadId);
+    }
+
+    private boolean isActiveBelow(final Schema schema, final String keyword) {
+      for (int i = 0; i < depth; ++i) {
+        if (schemas[i] == schema && keywords[i].equals(keyword)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void keywordCompleted(final Schema schema, final String keyword,
+        final ValidationException failure) {
+      long nanos = System.nanoTime();
+      long bytes = allocatedBytes();
+      if (depth == 0) {
+        return;
+      }
+      --depth;
+      long total = nanos - overheadNanos - startNanos[depth];
+      long totalAllocated = bytes - overheadBytes - startBytes[depth];
+      if (depth > 0) {
+        childNanos[depth - 1] += total;
+        childBytes[depth - 1] += totalAllocated;
+      }
+      CostCounters counters = countersOf(schemas[depth], keywords[depth]);
+      counters.evaluations.increment();
+      if (failure != null) {
+        counters.failures.increment();
+      }
+      counters.selfNanos.add(total - childNanos[depth]);
+      counters.selfBytes.add(totalAllocated - childBytes[depth]);
+      if (!isActiveBelow(schemas[depth], keywords[depth])) {
+        counters.totalNanos.add(total);
+        counters.totalBytes.add(totalAllocated);
+      }
+      schemas[depth] = null;
+      overheadNanos += System.nanoTime() - nanos;
+      overheadBytes += allocatedBytes() - bytes;
+    }
+
+    @Override
+    public void keywordStarted(final Schema schema, final String keyword) {
+      long nanos = System.nanoTime();
+      long bytes = allocatedBytes();
+      if (depth == schemas.length) {
+        int capacity = depth * 2;
+        schemas = Arrays.copyOf(schemas, capacity);
+        keywords = Arrays.copyOf(keywords, capacity);
+        startNanos = Arrays.copyOf(startNanos, capacity);
+        startBytes = Arrays.copyOf(startBytes, capacity);
+        childNanos = Arrays.copyOf(childNanos, capacity);
+        childBytes = Arrays.copyOf(childBytes, capacity);
+      }
+      schemas[depth] = schema;
+      keywords[depth] = keyword;
+      startNanos[depth] = nanos - overheadNanos;
+      startBytes[depth] = bytes - overheadBytes;
+      childNanos[depth] = 0;
+      childBytes[depth] = 0;
+      ++depth;
+      overheadNanos += System.nanoTime() - nanos;
+      overheadBytes += allocatedBytes() - bytes;
+    }
+
+  }
+
+  private static final int INITIAL_DEPTH = 32;
+
+  private static com.sun.management.ThreadMXBean allocationCounter() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean rval = (com.sun.management.ThreadMXBean) threadMXBean;
+      if (rval.isThreadAllocatedMemorySupported() && rval.isThreadAllocatedMemoryEnabled()) {
+        return rval;
+      }
+    }
+    return null;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Schema schema;
+
+  private final ValidationContext context;
+
+  private final double sampleRate;
+
+  private final com.sun.management.ThreadMXBean allocationCounter;
+
+  private final ConcurrentMap<CostKey, CostCounters> costs = new ConcurrentHashMap<>();
+
+  private final LongAdder validationCount = new LongAdder();
+
+  private final LongAdder profiledCount = new LongAdder();
+
+  private final LongAdder profiledNanos = new LongAdder();
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the schema and the sampling options
+   */
+  public ValidationProfiler(final Builder builder) {
+    this.schema = Objects.requireNonNull(builder.schema, "schema cannot be null");
+    this.context = Objects.requireNonNull(builder.context, "context cannot be null");
+    if (!(builder.sampleRate > 0 && builder.sampleRate <= 1)) {
+      throw new IllegalArgumentException("sampleRate must be in (0, 1], was "
+          + builder.sampleRate);
+    }
+    this.sampleRate = builder.sampleRate;
+    this.allocationCounter = builder.measureAllocations ? allocationCounter() : null;
+  }
+
+  private CostCounters countersOf(final Schema node, final String keyword) {
+    CostKey key = new CostKey(node, keyword);
+    CostCounters rval = costs.get(key);
+    if (rval == null) {
+      rval = costs.computeIfAbsent(key, k -> new CostCounters());
+    }
+    return rval;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  private void profile(final Object subject) {
+    Recorder recorder = new Recorder();
+    ValidationContext profiledContext = context.withKeywordListener(recorder);
+    long start = System.nanoTime();
+    try {
+      schema.validate(subject, profiledContext);
+    } finally {
+      profiledNanos.add(System.nanoTime() - start - recorder.overheadNanos);
+      profiledCount.increment();
+    }
+  }
+
+  /**
+   * Returns the costs accumulated since the creation of the profiler or the last
+   * {@link #reset()}.
+   *
+   * @return the report
+   */
+  public ValidationProfile report() {
+    SchemaLocations locations = SchemaLocations.of(schema);
+    List<KeywordCost> rval = new ArrayList<>(costs.size());
+    costs.forEach((key, counters) -> rval.add(new KeywordCost(key.schema,
+        locations.getPointer(key.schema), key.keyword, counters.evaluations.sum(),
+        counters.failures.sum(), counters.selfNanos.sum(), counters.totalNanos.sum(),
+        counters.selfBytes.sum(), counters.totalBytes.sum())));
+    rval.sort(Comparator.comparingLong((KeywordCost cost) -> cost.getSelfTime(
+        TimeUnit.NANOSECONDS)).reversed());
+    return new ValidationProfile(rval, validationCount.sum(), profiledCount.sum(),
+        profiledNanos.sum());
+  }
+
+  /**
+   * Discards the accumulated costs.
+   */
+  public void reset() {
+    costs.clear();
+    validationCount.reset();
+    profiledCount.reset();
+    profiledNanos.reset();
+  }
+
+  /**
+   * Validates {@code subject}, profiling the validation if it is sampled.
+   *
+   * @param subject
+   *          the object to be validated
+   * @throws ValidationException
+   *           if the {@code subject} is invalid against the schema
+   */
+  public void validate(final Object subject) {
+    validationCount.increment();
+    if (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+      profile(subject);
+    } else {
+      schema.validate(subject, context);
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+
+/**
+ * Exposes the snapshots of an {@link InMemoryValidationMetrics} on the event bus of a Vert.x
+ * instance, for the monitoring verticles and dashboards.
+ *
+ * <p>
+ * The bridge replies the {@link InMemoryValidationMetrics#snapshotJson() JSON snapshot} to the
+ * messages sent to {@link Builder#address(String)}, and, if a publish period is set, it also
+ * publishes the snapshot periodically to {@link Builder#publishAddress(String)}.
+ * </p>
+ */
+public class VertxMetricsBridge {
+
+  /**
+   * Builder class for {@link VertxMetricsBridge}.
+   */
+  public static class Builder {
+
+    private Vertx vertx;
+
+    private InMemoryValidationMetrics metrics;
+
+    private String address = DEFAULT_ADDRESS;
+
+    private String publishAddress = DEFAULT_ADDRESS + ".snapshot";
+
+    private long publishPeriodMillis;
+
+    /**
+     * Sets the address answering the snapshot requests. Defaults to
+     * {@code vertx.json.schema.metrics}.
+     *
+     * @param address
+     *          the event-bus address
+     * @return {@code this}
+     */
+    public Builder address(final String address) {
+      this.address = address;
+      return this;
+    }
+
+    public VertxMetricsBridge build() {
+      return new VertxMetricsBridge(this);
+    }
+
+    public Builder metrics(final InMemoryValidationMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * Sets the address the snapshots are published to. Defaults to
+     * {@code vertx.json.schema.metrics.snapshot}.
+     *
+     * @param publishAddress
+     *          the event-bus address
+     * @return {@code this}
+     */
+    public Builder publishAddress(final String publishAddress) {
+      this.publishAddress = publishAddress;
+      return this;
+    }
+
+    /**
+     * Sets the period of the snapshot publications. Defaults to 0, meaning that the snapshots
+     * are not published.
+     *
+     * @param publishPeriodMillis
+     *          the period in milliseconds
+     * @return {@code this}
+     */
+    public Builder publishPeriod(final long publishPeriodMillis) {
+      this.publishPeriodMillis = publishPeriodMillis;
+      return this;
+    }
+
+    public Builder vertx(final Vertx vertx) {
+      this.vertx = vertx;
+      return this;
+    }
+
+  }
+
+  /**
+   * The default address of the snapshot requests.
+   */
+  public static final String DEFAULT_ADDRESS = "vertx.json.schema.metrics";
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Vertx vertx;
+
+  private final InMemoryValidationMetrics metrics;
+
+  private final String address;
+
+  private final String publishAddress;
+
+  private final long publishPeriodMillis;
+
+  private MessageConsumer<Object> consumer;
+
+  private long timerId = -1;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the Vert.x instance, the metrics and the addresses
+   */
+  public VertxMetricsBridge(final Builder builder) {
+    this.vertx = Objects.requireNonNull(builder.vertx, "vertx cannot be null");
+    this.metrics = Objects.requireNonNull(builder.metrics, "metrics cannot be null");
+    this.address = Objects.requireNonNull(builder.address, "address cannot be null");
+    this.publishAddress = Objects.requireNonNull(builder.publishAddress,
+        "publishAddress cannot be null");
+    this.publishPeriodMillis = builder.publishPeriodMillis;
+  }
+
+  /**
+   * Unregisters the snapshot requests consumer and stops the publications.
+   */
+  public synchronized void close() {
+    if (consumer != null) {
+      consumer.unregister();
+      consumer = null;
+    }
+    if (timerId != -1) {
+      vertx.cancelTimer(timerId);
+      timerId = -1;
+    }
+  }
+
+  /**
+   * Publishes the current snapshot to the publish address.
+   */
+  public void publish() {
+    vertx.eventBus().publish(publishAddress, snapshot());
+  }
+
+  private JsonObject snapshot() {
+    return new JsonObject()
+        .put("timestamp", System.currentTimeMillis())
+        .put("schemas", metrics.snapshotJson());
+  }
+
+  /**
+   * Registers the snapshot requests consumer, and starts the periodic publications if a period is
+   * set.
+   *
+   * @return {@code this}
+   */
+  public synchronized VertxMetricsBridge start() {
+    if (consumer == null) {
+      consumer = vertx.eventBus().consumer(address, message -> message.reply(snapshot()));
+      if (publishPeriodMillis > 0) {
+        timerId = vertx.setPeriodic(publishPeriodMillis, id -> publish());
+      }
+    }
+    return this;
+  }
+
+}
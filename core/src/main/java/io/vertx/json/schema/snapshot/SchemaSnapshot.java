@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.snapshot;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.ArraySchema;
+import io.vertx.json.schema.BooleanSchema;
+import io.vertx.json.schema.CombinedSchema;
+import io.vertx.json.schema.EmptySchema;
+import io.vertx.json.schema.EnumSchema;
+import io.vertx.json.schema.FormatValidator;
+import io.vertx.json.schema.NotSchema;
+import io.vertx.json.schema.NullSchema;
+import io.vertx.json.schema.NumberSchema;
+import io.vertx.json.schema.ObjectSchema;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.StringSchema;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A binary snapshot of loaded schemas, which can be restored without parsing the schema documents
+ * and resolving their references again.
+ *
+ * <p>
+ * A snapshot contains named root schemas, and every distinct {@link Schema} instance reachable from
+ * them is stored once, so the restored graph keeps the shared subschemas and the cycles through
+ * {@link ReferenceSchema} instances of the original one. The nodes are decoded on demand: opening a
+ * snapshot reads only its index, and {@link #getSchema(String)} decodes the nodes reachable from
+ * the requested root the first time it is called. With {@link #open(Path)} the file is
+ * memory-mapped, so the pages of the unused schemas are never read.
+ * </p>
+ *
+ * <p>
+ * Only the schema types of this library are supported. Format validators are stored by their
+ * {@link FormatValidator#formatName() name}, therefore custom format validators can not be stored.
+ * Regular expressions are stored as source and compiled when their node is decoded.
+ * </p>
+ */
+public class SchemaSnapshot {
+
+  static final int MAGIC = 0x4A534E50;
+
+  static final int VERSION = 2;
+
+  static final byte ARRAY = 1;
+
+  static final byte BOOLEAN = 2;
+
+  static final byte COMBINED = 3;
+
+  static final byte EMPTY = 4;
+
+  static final byte ENUM = 5;
+
+  static final byte NOT = 6;
+
+  static final byte NULL = 7;
+
+  static final byte NUMBER = 8;
+
+  static final byte OBJECT = 9;
+
+  static final byte REFERENCE = 10;
+
+  static final byte STRING = 11;
+
+  static final byte ALL_OF = 1;
+
+  static final byte ANY_OF = 2;
+
+  static final byte ONE_OF = 3;
+
+  static final byte NO_NUMBER = 0;
+
+  static final byte INT_NUMBER = 1;
+
+  static final byte LONG_NUMBER = 2;
+
+  static final byte DOUBLE_NUMBER = 3;
+
+  /**
+   * Memory-maps a snapshot file written by {@link #write(Map, Path)}.
+   *
+   * @param file
+   *          the snapshot file
+   * @return the snapshot
+   * @throws UncheckedIOException
+   *           if the file can not be mapped
+   * @throws SchemaException
+   *           if the file is not a snapshot
+   */
+  public static SchemaSnapshot open(final Path file) {
+    Objects.requireNonNull(file, "file cannot be null");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads a snapshot from a buffer. The buffer is not copied, it must not be modified while the
+   * snapshot is used.
+   *
+   * @param buffer
+   *          the content of the snapshot, from its position to its limit
+   * @return the snapshot
+   * @throws SchemaException
+   *           if the buffer does not contain a snapshot
+   */
+  public static SchemaSnapshot wrap(final ByteBuffer buffer) {
+    return new SchemaSnapshot(Objects.requireNonNull(buffer, "buffer cannot be null").slice());
+  }
+
+  /**
+   * Writes the snapshot of {@code schemas} to {@code out}.
+   *
+   * @param schemas
+   *          the root schemas of the snapshot, keyed by the names used by
+   *          {@link #getSchema(String)}
+   * @param out
+   *          the stream the snapshot is written to, it is not closed
+   * @throws IllegalArgumentException
+   *           if a schema, a format validator or a combined schema criterion can not be stored
+   * @throws UncheckedIOException
+   *           if writing to {@code out} fails
+   */
+  public static void write(final Map<String, Schema> schemas, final OutputStream out) {
+    Objects.requireNonNull(schemas, "schemas cannot be null");
+    Objects.requireNonNull(out, "out cannot be null");
+    try {
+      new SchemaSnapshotWriter().write(schemas, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes the snapshot of {@code schemas} to {@code file}. The file is replaced atomically, so
+   * running processes mapping the previous snapshot are not affected.
+   *
+   * @param schemas
+   *          the root schemas of the snapshot, keyed by the names used by
+   *          {@link #getSchema(String)}
+   * @param file
+   *          the snapshot file
+   * @throws IllegalArgumentException
+   *           if a schema, a format validator or a combined schema criterion can not be stored
+   * @throws UncheckedIOException
+   *           if the file can not be written
+   */
+  public static void write(final Map<String, Schema> schemas, final Path file) {
+    Objects.requireNonNull(file, "file cannot be null");
+    Path directory = file.toAbsolutePath().getParent();
+    try {
+      Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+          write(schemas, out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private final ByteBuffer buffer;
+
+  private final Map<String, Integer> rootIds;
+
+  private final int[] offsets;
+
+  private final int bodyStart;
+
+  private final Schema[] nodes;
+
+  private int decodedCount;
+
+  private SchemaSnapshot(final ByteBuffer buffer) {
+    this.buffer = buffer;
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new SchemaException("not a schema snapshot");
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new SchemaException("unsupported schema snapshot version: " + version);
+      }
+      int rootCount = buffer.getInt();
+      Map<String, Integer> roots = new LinkedHashMap<>();
+      for (int i = 0; i < rootCount; ++i) {
+        roots.put(readString(buffer), buffer.getInt());
+      }
+      this.rootIds = Collections.unmodifiableMap(roots);
+      this.offsets = new int[buffer.getInt()];
+      for (int i = 0; i < offsets.length; ++i) {
+        offsets[i] = buffer.getInt();
+      }
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new SchemaException("corrupt schema snapshot", e);
+    }
+    this.bodyStart = buffer.position();
+    this.nodes = new Schema[offsets.length];
+  }
+
+  /**
+   * Returns the number of schema nodes decoded so far, for monitoring the laziness of the snapshot.
+   *
+   * @return the number of decoded nodes
+   */
+  public synchronized int getDecodedCount() {
+    return decodedCount;
+  }
+
+  /**
+   * Returns the number of schema nodes stored in the snapshot.
+   *
+   * @return the number of nodes
+   */
+  public int getNodeCount() {
+    return offsets.length;
+  }
+
+  /**
+   * Returns a root schema, decoding it on the first call. Subsequent calls, and calls for other
+   * roots sharing subschemas with it, return the already decoded instances.
+   *
+   * @param name
+   *          the name of the root schema
+   * @return the schema, or an empty optional if the snapshot has no root with this name
+   */
+  public Optional<Schema> getSchema(final String name) {
+    Integer id = rootIds.get(name);
+    if (id == null) {
+      return Optional.empty();
+    }
+    return Optional.of(node(id));
+  }
+
+  public Set<String> getSchemaNames() {
+    return rootIds.keySet();
+  }
+
+  private synchronized Schema node(final int id) {
+    if (id < 0) {
+      return null;
+    }
+    Schema schema = nodes[id];
+    if (schema == null) {
+      ByteBuffer in = buffer.duplicate();
+      in.position(bodyStart + offsets[id]);
+      try {
+        schema = decode(id, in);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        throw new SchemaException("corrupt schema snapshot node #" + id, e);
+      }
+      nodes[id] = schema;
+    }
+    return schema;
+  }
+
+  private Schema decode(final int id, final ByteBuffer in) {
+    byte tag = in.get();
+    String title = readString(in);
+    String description = readString(in);
+    String schemaId = readString(in);
+    String jsonSchema = readString(in);
+    Schema.Builder builder;
+    switch (tag) {
+      case ARRAY:
+        builder = decodeArraySchema(in);
+        break;
+      case BOOLEAN:
+        builder = BooleanSchema.builder();
+        break;
+      case COMBINED:
+        builder = decodeCombinedSchema(in);
+        break;
+      case EMPTY:
+        builder = EmptySchema.builder();
+        break;
+      case ENUM:
+        Set<Object> possibleValues = new HashSet<>();
+        JsonArray values = new JsonArray(readString(in));
+        for (int i = 0; i < values.size(); ++i) {
+          possibleValues.add(values.getValue(i));
+        }
+        builder = EnumSchema.builder().possibleValues(possibleValues);
+        break;
+      case NOT:
+        builder = NotSchema.builder().mustNotMatch(node(in.getInt()));
+        break;
+      case NULL:
+        builder = NullSchema.builder();
+        break;
+      case NUMBER:
+        builder = decodeNumberSchema(in);
+        break;
+      case OBJECT:
+        builder = decodeObjectSchema(in);
+        break;
+      case REFERENCE:
+        ReferenceSchema.Builder referenceBuilder = ReferenceSchema.builder()
+            .refValue(readString(in));
+        referenceBuilder.title(title).description(description).id(schemaId);
+        ReferenceSchema referenceSchema = referenceBuilder.build();
+        // registered before its target is decoded, to terminate the cycles
+        nodes[id] = referenceSchema;
+        decodedCount++;
+        Schema referredSchema = node(in.getInt());
+        if (referredSchema != null) {
+          referenceSchema.setReferredSchema(referredSchema);
+        }
+        return withJsonSchema(referenceSchema, jsonSchema);
+      case STRING:
+        builder = decodeStringSchema(in);
+        break;
+      default:
+        throw new SchemaException("unknown schema snapshot node type: " + tag);
+    }
+    decodedCount++;
+    if (title == null && description == null && schemaId == null && jsonSchema == null) {
+      // keep the identity of the shared instances created by the loader
+      switch (tag) {
+        case BOOLEAN:
+          return BooleanSchema.INSTANCE;
+        case EMPTY:
+          return EmptySchema.INSTANCE;
+        case NULL:
+          return NullSchema.INSTANCE;
+        default:
+          break;
+      }
+    }
+    return withJsonSchema(builder.title(title).description(description).id(schemaId).build(),
+        jsonSchema);
+  }
+
+  private Schema.Builder decodeArraySchema(final ByteBuffer in) {
+    ArraySchema.Builder builder = ArraySchema.builder()
+        .requiresArray(readBoolean(in))
+        .minItems(readInteger(in))
+        .maxItems(readInteger(in))
+        .uniqueItems(readBoolean(in))
+        .allItemSchema(node(in.getInt()))
+        .additionalItems(readBoolean(in))
+        .schemaOfAdditionalItems(node(in.getInt()));
+    int itemCount = in.getInt();
+    for (int i = 0; i < itemCount; ++i) {
+      builder.addItemSchema(node(in.getInt()));
+    }
+    return builder;
+  }
+
+  private Schema.Builder decodeCombinedSchema(final ByteBuffer in) {
+    CombinedSchema.Builder builder = CombinedSchema.builder();
+    byte criterion = in.get();
+    switch (criterion) {
+      case ALL_OF:
+        builder.criterion(CombinedSchema.ALL_CRITERION);
+        break;
+      case ANY_OF:
+        builder.criterion(CombinedSchema.ANY_CRITERION);
+        break;
+      case ONE_OF:
+        builder.criterion(CombinedSchema.ONE_CRITERION);
+        break;
+      default:
+        throw new SchemaException("unknown combined schema criterion: " + criterion);
+    }
+    int subschemaCount = in.getInt();
+    for (int i = 0; i < subschemaCount; ++i) {
+      builder.subschema(node(in.getInt()));
+    }
+    return builder;
+  }
+
+  private Schema.Builder decodeNumberSchema(final ByteBuffer in) {
+    return NumberSchema.builder()
+        .requiresNumber(readBoolean(in))
+        .requiresInteger(readBoolean(in))
+        .exclusiveMinimum(readBoolean(in))
+        .exclusiveMaximum(readBoolean(in))
+        .minimum(readNumber(in))
+        .maximum(readNumber(in))
+        .multipleOf(readNumber(in));
+  }
+
+  private Schema.Builder decodeObjectSchema(final ByteBuffer in) {
+    ObjectSchema.Builder builder = ObjectSchema.builder()
+        .requiresObject(readBoolean(in))
+        .minProperties(readInteger(in))
+        .maxProperties(readInteger(in))
+        .additionalProperties(readBoolean(in))
+        .schemaOfAdditionalProperties(node(in.getInt()));
+    int requiredCount = in.getInt();
+    for (int i = 0; i < requiredCount; ++i) {
+      builder.addRequiredProperty(readString(in));
+    }
+    int propertyCount = in.getInt();
+    for (int i = 0; i < propertyCount; ++i) {
+      builder.addPropertySchema(readString(in), node(in.getInt()));
+    }
+    int schemaDependencyCount = in.getInt();
+    for (int i = 0; i < schemaDependencyCount; ++i) {
+      builder.schemaDependency(readString(in), node(in.getInt()));
+    }
+    int patternCount = in.getInt();
+    for (int i = 0; i < patternCount; ++i) {
+      builder.patternProperty(readString(in), node(in.getInt()));
+    }
+    int propertyDependencyCount = in.getInt();
+    for (int i = 0; i < propertyDependencyCount; ++i) {
+      String ifPresent = readString(in);
+      int mustBePresentCount = in.getInt();
+      for (int j = 0; j < mustBePresentCount; ++j) {
+        builder.propertyDependency(ifPresent, readString(in));
+      }
+    }
+    return builder;
+  }
+
+  private Schema.Builder decodeStringSchema(final ByteBuffer in) {
+    StringSchema.Builder builder = StringSchema.builder()
+        .requiresString(readBoolean(in))
+        .minLength(readInteger(in))
+        .maxLength(readInteger(in))
+        .pattern(readString(in));
+    String formatName = readString(in);
+    if (formatName != null) {
+      builder.formatValidator(FormatValidator.forFormat(formatName));
+    }
+    return builder;
+  }
+
+  private static Schema withJsonSchema(final Schema schema, final String jsonSchema) {
+    return jsonSchema == null ? schema : schema.setJsonSchema(new JsonObject(jsonSchema));
+  }
+
+  private static boolean readBoolean(final ByteBuffer in) {
+    return in.get() != 0;
+  }
+
+  private static Integer readInteger(final ByteBuffer in) {
+    return readBoolean(in) ? in.getInt() : null;
+  }
+
+  private static Number readNumber(final ByteBuffer in) {
+    byte type = in.get();
+    switch (type) {
+      case NO_NUMBER:
+        return null;
+      case INT_NUMBER:
+        return in.getInt();
+      case LONG_NUMBER:
+        return in.getLong();
+      case DOUBLE_NUMBER:
+        return in.getDouble();
+      default:
+        throw new SchemaException("unknown number type: " + type);
+    }
+  }
+
+  private static String readString(final ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
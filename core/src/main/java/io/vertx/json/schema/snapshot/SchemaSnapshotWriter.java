@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.snapshot;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.json.schema.ArraySchema;
+import io.vertx.json.schema.BooleanSchema;
+import io.vertx.json.schema.CombinedSchema;
+import io.vertx.json.schema.CombinedSchema.ValidationCriterion;
+import io.vertx.json.schema.EmptySchema;
+import io.vertx.json.schema.EnumSchema;
+import io.vertx.json.schema.FormatValidator;
+import io.vertx.json.schema.NotSchema;
+import io.vertx.json.schema.NullSchema;
+import io.vertx.json.schema.NumberSchema;
+import io.vertx.json.schema.ObjectSchema;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.StringSchema;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes a schema graph in the format read by {@link SchemaSnapshot}. Each distinct
+ * {@link Schema} instance is written once and referred to by its node id, so shared subschemas and
+ * the cycles through {@link ReferenceSchema} instances survive the round trip.
+ */
+class SchemaSnapshotWriter {
+
+  private final Map<Schema, Integer> nodeIds = new IdentityHashMap<>();
+
+  private final List<Schema> nodes = new ArrayList<>();
+
+  private int nodeId(final Schema schema) {
+    if (schema == null) {
+      return -1;
+    }
+    Integer id = nodeIds.get(schema);
+    if (id == null) {
+      id = nodes.size();
+      nodeIds.put(schema, id);
+      nodes.add(schema);
+    }
+    return id;
+  }
+
+  void write(final Map<String, Schema> schemas, final OutputStream out) throws IOException {
+    Map<String, Integer> rootIds = new LinkedHashMap<>();
+    schemas.forEach((name, schema) -> rootIds.put(name, nodeId(schema)));
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream bodyOut = new DataOutputStream(body);
+    List<Integer> offsets = new ArrayList<>();
+    // writing a node may discover new nodes, which are appended to the list being iterated
+    for (int i = 0; i < nodes.size(); ++i) {
+      offsets.add(bodyOut.size());
+      writeNode(nodes.get(i), bodyOut);
+    }
+    bodyOut.flush();
+
+    DataOutputStream headerOut = new DataOutputStream(out);
+    headerOut.writeInt(SchemaSnapshot.MAGIC);
+    headerOut.writeInt(SchemaSnapshot.VERSION);
+    headerOut.writeInt(rootIds.size());
+    for (Map.Entry<String, Integer> root : rootIds.entrySet()) {
+      writeString(headerOut, root.getKey());
+      headerOut.writeInt(root.getValue());
+    }
+    headerOut.writeInt(offsets.size());
+    for (int offset : offsets) {
+      headerOut.writeInt(offset);
+    }
+    body.writeTo(headerOut);
+    headerOut.flush();
+  }
+
+  private void writeNode(final Schema schema, final DataOutputStream out) throws IOException {
+    out.writeByte(tagOf(schema));
+    writeString(out, schema.getTitle());
+    writeString(out, schema.getDescription());
+    writeString(out, schema.getId());
+    writeString(out, schema.getJsonSchema() == null ? null : schema.getJsonSchema().encode());
+    if (schema instanceof ArraySchema) {
+      writeArraySchema((ArraySchema) schema, out);
+    } else if (schema instanceof CombinedSchema) {
+      CombinedSchema combinedSchema = (CombinedSchema) schema;
+      out.writeByte(criterionTag(combinedSchema.getCriterion()));
+      writeNodeIds(combinedSchema.getSubschemas(), out);
+    } else if (schema instanceof EnumSchema) {
+      writeString(out, new JsonArray(new ArrayList<>(((EnumSchema) schema).getPossibleValues()))
+          .encode());
+    } else if (schema instanceof NotSchema) {
+      out.writeInt(nodeId(((NotSchema) schema).getMustNotMatch()));
+    } else if (schema instanceof NumberSchema) {
+      writeNumberSchema((NumberSchema) schema, out);
+    } else if (schema instanceof ObjectSchema) {
+      writeObjectSchema((ObjectSchema) schema, out);
+    } else if (schema instanceof ReferenceSchema) {
+      ReferenceSchema referenceSchema = (ReferenceSchema) schema;
+      writeString(out, referenceSchema.getReferenceValue());
+      out.writeInt(nodeId(referenceSchema.getReferredSchema()));
+    } else if (schema instanceof StringSchema) {
+      writeStringSchema((StringSchema) schema, out);
+    }
+  }
+
+  private byte tagOf(final Schema schema) {
+    Class<?> type = schema.getClass();
+    if (type == ArraySchema.class) {
+      return SchemaSnapshot.ARRAY;
+    } else if (type == BooleanSchema.class) {
+      return SchemaSnapshot.BOOLEAN;
+    } else if (type == CombinedSchema.class) {
+      return SchemaSnapshot.COMBINED;
+    } else if (type == EmptySchema.class) {
+      return SchemaSnapshot.EMPTY;
+    } else if (type == EnumSchema.class) {
+      return SchemaSnapshot.ENUM;
+    } else if (type == NotSchema.class) {
+      return SchemaSnapshot.NOT;
+    } else if (type == NullSchema.class) {
+      return SchemaSnapshot.NULL;
+    } else if (type == NumberSchema.class) {
+      return SchemaSnapshot.NUMBER;
+    } else if (type == ObjectSchema.class) {
+      return SchemaSnapshot.OBJECT;
+    } else if (type == ReferenceSchema.class) {
+      return SchemaSnapshot.REFERENCE;
+    } else if (type == StringSchema.class) {
+      return SchemaSnapshot.STRING;
+    }
+    throw new IllegalArgumentException("unsupported schema type: " + type.getName());
+  }
+
+  private byte criterionTag(final ValidationCriterion criterion) {
+    if (criterion == CombinedSchema.ALL_CRITERION) {
+      return SchemaSnapshot.ALL_OF;
+    } else if (criterion == CombinedSchema.ANY_CRITERION) {
+      return SchemaSnapshot.ANY_OF;
+    } else if (criterion == CombinedSchema.ONE_CRITERION) {
+      return SchemaSnapshot.ONE_OF;
+    }
+    throw new IllegalArgumentException("unsupported validation criterion: " + criterion);
+  }
+
+  private void writeArraySchema(final ArraySchema schema, final DataOutputStream out)
+      throws IOException {
+    out.writeBoolean(schema.requiresArray());
+    writeInteger(out, schema.getMinItems());
+    writeInteger(out, schema.getMaxItems());
+    out.writeBoolean(schema.needsUniqueItems());
+    out.writeInt(nodeId(schema.getAllItemSchema()));
+    out.writeBoolean(schema.permitsAdditionalItems());
+    out.writeInt(nodeId(schema.getSchemaOfAdditionalItems()));
+    List<Schema> itemSchemas = schema.getItemSchemas();
+    out.writeInt(itemSchemas == null ? -1 : itemSchemas.size());
+    if (itemSchemas != null) {
+      for (Schema itemSchema : itemSchemas) {
+        out.writeInt(nodeId(itemSchema));
+      }
+    }
+  }
+
+  private void writeNumberSchema(final NumberSchema schema, final DataOutputStream out)
+      throws IOException {
+    out.writeBoolean(schema.requiresNumber());
+    out.writeBoolean(schema.requiresInteger());
+    out.writeBoolean(schema.isExclusiveMinimum());
+    out.writeBoolean(schema.isExclusiveMaximum());
+    writeNumber(out, schema.getMinimum());
+    writeNumber(out, schema.getMaximum());
+    writeNumber(out, schema.getMultipleOf());
+  }
+
+  private void writeObjectSchema(final ObjectSchema schema, final DataOutputStream out)
+      throws IOException {
+    out.writeBoolean(schema.requiresObject());
+    writeInteger(out, schema.getMinProperties());
+    writeInteger(out, schema.getMaxProperties());
+    out.writeBoolean(schema.permitsAdditionalProperties());
+    out.writeInt(nodeId(schema.getSchemaOfAdditionalProperties()));
+    out.writeInt(schema.getRequiredProperties().size());
+    for (String property : schema.getRequiredProperties()) {
+      writeString(out, property);
+    }
+    writeSchemaMap(schema.getPropertySchemas(), out);
+    writeSchemaMap(schema.getSchemaDependencies(), out);
+    Map<String, Schema> patternProperties = new LinkedHashMap<>();
+    for (Map.Entry<Pattern, Schema> entry : schema.getPatternProperties().entrySet()) {
+      patternProperties.put(entry.getKey().pattern(), entry.getValue());
+    }
+    writeSchemaMap(patternProperties, out);
+    out.writeInt(schema.getPropertyDependencies().size());
+    for (Map.Entry<String, Set<String>> entry : schema.getPropertyDependencies().entrySet()) {
+      writeString(out, entry.getKey());
+      out.writeInt(entry.getValue().size());
+      for (String mustBePresent : entry.getValue()) {
+        writeString(out, mustBePresent);
+      }
+    }
+  }
+
+  private void writeStringSchema(final StringSchema schema, final DataOutputStream out)
+      throws IOException {
+    out.writeBoolean(schema.requiresString());
+    writeInteger(out, schema.getMinLength());
+    writeInteger(out, schema.getMaxLength());
+    writeString(out, schema.getPattern() == null ? null : schema.getPattern().pattern());
+    FormatValidator formatValidator = schema.getFormatValidator();
+    if (formatValidator == FormatValidator.NONE) {
+      writeString(out, null);
+    } else {
+      String formatName = formatValidator.formatName();
+      boolean builtIn;
+      try {
+        // custom validators may be registered under the name of a built-in format
+        builtIn = FormatValidator.forFormat(formatName).getClass() == formatValidator.getClass();
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("unsupported format validator: " + formatName, e);
+      }
+      if (!builtIn) {
+        throw new IllegalArgumentException("unsupported format validator: " + formatName);
+      }
+      writeString(out, formatName);
+    }
+  }
+
+  private void writeNodeIds(final Collection<Schema> schemas, final DataOutputStream out)
+      throws IOException {
+    out.writeInt(schemas.size());
+    for (Schema schema : schemas) {
+      out.writeInt(nodeId(schema));
+    }
+  }
+
+  private void writeSchemaMap(final Map<String, Schema> schemas, final DataOutputStream out)
+      throws IOException {
+    out.writeInt(schemas.size());
+    for (Map.Entry<String, Schema> entry : schemas.entrySet()) {
+      writeString(out, entry.getKey());
+      out.writeInt(nodeId(entry.getValue()));
+    }
+  }
+
+  private static void writeInteger(final DataOutputStream out, final Integer value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value);
+    }
+  }
+
+  private static void writeNumber(final DataOutputStream out, final Number value)
+      throws IOException {
+    if (value == null) {
+      out.writeByte(SchemaSnapshot.NO_NUMBER);
+    } else if (value instanceof Integer) {
+      out.writeByte(SchemaSnapshot.INT_NUMBER);
+      out.writeInt(value.intValue());
+    } else if (value instanceof Long) {
+      out.writeByte(SchemaSnapshot.LONG_NUMBER);
+      out.writeLong(value.longValue());
+    } else {
+      out.writeByte(SchemaSnapshot.DOUBLE_NUMBER);
+      out.writeDouble(value.doubleValue());
+    }
+  }
+
+  static void writeString(final DataOutputStream out, final String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.stream;
+
+import io.vertx.json.schema.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of validating a newline-delimited JSON file with {@link NdjsonFileValidator}.
+ */
+public class FileValidationReport {
+
+  /**
+   * A record (line) of the file which is either malformed or invalid against the schema.
+   */
+  public static class RecordFailure {
+
+    /**
+     * Creates a {@code RecordFailure} for a record which is invalid against the schema. The
+     * pointers of the leaf violations are collected from {@code exception}, the exception instance
+     * itself is not retained.
+     *
+     * @param lineNumber
+     *          the 1-based line number of the record in the file
+     * @param exception
+     *          the exception thrown by the validation of the record
+     * @return the new instance
+     */
+    public static RecordFailure of(final long lineNumber, final ValidationException exception) {
+      List<String> pointers = new ArrayList<>();
+      collectPointers(exception, pointers);
+      return new RecordFailure(lineNumber, exception.getMessage(), pointers);
+    }
+
+    private static void collectPointers(final ValidationException exception,
+        final List<String> pointers) {
+      if (exception.getCausingExceptions().isEmpty()) {
+        pointers.add(exception.getPointerToViolation());
+      } else {
+        for (ValidationException cause : exception.getCausingExceptions()) {
+          collectPointers(cause, pointers);
+        }
+      }
+    }
+
+    private final long lineNumber;
+
+    private final String message;
+
+    private final List<String> pointers;
+
+    /**
+     * Constructor.
+     *
+     * @param lineNumber
+     *          the 1-based line number of the record in the file
+     * @param message
+     *          the readable failure message
+     * @param pointers
+     *          the JSON pointers of the violating parts of the record. It is {@code ["#"]} for
+     *          malformed records
+     */
+    public RecordFailure(final long lineNumber, final String message,
+        final List<String> pointers) {
+      this.lineNumber = lineNumber;
+      this.message = Objects.requireNonNull(message, "message cannot be null");
+      this.pointers = Collections.unmodifiableList(new ArrayList<>(pointers));
+    }
+
+    public long getLineNumber() {
+      return lineNumber;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public List<String> getPointers() {
+      return pointers;
+    }
+
+    RecordFailure shift(final long lineOffset) {
+      return new RecordFailure(lineNumber + lineOffset, message, pointers);
+    }
+
+    @Override
+    public String toString() {
+      return lineNumber + ": " + message;
+    }
+
+  }
+
+  private final long recordCount;
+
+  private final long failureCount;
+
+  private final List<RecordFailure> failures;
+
+  /**
+   * Constructor.
+   *
+   * @param recordCount
+   *          the number of non-blank lines found in the file
+   * @param failureCount
+   *          the number of malformed or invalid records
+   * @param failures
+   *          the reported failures, ordered by line number. It may contain less elements than
+   *          {@code failureCount} if the number of reported failures was limited
+   */
+  public FileValidationReport(final long recordCount, final long failureCount,
+      final List<RecordFailure> failures) {
+    this.recordCount = recordCount;
+    this.failureCount = failureCount;
+    this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+  }
+
+  public long getFailureCount() {
+    return failureCount;
+  }
+
+  public List<RecordFailure> getFailures() {
+    return failures;
+  }
+
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  public boolean isValid() {
+    return failureCount == 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d records, %d failures", recordCount, failureCount);
+  }
+
+}
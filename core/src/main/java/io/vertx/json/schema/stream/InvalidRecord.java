@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.stream;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.json.schema.ValidationException;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A record rejected by a {@link ValidatingReadStream}, either because it is not well-formed JSON or
+ * because it is invalid against the schema.
+ */
+public class InvalidRecord {
+
+  private final Buffer record;
+
+  private final RuntimeException failure;
+
+  /**
+   * Constructor.
+   *
+   * @param record
+   *          the bytes of the rejected record
+   * @param failure
+   *          the {@link ValidationException} or the {@link DecodeException} thrown for the record
+   */
+  public InvalidRecord(final Buffer record, final RuntimeException failure) {
+    this.record = Objects.requireNonNull(record, "record cannot be null");
+    this.failure = Objects.requireNonNull(failure, "failure cannot be null");
+  }
+
+  /**
+   * Returns the exception thrown for the record.
+   *
+   * @return a {@link ValidationException} or a {@link DecodeException}
+   */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+  public Buffer getRecord() {
+    return record;
+  }
+
+  /**
+   * Returns the validation failure of the record.
+   *
+   * @return the validation failure, or an empty optional if the record is malformed
+   */
+  public Optional<ValidationException> getValidationException() {
+    if (failure instanceof ValidationException) {
+      return Optional.of((ValidationException) failure);
+    }
+    return Optional.empty();
+  }
+
+  public boolean isMalformed() {
+    return failure instanceof DecodeException;
+  }
+
+  @Override
+  public String toString() {
+    return failure.getMessage();
+  }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.stream;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.vertx.core.json.DecodeException;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.StreamingValidator;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.stream.FileValidationReport.RecordFailure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates newline-delimited JSON (NDJSON) files, where each non-blank line is a JSON document to
+ * be validated against a shared {@link Schema}.
+ *
+ * <p>
+ * The file is split into chunks on line boundaries, and the chunks are validated in parallel. Each
+ * chunk is memory-mapped with {@link FileChannel#map(FileChannel.MapMode, long, long)} and its
+ * records are validated by a {@link StreamingValidator} reading directly from the mapping, so
+ * neither the file nor a single record is ever copied on-heap as a whole. The result is a compact
+ * {@link FileValidationReport} holding the line numbers and JSON pointers of the failures.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and thread-safe.
+ * </p>
+ */
+public class NdjsonFileValidator {
+
+  /**
+   * Builder class for {@link NdjsonFileValidator}.
+   */
+  public static class Builder {
+
+    private Schema schema;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int maxReportedFailures = DEFAULT_MAX_REPORTED_FAILURES;
+
+    private ExecutorService executor;
+
+    public NdjsonFileValidator build() {
+      return new NdjsonFileValidator(this);
+    }
+
+    /**
+     * Sets the approximate size of the chunks validated by a single worker. The actual chunks end
+     * at the first line boundary after this size. Defaults to 64 MiB.
+     *
+     * @param chunkSize
+     *          the chunk size in bytes
+     * @return {@code this}
+     */
+    public Builder chunkSize(final long chunkSize) {
+      if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("chunkSize must be in [1, Integer.MAX_VALUE]");
+      }
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Sets the executor running the chunk validations. If it is not set, then a fixed thread pool
+     * of {@link #parallelism(int)} threads is created (and shut down) for each validated file.
+     *
+     * @param executor
+     *          the executor. It is not shut down by the validator
+     * @return {@code this}
+     */
+    public Builder executor(final ExecutorService executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of failures kept in the report. Failures are still counted above this
+     * limit. Defaults to 1000.
+     *
+     * @param maxReportedFailures
+     *          the maximum number of reported failures
+     * @return {@code this}
+     */
+    public Builder maxReportedFailures(final int maxReportedFailures) {
+      this.maxReportedFailures = maxReportedFailures;
+      return this;
+    }
+
+    public Builder parallelism(final int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    public Builder schema(final Schema schema) {
+      this.schema = schema;
+      return this;
+    }
+
+  }
+
+  /**
+   * A line-aligned region of the file.
+   */
+  private static class Chunk {
+
+    private final long start;
+
+    private final long end;
+
+    Chunk(final long start, final long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+  }
+
+  /**
+   * The result of validating a {@link Chunk}. Line numbers of the failures are relative to the
+   * start of the chunk.
+   */
+  private static class ChunkResult {
+
+    private long lineCount;
+
+    private long recordCount;
+
+    private long failureCount;
+
+    private final List<RecordFailure> failures = new ArrayList<>();
+
+  }
+
+  private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+  private static final int DEFAULT_MAX_REPORTED_FAILURES = 1000;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static boolean isBlank(final ByteBuffer buffer, final int start, final int end) {
+    for (int i = start; i < end; ++i) {
+      byte b = buffer.get(i);
+      if (b != ' ' && b != '\t' && b != '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private final StreamingValidator validator;
+
+  private final int parallelism;
+
+  private final long chunkSize;
+
+  private final int maxReportedFailures;
+
+  private final ExecutorService executor;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the schema and the configuration of the validator
+   */
+  public NdjsonFileValidator(final Builder builder) {
+    this.validator = new StreamingValidator(
+        Objects.requireNonNull(builder.schema, "schema cannot be null"));
+    if (builder.parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    this.parallelism = builder.parallelism;
+    this.chunkSize = builder.chunkSize;
+    this.maxReportedFailures = builder.maxReportedFailures;
+    this.executor = builder.executor;
+  }
+
+  /**
+   * Finds the position following the first line feed at or after {@code position}, or returns
+   * {@code size} if there is no such line feed.
+   */
+  private long nextLineStart(final FileChannel channel, final long position, final long size)
+      throws IOException {
+    ByteBuffer probe = ByteBuffer.allocate(8192);
+    long current = position;
+    while (current < size) {
+      probe.clear();
+      int read = channel.read(probe, current);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; ++i) {
+        if (probe.get(i) == '\n') {
+          return current + i + 1;
+        }
+      }
+      current += read;
+    }
+    return size;
+  }
+
+  private List<Chunk> split(final FileChannel channel) throws IOException {
+    long size = channel.size();
+    List<Chunk> chunks = new ArrayList<>();
+    long start = 0;
+    while (start < size) {
+      long end = Math.min(start + chunkSize, size);
+      if (end < size) {
+        // the chunk ends right after the line feed terminating its last line
+        end = nextLineStart(channel, end - 1, size);
+      }
+      if (end - start > Integer.MAX_VALUE) {
+        throw new IllegalStateException("line starting at byte " + start + " is too long");
+      }
+      chunks.add(new Chunk(start, end));
+      start = end;
+    }
+    return chunks;
+  }
+
+  /**
+   * Validates each record of the NDJSON file. Blank lines are skipped, but they are counted when
+   * computing line numbers.
+   *
+   * @param file
+   *          the path of the file
+   * @return the validation report
+   * @throws UncheckedIOException
+   *           if the file cannot be read
+   */
+  public FileValidationReport validate(final Path file) {
+    ExecutorService usedExecutor = executor == null ? Executors.newFixedThreadPool(parallelism)
+        : executor;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<Future<ChunkResult>> results = new ArrayList<>();
+      for (Chunk chunk : split(channel)) {
+        results.add(usedExecutor.submit(() -> validateChunk(channel, chunk)));
+      }
+      long lineOffset = 0;
+      long recordCount = 0;
+      long failureCount = 0;
+      List<RecordFailure> failures = new ArrayList<>();
+      for (Future<ChunkResult> future : results) {
+        ChunkResult result = future.get();
+        for (RecordFailure failure : result.failures) {
+          if (failures.size() < maxReportedFailures) {
+            failures.add(failure.shift(lineOffset));
+          }
+        }
+        lineOffset += result.lineCount;
+        recordCount += result.recordCount;
+        failureCount += result.failureCount;
+      }
+      return new FileValidationReport(recordCount, failureCount, failures);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while validating " + file, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw (UncheckedIOException) cause;
+      } else if (cause instanceof IOException) {
+        throw new UncheckedIOException((IOException) cause);
+      }
+      throw new IllegalStateException("failed to validate " + file, cause);
+    } finally {
+      if (executor == null) {
+        usedExecutor.shutdownNow();
+      }
+    }
+  }
+
+  private ChunkResult validateChunk(final FileChannel channel, final Chunk chunk)
+      throws IOException {
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start,
+        chunk.end - chunk.start);
+    ChunkResult result = new ChunkResult();
+    int limit = mapped.limit();
+    int lineStart = 0;
+    for (int i = 0; i <= limit; ++i) {
+      if (i < limit && mapped.get(i) != '\n') {
+        continue;
+      }
+      if (i == limit && lineStart == limit) {
+        break;
+      }
+      ++result.lineCount;
+      if (!isBlank(mapped, lineStart, i)) {
+        ++result.recordCount;
+        validateRecord(mapped, lineStart, i, result);
+      }
+      lineStart = i + 1;
+    }
+    return result;
+  }
+
+  private void validateRecord(final MappedByteBuffer mapped, final int start, final int end,
+      final ChunkResult result) {
+    ByteBuffer record = mapped.duplicate();
+    record.limit(end).position(start);
+    try {
+      validator.validate(new ByteBufferBackedInputStream(record.slice()));
+    } catch (ValidationException e) {
+      ++result.failureCount;
+      if (result.failures.size() < maxReportedFailures) {
+        result.failures.add(RecordFailure.of(result.lineCount, e));
+      }
+    } catch (DecodeException e) {
+      ++result.failureCount;
+      if (result.failures.size() < maxReportedFailures) {
+        result.failures.add(new RecordFailure(result.lineCount, e.getMessage(),
+            Arrays.asList("#")));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.stream;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.Objects;
+
+/**
+ * Splits a stream of {@link Buffer} chunks into JSON records. Used by {@link ValidatingReadStream}.
+ *
+ * <p>
+ * In {@link Framing#NDJSON} mode each non-blank line is a record, and the emitted record includes
+ * its line terminator. In {@link Framing#CONCATENATED} mode the records are JSON values following
+ * each other, optionally separated by whitespace; a record ends with the closing bracket of its
+ * top-level object or array, or with the first whitespace after a top-level scalar. The framer
+ * only tracks string and nesting state, it doesn't check if the records are well-formed.
+ * </p>
+ *
+ * <p>
+ * The records longer than the maximum record size, not counting the line terminator, are not
+ * buffered: their first bytes are passed to the oversized record handler, and the rest of the
+ * record is skipped up to its end.
+ * </p>
+ *
+ * <p>
+ * This class is NOT thread-safe.
+ * </p>
+ */
+public class RecordFramer implements Handler<Buffer> {
+
+  /**
+   * The way records are delimited in the framed stream.
+   */
+  public enum Framing {
+
+    /**
+     * Newline-delimited JSON: one record per line.
+     */
+    NDJSON,
+
+    /**
+     * Concatenated JSON values, optionally separated by whitespace.
+     */
+    CONCATENATED
+
+  }
+
+  private static boolean isWhitespace(final byte b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+  }
+
+  private final Framing framing;
+
+  private final Handler<Buffer> output;
+
+  private final int maxRecordSize;
+
+  private final Handler<Buffer> oversizedRecordHandler;
+
+  /**
+   * The received bytes, the bytes before {@link #recordStart} are already emitted or skipped.
+   */
+  private Buffer pending = Buffer.buffer();
+
+  /**
+   * The index in {@link #pending} where the current record starts.
+   */
+  private int recordStart;
+
+  /**
+   * The index in {@link #pending} up to which the bytes are already scanned.
+   */
+  private int scanned;
+
+  private int depth;
+
+  private boolean inString;
+
+  private boolean escaped;
+
+  private boolean inRecord;
+
+  /**
+   * {@code true} if the current record is oversized and its bytes are dropped.
+   */
+  private boolean skipping;
+
+  /**
+   * Constructor of a framer without maximum record size.
+   *
+   * @param framing
+   *          the framing of the input
+   * @param output
+   *          the handler receiving the records
+   */
+  public RecordFramer(final Framing framing, final Handler<Buffer> output) {
+    this(framing, Integer.MAX_VALUE, output, record -> {
+    });
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param framing
+   *          the framing of the input
+   * @param maxRecordSize
+   *          the maximum size of a record in bytes
+   * @param output
+   *          the handler receiving the records
+   * @param oversizedRecordHandler
+   *          the handler receiving the first {@code maxRecordSize} bytes of the records which are
+   *          longer
+   */
+  public RecordFramer(final Framing framing, final int maxRecordSize,
+      final Handler<Buffer> output, final Handler<Buffer> oversizedRecordHandler) {
+    this.framing = Objects.requireNonNull(framing, "framing cannot be null");
+    if (maxRecordSize < 1) {
+      throw new IllegalArgumentException("maxRecordSize must be positive");
+    }
+    this.maxRecordSize = maxRecordSize;
+    this.output = Objects.requireNonNull(output, "output cannot be null");
+    this.oversizedRecordHandler = Objects.requireNonNull(oversizedRecordHandler,
+        "oversizedRecordHandler cannot be null");
+  }
+
+  /**
+   * Emits the remaining non-blank bytes as the last record. It should be called when the input
+   * stream ends.
+   */
+  public void end() {
+    int length = pending.length();
+    if (!skipping && !isBlank(recordStart, length)) {
+      output.handle(pending.getBuffer(recordStart, length));
+    }
+    pending = Buffer.buffer();
+    recordStart = 0;
+    scanned = 0;
+    startRecord();
+  }
+
+  @Override
+  public void handle(final Buffer chunk) {
+    pending.appendBuffer(chunk);
+    int length = pending.length();
+    for (int i = scanned; i < length; ++i) {
+      boolean recordEnds = framing == Framing.NDJSON ? scanLineByte(i) : scanValueByte(i);
+      if (recordEnds) {
+        int recordEnd = pending.getByte(i) == '\n' || !isWhitespace(pending.getByte(i)) ? i + 1
+            : i;
+        if (!skipping && !isBlank(recordStart, recordEnd)) {
+          output.handle(pending.getBuffer(recordStart, recordEnd));
+        }
+        recordStart = i + 1;
+        startRecord();
+      } else if (skipping) {
+        recordStart = i + 1;
+      } else if (i + 1 - recordStart > maxRecordSize) {
+        oversizedRecordHandler.handle(pending.getBuffer(recordStart,
+            recordStart + maxRecordSize));
+        skipping = true;
+        recordStart = i + 1;
+      }
+    }
+    scanned = length;
+    if (recordStart == length) {
+      pending = Buffer.buffer();
+      recordStart = 0;
+      scanned = 0;
+    } else if (recordStart >= length - recordStart) {
+      // the unfinished record is copied only when it is not longer than the consumed bytes, so
+      // that each byte is copied a bounded number of times
+      pending = pending.getBuffer(recordStart, length);
+      scanned = length - recordStart;
+      recordStart = 0;
+    }
+  }
+
+  private boolean isBlank(final int start, final int end) {
+    for (int i = start; i < end; ++i) {
+      if (!isWhitespace(pending.getByte(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean scanLineByte(final int index) {
+    return pending.getByte(index) == '\n';
+  }
+
+  /**
+   * Updates the scanner state with the byte at {@code index}, and returns {@code true} if the byte
+   * terminates the current record.
+   */
+  private boolean scanValueByte(final int index) {
+    byte b = pending.getByte(index);
+    if (!inRecord) {
+      if (isWhitespace(b)) {
+        recordStart = index + 1;
+        return false;
+      }
+      inRecord = true;
+    }
+    if (inString) {
+      if (escaped) {
+        escaped = false;
+      } else if (b == '\\') {
+        escaped = true;
+      } else if (b == '"') {
+        inString = false;
+        return depth == 0;
+      }
+      return false;
+    }
+    if (b == '"') {
+      inString = true;
+    } else if (b == '{' || b == '[') {
+      ++depth;
+    } else if (b == '}' || b == ']') {
+      --depth;
+      return depth <= 0;
+    } else if (depth == 0 && isWhitespace(b)) {
+      // the whitespace following a top-level scalar
+      return true;
+    }
+    return false;
+  }
+
+  private void startRecord() {
+    depth = 0;
+    inString = false;
+    escaped = false;
+    inRecord = false;
+    skipping = false;
+  }
+
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.stream;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.StreamingValidator;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.stream.RecordFramer.Framing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * A {@link ReadStream} validating the JSON records of a source {@code ReadStream<Buffer>}.
+ *
+ * <p>
+ * The source is split into records by a {@link RecordFramer}, and the records are validated on
+ * worker threads by a {@link StreamingValidator}, with at most {@link Builder#concurrency(int)}
+ * validations in flight. Valid records are emitted to the {@link #handler(Handler)} as
+ * {@link Buffer}s in their original order, so the stream can be pumped into any
+ * {@code WriteStream<Buffer>}. Malformed and invalid records are routed to the
+ * {@link #invalidRecordHandler(Handler)} instead, in the same order. The records longer than
+ * {@link Builder#maxRecordSize(int)} are rejected as malformed without being buffered.
+ * </p>
+ *
+ * <p>
+ * Back-pressure is honoured in both directions: the source is paused while this stream is paused,
+ * or while the number of framed but not yet emitted records reaches twice the concurrency.
+ * </p>
+ *
+ * <p>
+ * The source and the handlers must be used on the same Vert.x context.
+ * </p>
+ */
+public class ValidatingReadStream implements ReadStream<Buffer> {
+
+  /**
+   * Builder class for {@link ValidatingReadStream}.
+   */
+  public static class Builder {
+
+    private Vertx vertx;
+
+    private ReadStream<Buffer> source;
+
+    private Schema schema;
+
+    private Framing framing = Framing.NDJSON;
+
+    private int concurrency = 1;
+
+    private int maxRecordSize = DEFAULT_MAX_RECORD_SIZE;
+
+    public ValidatingReadStream build() {
+      return new ValidatingReadStream(this);
+    }
+
+    /**
+     * Sets the maximum number of records validated at the same time. Defaults to 1.
+     *
+     * @param concurrency
+     *          the number of concurrent validations
+     * @return {@code this}
+     */
+    public Builder concurrency(final int concurrency) {
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    /**
+     * Sets how the records of the source are delimited. Defaults to {@link Framing#NDJSON}.
+     *
+     * @param framing
+     *          the framing of the source
+     * @return {@code this}
+     */
+    public Builder framing(final Framing framing) {
+      this.framing = framing;
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of a record in bytes, not counting its line terminator. The longer
+     * records are routed to the {@link ValidatingReadStream#invalidRecordHandler(Handler)} as
+     * malformed, with their first {@code maxRecordSize} bytes. Defaults to 16 MiB.
+     *
+     * @param maxRecordSize
+     *          the maximum record size
+     * @return {@code this}
+     */
+    public Builder maxRecordSize(final int maxRecordSize) {
+      this.maxRecordSize = maxRecordSize;
+      return this;
+    }
+
+    public Builder schema(final Schema schema) {
+      this.schema = schema;
+      return this;
+    }
+
+    public Builder source(final ReadStream<Buffer> source) {
+      this.source = source;
+      return this;
+    }
+
+    public Builder vertx(final Vertx vertx) {
+      this.vertx = vertx;
+      return this;
+    }
+
+  }
+
+  /**
+   * A framed record waiting for its validation or for being emitted.
+   */
+  private static class Slot {
+
+    private final Buffer record;
+
+    private boolean started;
+
+    private boolean done;
+
+    private Throwable failure;
+
+    Slot(final Buffer record) {
+      this.record = record;
+    }
+
+  }
+
+  private static final int DEFAULT_MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Vertx vertx;
+
+  private final ReadStream<Buffer> source;
+
+  private final StreamingValidator validator;
+
+  private final RecordFramer framer;
+
+  private final int concurrency;
+
+  private final Deque<Slot> slots = new ArrayDeque<>();
+
+  private int inFlight;
+
+  private boolean paused;
+
+  private boolean sourcePaused;
+
+  private boolean sourceEnded;
+
+  private boolean ended;
+
+  private Handler<Buffer> handler;
+
+  private Handler<InvalidRecord> invalidRecordHandler;
+
+  private Handler<Void> endHandler;
+
+  private Handler<Throwable> exceptionHandler;
+
+  /**
+   * Constructor.
+   *
+   * @param builder
+   *          the builder containing the source, the schema and the configuration of the stream
+   */
+  public ValidatingReadStream(final Builder builder) {
+    this.vertx = Objects.requireNonNull(builder.vertx, "vertx cannot be null");
+    this.source = Objects.requireNonNull(builder.source, "source cannot be null");
+    this.validator = new StreamingValidator(
+        Objects.requireNonNull(builder.schema, "schema cannot be null"));
+    this.framer = new RecordFramer(
+        Objects.requireNonNull(builder.framing, "framing cannot be null"), builder.maxRecordSize,
+        this::enqueue, this::rejectOversized);
+    if (builder.concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be positive");
+    }
+    this.concurrency = builder.concurrency;
+    source.endHandler(v -> {
+      framer.end();
+      sourceEnded = true;
+      drain();
+    });
+    source.exceptionHandler(this::fail);
+  }
+
+  private void drain() {
+    while (!paused && !slots.isEmpty() && slots.peekFirst().done) {
+      emit(slots.pollFirst());
+    }
+    if (sourceEnded && slots.isEmpty() && !ended) {
+      ended = true;
+      if (endHandler != null) {
+        endHandler.handle(null);
+      }
+    }
+    updateSourceFlow();
+  }
+
+  private void emit(final Slot slot) {
+    if (slot.failure == null) {
+      if (handler != null) {
+        handler.handle(slot.record);
+      }
+    } else if (slot.failure instanceof ValidationException
+        || slot.failure instanceof DecodeException) {
+      if (invalidRecordHandler != null) {
+        invalidRecordHandler.handle(
+            new InvalidRecord(slot.record, (RuntimeException) slot.failure));
+      }
+    } else {
+      fail(slot.failure);
+    }
+  }
+
+  @Override
+  public ValidatingReadStream endHandler(final Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    return this;
+  }
+
+  private void enqueue(final Buffer record) {
+    slots.addLast(new Slot(record));
+    startValidations();
+    updateSourceFlow();
+  }
+
+  @Override
+  public ValidatingReadStream exceptionHandler(final Handler<Throwable> exceptionHandler) {
+    this.exceptionHandler = exceptionHandler;
+    return this;
+  }
+
+  private void fail(final Throwable failure) {
+    if (exceptionHandler != null) {
+      exceptionHandler.handle(failure);
+    }
+  }
+
+  @Override
+  public ValidatingReadStream handler(final Handler<Buffer> handler) {
+    this.handler = handler;
+    if (handler == null) {
+      source.handler(null);
+    } else {
+      source.handler(framer);
+    }
+    return this;
+  }
+
+  /**
+   * Sets the handler receiving the malformed and the invalid records.
+   *
+   * @param invalidRecordHandler
+   *          the handler of the rejected records. If it is {@code null}, then the rejected records
+   *          are dropped
+   * @return {@code this}
+   */
+  public ValidatingReadStream invalidRecordHandler(
+      final Handler<InvalidRecord> invalidRecordHandler) {
+    this.invalidRecordHandler = invalidRecordHandler;
+    return this;
+  }
+
+  @Override
+  public ValidatingReadStream pause() {
+    paused = true;
+    updateSourceFlow();
+    return this;
+  }
+
+  private void rejectOversized(final Buffer prefix) {
+    Slot slot = new Slot(prefix);
+    slot.started = true;
+    slot.done = true;
+    slot.failure = new DecodeException("Failed to decode: the record is longer than "
+        + prefix.length() + " bytes");
+    slots.addLast(slot);
+    drain();
+  }
+
+  @Override
+  public ValidatingReadStream resume() {
+    paused = false;
+    drain();
+    return this;
+  }
+
+  private void startValidations() {
+    for (Slot slot : slots) {
+      if (inFlight >= concurrency) {
+        return;
+      }
+      if (!slot.started) {
+        slot.started = true;
+        ++inFlight;
+        vertx.<Void> executeBlocking(future -> {
+          validator.validate(slot.record);
+          future.complete();
+        }, false, result -> {
+          --inFlight;
+          slot.done = true;
+          slot.failure = result.cause();
+          startValidations();
+          drain();
+        });
+      }
+    }
+  }
+
+  private void updateSourceFlow() {
+    boolean shouldPause = !sourceEnded && (paused || slots.size() >= 2 * concurrency);
+    if (shouldPause && !sourcePaused) {
+      sourcePaused = true;
+      source.pause();
+    } else if (!shouldPause && sourcePaused) {
+      sourcePaused = false;
+      source.resume();
+    }
+  }
+
+}
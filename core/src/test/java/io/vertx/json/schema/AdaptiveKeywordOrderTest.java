@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveKeywordOrderTest {
+
+  private static final ValidationContext ADAPTIVE = ValidationContext.FAIL_FAST
+      .withAdaptiveOrdering();
+
+  private static String failingKeyword(final Schema schema, final Object subject,
+      final ValidationContext context) {
+    try {
+      schema.validate(subject, context);
+      Assert.fail("did not throw exception");
+      return null;
+    } catch (ValidationException e) {
+      return e.getKeyword();
+    }
+  }
+
+  @Test
+  public void adaptiveOrderingIsFailFastOnly() {
+    Assert.assertFalse(ValidationContext.DEFAULT.withAdaptiveOrdering().isAdaptiveOrdering());
+    Assert.assertTrue(ValidationContext.DEFAULT.withAdaptiveOrdering().asFailFast()
+        .isAdaptiveOrdering());
+    Assert.assertTrue(ADAPTIVE.isAdaptiveOrdering());
+    Assert.assertFalse(ValidationContext.FAIL_FAST.isAdaptiveOrdering());
+  }
+
+  @Test
+  public void cheapRejectingKeywordsComeFirst() {
+    Schema items = ObjectSchema.builder()
+        .addPropertySchema("name", StringSchema.builder().minLength(1).build())
+        .build();
+    ObjectSchema schema = ObjectSchema.builder()
+        .addPropertySchema("lines", ArraySchema.builder().allItemSchema(items).build())
+        .addRequiredProperty("id")
+        .build();
+    JsonArray lines = new JsonArray();
+    for (int i = 0; i < 200; ++i) {
+      lines.add(new JsonObject().put("name", "line"));
+    }
+    JsonObject subject = new JsonObject().put("lines", lines);
+    // the properties are expensive and pass, the missing id is rejected
+    for (int i = 0; i < AdaptiveKeywordOrder.REORDER_PERIOD * 2; ++i) {
+      failingKeyword(schema, subject, ADAPTIVE);
+    }
+    lines.add(new JsonObject().put("name", ""));
+    Assert.assertEquals("required", failingKeyword(schema, subject, ADAPTIVE));
+    Assert.assertEquals("minLength", failingKeyword(schema, subject,
+        ValidationContext.FAIL_FAST));
+    schema.validate(new JsonObject().put("id", 1).put("lines", new JsonArray()), ADAPTIVE);
+  }
+
+  @Test
+  public void orderFollowsCostPerRejection() {
+    AdaptiveKeywordOrder order = new AdaptiveKeywordOrder(new int[] { 0, 1, 2 }, 4);
+    for (int i = 1; i < AdaptiveKeywordOrder.REORDER_PERIOD; ++i) {
+      boolean measured = order.startValidation();
+      // expensive, always failing
+      order.record(0, measured ? 1000 : -1, true);
+      // cheap, rarely failing
+      order.record(1, measured ? 10 : -1, i % 100 == 0);
+      // cheap, often failing
+      order.record(2, measured ? 10 : -1, i % 2 == 0);
+    }
+    Assert.assertArrayEquals(new int[] { 0, 1, 2 }, order.getOrder());
+    order.startValidation();
+    Assert.assertArrayEquals(new int[] { 2, 1, 0 }, order.getOrder());
+  }
+
+}
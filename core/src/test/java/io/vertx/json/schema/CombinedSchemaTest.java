@@ -15,9 +15,12 @@
  */
 package io.vertx.json.schema;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 public class CombinedSchemaTest {
@@ -55,6 +58,47 @@ public class CombinedSchemaTest {
         .build().validate("foo");
   }
 
+  @Test
+  public void adaptiveAnyOfTriesTheMostMatchedSubschemaFirst() {
+    List<Schema> branches = new ArrayList<>();
+    for (int i = 0; i < 7; ++i) {
+      branches.add(EnumSchema.builder().possibleValue("b" + i).build());
+    }
+    CombinedSchema schema = CombinedSchema.anyOf(branches).build();
+    AtomicInteger evaluatedBranches = new AtomicInteger();
+    ValidationContext context = ValidationContext.DEFAULT.withAdaptiveOrdering()
+        .withKeywordListener(new ValidationContext.KeywordListener() {
+
+          @Override
+          public void keywordCompleted(final Schema schema, final String keyword,
+              final ValidationException failure) {
+          }
+
+          @Override
+          public void keywordStarted(final Schema schema, final String keyword) {
+            if ("enum".equals(keyword)) {
+              evaluatedBranches.incrementAndGet();
+            }
+          }
+
+        });
+    for (int i = 0; i < AdaptiveBranchOrder.REORDER_PERIOD * 2; ++i) {
+      schema.validate(i % 20 == 0 ? "b1" : "b6", context);
+    }
+    evaluatedBranches.set(0);
+    schema.validate("b6", context);
+    Assert.assertEquals(1, evaluatedBranches.get());
+    evaluatedBranches.set(0);
+    schema.validate("b1", context);
+    Assert.assertEquals(2, evaluatedBranches.get());
+    // the outcome does not depend on the order
+    for (String subject : Arrays.asList("b0", "b6", "none")) {
+      Assert.assertEquals(failureMessage(schema, subject, ValidationContext.DEFAULT),
+          failureMessage(schema, subject, context));
+    }
+    Assert.assertNotNull(failureMessage(schema, "none", context));
+  }
+
   @Test
   public void factories() {
     CombinedSchema.allOf(Arrays.asList(BooleanSchema.INSTANCE));
@@ -87,4 +131,14 @@ public class CombinedSchemaTest {
     TestSupport.expectFailure(CombinedSchema.oneOf(SUBSCHEMAS).build(), 30);
   }
 
+  private static String failureMessage(final Schema schema, final Object subject,
+      final ValidationContext context) {
+    try {
+      schema.validate(subject, context);
+      return null;
+    } catch (ValidationException e) {
+      return e.getMessage();
+    }
+  }
+
 }
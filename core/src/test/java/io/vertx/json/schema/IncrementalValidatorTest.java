@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IncrementalValidatorTest {
+
+  private static final Schema SCHEMA = SchemaLoader.load(new JsonObject(
+      "{\"type\":\"object\",\"required\":[\"id\",\"items\"],\"properties\":{"
+          + "\"id\":{\"type\":\"integer\"},"
+          + "\"items\":{\"type\":\"array\",\"items\":{\"type\":\"object\",\"required\":[\"name\"],"
+          + "\"properties\":{\"name\":{\"type\":\"string\",\"minLength\":1},"
+          + "\"qty\":{\"type\":\"integer\",\"minimum\":0}}}}}}"));
+
+  private static final int ITEM_COUNT = 1000;
+
+  private static JsonObject document() {
+    JsonArray items = new JsonArray();
+    for (int i = 0; i < ITEM_COUNT; ++i) {
+      items.add(new JsonObject().put("name", "item" + i).put("qty", i));
+    }
+    // decoded, so that the nested objects are wrapped again by each access
+    return new JsonObject(new JsonObject().put("id", 1).put("items", items).encode());
+  }
+
+  private static void expectFailure(final IncrementalValidator validator,
+      final JsonObject document, final JsonArray patch, final String expectedMessage) {
+    String original = document.encode();
+    try {
+      validator.applyPatch(document, patch);
+      Assert.fail("did not throw exception");
+    } catch (ValidationException | IllegalArgumentException e) {
+      Assert.assertEquals(expectedMessage, e.getMessage());
+    }
+    Assert.assertEquals(original, document.encode());
+  }
+
+  private static JsonArray patch(final String json) {
+    return new JsonArray(json);
+  }
+
+  @Test
+  public void anyOfSubschemasAreFullyRevalidated() {
+    Schema schema = SchemaLoader.load(new JsonObject("{\"anyOf\":["
+        + "{\"properties\":{\"a\":{\"properties\":{\"v\":{\"type\":\"string\"}}}}},"
+        + "{\"properties\":{\"b\":{\"properties\":{\"v\":{\"type\":\"string\"}}}}}]}"));
+    JsonObject document = new JsonObject("{\"a\":{\"v\":1},\"b\":{\"v\":\"x\"}}");
+    schema.validate(document);
+    IncrementalValidator validator = IncrementalValidator.builder().schema(schema).build();
+    expectFailure(validator, document, patch("[{\"op\":\"replace\",\"path\":\"/b/v\",\"value\":2}]"),
+        "#: #: no subschema matched out of the total 2 subschemas");
+  }
+
+  @Test
+  public void failedPatchIsRolledBack() {
+    JsonObject document = document();
+    IncrementalValidator validator = IncrementalValidator.builder().schema(SCHEMA).build();
+    expectFailure(validator, document, patch("[{\"op\":\"remove\",\"path\":\"/items/3\"},"
+        + "{\"op\":\"replace\",\"path\":\"/items/5/name\",\"value\":\"\"}]"),
+        "#/items/5/name: expected minLength: 1, actual: 0");
+    expectFailure(validator, document, patch("[{\"op\":\"add\",\"path\":\"/items/-\","
+        + "\"value\":{\"qty\":-1}},{\"op\":\"remove\",\"path\":\"/id\"}]"),
+        "#: 2 schema violations found");
+    expectFailure(validator, document, patch("[{\"op\":\"add\",\"path\":\"/last\",\"value\":1},"
+        + "{\"op\":\"remove\",\"path\":\"/id\"},{\"op\":\"remove\",\"path\":\"/items\"}]"),
+        "#: 2 schema violations found");
+    expectFailure(validator, document, patch("[{\"op\":\"move\",\"from\":\"/items/0\","
+        + "\"path\":\"/first\"},{\"op\":\"test\",\"path\":\"/id\",\"value\":2}]"),
+        "test failed: {\"op\":\"test\",\"path\":\"/id\",\"value\":2}");
+    expectFailure(validator, document, patch("[{\"op\":\"remove\",\"path\":\"/items/1000\"}]"),
+        "array index out of bounds: 1000");
+  }
+
+  @Test
+  public void mergePatchIsApplied() {
+    JsonObject document = document();
+    IncrementalValidator validator = IncrementalValidator.builder().schema(SCHEMA).build();
+    Object patched = validator.applyMergePatch(document, new JsonObject(
+        "{\"id\":2,\"extra\":{\"a\":null,\"b\":1}}"));
+    Assert.assertSame(document, patched);
+    Assert.assertEquals(2, (int) document.getInteger("id"));
+    Assert.assertEquals(new JsonObject().put("b", 1), document.getJsonObject("extra"));
+    String original = document.encode();
+    try {
+      validator.applyMergePatch(document, new JsonObject("{\"id\":null,\"extra\":null}"));
+      Assert.fail("did not throw exception");
+    } catch (ValidationException e) {
+      Assert.assertEquals("#: required key [id] not found", e.getMessage());
+    }
+    Assert.assertEquals(original, document.encode());
+  }
+
+  @Test
+  public void onlyModifiedPartsAreRevalidated() {
+    JsonObject document = document();
+    AtomicInteger evaluations = new AtomicInteger();
+    ValidationContext context = ValidationContext.DEFAULT.withKeywordListener(
+        new ValidationContext.KeywordListener() {
+
+          @Override
+          public void keywordCompleted(final Schema schema, final String keyword,
+              final ValidationException failure) {
+          }
+
+          @Override
+          public void keywordStarted(final Schema schema, final String keyword) {
+            if ("minLength".equals(keyword)) {
+              evaluations.incrementAndGet();
+            }
+          }
+
+        });
+    IncrementalValidator validator = IncrementalValidator.builder()
+        .schema(SCHEMA)
+        .context(context)
+        .build();
+    Object patched = validator.applyPatch(document, patch(
+        "[{\"op\":\"replace\",\"path\":\"/items/5/name\",\"value\":\"renamed\"},"
+            + "{\"op\":\"add\",\"path\":\"/items/0\",\"value\":{\"name\":\"first\"}},"
+            + "{\"op\":\"copy\",\"from\":\"/items/1\",\"path\":\"/items/-\"}]"));
+    Assert.assertSame(document, patched);
+    Assert.assertEquals(3, evaluations.get());
+    JsonArray items = document.getJsonArray("items");
+    Assert.assertEquals(ITEM_COUNT + 2, items.size());
+    Assert.assertEquals("first", items.getJsonObject(0).getString("name"));
+    Assert.assertEquals("renamed", items.getJsonObject(6).getString("name"));
+    Assert.assertEquals("item0", items.getJsonObject(ITEM_COUNT + 1).getString("name"));
+    SCHEMA.validate(document);
+  }
+
+  @Test
+  public void replacedDocumentIsFullyValidated() {
+    IncrementalValidator validator = IncrementalValidator.builder().schema(SCHEMA).build();
+    Object patched = validator.applyPatch(document(), patch(
+        "[{\"op\":\"replace\",\"path\":\"\",\"value\":{\"id\":1,\"items\":[{\"name\":\"a\"}]}}]"));
+    Assert.assertEquals(new JsonObject("{\"id\":1,\"items\":[{\"name\":\"a\"}]}"), patched);
+    try {
+      validator.applyPatch(document(), patch(
+          "[{\"op\":\"replace\",\"path\":\"\",\"value\":{\"id\":1,\"items\":[{}]}}]"));
+      Assert.fail("did not throw exception");
+    } catch (ValidationException e) {
+      Assert.assertEquals("#/items/0: required key [name] not found", e.getMessage());
+    }
+  }
+
+}
@@ -123,6 +123,23 @@ public class ObjectSchemaTest {
     }
   }
 
+  @Test
+  public void multipleViolationsFailFast() {
+    Schema subject = ObjectSchema.builder()
+        .addPropertySchema("numberProp", new NumberSchema())
+        .patternProperty("^string.*", new StringSchema())
+        .addPropertySchema("boolProp", BooleanSchema.INSTANCE)
+        .addRequiredProperty("boolProp")
+        .build();
+    try {
+      subject.validate(OBJECTS.getValue("multipleViolations"), ValidationContext.FAIL_FAST);
+      Assert.fail("did not throw exception for 3 schema violations");
+    } catch (ValidationException e) {
+      Assert.assertTrue(e.getCausingExceptions().isEmpty());
+      Assert.assertEquals("#/numberProp", e.getPointerToViolation());
+    }
+  }
+
   @Test
   public void noAdditionalProperties() {
     ObjectSchema subject = ObjectSchema.builder().additionalProperties(false).build();
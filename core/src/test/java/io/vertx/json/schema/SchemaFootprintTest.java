@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SchemaFootprintTest {
+
+  private static final JsonObject SCHEMA = new JsonObject("{\"type\":\"object\","
+      + "\"title\":\"order\",\"description\":\"an order\",\"required\":[\"id\"],"
+      + "\"properties\":{"
+      + "\"id\":{\"type\":\"integer\",\"minimum\":1,\"title\":\"identifier\"},"
+      + "\"code\":{\"type\":\"string\",\"maxLength\":1000},"
+      + "\"lines\":{\"type\":\"array\",\"minItems\":1,\"items\":{\"$ref\":\"#/definitions/line\"}}},"
+      + "\"definitions\":{\"line\":{\"type\":\"object\",\"description\":\"an order line\","
+      + "\"properties\":{\"quantity\":{\"type\":\"number\"}}}}}");
+
+  @Test
+  public void annotationsCanBeDropped() {
+    Schema retained = SchemaLoader.builder().schemaJson(SCHEMA).build().load().build();
+    Schema dropped = SchemaLoader.builder().schemaJson(SCHEMA).retainAnnotations(false).build()
+        .load().build();
+    Assert.assertEquals("order", retained.getTitle());
+    Assert.assertNull(dropped.getTitle());
+    Assert.assertNull(dropped.getDescription());
+    Assert.assertNull(((ObjectSchema) dropped).getPropertySchemas().get("id").getTitle());
+    Assert.assertTrue(SchemaFootprint.of(dropped).getNodeBytes()
+        < SchemaFootprint.of(retained).getNodeBytes());
+  }
+
+  @Test
+  public void compactBoundsKeepTheirValues() {
+    ObjectSchema schema = (ObjectSchema) SchemaLoader.load(SCHEMA);
+    StringSchema code = (StringSchema) schema.getPropertySchemas().get("code");
+    Assert.assertEquals(Integer.valueOf(1000), code.getMaxLength());
+    Assert.assertNull(code.getMinLength());
+    Assert.assertTrue(code.requiresString());
+    ArraySchema lines = (ArraySchema) schema.getPropertySchemas().get("lines");
+    Assert.assertEquals(Integer.valueOf(1), lines.getMinItems());
+    Assert.assertNull(lines.getMaxItems());
+    Assert.assertNull(schema.getMinProperties());
+    Assert.assertTrue(schema.permitsAdditionalProperties());
+  }
+
+  @Test
+  public void footprintCountsEachNodeOnce() {
+    Schema schema = SchemaLoader.load(SCHEMA);
+    SchemaFootprint footprint = SchemaFootprint.of(schema);
+    // root, id, code, lines, the reference, the line and its quantity
+    Assert.assertEquals(7, footprint.getNodeCount());
+    Assert.assertEquals(Long.valueOf(2), footprint.getNodeCountByType().get("ObjectSchema"));
+    Assert.assertEquals(Long.valueOf(1), footprint.getNodeCountByType().get("ReferenceSchema"));
+    Assert.assertTrue(footprint.getRawJsonBytes() > 0);
+    Assert.assertEquals(footprint.getNodeBytes() + footprint.getRawJsonBytes(),
+        footprint.getRetainedBytes());
+    Assert.assertTrue(footprint.toString().startsWith("retained: "));
+
+    Schema withoutRawJson = SchemaLoader.builder().schemaJson(SCHEMA).build().load().build();
+    Assert.assertEquals(0, SchemaFootprint.of(withoutRawJson).getRawJsonBytes());
+  }
+
+}
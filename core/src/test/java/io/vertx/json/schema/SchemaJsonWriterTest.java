@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.loader.RawJsonRetention;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+public class SchemaJsonWriterTest {
+
+  private static final JsonObject SCHEMA = new JsonObject("{\"type\":\"object\","
+      + "\"title\":\"node\",\"required\":[\"name\"],\"maxProperties\":5,"
+      + "\"additionalProperties\":false,"
+      + "\"properties\":{"
+      + "\"name\":{\"type\":\"string\",\"minLength\":1,\"pattern\":\"^[a-z]+$\"},"
+      + "\"mail\":{\"type\":\"string\",\"format\":\"email\"},"
+      + "\"weight\":{\"type\":\"number\",\"minimum\":0,\"exclusiveMinimum\":true,"
+      + "\"multipleOf\":0.5},"
+      + "\"kind\":{\"enum\":[\"leaf\",\"branch\",null]},"
+      + "\"tags\":{\"type\":\"array\",\"items\":[{\"type\":\"integer\"}],"
+      + "\"additionalItems\":false,\"uniqueItems\":true},"
+      + "\"flag\":{\"anyOf\":[{\"type\":\"boolean\"},{\"type\":\"null\"}]},"
+      + "\"other\":{\"not\":{\"type\":\"string\"}},"
+      + "\"children\":{\"type\":\"array\",\"items\":{\"$ref\":\"#\"}}},"
+      + "\"dependencies\":{\"mail\":[\"name\"]}}");
+
+  private static final List<String> SUBJECTS = Arrays.asList(
+      "{\"name\":\"a\"}",
+      "{\"name\":\"A\"}",
+      "{\"name\":\"a\",\"mail\":\"a@example.com\"}",
+      "{\"name\":\"a\",\"mail\":\"not a mail\"}",
+      "{\"mail\":\"a@example.com\"}",
+      "{\"name\":\"a\",\"weight\":1.5}",
+      "{\"name\":\"a\",\"weight\":0}",
+      "{\"name\":\"a\",\"weight\":1.2}",
+      "{\"name\":\"a\",\"kind\":null}",
+      "{\"name\":\"a\",\"kind\":\"root\"}",
+      "{\"name\":\"a\",\"tags\":[1]}",
+      "{\"name\":\"a\",\"tags\":[1,2]}",
+      "{\"name\":\"a\",\"flag\":null}",
+      "{\"name\":\"a\",\"flag\":1}",
+      "{\"name\":\"a\",\"other\":1}",
+      "{\"name\":\"a\",\"other\":\"x\"}",
+      "{\"name\":\"a\",\"children\":[{\"name\":\"b\",\"children\":[{\"name\":\"c\"}]}]}",
+      "{\"name\":\"a\",\"children\":[{\"name\":\"b\",\"children\":[{\"name\":\"C\"}]}]}",
+      "{\"name\":\"a\",\"unknown\":1}");
+
+  private static boolean isValid(final Schema schema, final String subject) {
+    try {
+      schema.validate(new JsonObject(subject));
+      return true;
+    } catch (ValidationException e) {
+      return false;
+    }
+  }
+
+  @Test
+  public void customFormatsAreWrittenByTheirKeyword() {
+    FormatValidator evenLength = subject -> subject.length() % 2 == 0 ? Optional.empty()
+        : Optional.of("odd length");
+    JsonObject schemaJson = new JsonObject("{\"type\":\"string\",\"format\":\"even-length\"}");
+    Schema original = SchemaLoader.builder().schemaJson(schemaJson)
+        .addFormatValidator("even-length", evenLength).build().load().build();
+    JsonObject generated = original.toJson();
+    Assert.assertEquals("even-length", generated.getString("format"));
+    Schema reloaded = SchemaLoader.builder().schemaJson(generated)
+        .addFormatValidator("even-length", evenLength).build().load().build();
+    reloaded.validate("ab");
+    try {
+      reloaded.validate("abc");
+      Assert.fail("did not throw exception");
+    } catch (ValidationException e) {
+      Assert.assertEquals("#: odd length", e.getMessage());
+    }
+  }
+
+  @Test
+  public void generatedJsonValidatesLikeTheOriginal() {
+    Schema original = SchemaLoader.builder().schemaJson(SCHEMA).build().load().build();
+    Assert.assertNull(original.getJsonSchema());
+    JsonObject generated = original.toJson();
+    Schema reloaded = SchemaLoader.load(generated);
+    for (String subject : SUBJECTS) {
+      Assert.assertEquals(subject, isValid(original, subject), isValid(reloaded, subject));
+    }
+    Assert.assertEquals("node", generated.getString("title"));
+    Assert.assertEquals(reloaded.toJson(), SchemaJsonWriter.write(reloaded));
+  }
+
+  @Test
+  public void referencesAreWrittenAsDefinitions() {
+    JsonObject generated = SchemaLoader.builder().schemaJson(SCHEMA).build().load().build()
+        .toJson();
+    JsonObject children = generated.getJsonObject("properties").getJsonObject("children");
+    Assert.assertEquals(new JsonObject().put("$ref", "#/definitions/ref0"),
+        children.getJsonObject("items"));
+    Assert.assertEquals(1, generated.getJsonObject("definitions").size());
+    Assert.assertEquals(new JsonArray().add("name"), generated.getJsonObject("definitions")
+        .getJsonObject("ref0").getJsonArray("required"));
+  }
+
+  @Test
+  public void retentionPolicies() {
+    Schema none = SchemaLoader.builder().schemaJson(SCHEMA).build().load().build();
+    Schema root = SchemaLoader.builder().schemaJson(SCHEMA)
+        .rawJsonRetention(RawJsonRetention.ROOT).build().load().build();
+    Schema all = SchemaLoader.builder().schemaJson(SCHEMA)
+        .rawJsonRetention(RawJsonRetention.ALL).build().load().build();
+    JsonObject nameJson = SCHEMA.getJsonObject("properties").getJsonObject("name");
+
+    Assert.assertNull(none.getJsonSchema());
+    Assert.assertSame(SCHEMA, root.getJsonSchema());
+    Assert.assertSame(SCHEMA, root.toJson());
+    Assert.assertNull(((ObjectSchema) root).getPropertySchemas().get("name").getJsonSchema());
+    Assert.assertSame(SCHEMA, all.getJsonSchema());
+    Assert.assertEquals(nameJson,
+        ((ObjectSchema) all).getPropertySchemas().get("name").getJsonSchema());
+    Assert.assertTrue(SchemaFootprint.of(none).getRetainedBytes()
+        < SchemaFootprint.of(root).getRetainedBytes());
+  }
+
+}
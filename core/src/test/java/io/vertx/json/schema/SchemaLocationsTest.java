@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SchemaLocationsTest {
+
+  private static final JsonObject SCHEMA = new JsonObject("{\"type\":\"object\","
+      + "\"properties\":{"
+      + "\"a/b\":{\"type\":\"string\"},"
+      + "\"lines\":{\"type\":\"array\",\"items\":{\"$ref\":\"#/definitions/line\"}},"
+      + "\"choice\":{\"anyOf\":[{\"type\":\"integer\"},{\"not\":{\"type\":\"null\"}}]}},"
+      + "\"patternProperties\":{\"^x-\":{\"type\":\"boolean\"}},"
+      + "\"definitions\":{\"line\":{\"type\":\"object\","
+      + "\"properties\":{\"quantity\":{\"type\":\"number\"}}}}}");
+
+  @Test
+  public void nodesAreLocatedByJsonPointers() {
+    ObjectSchema root = (ObjectSchema) SchemaLoader.load(SCHEMA);
+    SchemaLocations locations = SchemaLocations.of(root);
+    Assert.assertEquals("#", locations.getPointer(root));
+    Assert.assertEquals("#/properties/a~1b",
+        locations.getPointer(root.getPropertySchemas().get("a/b")));
+    ArraySchema lines = (ArraySchema) root.getPropertySchemas().get("lines");
+    Assert.assertEquals("#/properties/lines/items",
+        locations.getPointer(lines.getAllItemSchema()));
+    ObjectSchema line = (ObjectSchema) ((ReferenceSchema) lines.getAllItemSchema())
+        .getReferredSchema();
+    Assert.assertEquals("#/definitions/line", locations.getPointer(line));
+    Assert.assertEquals("#/definitions/line/properties/quantity",
+        locations.getPointer(line.getPropertySchemas().get("quantity")));
+    CombinedSchema choice = (CombinedSchema) root.getPropertySchemas().get("choice");
+    Schema not = choice.getSubschemas().stream().filter(NotSchema.class::isInstance)
+        .findFirst().get();
+    Assert.assertEquals("#/properties/choice/anyOf/1", locations.getPointer(not));
+    Assert.assertEquals("#/properties/choice/anyOf/1/not",
+        locations.getPointer(((NotSchema) not).getMustNotMatch()));
+    Assert.assertEquals("#/patternProperties/^x-",
+        locations.getPointer(root.getPatternProperties().values().iterator().next()));
+  }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class StreamingValidatorTest {
+
+  private static final JsonObject OBJECTS = JsonObjectHelper.load(
+      StreamingValidatorTest.class
+          .getResourceAsStream("/io/vertx/jsonvalidator/objecttestcases.json"));
+
+  private static final Schema RECTANGLE = SchemaLoader.load(new JsonObject(
+      "{\"type\":\"object\",\"properties\":{\"rectangle\":{\"$ref\":\"#/definitions/Rectangle\"}},"
+          + "\"definitions\":{\"size\":{\"type\":\"number\",\"minimum\":0},"
+          + "\"Rectangle\":{\"type\":\"object\",\"properties\":{"
+          + "\"a\":{\"$ref\":\"#/definitions/size\"},\"b\":{\"$ref\":\"#/definitions/size\"}}}}}"));
+
+  private static List<String> pointers(final ValidationException e) {
+    if (e.getCausingExceptions().isEmpty()) {
+      return Arrays.asList(e.getPointerToViolation() + " " + e.getMessage());
+    }
+    return e.getCausingExceptions().stream()
+        .flatMap(cause -> pointers(cause).stream())
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  private static Object decode(final String json) {
+    if (json.startsWith("{")) {
+      return new JsonObject(json);
+    } else if (json.startsWith("[")) {
+      return new JsonArray(json);
+    }
+    return Json.decodeValue(json, Object.class);
+  }
+
+  private static void expectSameResult(final Schema schema, final String json) {
+    ValidationException treeFailure = null;
+    try {
+      schema.validate(decode(json));
+    } catch (ValidationException e) {
+      treeFailure = e;
+    }
+    try {
+      new StreamingValidator(schema).validate(json);
+      if (treeFailure != null) {
+        Assert.fail("streaming validation did not fail for " + json);
+      }
+    } catch (ValidationException e) {
+      if (treeFailure == null) {
+        Assert.fail("streaming validation failed for " + json + ": " + e.getMessage());
+      }
+      Assert.assertSame(treeFailure.getViolatedSchema(), e.getViolatedSchema());
+      Assert.assertEquals(pointers(treeFailure), pointers(e));
+    }
+  }
+
+  @Test
+  public void additionalProperties() {
+    ObjectSchema schema = ObjectSchema.builder()
+        .addPropertySchema("a", BooleanSchema.INSTANCE)
+        .additionalProperties(false)
+        .build();
+    expectSameResult(schema, "{\"a\":true,\"b\":1,\"c\":{\"d\":[1,2]}}");
+  }
+
+  @Test
+  public void additionalPropertySchema() {
+    ObjectSchema schema = ObjectSchema.builder()
+        .schemaOfAdditionalProperties(BooleanSchema.INSTANCE)
+        .build();
+    expectSameResult(schema, OBJECTS.getJsonObject("additionalPropertySchema").encode());
+  }
+
+  @Test
+  public void arrayItems() {
+    ArraySchema schema = ArraySchema.builder()
+        .allItemSchema(NumberSchema.builder().minimum(0).build())
+        .minItems(4)
+        .build();
+    expectSameResult(schema, "[1, -1, 2, -3]");
+    expectSameResult(schema, "[1]");
+  }
+
+  @Test
+  public void bufferValidation() {
+    StreamingValidator validator = new StreamingValidator(RECTANGLE);
+    Assert.assertTrue(validator.isValid(Buffer.buffer("{\"rectangle\":{\"a\":1,\"b\":2}}")));
+    Assert.assertFalse(validator.isValid(Buffer.buffer("{\"rectangle\":{\"a\":-1}}")));
+    Assert.assertFalse(validator.isValid(Buffer.buffer("{\"rectangle\":")));
+    ByteBuf direct = Unpooled.directBuffer();
+    direct.writeBytes("{\"rectangle\":{\"a\":\"x\"}}".getBytes(StandardCharsets.UTF_8));
+    Assert.assertFalse(validator.isValid(Buffer.buffer(direct)));
+  }
+
+  @Test
+  public void bufferValidationWithDecoding() {
+    StreamingValidator validator = new StreamingValidator(RECTANGLE);
+    String json = "{\"rectangle\":{\"a\":1,\"b\":2.5,\"c\":[true,null,{}]},\"x\":\"y\"}";
+    JsonObject actual = validator.validateAndDecode(Buffer.buffer(json));
+    Assert.assertEquals(new JsonObject(json), actual);
+    try {
+      validator.validateAndDecode(Buffer.buffer("{\"rectangle\":{\"a\":-1}}"));
+      Assert.fail("did not throw for invalid document");
+    } catch (ValidationException e) {
+      Assert.assertEquals("#/rectangle/a", e.getPointerToViolation());
+    }
+  }
+
+  @Test(expected = DecodeException.class)
+  public void bufferValidationWithDecodingRequiresObject() {
+    new StreamingValidator(EmptySchema.INSTANCE).validateAndDecode(Buffer.buffer("[1]"));
+  }
+
+  @Test
+  public void combinedSchemaIsBuffered() {
+    Schema schema = ObjectSchema.builder()
+        .addPropertySchema("shape", CombinedSchema.oneOf(Arrays.asList(
+            ObjectSchema.builder().addRequiredProperty("radius").build(),
+            ObjectSchema.builder().addRequiredProperty("width").build())).build())
+        .build();
+    expectSameResult(schema, "{\"shape\":{\"radius\":2}}");
+    expectSameResult(schema, "{\"shape\":{\"radius\":2,\"width\":3}}");
+  }
+
+  @Test
+  public void concatenatedValues() throws IOException {
+    StreamingValidator validator = new StreamingValidator(RECTANGLE);
+    JsonParser parser = Json.mapper.getFactory().createParser(
+        "{\"rectangle\":{\"a\":1}} {\"rectangle\":{\"a\":-1}}");
+    validator.validate(parser);
+    parser.nextToken();
+    try {
+      validator.validate(parser);
+      Assert.fail("did not throw for the second value");
+    } catch (ValidationException e) {
+      Assert.assertEquals("#/rectangle/a", e.getPointerToViolation());
+    }
+    Assert.assertNull(parser.nextToken());
+  }
+
+  @Test(expected = DecodeException.class)
+  public void malformedDocument() {
+    new StreamingValidator(RECTANGLE).validate("{\"rectangle\":");
+  }
+
+  @Test
+  public void multipleViolations() {
+    expectSameResult(RECTANGLE, OBJECTS.getJsonObject("rectangleMultipleFailures").encode());
+    expectSameResult(RECTANGLE, OBJECTS.getJsonObject("rectangleSingleFailure").encode());
+  }
+
+  @Test
+  public void patternProperties() {
+    ObjectSchema schema = ObjectSchema.builder()
+        .patternProperty("^b_.*$", BooleanSchema.INSTANCE)
+        .patternProperty("^.*_1$", StringSchema.builder().minLength(3).build())
+        .build();
+    expectSameResult(schema, OBJECTS.getJsonObject("patternPropertyViolation").encode());
+    expectSameResult(schema, "{\"b_1\":\"abcd\",\"b_2\":true}");
+  }
+
+  @Test
+  public void requiredAndDependencies() {
+    ObjectSchema schema = ObjectSchema.builder()
+        .addRequiredProperty("a")
+        .addRequiredProperty("b")
+        .propertyDependency("ifPresent", "mustBePresent")
+        .maxProperties(2)
+        .build();
+    expectSameResult(schema, OBJECTS.getJsonObject("propertyDepViolation").encode());
+    expectSameResult(schema, "{\"a\":null,\"b\":1}");
+  }
+
+  @Test
+  public void scalarRoot() {
+    expectSameResult(StringSchema.builder().maxLength(2).build(), "\"abc\"");
+    expectSameResult(NumberSchema.builder().requiresInteger(true).build(), "1.5");
+    expectSameResult(NumberSchema.builder().requiresInteger(true).build(), "{\"a\":1}");
+  }
+
+  @Test
+  public void tupleItems() {
+    ArraySchema schema = ArraySchema.builder()
+        .addItemSchema(BooleanSchema.INSTANCE)
+        .addItemSchema(NullSchema.INSTANCE)
+        .additionalItems(false)
+        .build();
+    expectSameResult(schema, "[true, 1, null]");
+  }
+
+  @Test
+  public void uniqueItemsAreBuffered() {
+    ArraySchema schema = ArraySchema.builder()
+        .uniqueItems(true)
+        .allItemSchema(ObjectSchema.builder().build())
+        .build();
+    expectSameResult(schema, "[{\"a\":[1]},{\"a\":[1]}]");
+  }
+
+}
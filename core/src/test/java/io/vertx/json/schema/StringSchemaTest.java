@@ -22,6 +22,16 @@ import org.junit.Test;
 
 public class StringSchemaTest {
 
+  @Test
+  public void equalityIsStructural() {
+    StringSchema schema = StringSchema.builder().maxLength(64).pattern("^a").build();
+    Assert.assertEquals(schema, StringSchema.builder().maxLength(64).pattern("^a").build());
+    Assert.assertEquals(schema.hashCode(),
+        StringSchema.builder().maxLength(64).pattern("^a").build().hashCode());
+    Assert.assertNotEquals(schema, StringSchema.builder().maxLength(65).pattern("^a").build());
+    Assert.assertNotEquals(schema, StringSchema.builder().maxLength(64).pattern("^b").build());
+  }
+
   @Test
   public void formatFailure() {
     StringSchema subject = StringSchema.builder()
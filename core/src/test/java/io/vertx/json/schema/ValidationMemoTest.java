@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class ValidationMemoTest {
+
+  private static final ArraySchema SCHEMA = ArraySchema.builder()
+      .allItemSchema(ObjectSchema.builder()
+          .addPropertySchema("name", StringSchema.builder().minLength(1).build())
+          .build())
+      .build();
+
+  private static ValidationContext countingContext(final AtomicInteger minLengthEvaluations) {
+    return ValidationContext.DEFAULT.withKeywordListener(new ValidationContext.KeywordListener() {
+
+      @Override
+      public void keywordCompleted(final Schema schema, final String keyword,
+          final ValidationException failure) {
+      }
+
+      @Override
+      public void keywordStarted(final Schema schema, final String keyword) {
+        if ("minLength".equals(keyword)) {
+          minLengthEvaluations.incrementAndGet();
+        }
+      }
+
+    });
+  }
+
+  private static List<String> failures(final Schema schema, final Object subject,
+      final ValidationContext context) {
+    try {
+      schema.validate(subject, context);
+      Assert.fail("did not throw exception");
+      return null;
+    } catch (ValidationException e) {
+      return e.getCausingExceptions().stream()
+          .map(ValidationException::getMessage)
+          .collect(Collectors.toList());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void capacityMustBePositive() {
+    ValidationContext.DEFAULT.withMemo(0);
+  }
+
+  @Test
+  public void evictedResultsAreRecomputed() {
+    JsonObject valid = new JsonObject().put("name", "a");
+    JsonObject invalid = new JsonObject().put("name", "");
+    JsonArray subject = new JsonArray();
+    for (int i = 0; i < 10; ++i) {
+      subject.add(valid).add(invalid);
+    }
+    Assert.assertEquals(failures(SCHEMA, subject, ValidationContext.DEFAULT),
+        failures(SCHEMA, subject, ValidationContext.DEFAULT.withMemo(1)));
+  }
+
+  @Test
+  public void decodedSubdocumentReachedTwiceIsValidatedOnce() {
+    ObjectSchema item = ObjectSchema.builder()
+        .addPropertySchema("name", StringSchema.builder().minLength(1).build())
+        .build();
+    Schema schema = CombinedSchema.allOf(Arrays.asList(
+        ObjectSchema.builder().addPropertySchema("item", item).build(),
+        ObjectSchema.builder().addPropertySchema("item", item).build())).build();
+    // the nested object is wrapped again by each read
+    JsonObject subject = new JsonObject("{\"item\":{\"name\":\"a\"}}");
+    Assert.assertNotSame(subject.getJsonObject("item"), subject.getJsonObject("item"));
+    AtomicInteger evaluations = new AtomicInteger();
+    schema.validate(subject, countingContext(evaluations).withMemo(64));
+    Assert.assertEquals(1, evaluations.get());
+    schema.validate(subject, countingContext(evaluations));
+    Assert.assertEquals(3, evaluations.get());
+  }
+
+  @Test
+  public void sharedInvalidSubdocumentIsValidatedOnce() {
+    JsonObject shared = new JsonObject().put("name", "");
+    JsonArray subject = new JsonArray();
+    for (int i = 0; i < 100; ++i) {
+      subject.add(shared);
+    }
+    AtomicInteger evaluations = new AtomicInteger();
+    List<String> memoized = failures(SCHEMA, subject, countingContext(evaluations).withMemo(64));
+    Assert.assertEquals(1, evaluations.get());
+    Assert.assertEquals(100, memoized.size());
+    Assert.assertEquals("#/99/name: expected minLength: 1, actual: 0", memoized.get(99));
+    Assert.assertEquals(failures(SCHEMA, subject, ValidationContext.DEFAULT), memoized);
+  }
+
+  @Test
+  public void sharedValidSubdocumentIsValidatedOnce() {
+    JsonObject shared = new JsonObject().put("name", "a");
+    JsonArray subject = new JsonArray();
+    for (int i = 0; i < 100; ++i) {
+      subject.add(shared);
+    }
+    AtomicInteger evaluations = new AtomicInteger();
+    SCHEMA.validate(subject, countingContext(evaluations).withMemo(64));
+    Assert.assertEquals(1, evaluations.get());
+    SCHEMA.validate(subject, countingContext(evaluations));
+    Assert.assertEquals(101, evaluations.get());
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.eventbus;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.loader.SchemaLoader;
+import io.vertx.json.schema.metrics.InMemoryValidationMetrics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class SchemaValidationInterceptorTest {
+
+  private static final Schema SCHEMA = SchemaLoader.load(new JsonObject(
+      "{\"type\":\"object\",\"required\":[\"id\",\"name\"],"
+          + "\"properties\":{\"id\":{\"type\":\"integer\"}}}"));
+
+  private Vertx vertx;
+
+  private EventBus eventBus;
+
+  @Before
+  public void createVertx() {
+    vertx = Vertx.vertx();
+    eventBus = vertx.eventBus();
+  }
+
+  @After
+  public void closeVertx() {
+    vertx.close();
+  }
+
+  @Test
+  public void invalidMessageIsFailed() throws Exception {
+    List<Object> delivered = Collections.synchronizedList(new ArrayList<>());
+    List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+    SchemaValidationInterceptor interceptor = SchemaValidationInterceptor.builder()
+        .addressSchema("orders", SCHEMA)
+        .rejectionHandler(rejection -> rejected.add(rejection.getFailure().getMessage()))
+        .build()
+        .install(eventBus);
+    eventBus.consumer("orders", message -> {
+      delivered.add(message.body());
+      message.reply("ok");
+    });
+    CompletableFuture<Throwable> reply = new CompletableFuture<>();
+    eventBus.send("orders", new JsonObject().put("id", "x"), result -> reply.complete(
+        result.cause()));
+    Throwable failure = reply.get(5, TimeUnit.SECONDS);
+    Assert.assertTrue(failure instanceof ReplyException);
+    Assert.assertEquals(400, ((ReplyException) failure).failureCode());
+    // fail-fast: only the first violation is reported
+    Assert.assertEquals(Collections.singletonList("#/id: expected type: Number, found: String"),
+        rejected);
+    Assert.assertTrue(delivered.isEmpty());
+
+    AddressMetrics metrics = interceptor.getMetrics("orders").get();
+    Assert.assertEquals(1, metrics.getValidatedCount());
+    Assert.assertEquals(1, metrics.getRejectedCount());
+  }
+
+  @Test
+  public void validationsAreReportedToTheMetrics() throws Exception {
+    InMemoryValidationMetrics validationMetrics = new InMemoryValidationMetrics();
+    SchemaValidationInterceptor.builder()
+        .addressSchema("orders", SCHEMA)
+        .validationMetrics(validationMetrics)
+        .build()
+        .install(eventBus);
+    eventBus.consumer("orders", message -> message.reply("ok"));
+    CompletableFuture<Throwable> reply = new CompletableFuture<>();
+    eventBus.send("orders", new JsonObject().put("id", 1), result -> reply.complete(
+        result.cause()));
+    Assert.assertNotNull(reply.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Long.valueOf(1), validationMetrics.snapshot().get("orders")
+        .getViolationCounts().get("required"));
+  }
+
+  @Test
+  public void validMessageIsDelivered() throws Exception {
+    SchemaValidationInterceptor interceptor = SchemaValidationInterceptor.builder()
+        .addressSchema("orders", SCHEMA)
+        .build()
+        .install(eventBus);
+    eventBus.consumer("orders", message -> message.reply("ok"));
+    eventBus.consumer("other", message -> message.reply("other"));
+    CompletableFuture<Object> reply = new CompletableFuture<>();
+    eventBus.send("orders", new JsonObject().put("id", 1).put("name", "a"),
+        result -> reply.complete(result.result().body()));
+    Assert.assertEquals("ok", reply.get(5, TimeUnit.SECONDS));
+    CompletableFuture<Object> otherReply = new CompletableFuture<>();
+    eventBus.send("other", "not validated", result -> otherReply.complete(result.result().body()));
+    Assert.assertEquals("other", otherReply.get(5, TimeUnit.SECONDS));
+
+    AddressMetrics metrics = interceptor.getMetrics("orders").get();
+    Assert.assertEquals(1, metrics.getValidatedCount());
+    Assert.assertEquals(0, metrics.getRejectedCount());
+    Assert.assertFalse(interceptor.getMetrics("other").isPresent());
+  }
+
+}
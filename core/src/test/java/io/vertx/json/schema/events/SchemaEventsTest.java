@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.events;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.StreamingValidator;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.loader.SchemaClient;
+import io.vertx.json.schema.loader.SchemaLoader;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SchemaEventsTest {
+
+  private static class RecordingListener implements SchemaEventListener {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void completed(final Object handle, final SchemaEventType type, final String target,
+        final Object payload, final long durationNanos, final Throwable failure) {
+      Assert.assertEquals(type, handle);
+      Assert.assertTrue(durationNanos >= 0);
+      events.add(type + " " + target + " " + SchemaEvents.payloadSize(payload) + " "
+          + (failure == null ? "success" : failure.getClass().getSimpleName()));
+    }
+
+    @Override
+    public Object started(final SchemaEventType type) {
+      return type;
+    }
+
+  }
+
+  private static final JsonObject SCHEMA_JSON = new JsonObject(
+      "{\"id\":\"http://example.org/order\",\"type\":\"object\","
+          + "\"properties\":{\"code\":{\"type\":\"string\",\"pattern\":\"^[A-Z]+$\"}},"
+          + "\"patternProperties\":{\"^x-\":{}}}");
+
+  @After
+  public void disable() {
+    SchemaEvents.disable();
+  }
+
+  @Test
+  public void flightRecorderEventsAreRecorded() throws Exception {
+    Assume.assumeTrue(FlightRecorder.isAvailable());
+    Path file = Files.createTempFile("schema-events", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.start();
+      Assert.assertTrue(SchemaEvents.enableFlightRecorder());
+      Schema schema = SchemaLoader.load(SCHEMA_JSON);
+      try {
+        schema.validate(new JsonObject().put("code", "a"));
+        Assert.fail("did not throw exception");
+      } catch (ValidationException e) {
+        // expected
+      }
+      recording.stop();
+      recording.dump(file);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      List<String> outcomes = events.stream()
+          .map(event -> event.getEventType().getName() + " " + event.getString("target") + " "
+              + event.getString("outcome"))
+          .collect(Collectors.toList());
+      Assert.assertEquals(Arrays.asList(
+          "io.vertx.json.schema.PatternCompile ^[A-Z]+$ success",
+          "io.vertx.json.schema.PatternCompile ^x- success",
+          "io.vertx.json.schema.Load http://example.org/order success",
+          "io.vertx.json.schema.Validation http://example.org/order invalid"), outcomes);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void nothingIsTracedWhenDisabled() {
+    RecordingListener listener = new RecordingListener();
+    SchemaEvents.setListener(listener);
+    SchemaEvents.disable();
+    Assert.assertNull(SchemaEvents.getListener());
+    SchemaLoader.load(SCHEMA_JSON).validate(new JsonObject());
+    Assert.assertTrue(listener.events.isEmpty());
+  }
+
+  @Test
+  public void onlyRootValidationsAreTraced() {
+    Schema schema = SchemaLoader.load(new JsonObject("{\"id\":\"http://example.org/root\","
+        + "\"properties\":{\"a\":{\"$ref\":\"#/definitions/a\"}},"
+        + "\"definitions\":{\"a\":{\"type\":\"string\"}}}"));
+    RecordingListener listener = new RecordingListener();
+    SchemaEvents.setListener(listener);
+    schema.validate(new JsonObject().put("a", "x"));
+    new StreamingValidator(schema).validate("{\"a\":\"x\"}");
+    Assert.assertEquals(Collections.singletonList(
+        "VALIDATION http://example.org/root -1 success"), listener.events);
+  }
+
+  @Test
+  public void operationsAreTraced() {
+    RecordingListener listener = new RecordingListener();
+    SchemaEvents.setListener(listener);
+    Schema schema = SchemaLoader.load(SCHEMA_JSON);
+    schema.validate(new JsonObject().put("code", "AB"));
+    try {
+      schema.validate(new JsonObject().put("code", "ab"));
+      Assert.fail("did not throw exception");
+    } catch (ValidationException e) {
+      // expected
+    }
+    Assert.assertEquals(Arrays.asList(
+        "PATTERN_COMPILE ^[A-Z]+$ 8 success",
+        "PATTERN_COMPILE ^x- 3 success",
+        "LOAD http://example.org/order -1 success",
+        "VALIDATION http://example.org/order -1 success",
+        "VALIDATION http://example.org/order -1 ValidationException"),
+        listener.events);
+  }
+
+  @Test
+  public void referenceFetchesAreTraced() {
+    RecordingListener listener = new RecordingListener();
+    SchemaEvents.setListener(listener);
+    String remote = "{\"type\":\"integer\"}";
+    SchemaClient client = url -> new ByteArrayInputStream(remote.getBytes(StandardCharsets.UTF_8));
+    SchemaLoader.load(new JsonObject().put("$ref", "http://example.org/integer"), client);
+    Assert.assertEquals("REFERENCE_FETCH http://example.org/integer -1 success",
+        listener.events.get(0));
+  }
+
+}
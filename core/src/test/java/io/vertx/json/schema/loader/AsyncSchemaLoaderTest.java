@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.JsonObjectHelper;
+import io.vertx.json.schema.ObjectSchema;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.StringSchema;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncSchemaLoaderTest {
+
+  private static JsonObject get(final String schemaName) {
+    InputStream stream = AsyncSchemaLoaderTest.class.getResourceAsStream(
+        "/io/vertx/jsonvalidator/testschemas.json");
+    return JsonObjectHelper.load(stream).getJsonObject(schemaName);
+  }
+
+  private static Schema await(final Future<Schema> future) throws Exception {
+    CompletableFuture<Schema> rval = new CompletableFuture<>();
+    future.setHandler(result -> {
+      if (result.succeeded()) {
+        rval.complete(result.result());
+      } else {
+        rval.completeExceptionally(result.cause());
+      }
+    });
+    return rval.get(5, TimeUnit.SECONDS);
+  }
+
+  private Vertx vertx;
+
+  private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+  @Before
+  public void createVertx() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void closeVertx() {
+    vertx.close();
+  }
+
+  /**
+   * Serves the documents asynchronously from a timer, like a remote server would.
+   */
+  private AsyncSchemaClient client(final Map<String, String> documents) {
+    return url -> {
+      requests.add(url);
+      Future<Buffer> rval = Future.future();
+      vertx.setTimer(10, id -> {
+        String document = documents.get(url);
+        if (document == null) {
+          rval.fail("not found: " + url);
+        } else {
+          rval.complete(Buffer.buffer(document));
+        }
+      });
+      return rval;
+    };
+  }
+
+  @Test
+  public void fetchFailureFailsTheLoading() throws Exception {
+    try {
+      await(SchemaLoader.loadAsync(get("remotePointerResolution"),
+          client(Collections.emptyMap())));
+      Assert.fail("did not fail for missing remote document");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof SchemaException);
+    }
+  }
+
+  @Test
+  public void remoteDocumentsAreFetchedOnce() throws Exception {
+    Map<String, String> documents = new HashMap<>();
+    documents.put("http://example.org/asd", "{\"type\":\"string\"}");
+    documents.put("http://example.org/otherschema.json",
+        "{\"properties\":{\"a\":{\"$ref\":\"third.json#/definitions/x\"}}}");
+    documents.put("http://example.org/third.json", "{\"definitions\":{\"x\":{}}}");
+    documents.put("http://example.org/folder/subschemaInFolder.json", "{}");
+    ObjectSchema actual = (ObjectSchema) await(SchemaLoader.loadAsync(
+        get("remotePointerResolution"), client(documents)));
+    Schema prop = ((ReferenceSchema) actual.getPropertySchemas().get("prop")).getReferredSchema();
+    Assert.assertTrue(prop instanceof StringSchema);
+    Assert.assertEquals(documents.size(), requests.size());
+    Assert.assertEquals(documents.keySet(), new HashSet<>(requests));
+  }
+
+  @Test
+  public void vertxSchemaClientFetchesOverHttp() throws Exception {
+    CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+    vertx.createHttpServer().requestHandler(request -> {
+      if ("/moved.json".equals(request.path())) {
+        request.response().setStatusCode(302).putHeader("Location", "/schema.json").end();
+      } else {
+        request.response().end("{\"type\":\"string\",\"minLength\":2}");
+      }
+    }).listen(18231, result -> listening.complete(result.result()));
+    listening.get(5, TimeUnit.SECONDS);
+    JsonObject root = new JsonObject("{\"$ref\":\"http://localhost:18231/moved.json\"}");
+    Schema actual = await(SchemaLoader.loadAsync(vertx, root));
+    Assert.assertTrue(((ReferenceSchema) actual).getReferredSchema() instanceof StringSchema);
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.ObjectSchema;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.StringSchema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReferencePrefetcherTest {
+
+  /**
+   * Serves documents with a delay, recording the number of requests per URL and the maximum
+   * number of concurrent requests.
+   */
+  private static class SlowClient implements SchemaClient {
+
+    private final Map<String, String> documents;
+
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+    SlowClient(final Map<String, String> documents) {
+      this.documents = documents;
+    }
+
+    @Override
+    public InputStream get(final String url) {
+      requestCounts.computeIfAbsent(url, key -> new AtomicInteger()).incrementAndGet();
+      int concurrent = concurrentRequests.incrementAndGet();
+      maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        concurrentRequests.decrementAndGet();
+      }
+      String document = documents.get(url);
+      if (document == null) {
+        throw new UncheckedIOException(new FileNotFoundException(url));
+      }
+      return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    }
+
+  }
+
+  private static final JsonObject SCHEMA = new JsonObject("{\"id\":\"http://example.org/\","
+      + "\"properties\":{"
+      + "\"a\":{\"$ref\":\"a.json\"},"
+      + "\"b\":{\"$ref\":\"b.json#/definitions/b\"},"
+      + "\"c\":{\"$ref\":\"c.json\"},"
+      + "\"d\":{\"$ref\":\"d.json\"}}}");
+
+  private static Map<String, String> documents() {
+    Map<String, String> documents = new HashMap<>();
+    documents.put("http://example.org/a.json", "{\"type\":\"string\"}");
+    documents.put("http://example.org/b.json",
+        "{\"definitions\":{\"b\":{\"$ref\":\"sub/e.json\"}}}");
+    documents.put("http://example.org/c.json", "{}");
+    documents.put("http://example.org/d.json", "{}");
+    documents.put("http://example.org/sub/e.json", "{\"type\":\"integer\"}");
+    return documents;
+  }
+
+  @Test
+  public void documentsAreFetchedOnceWithBoundedParallelism() {
+    SlowClient client = new SlowClient(documents());
+    ObjectSchema actual = (ObjectSchema) ReferencePrefetcher.builder()
+        .httpClient(client)
+        .parallelism(2)
+        .build()
+        .load(SCHEMA);
+    Assert.assertTrue(((ReferenceSchema) actual.getPropertySchemas().get("a"))
+        .getReferredSchema() instanceof StringSchema);
+    Assert.assertEquals(documents().keySet(), client.requestCounts.keySet());
+    client.requestCounts.values().forEach(count -> Assert.assertEquals(1, count.get()));
+    Assert.assertEquals(2, client.maxConcurrentRequests.get());
+  }
+
+  @Test
+  public void failedFetchIsReportedByTheLoader() {
+    Map<String, String> documents = documents();
+    documents.remove("http://example.org/c.json");
+    SlowClient client = new SlowClient(documents);
+    ReferencePrefetcher prefetcher = ReferencePrefetcher.builder()
+        .httpClient(client)
+        .build();
+    SchemaDocumentCache cache = prefetcher.prefetch(SCHEMA);
+    Assert.assertEquals(4, cache.size());
+    try {
+      prefetcher.load(SCHEMA);
+      Assert.fail("did not throw for missing document");
+    } catch (SchemaException e) {
+      Assert.assertTrue(e.getCause() instanceof UncheckedIOException);
+      // by prefetch(), by the prefetch of load(), and by the loader
+      Assert.assertEquals(3, client.requestCounts.get("http://example.org/c.json").get());
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.SchemaException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SchemaBundlerTest {
+
+  private static final JsonObject ROOT = new JsonObject("{"
+      + "\"id\":\"http://example.org/root.json\","
+      + "\"definitions\":{\"positive\":{\"type\":\"integer\",\"minimum\":1}},"
+      + "\"properties\":{"
+      + "\"id\":{\"$ref\":\"#/definitions/positive\"},"
+      + "\"address\":{\"$ref\":\"address.json\"},"
+      + "\"tags\":{\"$ref\":\"common/defs.json#/definitions/tags\"},"
+      + "\"owner\":{\"id\":\"http://other.org/\",\"$ref\":\"person.json\",\"title\":\"Owner\"}}}");
+
+  private final List<String> requests = new ArrayList<>();
+
+  private SchemaClient client() {
+    Map<String, String> documents = new HashMap<>();
+    documents.put("http://example.org/root.json", ROOT.encode());
+    documents.put("http://example.org/address.json", "{\"type\":\"object\","
+        + "\"required\":[\"city\"],"
+        + "\"properties\":{\"city\":{\"$ref\":\"#/definitions/name\"},"
+        + "\"zip\":{\"$ref\":\"common/defs.json#/definitions/zip\"}},"
+        + "\"definitions\":{\"name\":{\"type\":\"string\",\"minLength\":1}}}");
+    documents.put("http://example.org/common/defs.json", "{\"definitions\":{"
+        + "\"tags\":{\"type\":\"array\",\"items\":{\"type\":\"string\"},\"uniqueItems\":true},"
+        + "\"zip\":{\"type\":\"string\",\"pattern\":\"^[0-9]{4}$\"},"
+        + "\"id\":{\"$ref\":\"../root.json#/definitions/positive\"}}}");
+    documents.put("http://other.org/person.json", "{\"type\":\"object\","
+        + "\"properties\":{\"id\":{\"$ref\":\"http://example.org/common/defs.json#/definitions/id\"}}}");
+    return url -> {
+      requests.add(url);
+      String document = documents.get(url);
+      if (document == null) {
+        throw new UncheckedIOException(new FileNotFoundException(url));
+      }
+      return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    };
+  }
+
+  @Test
+  public void bundleIsSelfContainedAndEquivalent() {
+    SchemaBundler bundler = SchemaBundler.builder().httpClient(client()).build();
+    JsonObject original = ROOT.copy();
+    JsonObject bundle = bundler.bundle(original);
+    Assert.assertEquals(ROOT, original);
+    Assert.assertEquals(3, requests.size());
+    Assert.assertEquals("#/definitions/positive",
+        bundle.getJsonObject("properties").getJsonObject("id").getString("$ref"));
+    String tagsRef = bundle.getJsonObject("properties").getJsonObject("tags").getString("$ref");
+    Assert.assertTrue(tagsRef, tagsRef.matches("#/definitions/bundled-\\d/definitions/tags"));
+    Assert.assertEquals(4, bundle.getJsonObject("definitions").size());
+    Assert.assertEquals("Owner",
+        bundle.getJsonObject("properties").getJsonObject("owner").getString("title"));
+    Assert.assertFalse(bundle.encode().contains("http://"));
+
+    List<Object> samples = Arrays.asList(
+        new JsonObject("{\"id\":1,\"address\":{\"city\":\"x\",\"zip\":\"1234\"},"
+            + "\"tags\":[\"a\"],\"owner\":{\"id\":2}}"),
+        new JsonObject("{\"id\":0,\"address\":{\"zip\":\"12\"},\"tags\":[\"a\",\"a\"],"
+            + "\"owner\":{\"id\":-1}}"),
+        new JsonObject("{\"address\":{\"city\":\"\"},\"tags\":[1]}"),
+        new JsonArray("[1]"));
+    Assert.assertEquals(Arrays.asList(), bundler.verify(ROOT, bundle, samples));
+  }
+
+  @Test
+  public void dataIsCopiedAndIdentifiedSubschemasAreResolvedLocally() {
+    JsonObject schema = new JsonObject("{"
+        + "\"id\":\"http://example.org/data.json\","
+        + "\"definitions\":{\"named\":{\"id\":\"named.json\",\"type\":\"string\"}},"
+        + "\"properties\":{"
+        + "\"kind\":{\"enum\":[{\"id\":\"a\"},{\"$ref\":\"missing.json\"}]},"
+        + "\"named\":{\"$ref\":\"named.json\"},"
+        + "\"nested\":{\"type\":\"object\",\"default\":{\"id\":\"b\",\"$ref\":\"missing.json\"}}}}");
+    SchemaBundler bundler = SchemaBundler.builder().httpClient(client()).build();
+    JsonObject bundle = bundler.bundle(schema);
+    Assert.assertEquals(Arrays.asList(), requests);
+    JsonObject properties = bundle.getJsonObject("properties");
+    Assert.assertEquals(schema.getJsonObject("properties").getJsonObject("kind"),
+        properties.getJsonObject("kind"));
+    Assert.assertEquals(schema.getJsonObject("properties").getJsonObject("nested"),
+        properties.getJsonObject("nested"));
+    Assert.assertEquals("#/definitions/named",
+        properties.getJsonObject("named").getString("$ref"));
+
+    List<Object> samples = Arrays.asList(
+        new JsonObject("{\"kind\":{\"id\":\"a\"},\"named\":\"x\"}"),
+        new JsonObject("{\"kind\":{\"$ref\":\"missing.json\"},\"named\":1}"),
+        new JsonObject("{\"kind\":{}}"));
+    Assert.assertEquals(Arrays.asList(), bundler.verify(schema, bundle, samples));
+  }
+
+  @Test(expected = SchemaException.class)
+  public void nonPointerFragmentsAreRejected() {
+    SchemaBundler.builder().httpClient(client()).build()
+        .bundle(new JsonObject("{\"$ref\":\"http://example.org/address.json#anchor\"}"));
+  }
+
+}
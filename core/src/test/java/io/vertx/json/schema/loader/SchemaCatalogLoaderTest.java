@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.ObjectSchema;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.ValidationException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+public class SchemaCatalogLoaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Schema referredSchema(final Schema objectSchema, final String property) {
+    return ((ReferenceSchema) ((ObjectSchema) objectSchema).getPropertySchemas().get(property))
+        .getReferredSchema();
+  }
+
+  private static void write(final File file, final String json) throws Exception {
+    Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void classpathCatalogSharesReferredSchemas() {
+    SchemaCatalog catalog = SchemaCatalogLoader.builder()
+        .build()
+        .loadClasspath("io/vertx/jsonvalidator/catalog");
+    Assert.assertTrue(catalog.getFailures().isEmpty());
+    Assert.assertEquals(3, catalog.getResults().size());
+    Schema order = catalog.getSchema(
+        URI.create("classpath:/io/vertx/jsonvalidator/catalog/order.json")).get();
+    Schema customer = catalog.getSchema(
+        URI.create("classpath:/io/vertx/jsonvalidator/catalog/customer.json")).get();
+    Schema id = catalog.getSchema(
+        URI.create("classpath:/io/vertx/jsonvalidator/catalog/common/id.json")).get();
+    Assert.assertSame(customer, referredSchema(order, "customer"));
+    Assert.assertSame(id, referredSchema(order, "id"));
+    Assert.assertSame(id, referredSchema(customer, "id"));
+    order.validate(new JsonObject("{\"id\":1,\"customer\":{\"id\":2}}"));
+    try {
+      order.validate(new JsonObject("{\"id\":1,\"customer\":{\"id\":0}}"));
+      Assert.fail("did not throw exception");
+    } catch (ValidationException e) {
+      Assert.assertEquals("#/customer/id", e.getPointerToViolation());
+    }
+  }
+
+  @Test
+  public void directoryCatalogReportsFailuresPerDocument() throws Exception {
+    File root = folder.getRoot();
+    write(new File(root, "a.json"), "{\"properties\":{\"b\":{\"$ref\":\"b.json\"},"
+        + "\"c\":{\"$ref\":\"c.json#/definitions/c\"}}}");
+    write(new File(root, "b.json"), "{\"type\":\"unknown\"}");
+    write(new File(root, "c.json"), "{\"definitions\":{\"c\":{\"type\":\"string\"}}}");
+    write(new File(root, "d.json"), "{not json");
+    write(new File(root, "ignored.txt"), "{}");
+    ForkJoinPool pool = new ForkJoinPool(2);
+    SchemaCatalog catalog;
+    try {
+      catalog = SchemaCatalogLoader.builder()
+          .pool(pool)
+          .httpClient(url -> {
+            throw new AssertionError("unexpected request: " + url);
+          })
+          .build()
+          .loadDirectory(root.toPath());
+    } finally {
+      pool.shutdown();
+    }
+    Assert.assertEquals(4, catalog.getResults().size());
+    Assert.assertEquals(2, catalog.getFailures().size());
+    Assert.assertTrue(catalog.getSchema(new File(root, "a.json").toURI()).isPresent());
+    Assert.assertTrue(catalog.getSchema(new File(root, "c.json").toURI()).isPresent());
+    SchemaCatalog.LoadResult b = catalog.getResults()
+        .get(new File(root, "b.json").toPath().toUri().resolve("b.json"));
+    Assert.assertTrue(b.getFailure().get() instanceof SchemaException);
+    Assert.assertFalse(b.getSchema().isPresent());
+    Assert.assertTrue(b.getLoadTime(TimeUnit.NANOSECONDS) > 0);
+
+    Schema a = catalog.getSchema(new File(root, "a.json").toURI()).get();
+    a.validate(new JsonObject().put("c", "text"));
+    try {
+      a.validate(new JsonObject().put("b", 1));
+      Assert.fail("did not throw exception");
+    } catch (SchemaException e) {
+      Assert.assertTrue(e.getMessage().contains("b.json failed to load"));
+    }
+  }
+
+  @Test
+  public void emptyFragmentRefersToTheRegisteredDocument() {
+    Map<URI, JsonObject> documents = new LinkedHashMap<>();
+    documents.put(URI.create("http://x/c.json"), new JsonObject("{\"type\":\"string\"}"));
+    documents.put(URI.create("http://x/o1.json"),
+        new JsonObject("{\"properties\":{\"c\":{\"$ref\":\"c.json#\"}}}"));
+    documents.put(URI.create("http://x/o2.json"),
+        new JsonObject("{\"properties\":{\"c\":{\"$ref\":\"c.json\"}}}"));
+    SchemaCatalog catalog = SchemaCatalogLoader.builder()
+        .httpClient(url -> {
+          throw new AssertionError("unexpected request: " + url);
+        })
+        .build()
+        .load(documents);
+    Assert.assertTrue(catalog.getFailures().isEmpty());
+    Schema c = catalog.getSchema(URI.create("http://x/c.json")).get();
+    Assert.assertSame(c, referredSchema(catalog.getSchema(URI.create("http://x/o1.json")).get(),
+        "c"));
+    Assert.assertSame(c, referredSchema(catalog.getSchema(URI.create("http://x/o2.json")).get(),
+        "c"));
+  }
+
+  @Test
+  public void failedReferenceFailsTheSharingDocuments() {
+    Map<URI, JsonObject> documents = new LinkedHashMap<>();
+    documents.put(URI.create("http://x/o1.json"),
+        new JsonObject("{\"properties\":{\"c\":{\"$ref\":\"http://y/missing.json\"}}}"));
+    documents.put(URI.create("http://x/o2.json"),
+        new JsonObject("{\"properties\":{\"c\":{\"$ref\":\"http://y/missing.json\"}}}"));
+    SchemaCatalog catalog = SchemaCatalogLoader.builder()
+        .httpClient(url -> {
+          throw new SchemaException("unreachable: " + url);
+        })
+        .build()
+        .load(documents);
+    // the reference is loaded once, by the document failing to load
+    Assert.assertEquals(1, catalog.getFailures().size());
+    Schema loaded = catalog.getResults().values().stream()
+        .filter(result -> result.getSchema().isPresent())
+        .findFirst().get().getSchema().get();
+    try {
+      loaded.validate(new JsonObject().put("c", 1));
+      Assert.fail("did not throw exception");
+    } catch (SchemaException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("missing.json failed to load"));
+    }
+  }
+
+  @Test
+  public void mapCatalogUsesDeclaredIds() {
+    Map<URI, JsonObject> documents = new LinkedHashMap<>();
+    documents.put(URI.create("http://example.org/local/a.json"),
+        new JsonObject("{\"$ref\":\"http://example.org/schemas/b.json#/definitions/b\"}"));
+    documents.put(URI.create("http://example.org/local/b.json"),
+        new JsonObject("{\"id\":\"http://example.org/schemas/b.json\","
+            + "\"definitions\":{\"b\":{\"type\":\"boolean\"}}}"));
+    SchemaCatalog catalog = SchemaCatalogLoader.builder()
+        .httpClient(url -> {
+          throw new AssertionError("unexpected request: " + url);
+        })
+        .build()
+        .load(documents);
+    Assert.assertTrue(catalog.getFailures().isEmpty());
+    Schema a = catalog.getSchema(URI.create("http://example.org/local/a.json")).get();
+    a.validate(true);
+    try {
+      a.validate("true");
+      Assert.fail("did not throw exception");
+    } catch (ValidationException e) {
+      Assert.assertEquals("#", e.getPointerToViolation());
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.ArraySchema;
+import io.vertx.json.schema.ObjectSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.ValidationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class SchemaInternerTest {
+
+  private static final JsonObject SCHEMA = new JsonObject("{\"type\":\"object\",\"properties\":{"
+      + "\"name\":{\"type\":\"string\",\"maxLength\":64},"
+      + "\"alias\":{\"type\":\"string\",\"maxLength\":64},"
+      + "\"code\":{\"type\":\"string\",\"maxLength\":8},"
+      + "\"tags\":{\"type\":\"array\",\"items\":{\"type\":\"string\",\"maxLength\":64}},"
+      + "\"labels\":{\"type\":\"array\",\"items\":{\"type\":\"string\",\"maxLength\":64}},"
+      + "\"created\":{\"$ref\":\"#/definitions/timestamp\"},"
+      + "\"updated\":{\"$ref\":\"#/definitions/timestamp\"}},"
+      + "\"definitions\":{\"timestamp\":{\"type\":\"string\",\"format\":\"date-time\"}}}");
+
+  private static Map<String, Schema> propertySchemas(final Schema schema) {
+    return ((ObjectSchema) schema).getPropertySchemas();
+  }
+
+  @Test
+  public void identicalSubschemasAreShared() {
+    SchemaInterner interner = new SchemaInterner();
+    SchemaLoader loader = SchemaLoader.builder().schemaJson(SCHEMA).interner(interner).build();
+    Map<String, Schema> properties = propertySchemas(loader.load().build());
+    Assert.assertSame(properties.get("name"), properties.get("alias"));
+    Assert.assertNotSame(properties.get("name"), properties.get("code"));
+    Assert.assertSame(properties.get("tags"), properties.get("labels"));
+    Assert.assertSame(properties.get("name"),
+        ((ArraySchema) properties.get("tags")).getAllItemSchema());
+    Assert.assertSame(properties.get("created"), properties.get("updated"));
+
+    // alias, the items of tags and labels, and labels itself
+    InternStatistics statistics = loader.getInternStatistics();
+    Assert.assertEquals(4, statistics.getDuplicateCount());
+    Assert.assertTrue(statistics.getSavedBytes() > 0);
+    Assert.assertEquals(statistics.getSavedBytes(), interner.getStatistics().getSavedBytes());
+  }
+
+  @Test
+  public void internedSchemaValidatesLikeTheOriginal() {
+    Schema interned = SchemaLoader.builder().schemaJson(SCHEMA).interner(new SchemaInterner())
+        .build().load().build();
+    Schema original = SchemaLoader.load(SCHEMA);
+    JsonObject invalid = new JsonObject().put("alias", "a").put("code", "123456789")
+        .put("labels", new JsonArray().add(1)).put("updated", "yesterday");
+    ValidationException expected = validate(original, invalid);
+    ValidationException actual = validate(interned, invalid);
+    Assert.assertEquals(leafMessages(expected), leafMessages(actual));
+    interned.validate(new JsonObject().put("name", "a").put("updated", "2020-01-01T00:00:00Z"));
+  }
+
+  @Test
+  public void sharedInternerSharesSubschemasBetweenSchemas() {
+    SchemaInterner interner = new SchemaInterner();
+    Schema first = SchemaLoader.builder().schemaJson(SCHEMA).interner(interner).build().load()
+        .build();
+    SchemaLoader secondLoader = SchemaLoader.builder().schemaJson(SCHEMA).interner(interner)
+        .build();
+    Schema second = secondLoader.load().build();
+    Assert.assertSame(propertySchemas(first).get("code"), propertySchemas(second).get("code"));
+    // the references of the two documents are distinct instances
+    Assert.assertNotSame(propertySchemas(first).get("created"),
+        propertySchemas(second).get("created"));
+    Assert.assertTrue(secondLoader.getInternStatistics().getDuplicateCount() > 3);
+  }
+
+  private static List<String> leafMessages(final ValidationException exception) {
+    if (exception.getCausingExceptions().isEmpty()) {
+      return Collections.singletonList(exception.getMessage());
+    }
+    List<String> rval = new ArrayList<>();
+    exception.getCausingExceptions().forEach(cause -> rval.addAll(leafMessages(cause)));
+    Collections.sort(rval);
+    return rval;
+  }
+
+  private ValidationException validate(final Schema schema, final JsonObject subject) {
+    try {
+      schema.validate(subject);
+      throw new AssertionError("did not throw exception");
+    } catch (ValidationException e) {
+      return e;
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the heap allocated by {@link SchemaLoader} while loading a synthetic schema with
+ * typical keywords, local references and nested {@code id} scopes.
+ *
+ * <p>
+ * Usage: {@code SchemaLoaderAllocationBenchmark [iterations]}. It prints the bytes allocated per
+ * load and the load time, after a warm-up of the same number of iterations.
+ * </p>
+ */
+public class SchemaLoaderAllocationBenchmark {
+
+  private static final int DEFAULT_ITERATIONS = 2000;
+
+  private static final int PROPERTY_COUNT = 50;
+
+  static JsonObject createSchema() {
+    JsonObject definitions = new JsonObject();
+    JsonObject properties = new JsonObject();
+    for (int i = 0; i < PROPERTY_COUNT; ++i) {
+      definitions.put("def" + i, new JsonObject()
+          .put("type", "object")
+          .put("required", new JsonArray().add("name"))
+          .put("properties", new JsonObject()
+              .put("name", new JsonObject().put("type", "string").put("maxLength", 32)
+                  .put("pattern", "^[a-z]+$"))
+              .put("count", new JsonObject().put("type", "integer").put("minimum", 0))
+              .put("tags", new JsonObject().put("type", "array").put("uniqueItems", true)
+                  .put("items", new JsonObject().put("type", "string").put("format", "hostname")))
+              .put("kind", new JsonObject().put("enum", new JsonArray().add("a").add("b")))
+              .put("extra", new JsonObject().put("anyOf", new JsonArray()
+                  .add(new JsonObject().put("type", "null"))
+                  .add(new JsonObject().put("type", "boolean"))))));
+      switch (i % 3) {
+        case 0:
+          properties.put("p" + i, new JsonObject().put("$ref", "#/definitions/def" + i));
+          break;
+        case 1:
+          properties.put("p" + i, new JsonObject()
+              .put("type", new JsonArray().add("string").add("null"))
+              .put("description", "property " + i));
+          break;
+        default:
+          properties.put("p" + i, new JsonObject()
+              .put("id", "#p" + i)
+              .put("minProperties", 1)
+              .put("additionalProperties", new JsonObject().put("$ref", "#/definitions/def" + i))
+              .put("dependencies", new JsonObject().put("a", new JsonArray().add("b"))));
+          break;
+      }
+    }
+    return new JsonObject()
+        .put("id", "http://example.org/benchmark.json")
+        .put("type", "object")
+        .put("properties", properties)
+        .put("definitions", definitions);
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public static void main(final String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+    JsonObject schema = createSchema();
+    for (int i = 0; i < iterations; ++i) {
+      SchemaLoader.load(schema);
+    }
+    long startBytes = allocatedBytes();
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < iterations; ++i) {
+      SchemaLoader.load(schema);
+    }
+    long nanos = System.nanoTime() - startNanos;
+    long bytes = allocatedBytes() - startBytes;
+    System.out.printf("allocated: %d bytes/load, time: %.1f us/load%n", bytes / iterations,
+        nanos / 1000.0 / iterations);
+  }
+
+}
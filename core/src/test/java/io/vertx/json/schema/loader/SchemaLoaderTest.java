@@ -45,8 +45,15 @@ import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class SchemaLoaderTest {
 
@@ -156,6 +163,26 @@ public class SchemaLoaderTest {
     TestSupport.expectFailure(subject, "asd");
   }
 
+  @Test
+  public void customFormatDoesNotAffectOtherLoaders() {
+    SchemaLoader.builder().addFormatValidator("email", obj -> Optional.of("failure"));
+    StringSchema actual = (StringSchema) SchemaLoader.builder()
+        .schemaJson(new JsonObject().put("type", "string").put("format", "email"))
+        .build().load().build();
+    Assert.assertTrue(actual.getFormatValidator() instanceof EmailFormatValidator);
+  }
+
+  @Test
+  public void idOfCombinedSubschemaChangesResolutionScope() {
+    SchemaClient httpClient = Mockito.mock(SchemaClient.class);
+    Mockito.when(httpClient.get("http://example.org/sub/defs.json")).thenAnswer(
+        invocation -> asStream("{\"type\":\"integer\"}"));
+    JsonObject schema = new JsonObject("{\"id\":\"http://example.org/root.json\","
+        + "\"allOf\":[{\"id\":\"sub/\",\"properties\":{\"a\":{\"$ref\":\"defs.json\"}}}]}");
+    SchemaLoader.load(schema, httpClient);
+    Mockito.verify(httpClient).get("http://example.org/sub/defs.json");
+  }
+
   @Test
   public void emptyPatternProperties() {
     ObjectSchema actual = (ObjectSchema) SchemaLoader.load(get("emptyPatternProperties"));
@@ -363,6 +390,141 @@ public class SchemaLoaderTest {
     // Mockito.verify(httpClient);
   }
 
+  @Test
+  public void lazyReferencesAreLoadedOnFirstUse() throws Exception {
+    SchemaClient httpClient = Mockito.mock(SchemaClient.class);
+    Mockito.when(httpClient.get("http://example.org/defs.json")).thenAnswer(
+        invocation -> asStream("{\"a\":{\"type\":\"string\"},\"b\":{\"type\":\"integer\"}}"));
+    JsonObject schema = new JsonObject("{\"properties\":{"
+        + "\"a\":{\"$ref\":\"http://example.org/defs.json#/a\"},"
+        + "\"b\":{\"$ref\":\"http://example.org/defs.json#/b\"},"
+        + "\"c\":{\"$ref\":\"#/definitions/missing\"}}}");
+    ObjectSchema actual = (ObjectSchema) SchemaLoader.builder()
+        .schemaJson(schema)
+        .httpClient(httpClient)
+        .lazyReferences(true)
+        .build().load().build();
+    Mockito.verify(httpClient, Mockito.never()).get(Mockito.anyString());
+    ReferenceSchema a = (ReferenceSchema) actual.getPropertySchemas().get("a");
+    ReferenceSchema b = (ReferenceSchema) actual.getPropertySchemas().get("b");
+    Assert.assertFalse(a.isReferredSchemaLoaded());
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> validations = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        validations.add(executor.submit(() -> actual.validate(new JsonObject().put("a", "x"))));
+      }
+      for (Future<?> validation : validations) {
+        validation.get(5, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertTrue(a.isReferredSchemaLoaded());
+    Assert.assertTrue(a.getReferredSchema() instanceof StringSchema);
+    Assert.assertFalse(b.isReferredSchemaLoaded());
+    TestSupport.expectFailure(actual, b.getReferredSchema(), "#/b",
+        new JsonObject().put("b", "x"));
+    Mockito.verify(httpClient, Mockito.times(1)).get("http://example.org/defs.json");
+
+    try {
+      actual.validate(new JsonObject().put("c", "x"));
+      Assert.fail("did not throw exception");
+    } catch (SchemaException e) {
+      // the broken reference is reported by its first use
+    }
+  }
+
+  @Test
+  public void lazyReferencesAreNotBlockedByRemoteFetches() throws Exception {
+    CountDownLatch fetchStarted = new CountDownLatch(1);
+    CountDownLatch fetchReleased = new CountDownLatch(1);
+    SchemaClient httpClient = url -> {
+      fetchStarted.countDown();
+      try {
+        fetchReleased.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return asStream("{\"type\":\"string\"}");
+    };
+    JsonObject schema = new JsonObject("{\"properties\":{"
+        + "\"remote\":{\"$ref\":\"http://example.org/string.json\"},"
+        + "\"local\":{\"$ref\":\"#/definitions/local\"}},"
+        + "\"definitions\":{\"local\":{\"type\":\"integer\"}}}");
+    Schema actual = SchemaLoader.builder()
+        .schemaJson(schema)
+        .httpClient(httpClient)
+        .lazyReferences(true)
+        .build().load().build();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> remote = executor.submit(
+          () -> actual.validate(new JsonObject().put("remote", "x")));
+      Assert.assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+      // the local reference is loaded while the remote document is being fetched
+      actual.validate(new JsonObject().put("local", 1));
+      Assert.assertFalse(remote.isDone());
+      fetchReleased.countDown();
+      remote.get(5, TimeUnit.SECONDS);
+    } finally {
+      fetchReleased.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void identifiedSubschemasAreResolvedLocally() {
+    SchemaClient httpClient = Mockito.mock(SchemaClient.class);
+    JsonObject schema = new JsonObject("{\"id\":\"http://example.org/root.json\","
+        + "\"properties\":{"
+        + "\"a\":{\"$ref\":\"#/definitions/a\"},"
+        + "\"b\":{\"$ref\":\"child.json#/definitions/b\"},"
+        + "\"c\":{\"$ref\":\"#c\"}},"
+        + "\"definitions\":{"
+        + "\"a\":{\"type\":\"string\"},"
+        + "\"child\":{\"id\":\"child.json\",\"definitions\":{\"b\":{\"type\":\"integer\"}}},"
+        + "\"c\":{\"id\":\"#c\",\"type\":\"boolean\"}}}");
+    ObjectSchema actual = (ObjectSchema) SchemaLoader.load(schema, httpClient);
+    Mockito.verifyZeroInteractions(httpClient);
+    Map<String, Schema> properties = actual.getPropertySchemas();
+    Assert.assertTrue(
+        ((ReferenceSchema) properties.get("a")).getReferredSchema() instanceof StringSchema);
+    Assert.assertTrue(
+        ((ReferenceSchema) properties.get("b")).getReferredSchema() instanceof NumberSchema);
+    Assert.assertTrue(
+        ((ReferenceSchema) properties.get("c")).getReferredSchema() instanceof BooleanSchema);
+  }
+
+  @Test
+  public void remoteDocumentIsFetchedOncePerLoad() {
+    SchemaClient httpClient = Mockito.mock(SchemaClient.class);
+    Mockito.when(httpClient.get("http://example.org/defs.json")).thenAnswer(
+        invocation -> asStream("{\"a\":{\"type\":\"string\"},\"b\":{\"type\":\"integer\"}}"));
+    JsonObject schema = new JsonObject("{\"properties\":{"
+        + "\"a\":{\"$ref\":\"http://example.org/defs.json#/a\"},"
+        + "\"b\":{\"$ref\":\"http://example.org/defs.json#/b\"}}}");
+    SchemaLoader.load(schema, httpClient);
+    Mockito.verify(httpClient, Mockito.times(1)).get("http://example.org/defs.json");
+    SchemaLoader.load(schema, httpClient);
+    Mockito.verify(httpClient, Mockito.times(2)).get("http://example.org/defs.json");
+
+    SchemaDocumentCache sharedCache = SchemaDocumentCache.builder()
+        .maximumSize(10)
+        .expireAfterWrite(1, TimeUnit.MINUTES)
+        .build();
+    for (int i = 0; i < 2; ++i) {
+      SchemaLoader.builder()
+          .schemaJson(schema)
+          .httpClient(httpClient)
+          .documentCache(sharedCache)
+          .build().load();
+    }
+    Mockito.verify(httpClient, Mockito.times(3)).get("http://example.org/defs.json");
+    Assert.assertEquals(1, sharedCache.size());
+  }
+
   @Test
   public void resolutionScopeTest() {
     SchemaLoader.load(get("resolutionScopeTest"), new SchemaClient() {
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.loader.internal;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.SchemaException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SchemaDocumentIndexTest {
+
+  private static final JsonObject DOCUMENT = new JsonObject("{"
+      + "\"id\":\"http://example.org/root.json\","
+      + "\"definitions\":{"
+      + "\"a/b\":{\"type\":\"string\"},"
+      + "\"named\":{\"id\":\"#named\",\"type\":\"integer\"},"
+      + "\"nested\":{\"id\":\"nested/child.json\",\"definitions\":{"
+      + "\"inner\":{\"id\":\"#inner\",\"type\":\"null\"}}}},"
+      + "\"items\":[{\"type\":\"boolean\"}],"
+      + "\"enum\":[{\"id\":\"http://example.org/ignored\"}]}");
+
+  @Test
+  public void compiledPointerIsUnescaped() {
+    CompiledJSONPointer pointer = CompiledJSONPointer.compile("#/definitions/a~1b");
+    Assert.assertEquals(Arrays.asList("definitions", "a/b"), pointer.getSegments());
+    Assert.assertSame(pointer, CompiledJSONPointer.compile("#/definitions/a~1b"));
+    Assert.assertEquals("string", pointer.evaluate(DOCUMENT).getString("type"));
+    Assert.assertEquals("boolean",
+        CompiledJSONPointer.compile("#/items/0").evaluate(DOCUMENT).getString("type"));
+    Assert.assertSame(DOCUMENT, CompiledJSONPointer.compile("").evaluate(DOCUMENT));
+  }
+
+  @Test
+  public void failureDoesNotContainTheDocument() {
+    try {
+      CompiledJSONPointer.compile("#/definitions/missing").evaluate(DOCUMENT);
+      Assert.fail("did not throw exception");
+    } catch (SchemaException e) {
+      Assert.assertEquals(
+          "failed to resolve JSON pointer [#/definitions/missing]. Segment [missing] not found",
+          e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void pointerMustStartWithPound() {
+    CompiledJSONPointer.compile("/definitions");
+  }
+
+  @Test
+  public void definitionsAndIdsAreIndexed() {
+    SchemaDocumentIndex index = new SchemaDocumentIndex(DOCUMENT);
+    JsonObject definitions = DOCUMENT.getJsonObject("definitions");
+    Assert.assertEquals(definitions.getJsonObject("a/b"), index.lookup("#/definitions/a~1b"));
+    Assert.assertSame(DOCUMENT, index.getById("http://example.org/root.json").get());
+    Assert.assertEquals(definitions.getJsonObject("named"),
+        index.getById("http://example.org/root.json#named").get());
+    Assert.assertEquals(definitions.getJsonObject("nested"),
+        index.getById("http://example.org/nested/child.json").get());
+    Assert.assertEquals("null",
+        index.getById("http://example.org/nested/child.json#inner").get().getString("type"));
+    Assert.assertFalse(index.getById("http://example.org/ignored").isPresent());
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.ValidationContext;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class InMemoryValidationMetricsTest {
+
+  private static final Schema SCHEMA = SchemaLoader.load(new JsonObject(
+      "{\"type\":\"object\",\"required\":[\"id\"],"
+          + "\"properties\":{\"id\":{\"type\":\"integer\",\"minimum\":1},"
+          + "\"name\":{\"type\":\"string\",\"maxLength\":3}}}"));
+
+  private static void validate(final MeteredValidator validator, final String subject) {
+    try {
+      validator.validate(new JsonObject(subject));
+    } catch (ValidationException e) {
+      // counted by the metrics
+    }
+  }
+
+  @Test
+  public void countsValidationsAndViolationsByKeyword() {
+    InMemoryValidationMetrics metrics = new InMemoryValidationMetrics();
+    MeteredValidator validator = MeteredValidator.builder()
+        .schemaName("tenant-a")
+        .schema(SCHEMA)
+        .metrics(metrics)
+        .build();
+    validate(validator, "{\"id\":1}");
+    validate(validator, "{\"id\":0,\"name\":\"abcd\"}");
+    validate(validator, "{\"name\":\"abc\"}");
+
+    SchemaMetricsSnapshot snapshot = metrics.snapshot().get("tenant-a");
+    Assert.assertEquals(3, snapshot.getValidationCount());
+    Assert.assertEquals(2, snapshot.getFailureCount());
+    Assert.assertEquals(Long.valueOf(1), snapshot.getViolationCounts().get("minimum"));
+    Assert.assertEquals(Long.valueOf(1), snapshot.getViolationCounts().get("maxLength"));
+    Assert.assertEquals(Long.valueOf(1), snapshot.getViolationCounts().get("required"));
+    Assert.assertTrue(snapshot.getKeywordEvaluationCounts().isEmpty());
+    Assert.assertEquals(3, snapshot.getLatency().getCount());
+    Assert.assertEquals(3L, metrics.snapshotJson().getJsonObject("tenant-a")
+        .getLong("validations").longValue());
+  }
+
+  @Test
+  public void countsKeywordEvaluationsIfEnabled() {
+    InMemoryValidationMetrics metrics = new InMemoryValidationMetrics(true);
+    MeteredValidator validator = MeteredValidator.builder()
+        .schemaName("tenant-b")
+        .schema(SCHEMA)
+        .metrics(metrics)
+        .context(ValidationContext.FAIL_FAST)
+        .build();
+    validate(validator, "{\"id\":1,\"name\":\"a\"}");
+    validate(validator, "{\"id\":\"x\"}");
+
+    SchemaMetricsSnapshot snapshot = metrics.snapshot().get("tenant-b");
+    // the second validation stops at the type of id
+    Assert.assertEquals(Long.valueOf(2), snapshot.getKeywordEvaluationCounts().get("properties"));
+    Assert.assertEquals(Long.valueOf(1), snapshot.getKeywordEvaluationCounts().get("required"));
+    Assert.assertEquals(Long.valueOf(1), snapshot.getKeywordEvaluationCounts().get("minimum"));
+    Assert.assertEquals(Long.valueOf(1),
+        snapshot.getKeywordEvaluationCounts().get("maxLength"));
+    Assert.assertEquals(Long.valueOf(1), snapshot.getViolationCounts().get("type"));
+  }
+
+  @Test
+  public void latencyPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; ++i) {
+      histogram.record(1000);
+    }
+    histogram.record(1_000_000);
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    Assert.assertEquals(100, snapshot.getCount());
+    // 1000 ns is in the bucket of 512..1023 ns
+    Assert.assertEquals(1023, snapshot.getPercentile(0.5, TimeUnit.NANOSECONDS));
+    Assert.assertEquals(1023, snapshot.getPercentile(0.99, TimeUnit.NANOSECONDS));
+    Assert.assertEquals(1_000_000, snapshot.getPercentile(1, TimeUnit.NANOSECONDS));
+    Assert.assertEquals(10.99, snapshot.getMean(TimeUnit.MICROSECONDS), 0.001);
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+public class ValidationProfilerTest {
+
+  private static final Schema SCHEMA = SchemaLoader.load(new JsonObject("{\"type\":\"object\","
+      + "\"properties\":{"
+      + "\"id\":{\"type\":\"integer\"},"
+      + "\"tags\":{\"type\":\"array\",\"uniqueItems\":true,"
+      + "\"items\":{\"$ref\":\"#/definitions/tag\"}}},"
+      + "\"definitions\":{\"tag\":{\"type\":\"string\",\"pattern\":\"^(a+)+$\"}}}"));
+
+  private static JsonObject subject(final int tagCount) {
+    JsonArray tags = new JsonArray();
+    for (int i = 0; i < tagCount; ++i) {
+      tags.add("aaaaaaaaaaaaaaaa" + i);
+    }
+    return new JsonObject().put("id", 1).put("tags", tags);
+  }
+
+  private static Optional<KeywordCost> cost(final ValidationProfile profile,
+      final String pointer, final String keyword) {
+    return profile.getCosts().stream()
+        .filter(cost -> pointer.equals(cost.getPointer()) && keyword.equals(cost.getKeyword()))
+        .findFirst();
+  }
+
+  @Test
+  public void costsAreAttributedToNodesAndKeywords() {
+    ValidationProfiler profiler = ValidationProfiler.builder().schema(SCHEMA).build();
+    for (int i = 0; i < 10; ++i) {
+      try {
+        profiler.validate(subject(20));
+        Assert.fail("the tags do not match the pattern");
+      } catch (ValidationException e) {
+        // expected
+      }
+    }
+    ValidationProfile profile = profiler.report();
+    Assert.assertEquals(10, profile.getProfiledCount());
+
+    KeywordCost pattern = cost(profile, "#/definitions/tag", "pattern").get();
+    Assert.assertEquals(200, pattern.getEvaluationCount());
+    Assert.assertEquals(200, pattern.getFailureCount());
+    KeywordCost type = cost(profile, "#/definitions/tag", "type").get();
+    Assert.assertEquals(200, type.getEvaluationCount());
+    Assert.assertEquals(0, type.getFailureCount());
+    KeywordCost items = cost(profile, "#/properties/tags", "items").get();
+    Assert.assertEquals(10, items.getEvaluationCount());
+    Assert.assertEquals(10, items.getFailureCount());
+    KeywordCost uniqueItems = cost(profile, "#/properties/tags", "uniqueItems").get();
+    Assert.assertEquals(10, uniqueItems.getEvaluationCount());
+    Assert.assertEquals(0, uniqueItems.getFailureCount());
+
+    KeywordCost properties = cost(profile, "#", "properties").get();
+    Assert.assertEquals(10, properties.getEvaluationCount());
+    Assert.assertTrue(properties.getTotalTime(TimeUnit.NANOSECONDS)
+        >= pattern.getTotalTime(TimeUnit.NANOSECONDS));
+    Assert.assertTrue(properties.getSelfTime(TimeUnit.NANOSECONDS)
+        < properties.getTotalTime(TimeUnit.NANOSECONDS));
+    Assert.assertTrue(profile.toString().contains("#/definitions/tag pattern"));
+
+    profiler.reset();
+    Assert.assertTrue(profiler.report().getCosts().isEmpty());
+  }
+
+  @Test
+  public void validationsAreSampled() {
+    ValidationProfiler profiler = ValidationProfiler.builder()
+        .schema(SCHEMA)
+        .sampleRate(0.25)
+        .measureAllocations(false)
+        .build();
+    for (int i = 0; i < 2000; ++i) {
+      profiler.validate(new JsonObject().put("id", 1));
+    }
+    ValidationProfile profile = profiler.report();
+    Assert.assertEquals(2000, profile.getValidationCount());
+    Assert.assertTrue(profile.getProfiledCount() > 300 && profile.getProfiledCount() < 700);
+    Assert.assertEquals(profile.getProfiledCount(),
+        cost(profile, "#", "properties").get().getEvaluationCount());
+    Assert.assertEquals(0, cost(profile, "#", "properties").get().getTotalBytes());
+  }
+
+}
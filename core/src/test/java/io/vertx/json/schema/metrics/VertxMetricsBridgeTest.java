@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.metrics;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class VertxMetricsBridgeTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void createVertx() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void closeVertx() {
+    vertx.close();
+  }
+
+  @Test
+  public void snapshotIsRepliedAndPublished() throws Exception {
+    InMemoryValidationMetrics metrics = new InMemoryValidationMetrics();
+    MeteredValidator.builder()
+        .schemaName("tenant-a")
+        .schema(SchemaLoader.load(new JsonObject("{\"type\":\"object\"}")))
+        .metrics(metrics)
+        .build()
+        .validate(new JsonObject());
+    VertxMetricsBridge bridge = VertxMetricsBridge.builder()
+        .vertx(vertx)
+        .metrics(metrics)
+        .publishPeriod(10)
+        .build()
+        .start();
+    CompletableFuture<Object> published = new CompletableFuture<>();
+    vertx.eventBus().consumer(VertxMetricsBridge.DEFAULT_ADDRESS + ".snapshot",
+        message -> published.complete(message.body()));
+    CompletableFuture<Object> reply = new CompletableFuture<>();
+    vertx.eventBus().send(VertxMetricsBridge.DEFAULT_ADDRESS, "",
+        result -> reply.complete(result.result().body()));
+
+    JsonObject replied = (JsonObject) reply.get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(1L, replied.getJsonObject("schemas").getJsonObject("tenant-a")
+        .getLong("validations").longValue());
+    Assert.assertTrue(((JsonObject) published.get(5, TimeUnit.SECONDS)).containsKey("schemas"));
+    bridge.close();
+  }
+
+}
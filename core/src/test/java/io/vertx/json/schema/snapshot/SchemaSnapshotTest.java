@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.snapshot;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.ArraySchema;
+import io.vertx.json.schema.ObjectSchema;
+import io.vertx.json.schema.ReferenceSchema;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.SchemaException;
+import io.vertx.json.schema.StringSchema;
+import io.vertx.json.schema.ValidationException;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class SchemaSnapshotTest {
+
+  private static final JsonObject TREE = new JsonObject("{"
+      + "\"type\":\"object\",\"title\":\"tree\",\"required\":[\"name\"],"
+      + "\"properties\":{"
+      + "\"name\":{\"type\":\"string\",\"pattern\":\"^[a-z]+$\",\"maxLength\":8},"
+      + "\"email\":{\"type\":\"string\",\"format\":\"email\"},"
+      + "\"kind\":{\"enum\":[\"leaf\",\"node\",{\"custom\":[1,2]}]},"
+      + "\"weight\":{\"type\":\"number\",\"minimum\":0,\"exclusiveMinimum\":true,"
+      + "\"multipleOf\":0.5},"
+      + "\"left\":{\"$ref\":\"#\"},"
+      + "\"right\":{\"$ref\":\"#\"},"
+      + "\"tags\":{\"type\":\"array\",\"items\":{\"$ref\":\"#/definitions/tag\"},"
+      + "\"uniqueItems\":true},"
+      + "\"other\":{\"oneOf\":[{\"type\":\"integer\"},{\"not\":{\"type\":\"null\"}}]}},"
+      + "\"patternProperties\":{\"^x-\":{\"type\":\"boolean\"}},"
+      + "\"dependencies\":{\"left\":[\"right\"]},"
+      + "\"definitions\":{\"tag\":{\"type\":\"string\",\"minLength\":1}}}");
+
+  private static final List<String> SAMPLES = Arrays.asList(
+      "{\"name\":\"root\"}",
+      "{\"name\":\"Root\"}",
+      "{\"name\":\"toolongname\"}",
+      "{}",
+      "{\"name\":\"a\",\"email\":\"a@example.com\"}",
+      "{\"name\":\"a\",\"email\":\"not an email\"}",
+      "{\"name\":\"a\",\"kind\":{\"custom\":[1,2]}}",
+      "{\"name\":\"a\",\"kind\":\"tree\"}",
+      "{\"name\":\"a\",\"weight\":1.5}",
+      "{\"name\":\"a\",\"weight\":0}",
+      "{\"name\":\"a\",\"weight\":0.7}",
+      "{\"name\":\"a\",\"left\":{\"name\":\"b\"},\"right\":{\"name\":\"C\"}}",
+      "{\"name\":\"a\",\"left\":{\"name\":\"b\"}}",
+      "{\"name\":\"a\",\"tags\":[\"x\",\"y\"]}",
+      "{\"name\":\"a\",\"tags\":[\"x\",\"x\",\"\"]}",
+      "{\"name\":\"a\",\"other\":null}",
+      "{\"name\":\"a\",\"other\":\"s\"}",
+      "{\"name\":\"a\",\"x-flag\":true}",
+      "{\"name\":\"a\",\"x-flag\":1}");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static String outcome(final Schema schema, final String sample) {
+    try {
+      schema.validate(new JsonObject(sample));
+      return "valid";
+    } catch (ValidationException e) {
+      return e.getMessage();
+    }
+  }
+
+  private static Schema referredSchema(final ObjectSchema schema, final String property) {
+    return ((ReferenceSchema) schema.getPropertySchemas().get(property)).getReferredSchema();
+  }
+
+  private static SchemaSnapshot roundTrip(final Map<String, Schema> schemas) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SchemaSnapshot.write(schemas, out);
+    return SchemaSnapshot.wrap(ByteBuffer.wrap(out.toByteArray()));
+  }
+
+  @Test
+  public void corruptSnapshotIsRejected() {
+    try {
+      SchemaSnapshot.wrap(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}));
+      Assert.fail("did not throw exception");
+    } catch (SchemaException e) {
+      Assert.assertEquals("not a schema snapshot", e.getMessage());
+    }
+  }
+
+  @Test
+  public void cyclesAndSharedSubschemasArePreserved() {
+    Schema original = SchemaLoader.load(TREE);
+    ObjectSchema restored = (ObjectSchema) roundTrip(Collections.singletonMap("tree", original))
+        .getSchema("tree").get();
+    Assert.assertEquals("tree", restored.getTitle());
+    ObjectSchema referred = (ObjectSchema) referredSchema(restored, "left");
+    Assert.assertSame(referred, referredSchema(restored, "right"));
+    Assert.assertSame(referred, referredSchema(referred, "left"));
+    Assert.assertSame(referred, referredSchema(referred, "right"));
+    Assert.assertEquals(TREE, restored.getJsonSchema());
+    StringSchema name = (StringSchema) restored.getPropertySchemas().get("name");
+    Assert.assertEquals("^[a-z]+$", name.getPattern().pattern());
+  }
+
+  @Test
+  public void restoredSchemaValidatesLikeTheOriginal() {
+    Schema original = SchemaLoader.load(TREE);
+    Schema restored = roundTrip(Collections.singletonMap("tree", original)).getSchema("tree").get();
+    for (String sample : SAMPLES) {
+      Assert.assertEquals(sample, outcome(original, sample), outcome(restored, sample));
+    }
+    ReferenceSchema left = (ReferenceSchema) ((ObjectSchema) restored).getPropertySchemas()
+        .get("left");
+    Assert.assertEquals("#", left.getReferenceValue());
+    ReferenceSchema tag = (ReferenceSchema) ((ArraySchema) ((ObjectSchema) restored)
+        .getPropertySchemas().get("tags")).getAllItemSchema();
+    Assert.assertEquals("#/definitions/tag", tag.getReferenceValue());
+  }
+
+  @Test
+  public void schemasAreDecodedOnDemandFromMappedFile() throws IOException {
+    Map<String, Schema> schemas = new LinkedHashMap<>();
+    schemas.put("tree", SchemaLoader.load(TREE));
+    schemas.put("id", SchemaLoader.load(new JsonObject("{\"type\":\"integer\"}")));
+    Path file = temporaryFolder.getRoot().toPath().resolve("schemas.snapshot");
+    SchemaSnapshot.write(schemas, file);
+
+    SchemaSnapshot snapshot = SchemaSnapshot.open(file);
+    Assert.assertEquals(schemas.keySet(), snapshot.getSchemaNames());
+    Assert.assertEquals(0, snapshot.getDecodedCount());
+    Schema id = snapshot.getSchema("id").get();
+    Assert.assertEquals(1, snapshot.getDecodedCount());
+    Assert.assertSame(id, snapshot.getSchema("id").get());
+    Assert.assertEquals("valid", outcome(snapshot.getSchema("tree").get(), "{\"name\":\"a\"}"));
+    Assert.assertEquals(snapshot.getNodeCount(), snapshot.getDecodedCount());
+    Assert.assertFalse(snapshot.getSchema("missing").isPresent());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void customFormatValidatorIsRejected() {
+    Schema schema = StringSchema.builder().formatValidator(subject -> Optional.empty())
+        .build();
+    roundTrip(Collections.singletonMap("custom", schema));
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.stream;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.loader.SchemaLoader;
+import io.vertx.json.schema.stream.FileValidationReport.RecordFailure;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+public class NdjsonFileValidatorTest {
+
+  private static final Schema SCHEMA = SchemaLoader.load(new JsonObject(
+      "{\"type\":\"object\",\"required\":[\"id\"],"
+          + "\"properties\":{\"id\":{\"type\":\"integer\"},\"name\":{\"type\":\"string\"}}}"));
+
+  private Path file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = Files.createTempFile("records", ".ndjson");
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private FileValidationReport validate(final long chunkSize, final String... lines)
+      throws IOException {
+    Files.write(file, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    return NdjsonFileValidator.builder()
+        .schema(SCHEMA)
+        .chunkSize(chunkSize)
+        .parallelism(3)
+        .build()
+        .validate(file);
+  }
+
+  @Test
+  public void emptyFile() throws IOException {
+    FileValidationReport report = validate(16);
+    Assert.assertTrue(report.isValid());
+    Assert.assertEquals(0, report.getRecordCount());
+  }
+
+  @Test
+  public void failuresHaveGlobalLineNumbers() throws IOException {
+    FileValidationReport report = validate(20,
+        "{\"id\":1,\"name\":\"a\"}",
+        "{\"id\":\"2\"}",
+        "",
+        "{\"id\":3}\r",
+        "{\"name\":4}",
+        "{\"id\":",
+        "{\"id\":5}",
+        "");
+    Assert.assertEquals(6, report.getRecordCount());
+    Assert.assertEquals(3, report.getFailureCount());
+    Assert.assertEquals(Arrays.asList(2L, 5L, 6L), report.getFailures().stream()
+        .map(RecordFailure::getLineNumber)
+        .collect(Collectors.toList()));
+    Assert.assertEquals(Arrays.asList("#/id"), report.getFailures().get(0).getPointers());
+    Assert.assertEquals(Arrays.asList("#/name", "#"), report.getFailures().get(1).getPointers());
+  }
+
+  @Test
+  public void maxReportedFailures() throws IOException {
+    Files.write(file, "{}\n{}\n{}\n".getBytes(StandardCharsets.UTF_8));
+    FileValidationReport report = NdjsonFileValidator.builder()
+        .schema(SCHEMA)
+        .maxReportedFailures(2)
+        .build()
+        .validate(file);
+    Assert.assertEquals(3, report.getFailureCount());
+    Assert.assertEquals(2, report.getFailures().size());
+  }
+
+  @Test
+  public void singleChunkAndManyChunksAgree() throws IOException {
+    String[] lines = new String[200];
+    for (int i = 0; i < lines.length; ++i) {
+      lines[i] = i % 7 == 0 ? "{\"id\":" + i + ".5}" : "{\"id\":" + i + "}";
+    }
+    FileValidationReport single = validate(Integer.MAX_VALUE, lines);
+    FileValidationReport split = validate(64, lines);
+    Assert.assertEquals(29, single.getFailureCount());
+    Assert.assertEquals(single.getRecordCount(), split.getRecordCount());
+    Assert.assertEquals(single.getFailures().toString(), split.getFailures().toString());
+  }
+
+}
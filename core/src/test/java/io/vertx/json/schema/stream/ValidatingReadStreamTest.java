@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema.stream;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.json.schema.Schema;
+import io.vertx.json.schema.loader.SchemaLoader;
+import io.vertx.json.schema.stream.RecordFramer.Framing;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ValidatingReadStreamTest {
+
+  private static class FakeSource implements ReadStream<Buffer> {
+
+    private Handler<Buffer> handler;
+
+    private Handler<Void> endHandler;
+
+    private boolean paused;
+
+    @Override
+    public FakeSource endHandler(final Handler<Void> endHandler) {
+      this.endHandler = endHandler;
+      return this;
+    }
+
+    @Override
+    public FakeSource exceptionHandler(final Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public FakeSource handler(final Handler<Buffer> handler) {
+      this.handler = handler;
+      return this;
+    }
+
+    @Override
+    public FakeSource pause() {
+      paused = true;
+      return this;
+    }
+
+    @Override
+    public FakeSource resume() {
+      paused = false;
+      return this;
+    }
+
+  }
+
+  private static final Schema SCHEMA = SchemaLoader.load(new JsonObject(
+      "{\"type\":\"object\",\"required\":[\"id\"],"
+          + "\"properties\":{\"id\":{\"type\":\"integer\"}}}"));
+
+  private Vertx vertx;
+
+  @Before
+  public void createVertx() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void closeVertx() {
+    vertx.close();
+  }
+
+  @Test
+  public void backPressure() throws InterruptedException {
+    FakeSource source = new FakeSource();
+    List<String> valid = new ArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    vertx.runOnContext(v -> {
+      ValidatingReadStream stream = ValidatingReadStream.builder()
+          .vertx(vertx)
+          .source(source)
+          .schema(SCHEMA)
+          .build();
+      stream.handler(record -> valid.add(record.toString().trim()));
+      stream.endHandler(e -> done.countDown());
+      stream.pause();
+      Assert.assertTrue(source.paused);
+      source.handler.handle(Buffer.buffer("{\"id\":1}\n{\"id\":2}\n{\"id\":3}"));
+      vertx.setTimer(100, id -> {
+        Assert.assertTrue(valid.isEmpty());
+        stream.resume();
+        source.endHandler.handle(null);
+      });
+    });
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Arrays.asList("{\"id\":1}", "{\"id\":2}", "{\"id\":3}"), valid);
+  }
+
+  @Test
+  public void concatenatedFraming() {
+    List<String> records = new ArrayList<>();
+    RecordFramer framer = new RecordFramer(Framing.CONCATENATED,
+        record -> records.add(record.toString()));
+    framer.handle(Buffer.buffer("{\"a\":\"}{\\\"\"}[1,"));
+    framer.handle(Buffer.buffer("[2]] \"x y\"12 true"));
+    framer.end();
+    Assert.assertEquals(Arrays.asList("{\"a\":\"}{\\\"\"}", "[1,[2]]", "\"x y\"", "12", "true"),
+        records);
+  }
+
+  @Test
+  public void oversizedRecordsAreSkipped() {
+    List<String> records = new ArrayList<>();
+    List<String> oversized = new ArrayList<>();
+    RecordFramer framer = new RecordFramer(Framing.NDJSON, 8,
+        record -> records.add(record.toString()), record -> oversized.add(record.toString()));
+    framer.handle(Buffer.buffer("{\"a\":1}\n{\"abcdefgh"));
+    for (int i = 0; i < 100; ++i) {
+      framer.handle(Buffer.buffer("ij"));
+    }
+    framer.handle(Buffer.buffer("\":1}\n{\"b\":2}\n{\"c\":3}"));
+    framer.end();
+    Assert.assertEquals(Arrays.asList("{\"a\":1}\n", "{\"b\":2}\n", "{\"c\":3}"), records);
+    Assert.assertEquals(Collections.singletonList("{\"abcdef"), oversized);
+
+    records.clear();
+    oversized.clear();
+    framer = new RecordFramer(Framing.CONCATENATED, 4, record -> records.add(record.toString()),
+        record -> oversized.add(record.toString()));
+    framer.handle(Buffer.buffer("[1,[2]"));
+    framer.handle(Buffer.buffer(",3]1 [1]"));
+    framer.end();
+    Assert.assertEquals(Arrays.asList("1", "[1]"), records);
+    Assert.assertEquals(Collections.singletonList("[1,["), oversized);
+  }
+
+  @Test
+  public void oversizedRecordsAreRoutedInOrder() throws InterruptedException {
+    FakeSource source = new FakeSource();
+    List<String> events = new ArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    vertx.runOnContext(v -> {
+      ValidatingReadStream stream = ValidatingReadStream.builder()
+          .vertx(vertx)
+          .source(source)
+          .schema(SCHEMA)
+          .maxRecordSize(10)
+          .build();
+      stream.handler(record -> events.add("valid " + record.toString().trim()));
+      stream.invalidRecordHandler(invalid -> events.add((invalid.isMalformed() ? "malformed "
+          : "invalid ") + invalid.getRecord()));
+      stream.endHandler(e -> done.countDown());
+      source.handler.handle(Buffer.buffer("{\"id\":1}\n{\"id\":1234567}\n{\"id\":3}\n"));
+      source.endHandler.handle(null);
+    });
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Arrays.asList(
+        "valid {\"id\":1}",
+        "malformed {\"id\":1234",
+        "valid {\"id\":3}"), events);
+  }
+
+  @Test
+  public void invalidRecordsAreRoutedInOrder() throws InterruptedException {
+    FakeSource source = new FakeSource();
+    List<String> events = new ArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    vertx.runOnContext(v -> {
+      ValidatingReadStream stream = ValidatingReadStream.builder()
+          .vertx(vertx)
+          .source(source)
+          .schema(SCHEMA)
+          .concurrency(4)
+          .build();
+      stream.handler(record -> events.add("valid " + record.toString().trim()));
+      stream.invalidRecordHandler(invalid -> events.add((invalid.isMalformed() ? "malformed "
+          : "invalid " + invalid.getValidationException().get().getPointerToViolation() + " ")
+          + invalid.getRecord().toString().trim()));
+      stream.endHandler(e -> done.countDown());
+      source.handler.handle(Buffer.buffer("{\"id\":1}\n{\"id\":\"x\"}\n\n{\"i"));
+      source.handler.handle(Buffer.buffer("d\":3}\n{\"id\":\n{}"));
+      source.endHandler.handle(null);
+    });
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Arrays.asList(
+        "valid {\"id\":1}",
+        "invalid #/id {\"id\":\"x\"}",
+        "valid {\"id\":3}",
+        "malformed {\"id\":",
+        "invalid # {}"), events);
+  }
+
+}
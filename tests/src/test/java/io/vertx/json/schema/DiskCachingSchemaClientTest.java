@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.loader.DiskCachingSchemaClient;
+import io.vertx.json.schema.loader.SchemaClient;
+import io.vertx.json.schema.loader.SchemaLoader;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+public class DiskCachingSchemaClientTest {
+
+  private static final String URL = "http://localhost:1235/schema.json";
+
+  private static final String ETAG = "\"v1\"";
+
+  private final AtomicInteger fullResponses = new AtomicInteger();
+
+  private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+  private Server server;
+
+  private Path cacheDirectory;
+
+  private static String read(final InputStream input) {
+    try (Scanner scanner = new Scanner(input, "UTF-8")) {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+
+  private DiskCachingSchemaClient client(final long maxAgeSeconds) {
+    return DiskCachingSchemaClient.builder()
+        .cacheDirectory(cacheDirectory)
+        .maxAge(maxAgeSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  @Before
+  public void startServer() throws Exception {
+    cacheDirectory = Files.createTempDirectory("schema-cache");
+    server = new Server(1235);
+    ServletHandler handler = new ServletHandler();
+    server.setHandler(handler);
+    handler.addServletWithMapping(new ServletHolder(new HttpServlet() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void doGet(final HttpServletRequest req, final HttpServletResponse resp)
+          throws IOException {
+        if (ETAG.equals(req.getHeader("If-None-Match"))) {
+          notModifiedResponses.incrementAndGet();
+          resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          return;
+        }
+        fullResponses.incrementAndGet();
+        resp.setContentType("application/json");
+        resp.setHeader("ETag", ETAG);
+        resp.getWriter().write("{\"type\":\"string\"}");
+      }
+    }), "/*");
+    server.start();
+  }
+
+  @After
+  public void stopServer() throws Exception {
+    server.stop();
+    try (Stream<Path> files = Files.list(cacheDirectory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(cacheDirectory);
+  }
+
+  @Test
+  public void freshDocumentIsServedAfterRestart() {
+    Assert.assertEquals("{\"type\":\"string\"}", read(client(3600).get(URL)));
+    SchemaClient restarted = client(3600);
+    Assert.assertEquals("{\"type\":\"string\"}", read(restarted.get(URL)));
+    Assert.assertEquals(1, fullResponses.get());
+    Assert.assertEquals(0, notModifiedResponses.get());
+  }
+
+  @Test
+  public void loaderUsesCachedDocument() {
+    SchemaClient client = client(3600);
+    JsonObject schema = new JsonObject("{\"$ref\":\"" + URL + "\"}");
+    SchemaLoader.load(schema, client);
+    SchemaLoader.load(schema, client);
+    Assert.assertEquals(1, fullResponses.get());
+  }
+
+  @Test
+  public void staleDocumentIsRevalidated() {
+    SchemaClient client = client(0);
+    read(client.get(URL));
+    Assert.assertEquals("{\"type\":\"string\"}", read(client.get(URL)));
+    Assert.assertEquals(1, fullResponses.get());
+    Assert.assertEquals(1, notModifiedResponses.get());
+  }
+
+  @Test
+  public void staleDocumentIsServedIfTheHostIsDown() throws Exception {
+    SchemaClient client = client(0);
+    read(client.get(URL));
+    server.stop();
+    Assert.assertEquals("{\"type\":\"string\"}", read(client.get(URL)));
+  }
+
+}